@@ -0,0 +1,156 @@
+import filters.FilterBank;
+import filters.KalmanFilter;
+import math.Matrix;
+import math.Vector;
+import math.batch.BatchKernels;
+import math.batch.ScalarBatchKernels;
+import models.CVModel;
+
+// Throughput of one CV predict + 2-D position update per track:
+// per-track KalmanFilter objects vs the structure-of-arrays batch kernels.
+//
+// Run with --add-modules jdk.incubator.vector to include the Vector API backend;
+// without it, BatchKernels.best() falls back to the scalar loops.
+public class MainBatchBench {
+
+    private static final int TRACKS = 10_000;
+    private static final int WARMUP_FRAMES = 300;
+    private static final int TIMED_FRAMES  = 1_000;
+
+    private static final double DT = 1.0;
+    private static final double Q  = 1.0;
+    private static final double R  = 4.0;
+
+    public static void main(String[] args) {
+
+        double[] zx = new double[TRACKS];
+        double[] zy = new double[TRACKS];
+
+        System.out.println("Tracks: " + TRACKS);
+        System.out.println("backend                 ns/track/frame   tracks/us");
+
+        // Vector API first: its large loop bodies are the most sensitive to JIT
+        // inlining decisions made while the other backends warm up
+        BatchKernels best = BatchKernels.best();
+        if (best instanceof ScalarBatchKernels) {
+            System.out.println("(jdk.incubator.vector not available: SIMD backend skipped)");
+        } else {
+            report(best.name() + " batch", timeBatch(best, zx, zy));
+        }
+
+        report("scalar batch", timeBatch(new ScalarBatchKernels(), zx, zy));
+        report("FilterBank subset", timeBank(zx, zy));
+        report("KalmanFilter loop", timeFilters(zx, zy));
+    }
+
+    private static void report(String name, double nsPerTrack) {
+        System.out.printf("%-22s %16.2f %11.1f%n", name, nsPerTrack, 1000.0 / nsPerTrack);
+    }
+
+    // Measurements for frame f: each track moves along its own straight line
+    private static void fillMeasurements(double[] zx, double[] zy, int f) {
+        for (int i = 0; i < TRACKS; i++) {
+            zx[i] = i + 10.0 * f + ((i * 7 + f) % 5 - 2);
+            zy[i] = -i + 5.0 * f + ((i * 3 + f) % 5 - 2);
+        }
+    }
+
+    private static double timeFilters(double[] zx, double[] zy) {
+        KalmanFilter[] filters = new KalmanFilter[TRACKS];
+        CVModel model = new CVModel(Q);
+        Matrix H = new Matrix(new double[][] {
+                {1, 0, 0, 0},
+                {0, 1, 0, 0}
+        });
+        Matrix Rm = Matrix.identity(2).multiply(R);
+        for (int i = 0; i < TRACKS; i++) {
+            Vector x0 = new Vector(new double[] {i, -i, 0.0, 0.0});
+            filters[i] = new KalmanFilter(x0, Matrix.identity(4).multiply(1000.0), model, H, Rm);
+        }
+
+        Vector z = new Vector(2);
+        long elapsed = 0;
+        for (int f = 0; f < WARMUP_FRAMES + TIMED_FRAMES; f++) {
+            fillMeasurements(zx, zy, f);
+            long start = System.nanoTime();
+            for (int i = 0; i < TRACKS; i++) {
+                z.set(0, zx[i]);
+                z.set(1, zy[i]);
+                filters[i].predict(DT);
+                filters[i].update(z);
+            }
+            if (f >= WARMUP_FRAMES) {
+                elapsed += System.nanoTime() - start;
+            }
+        }
+
+        checkSink(filters[TRACKS / 2].getState().get(0));
+        return (double) elapsed / ((long) TIMED_FRAMES * TRACKS);
+    }
+
+    // Bank update goes through updateSubset (gather/scatter), as a tracker would drive it
+    private static double timeBank(double[] zx, double[] zy) {
+        Matrix H = new Matrix(new double[][] {
+                {1, 0, 0, 0},
+                {0, 1, 0, 0}
+        });
+        FilterBank bank = new FilterBank(new CVModel(Q), 4, H, Matrix.identity(2).multiply(R), TRACKS);
+        int[] slots = new int[TRACKS];
+        for (int i = 0; i < TRACKS; i++) {
+            slots[i] = bank.add(new Vector(new double[] {i, -i, 0.0, 0.0}), Matrix.identity(4).multiply(1000.0));
+        }
+
+        double[] z = new double[2 * TRACKS];
+        long elapsed = 0;
+        for (int f = 0; f < WARMUP_FRAMES + TIMED_FRAMES; f++) {
+            fillMeasurements(zx, zy, f);
+            for (int i = 0; i < TRACKS; i++) {
+                z[2 * i] = zx[i];
+                z[2 * i + 1] = zy[i];
+            }
+            long start = System.nanoTime();
+            bank.predictAll(DT);
+            bank.updateSubset(slots, TRACKS, z);
+            if (f >= WARMUP_FRAMES) {
+                elapsed += System.nanoTime() - start;
+            }
+        }
+
+        checkSink(bank.state(slots[TRACKS / 2], 0));
+        return (double) elapsed / ((long) TIMED_FRAMES * TRACKS);
+    }
+
+    private static double timeBatch(BatchKernels kernels, double[] zx, double[] zy) {
+        int stride = TRACKS;
+        double[] x = new double[BatchKernels.STATE_SIZE * stride];
+        double[] P = new double[BatchKernels.COV_SIZE * stride];
+        for (int i = 0; i < TRACKS; i++) {
+            x[BatchKernels.X * stride + i] = i;
+            x[BatchKernels.Y * stride + i] = -i;
+            P[BatchKernels.P00 * stride + i] = 1000.0;
+            P[BatchKernels.P11 * stride + i] = 1000.0;
+            P[BatchKernels.P22 * stride + i] = 1000.0;
+            P[BatchKernels.P33 * stride + i] = 1000.0;
+        }
+
+        long elapsed = 0;
+        for (int f = 0; f < WARMUP_FRAMES + TIMED_FRAMES; f++) {
+            fillMeasurements(zx, zy, f);
+            long start = System.nanoTime();
+            kernels.cvPredict(DT, Q, x, P, TRACKS, stride);
+            kernels.positionUpdate(zx, zy, R, 0.0, R, x, P, TRACKS, stride);
+            if (f >= WARMUP_FRAMES) {
+                elapsed += System.nanoTime() - start;
+            }
+        }
+
+        checkSink(x[BatchKernels.X * stride + TRACKS / 2]);
+        return (double) elapsed / ((long) TIMED_FRAMES * TRACKS);
+    }
+
+    private static void checkSink(double v) {
+        if (Double.isNaN(v)) {
+            System.out.println("NaN state");
+        }
+    }
+}
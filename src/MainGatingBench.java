@@ -0,0 +1,97 @@
+import tracking.SpatialGrid;
+
+import java.util.Random;
+
+// Gating cost per frame: linear scan over every track vs the uniform-grid
+// spatial index (TrackManager's gating path), for 10k to 100k tracks.
+//
+// Tracks are spread uniformly at one per 100 m x 100 m, each is measured once
+// per frame with 3 m noise, and the gate is 20 m. The linear scan is timed on a
+// sample of measurements and scaled to the full frame (a full scan at 100k
+// tracks is 10^10 distance tests); the grid is timed on the whole frame,
+// rebuild included.
+public class MainGatingBench {
+
+    private static final double GATE = 20.0;
+    private static final double SPACING = 100.0;
+    private static final int LINEAR_SAMPLE = 2_000;
+    private static final int REPS = 5;
+
+    public static void main(String[] args) {
+        System.out.println("tracks    linear ms/frame   grid ms/frame   speedup   gated pairs");
+        for (int n : new int[] {10_000, 30_000, 100_000}) {
+            run(n);
+        }
+    }
+
+    private static void run(int n) {
+        Random rng = new Random(n);
+        double side = Math.sqrt(n) * SPACING;
+
+        double[] tx = new double[n];
+        double[] ty = new double[n];
+        double[] zx = new double[n];
+        double[] zy = new double[n];
+        for (int i = 0; i < n; i++) {
+            tx[i] = side * rng.nextDouble();
+            ty[i] = side * rng.nextDouble();
+            zx[i] = tx[i] + 3.0 * rng.nextGaussian();
+            zy[i] = ty[i] + 3.0 * rng.nextGaussian();
+        }
+
+        SpatialGrid grid = new SpatialGrid(GATE);
+        int[] hits = new int[1];
+
+        // Grid: rebuild + one query per measurement
+        long gridBest = Long.MAX_VALUE;
+        long gridPairs = 0;
+        for (int rep = 0; rep < REPS + 2; rep++) {
+            hits[0] = 0;
+            long t0 = System.nanoTime();
+            grid.rebuild(tx, ty, n);
+            for (int j = 0; j < n; j++) {
+                grid.forEachWithin(zx[j], zy[j], GATE, i -> hits[0]++);
+            }
+            long t = System.nanoTime() - t0;
+            gridBest = Math.min(gridBest, t);
+            gridPairs = hits[0];
+        }
+
+        // Linear: sample of measurements against every track, scaled to n
+        int sample = Math.min(n, LINEAR_SAMPLE);
+        long linearBest = Long.MAX_VALUE;
+        long linearPairs = 0;
+        double g2 = GATE * GATE;
+        for (int rep = 0; rep < REPS; rep++) {
+            long count = 0;
+            long t0 = System.nanoTime();
+            for (int j = 0; j < sample; j++) {
+                double x = zx[j], y = zy[j];
+                for (int i = 0; i < n; i++) {
+                    double dx = tx[i] - x;
+                    double dy = ty[i] - y;
+                    if (dx * dx + dy * dy < g2) {
+                        count++;
+                    }
+                }
+            }
+            long t = System.nanoTime() - t0;
+            linearBest = Math.min(linearBest, t);
+            linearPairs = count;
+        }
+        double linearMs = linearBest * ((double) n / sample) / 1e6;
+        double gridMs = gridBest / 1e6;
+
+        // Same answer on the sample
+        hits[0] = 0;
+        for (int j = 0; j < sample; j++) {
+            grid.forEachWithin(zx[j], zy[j], GATE, i -> hits[0]++);
+        }
+        if (hits[0] != linearPairs) {
+            throw new IllegalStateException("grid and linear scan disagree: " + hits[0] + " vs " + linearPairs);
+        }
+
+        System.out.printf("%6d   %15.1f   %13.2f   %7.0fx   %11d%n",
+                n, linearMs, gridMs, linearMs / gridMs, gridPairs);
+    }
+}
@@ -0,0 +1,74 @@
+import math.Matrix;
+import math.Vector;
+import tracking.HorizontalChannel;
+
+import java.util.Random;
+
+// Straight leg, 3 deg/s turn, straight leg again. The hard-switching channel
+// (which in practice never leaves CV) against the CV/CT/CA IMM channel:
+// per-scan position error and the IMM's most probable model.
+public class MainIMM {
+
+    public static void main(String[] args) {
+
+        double dt = 1.0;
+        Random rng = new Random(11);
+
+        Vector x0 = new Vector(new double[] {0.0, 0.0, 100.0, 0.0});
+        Matrix P0 = Matrix.identity(4).multiply(100.0);
+
+        Matrix H_cv = new Matrix(new double[][] {
+                {1, 0, 0, 0},
+                {0, 1, 0, 0}
+        });
+        Matrix H_ct = new Matrix(new double[][] {
+                {1, 0, 0, 0, 0},
+                {0, 1, 0, 0, 0}
+        });
+        Matrix R = new Matrix(new double[][] {
+                {100, 0},
+                {0, 100}
+        });
+
+        HorizontalChannel hard = new HorizontalChannel(x0, P0, 0.1, 0.1, H_cv, H_ct, R);
+        HorizontalChannel imm = HorizontalChannel.imm(x0, P0, 0.1, 0.001, 1.0, H_cv, H_ct, R, 0.95);
+
+        double px = 0.0, py = 0.0, heading = 0.0, speed = 100.0;
+        double sumHard = 0.0, sumImm = 0.0;
+        int scans = 90;
+
+        System.out.println("  t   turn    err(hard)   err(imm)   imm mode  P(CV)  P(CT)  P(CA)");
+        for (int t = 1; t <= scans; t++) {
+            double omega = (t > 30 && t <= 60) ? Math.toRadians(3.0) : 0.0;
+            heading += omega * dt;
+            px += speed * dt * Math.cos(heading);
+            py += speed * dt * Math.sin(heading);
+
+            Vector z = new Vector(new double[] {
+                    px + 10.0 * rng.nextGaussian(),
+                    py + 10.0 * rng.nextGaussian()
+            });
+
+            hard.predict(dt);
+            hard.update(z);
+            imm.predict(dt);
+            imm.update(z);
+
+            double eHard = Math.hypot(hard.getState().get(0) - px, hard.getState().get(1) - py);
+            double eImm = Math.hypot(imm.getState().get(0) - px, imm.getState().get(1) - py);
+            sumHard += eHard * eHard;
+            sumImm += eImm * eImm;
+
+            if (t % 5 == 0) {
+                System.out.printf("%3d  %5s  %9.2f  %9.2f   %-8s %5.2f  %5.2f  %5.2f%n",
+                        t, omega != 0.0 ? "yes" : "", eHard, eImm, imm.getMode(),
+                        imm.getIMM().modeProbability(0),
+                        imm.getIMM().modeProbability(1),
+                        imm.getIMM().modeProbability(2));
+            }
+        }
+
+        System.out.printf("%nPosition RMSE: hard switching %.2f m, IMM %.2f m%n",
+                Math.sqrt(sumHard / scans), Math.sqrt(sumImm / scans));
+    }
+}
@@ -0,0 +1,88 @@
+import math.Matrix;
+import math.Vector;
+import models.CTEKFModel;
+import models.CTPolarModel;
+import models.NonlinearMotionModel;
+
+// Checks model Jacobians against finite differences of f, over turn rates from
+// exactly zero (straight line) to hard turns: CTEKFModel's analytic Jacobian
+// and CTPolarModel's forward-mode AD Jacobian.
+public class MainJacobianCheck {
+
+    public static void main(String[] args) {
+        double[] omegas = {0.0, 1e-9, -5e-7, 2e-6, 1e-4, -3e-3, 0.05, -0.3, 1.2};
+        double dt = 1.0;
+
+        System.out.println("CTEKFModel (analytic), state [x, y, vx, vy, omega]");
+        boolean ok = check(new CTEKFModel(0.1), omegas, dt, new double[] {120.0, -40.0, 9.5, -3.25});
+
+        System.out.println();
+        System.out.println("CTPolarModel (dual numbers), state [x, y, v, heading, omega]");
+        ok &= check(new CTPolarModel(0.1), omegas, dt, new double[] {120.0, -40.0, 10.0, 0.7});
+
+        System.out.println(ok ? "OK" : "MISMATCH");
+    }
+
+    private static boolean check(NonlinearMotionModel model, double[] omegas, double dt, double[] x0) {
+        System.out.println("omega          max |J - central diff|   max |J - forward diff|");
+        double worst = 0.0;
+        for (double w : omegas) {
+            Vector x = new Vector(new double[] {x0[0], x0[1], x0[2], x0[3], w});
+
+            Matrix J = model.F(x, dt);
+            Matrix central = numericalJacobian(model, x, dt, true);
+            Matrix forward = numericalJacobian(model, x, dt, false);
+
+            double dc = maxAbsDiff(J, central);
+            double df = maxAbsDiff(J, forward);
+            worst = Math.max(worst, dc);
+            System.out.printf("%-12.3g %22.3e %24.3e%n", w, dc, df);
+        }
+        return worst < 1e-5;
+    }
+
+    // Finite-difference Jacobian (forward differences with eps = 1e-5 is what
+    // CTEKFModel used to compute; central differences are the tighter reference).
+    // Below |omega| = 1e-6, f switches to straight-line motion, so the omega
+    // column is differenced on the turning branch, just outside that band.
+    private static Matrix numericalJacobian(NonlinearMotionModel model, Vector x, double dt, boolean central) {
+        int n = x.size();
+        Matrix J = new Matrix(n, n);
+        Vector fx = model.f(x, dt);
+
+        for (int j = 0; j < n; j++) {
+            double eps = 1e-5;
+            if (j == 4 && central && Math.abs(x.get(4)) < 1e-4) {
+                // central: difference straddling zero would land in the straight-line band
+                eps = 1e-4;
+            }
+            Vector xp = x.copy();
+            xp.set(j, x.get(j) + eps);
+            Vector fp = model.f(xp, dt);
+
+            if (central) {
+                Vector xm = x.copy();
+                xm.set(j, x.get(j) - eps);
+                Vector fm = model.f(xm, dt);
+                for (int i = 0; i < n; i++) {
+                    J.set(i, j, (fp.get(i) - fm.get(i)) / (2 * eps));
+                }
+            } else {
+                for (int i = 0; i < n; i++) {
+                    J.set(i, j, (fp.get(i) - fx.get(i)) / eps);
+                }
+            }
+        }
+        return J;
+    }
+
+    private static double maxAbsDiff(Matrix a, Matrix b) {
+        double d = 0.0;
+        for (int r = 0; r < a.rows(); r++) {
+            for (int c = 0; c < a.cols(); c++) {
+                d = Math.max(d, Math.abs(a.get(r, c) - b.get(r, c)));
+            }
+        }
+        return d;
+    }
+}
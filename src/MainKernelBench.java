@@ -0,0 +1,131 @@
+import filters.EKF;
+import filters.KalmanFilter;
+import math.Matrix;
+import math.Vector;
+import models.CA1DModel;
+import models.CAModel;
+import models.CTEKFModel;
+import models.CTModel;
+import models.CV1DModel;
+import models.CVModel;
+
+// Micro-benchmark: generated fixed-size kernels vs the generic Matrix path.
+// Plain System.nanoTime harness (the project has no build file to pull in JMH),
+// so run with a quiet machine and compare the ratio rather than absolute numbers.
+public class MainKernelBench {
+
+    private static final int WARMUP_CYCLES = 2_000_000;
+    private static final int TIMED_CYCLES  = 5_000_000;
+
+    public static void main(String[] args) {
+
+        System.out.println("model      n  m   generic ns/cycle   fixed ns/cycle   speedup");
+
+        run("CV1D",   2, 1);
+        run("CA1D",   3, 1);
+        run("CV",     4, 2);
+        run("CT",     4, 2);
+        run("CT-EKF", 5, 2);
+        run("CA",     6, 2);
+
+        // Constant gain once P has converged (fixed dt, every scan detected)
+        double full   = timeCycles("CV", 4, 2, true);
+        double steady = timeCycles("CV-steady", 4, 2, true);
+        System.out.printf("%nCV steady-state gain: %.1f ns/cycle vs %.1f full filter (%.2fx)%n",
+                steady, full, full / steady);
+    }
+
+    private static void run(String name, int n, int m) {
+        double generic = timeCycles(name, n, m, false);
+        double fixed   = timeCycles(name, n, m, true);
+
+        System.out.printf("%-8s %3d %2d   %16.1f   %14.1f   %6.2fx%n",
+                name, n, m, generic, fixed, generic / fixed);
+    }
+
+    // Average ns for one predict + update cycle
+    private static double timeCycles(String name, int n, int m, boolean fixedKernels) {
+        Cycle cycle = makeFilter(name, n, m, fixedKernels);
+
+        Vector z = new Vector(m);
+        for (int i = 0; i < WARMUP_CYCLES; i++) {
+            cycle.step(z, i);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < TIMED_CYCLES; i++) {
+            cycle.step(z, i);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        // Keep the result live so the loop can't be eliminated
+        if (Double.isNaN(cycle.sink())) {
+            System.out.println("NaN state in " + name);
+        }
+        return (double) elapsed / TIMED_CYCLES;
+    }
+
+    private interface Cycle {
+        void step(Vector z, int i);
+        double sink();
+    }
+
+    private static Cycle makeFilter(String name, int n, int m, boolean fixedKernels) {
+        Vector x0 = new Vector(n);
+        Matrix P0 = Matrix.identity(n).multiply(100.0);
+
+        // Measure the first m state components (positions)
+        Matrix H = new Matrix(m, n);
+        for (int i = 0; i < m; i++) {
+            H.set(i, i, 1.0);
+        }
+        Matrix R = Matrix.identity(m).multiply(4.0);
+
+        if (name.equals("CT-EKF")) {
+            EKF ekf = new EKF(x0, P0, new CTEKFModel(0.5), H, R);
+            ekf.setFixedKernels(fixedKernels);
+            return new Cycle() {
+                public void step(Vector z, int i) {
+                    fillMeasurement(z, i);
+                    ekf.predict(1.0);
+                    ekf.update(z);
+                }
+                public double sink() {
+                    return ekf.getState().get(0);
+                }
+            };
+        }
+
+        KalmanFilter kf;
+        switch (name) {
+            case "CV1D": kf = new KalmanFilter(x0, P0, new CV1DModel(1.0), H, R); break;
+            case "CA1D": kf = new KalmanFilter(x0, P0, new CA1DModel(1.0), H, R); break;
+            case "CV":   kf = new KalmanFilter(x0, P0, new CVModel(1.0), H, R); break;
+            case "CV-steady":
+                kf = new KalmanFilter(x0, P0, new CVModel(1.0), H, R);
+                kf.setSteadyState(true);
+                break;
+            case "CT":   kf = new KalmanFilter(x0, P0, new CTModel(0.5, Math.toRadians(5.0)), H, R); break;
+            default:     kf = new KalmanFilter(x0, P0, new CAModel(0.5), H, R); break;
+        }
+        kf.setFixedKernels(fixedKernels);
+
+        return new Cycle() {
+            public void step(Vector z, int i) {
+                fillMeasurement(z, i);
+                kf.predict(1.0);
+                kf.update(z);
+            }
+            public double sink() {
+                return kf.getState().get(0);
+            }
+        };
+    }
+
+    // Deterministic wobble around the origin so the filter stays well conditioned
+    private static void fillMeasurement(Vector z, int i) {
+        for (int k = 0; k < z.size(); k++) {
+            z.set(k, ((i * 7 + k * 3) % 11) - 5.0);
+        }
+    }
+}
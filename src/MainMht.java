@@ -0,0 +1,252 @@
+import math.Vector;
+import tracking.MhtTracker;
+import tracking.TrackManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+// Crossing targets in clutter: frame-by-frame GNN (TrackManager) vs the
+// track-oriented MHT, then the MHT's cost per frame under different budgets.
+//
+// 40 pairs of targets at 10 m/s cross at a shallow angle (15 degrees) half way
+// through the run, detected with probability 0.9 and 2 m noise, among uniform
+// clutter. Every frame targets and reported tracks within 10 m are matched one
+// to one, closest pairs first. "kept" counts targets matched to the same track
+// id at the end as 6 frames before the crossing (no swap, no lost track),
+// "covered" targets matched at the end, and "false" reported tracks near no
+// target at the end (GNN reports every live track, the MHT only confirmed ones).
+public class MainMht {
+
+    private static final int PAIRS = 40;
+    private static final double SIDE = 3000.0;
+    private static final double SPEED = 10.0;
+    private static final double CROSSING_ANGLE = Math.toRadians(15.0);
+    private static final double NOISE = 2.0;
+    private static final double DETECTION = 0.9;
+    private static final double CLUTTER_PER_KM2 = 20.0;
+    private static final double GATE = 30.0;
+    private static final double MATCH = 10.0;
+    private static final int FRAMES = 40;
+    private static final int BEFORE_CROSSING = FRAMES / 2 - 6;
+    private static final int WARMUP_RUNS = 3;
+
+    private static final class Scenario {
+        final List<List<Vector>> frames = new ArrayList<>();
+        final List<double[][]> truth = new ArrayList<>();   // per frame: target -> (x, y)
+    }
+
+    public static void main(String[] args) {
+        Scenario scenario = scenario(11);
+
+        // Unreported runs on another scenario, so the JIT has compiled both trackers
+        Scenario warmup = scenario(5);
+        for (int run = 0; run < WARMUP_RUNS; run++) {
+            runGnn(warmup, false);
+            runMht(warmup, MhtTracker.DEFAULT_SCAN_DEPTH, MhtTracker.DEFAULT_MAX_LEAVES,
+                    MhtTracker.DEFAULT_GLOBAL_HYPOTHESES, false, false);
+        }
+
+        System.out.println("tracker               kept      covered   false   ms/frame");
+        runGnn(scenario, true);
+        runMht(scenario, MhtTracker.DEFAULT_SCAN_DEPTH, MhtTracker.DEFAULT_MAX_LEAVES,
+                MhtTracker.DEFAULT_GLOBAL_HYPOTHESES, true, true);
+
+        System.out.println();
+        System.out.println("budget sweep (N = scan depth, L = leaves per tree, k = global hypotheses per cluster)");
+        System.out.println("budget                kept      covered   false   ms/frame   leaves   nodes/frame   budget hits");
+        for (int n : new int[] {1, 2, 3, 5}) {
+            for (int leaves : new int[] {4, 16}) {
+                for (int k : new int[] {1, 16}) {
+                    runMht(scenario, n, leaves, k, true, false);
+                }
+            }
+        }
+    }
+
+    private static Scenario scenario(long seed) {
+        Random rng = new Random(seed);
+        int targets = 2 * PAIRS;
+        double[] x = new double[targets];
+        double[] y = new double[targets];
+        double[] vx = new double[targets];
+        double[] vy = new double[targets];
+        for (int p = 0; p < PAIRS; p++) {
+            // Both targets of a pair reach the same point at the middle frame
+            double cx = 300.0 + (SIDE - 600.0) * rng.nextDouble();
+            double cy = 300.0 + (SIDE - 600.0) * rng.nextDouble();
+            double heading = 2.0 * Math.PI * rng.nextDouble();
+            for (int s = 0; s < 2; s++) {
+                int i = 2 * p + s;
+                double h = heading + (s == 0 ? -0.5 : 0.5) * CROSSING_ANGLE;
+                vx[i] = SPEED * Math.cos(h);
+                vy[i] = SPEED * Math.sin(h);
+                x[i] = cx - vx[i] * (FRAMES / 2);
+                y[i] = cy - vy[i] * (FRAMES / 2);
+            }
+        }
+
+        int clutterCount = (int) Math.round(CLUTTER_PER_KM2 * SIDE * SIDE / 1e6);
+        Scenario scenario = new Scenario();
+        for (int f = 0; f < FRAMES; f++) {
+            double[][] truth = new double[targets][];
+            List<Vector> frame = new ArrayList<>();
+            for (int i = 0; i < targets; i++) {
+                x[i] += vx[i];
+                y[i] += vy[i];
+                truth[i] = new double[] {x[i], y[i]};
+                if (rng.nextDouble() < DETECTION) {
+                    frame.add(new Vector(new double[] {
+                            x[i] + NOISE * rng.nextGaussian(),
+                            y[i] + NOISE * rng.nextGaussian()
+                    }));
+                }
+            }
+            for (int c = 0; c < clutterCount; c++) {
+                frame.add(new Vector(new double[] {SIDE * rng.nextDouble(), SIDE * rng.nextDouble()}));
+            }
+            scenario.frames.add(frame);
+            scenario.truth.add(truth);
+        }
+        return scenario;
+    }
+
+    private static void runGnn(Scenario scenario, boolean print) {
+        TrackManager manager = new TrackManager(GATE, 3);
+        manager.setVerbose(false);
+        manager.setChiSquareGate(TrackManager.CHI2_2DOF_99);
+        manager.setAssociation(TrackManager.Association.GNN);
+
+        Score score = new Score();
+        long nanos = 0;
+        for (int f = 0; f < FRAMES; f++) {
+            long t0 = System.nanoTime();
+            manager.processFrame(f, scenario.frames.get(f));
+            nanos += System.nanoTime() - t0;
+
+            List<int[]> ids = new ArrayList<>();
+            List<double[]> positions = new ArrayList<>();
+            for (TrackManager.SimpleTrack t : manager.getTracks()) {
+                ids.add(new int[] {t.id});
+                positions.add(new double[] {t.track.getState().get(0), t.track.getState().get(1)});
+            }
+            score.frame(f, scenario.truth.get(f), ids, positions);
+        }
+        if (print) {
+            score.print("GNN (TrackManager)", nanos);
+            System.out.println();
+        }
+    }
+
+    private static void runMht(Scenario scenario, int scanDepth, int maxLeaves, int k, boolean print, boolean stages) {
+        MhtTracker mht = new MhtTracker(GATE);
+        mht.setScanDepth(scanDepth);
+        mht.setMaxLeavesPerTree(maxLeaves);
+        mht.setGlobalHypotheses(k);
+        mht.setScoring(DETECTION, CLUTTER_PER_KM2 / 1e6, 1e-6);
+
+        Score score = new Score();
+        long nanos = 0;
+        long leaves = 0;
+        long nodes = 0;
+        int budgetHits = 0;
+        long[] stageNanos = new long[6];
+        for (int f = 0; f < FRAMES; f++) {
+            long t0 = System.nanoTime();
+            mht.processFrame(f, scenario.frames.get(f));
+            nanos += System.nanoTime() - t0;
+
+            MhtTracker.Stats s = mht.getStats();
+            leaves += s.leaves;
+            nodes += s.searchNodes;
+            budgetHits += s.budgetHits;
+            stageNanos[0] += s.extendNanos;
+            stageNanos[1] += s.birthNanos;
+            stageNanos[2] += s.clusterNanos;
+            stageNanos[3] += s.selectNanos;
+            stageNanos[4] += s.pruneNanos;
+            stageNanos[5] += s.materializeNanos;
+
+            List<int[]> ids = new ArrayList<>();
+            List<double[]> positions = new ArrayList<>();
+            for (MhtTracker.TrackEstimate t : mht.getTracks()) {
+                ids.add(new int[] {t.id});
+                positions.add(new double[] {t.state.get(0), t.state.get(1)});
+            }
+            score.frame(f, scenario.truth.get(f), ids, positions);
+        }
+
+        if (!print) {
+            return;
+        }
+        if (stages) {
+            score.print(String.format("MHT (N=%d L=%d k=%d)", scanDepth, maxLeaves, k), nanos);
+            System.out.println();
+            System.out.printf("  MHT stages, ms/frame: extend %.2f  birth %.2f  cluster %.2f  select %.2f  prune %.2f  materialize %.2f%n",
+                    stageNanos[0] / 1e6 / FRAMES, stageNanos[1] / 1e6 / FRAMES, stageNanos[2] / 1e6 / FRAMES,
+                    stageNanos[3] / 1e6 / FRAMES, stageNanos[4] / 1e6 / FRAMES, stageNanos[5] / 1e6 / FRAMES);
+            System.out.println("  last frame: " + mht.getStats());
+        } else {
+            score.print(String.format("N=%d L=%d k=%d", scanDepth, maxLeaves, k), nanos);
+            System.out.printf("   %6d   %11d   %11d%n", leaves / FRAMES, nodes / FRAMES, budgetHits);
+        }
+    }
+
+    // Identities kept through the crossing, coverage and false tracks at the last frame
+    private static final class Score {
+        Map<Integer, Integer> before = new HashMap<>();         // target -> track id before the crossing
+        final Map<Integer, Integer> current = new HashMap<>();
+        int falseTracks;
+
+        void frame(int f, double[][] truth, List<int[]> ids, List<double[]> positions) {
+            List<double[]> close = new ArrayList<>();   // (d2, target, track)
+            boolean[] nearTarget = new boolean[ids.size()];
+            for (int i = 0; i < truth.length; i++) {
+                for (int t = 0; t < ids.size(); t++) {
+                    double dx = positions.get(t)[0] - truth[i][0];
+                    double dy = positions.get(t)[1] - truth[i][1];
+                    double d2 = dx * dx + dy * dy;
+                    if (d2 < MATCH * MATCH) {
+                        nearTarget[t] = true;
+                        close.add(new double[] {d2, i, t});
+                    }
+                }
+            }
+            close.sort((a, b) -> Double.compare(a[0], b[0]));
+
+            current.clear();
+            boolean[] trackDone = new boolean[ids.size()];
+            for (double[] c : close) {
+                int i = (int) c[1];
+                int t = (int) c[2];
+                if (current.containsKey(i) || trackDone[t]) {
+                    continue;
+                }
+                trackDone[t] = true;
+                current.put(i, ids.get(t)[0]);
+            }
+            if (f == BEFORE_CROSSING) {
+                before = new HashMap<>(current);
+            }
+            falseTracks = 0;
+            for (boolean near : nearTarget) {
+                if (!near) {
+                    falseTracks++;
+                }
+            }
+        }
+
+        void print(String label, long nanos) {
+            int kept = 0;
+            for (Map.Entry<Integer, Integer> e : before.entrySet()) {
+                if (e.getValue().equals(current.get(e.getKey()))) {
+                    kept++;
+                }
+            }
+            System.out.printf("%-20s %4d / %d   %4d / %d   %5d   %8.2f",
+                    label, kept, 2 * PAIRS, current.size(), 2 * PAIRS, falseTracks, nanos / 1e6 / FRAMES);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+import math.Vector;
+import tracking.TrackManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+// TrackManager.processFrame with the per-track work (predict, chi-square
+// gating, updates) sequential vs chunked on the common ForkJoin pool, for a few
+// minimum batch sizes. Every parallel run is checked bit for bit against the
+// sequential one.
+//
+// 50,000 targets at constant velocity, detected with probability 0.9 and 2 m
+// noise, plus 5,000 clutter points per frame; GNN association.
+public class MainParallelTracks {
+
+    private static final int TARGETS = 50_000;
+    private static final int CLUTTER = 5_000;
+    private static final double SIDE = 200_000.0;
+    private static final int WARMUP_FRAMES = 10;
+    private static final int TIMED_FRAMES = 30;
+
+    public static void main(String[] args) {
+        List<List<Vector>> frames = scenario(3);
+        System.out.println("common pool parallelism: " + ForkJoinPool.getCommonPoolParallelism());
+        System.out.println("mode                 ms/frame   tracks   identical");
+
+        double[][] reference = run("sequential", frames, 0);
+        for (int minBatch : new int[] {64, TrackManager.DEFAULT_MIN_BATCH, 4096}) {
+            run("parallel, batch " + minBatch, frames, minBatch, reference);
+        }
+    }
+
+    private static List<List<Vector>> scenario(long seed) {
+        Random rng = new Random(seed);
+        double[] x = new double[TARGETS];
+        double[] y = new double[TARGETS];
+        double[] vx = new double[TARGETS];
+        double[] vy = new double[TARGETS];
+        for (int i = 0; i < TARGETS; i++) {
+            x[i] = SIDE * rng.nextDouble();
+            y[i] = SIDE * rng.nextDouble();
+            vx[i] = 10.0 * rng.nextGaussian();
+            vy[i] = 10.0 * rng.nextGaussian();
+        }
+        List<List<Vector>> frames = new ArrayList<>();
+        for (int f = 0; f < WARMUP_FRAMES + TIMED_FRAMES; f++) {
+            List<Vector> frame = new ArrayList<>();
+            for (int i = 0; i < TARGETS; i++) {
+                x[i] += vx[i];
+                y[i] += vy[i];
+                if (rng.nextDouble() < 0.9) {
+                    frame.add(new Vector(new double[] {x[i] + 2.0 * rng.nextGaussian(), y[i] + 2.0 * rng.nextGaussian()}));
+                }
+            }
+            for (int c = 0; c < CLUTTER; c++) {
+                frame.add(new Vector(new double[] {SIDE * rng.nextDouble(), SIDE * rng.nextDouble()}));
+            }
+            frames.add(frame);
+        }
+        return frames;
+    }
+
+    private static double[][] run(String label, List<List<Vector>> frames, int minBatch) {
+        return run(label, frames, minBatch, null);
+    }
+
+    // Returns the final track states; compares them with reference when given
+    private static double[][] run(String label, List<List<Vector>> frames, int minBatch, double[][] reference) {
+        TrackManager manager = new TrackManager(30.0, 3);
+        manager.setVerbose(false);
+        manager.setChiSquareGate(TrackManager.CHI2_2DOF_99);
+        if (minBatch > 0) {
+            manager.setParallelTracks(true, minBatch);
+        }
+
+        long nanos = 0;
+        for (int f = 0; f < frames.size(); f++) {
+            long t0 = System.nanoTime();
+            manager.processFrame(f, frames.get(f));
+            if (f >= WARMUP_FRAMES) {
+                nanos += System.nanoTime() - t0;
+            }
+        }
+
+        List<TrackManager.SimpleTrack> tracks = manager.getTracks();
+        double[][] states = new double[tracks.size()][];
+        for (int i = 0; i < states.length; i++) {
+            Vector x = tracks.get(i).track.getState();
+            states[i] = new double[] {x.get(0), x.get(1), x.get(2), x.get(3)};
+        }
+        String identical = reference == null ? "-" : (sameBits(states, reference) ? "yes" : "NO");
+        System.out.printf("%-20s %8.2f   %6d   %9s%n", label, nanos / 1e6 / TIMED_FRAMES, states.length, identical);
+        return states;
+    }
+
+    private static boolean sameBits(double[][] a, double[][] b) {
+        if (a.length != b.length) {
+            return false;
+        }
+        for (int i = 0; i < a.length; i++) {
+            for (int d = 0; d < a[i].length; d++) {
+                if (Double.doubleToRawLongBits(a[i][d]) != Double.doubleToRawLongBits(b[i][d])) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
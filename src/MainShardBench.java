@@ -0,0 +1,114 @@
+import math.Vector;
+import tracking.ShardedTrackManager;
+import tracking.TrackManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Throughput of ShardedTrackManager against shard count.
+//
+// 100,000 targets at constant velocity over 400 x 400 km, detected with
+// probability 0.9 and 2 m noise, plus 10,000 clutter points per frame; GNN
+// with a chi-square gate. For each shard layout:
+//   wall      measured ms/frame on this machine (one thread per shard)
+//   work      serial steps plus every shard's CPU time: ms/frame on one core
+//   critical  serial steps plus the busiest shard: ms/frame with a core per shard
+//   bound     work / critical, the speedup the layout allows given enough cores
+// plus the track count (vs one unsharded TrackManager) and per-frame boundary
+// traffic: mirrored measurements, measurements used on both sides, handoffs.
+public class MainShardBench {
+
+    private static final int TARGETS = 100_000;
+    private static final int CLUTTER = 10_000;
+    private static final double SIDE = 400_000.0;
+    private static final double GATE = 30.0;
+    private static final int WARMUP_FRAMES = 10;
+    private static final int TIMED_FRAMES = 20;
+
+    public static void main(String[] args) {
+        List<List<Vector>> frames = scenario(9);
+        System.out.println("cores available: " + Runtime.getRuntime().availableProcessors());
+
+        TrackManager single = new TrackManager(GATE, 3);
+        single.setVerbose(false);
+        single.setChiSquareGate(TrackManager.CHI2_2DOF_99);
+        long nanos = 0;
+        for (int f = 0; f < frames.size(); f++) {
+            long t0 = System.nanoTime();
+            single.processFrame(f, frames.get(f));
+            if (f >= WARMUP_FRAMES) {
+                nanos += System.nanoTime() - t0;
+            }
+        }
+        System.out.printf("unsharded TrackManager: %.1f ms/frame, %d tracks%n%n",
+                nanos / 1e6 / TIMED_FRAMES, single.getTracks().size());
+
+        System.out.println("shards    wall    work   critical   bound    tracks   mirrored   shared   handoffs");
+        int[][] layouts = {{1, 1}, {2, 1}, {2, 2}, {4, 2}, {4, 4}, {8, 4}, {8, 8}};
+        for (int[] layout : layouts) {
+            run(frames, layout[0], layout[1]);
+        }
+    }
+
+    private static List<List<Vector>> scenario(long seed) {
+        Random rng = new Random(seed);
+        double[] x = new double[TARGETS];
+        double[] y = new double[TARGETS];
+        double[] vx = new double[TARGETS];
+        double[] vy = new double[TARGETS];
+        for (int i = 0; i < TARGETS; i++) {
+            x[i] = SIDE * rng.nextDouble();
+            y[i] = SIDE * rng.nextDouble();
+            vx[i] = 10.0 * rng.nextGaussian();
+            vy[i] = 10.0 * rng.nextGaussian();
+        }
+        List<List<Vector>> frames = new ArrayList<>();
+        for (int f = 0; f < WARMUP_FRAMES + TIMED_FRAMES; f++) {
+            List<Vector> frame = new ArrayList<>();
+            for (int i = 0; i < TARGETS; i++) {
+                x[i] += vx[i];
+                y[i] += vy[i];
+                if (rng.nextDouble() < 0.9) {
+                    frame.add(new Vector(new double[] {x[i] + 2.0 * rng.nextGaussian(), y[i] + 2.0 * rng.nextGaussian()}));
+                }
+            }
+            for (int c = 0; c < CLUTTER; c++) {
+                frame.add(new Vector(new double[] {SIDE * rng.nextDouble(), SIDE * rng.nextDouble()}));
+            }
+            frames.add(frame);
+        }
+        return frames;
+    }
+
+    private static void run(List<List<Vector>> frames, int shardsX, int shardsY) {
+        try (ShardedTrackManager manager = new ShardedTrackManager(0.0, 0.0, SIDE, SIDE,
+                shardsX, shardsY, GATE, 3)) {
+            manager.setChiSquareGate(TrackManager.CHI2_2DOF_99);
+
+            long wall = 0;
+            long work = 0;
+            long critical = 0;
+            long mirrored = 0;
+            long shared = 0;
+            long handoffs = 0;
+            for (int f = 0; f < frames.size(); f++) {
+                manager.processFrame(f, frames.get(f));
+                if (f < WARMUP_FRAMES) {
+                    continue;
+                }
+                ShardedTrackManager.Stats s = manager.getStats();
+                wall += s.totalNanos;
+                work += s.workNanos();
+                critical += s.criticalPathNanos();
+                mirrored += s.mirrored;
+                shared += s.shared;
+                handoffs += s.handoffs;
+            }
+            System.out.printf("%2d x %-2d %7.1f %7.1f   %8.1f   %5.1fx   %7d   %8d   %6d   %8d%n",
+                    shardsX, shardsY, wall / 1e6 / TIMED_FRAMES, work / 1e6 / TIMED_FRAMES,
+                    critical / 1e6 / TIMED_FRAMES, (double) work / critical, manager.getTracks().size(),
+                    mirrored / TIMED_FRAMES, shared / TIMED_FRAMES, handoffs / TIMED_FRAMES);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+import filters.FixedLagSmoother;
+import filters.KalmanFilter;
+import math.Matrix;
+import math.Vector;
+import models.CVModel;
+
+import java.util.Random;
+
+// Fixed-lag RTS smoothing of a CV track: position RMSE of the filtered
+// estimate vs the smoothed estimate (emitted lag scans late) for a few lags.
+public class MainSmoother {
+
+    public static void main(String[] args) {
+
+        double dt = 1.0;
+        int scans = 500;
+
+        Matrix H = new Matrix(new double[][] {
+                {1, 0, 0, 0},
+                {0, 1, 0, 0}
+        });
+        Matrix R = new Matrix(new double[][] {
+                {100, 0},
+                {0, 100}
+        });
+        Vector x0 = new Vector(new double[] {0, 0, 30, -10});
+        Matrix P0 = Matrix.identity(4).multiply(100.0);
+
+        System.out.println("lag   filtered RMSE   smoothed RMSE");
+        for (int lag : new int[] {1, 2, 5, 10}) {
+            Random rng = new Random(3);
+            CVModel model = new CVModel(1.0);
+            FixedLagSmoother smoother = new FixedLagSmoother(new KalmanFilter(x0, P0, model, H, R), lag, 0.0);
+
+            // Truth: CV with random acceleration, remembered for the last lag + 1 scans
+            double[] truthX = new double[scans + 1];
+            double[] truthY = new double[scans + 1];
+            double px = 0.0, py = 0.0, vx = 30.0, vy = -10.0;
+
+            double sumF = 0.0, sumS = 0.0;
+            int nS = 0;
+            for (int k = 1; k <= scans; k++) {
+                vx += rng.nextGaussian();
+                vy += rng.nextGaussian();
+                px += vx * dt;
+                py += vy * dt;
+                truthX[k] = px;
+                truthY[k] = py;
+
+                smoother.predict(dt);
+                smoother.update(new Vector(new double[] {
+                        px + 10.0 * rng.nextGaussian(),
+                        py + 10.0 * rng.nextGaussian()
+                }));
+
+                Vector f = smoother.getState();
+                sumF += sq(f.get(0) - px) + sq(f.get(1) - py);
+
+                if (smoother.hasSmoothed()) {
+                    int ks = (int) Math.round(smoother.getSmoothedTime() / dt);
+                    Vector s = smoother.getSmoothedState();
+                    sumS += sq(s.get(0) - truthX[ks]) + sq(s.get(1) - truthY[ks]);
+                    nS++;
+                }
+            }
+            System.out.printf("%3d   %13.2f   %13.2f%n", lag, Math.sqrt(sumF / scans), Math.sqrt(sumS / nS));
+        }
+    }
+
+    private static double sq(double v) {
+        return v * v;
+    }
+}
@@ -0,0 +1,258 @@
+package codegen;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+// Generates math/FixedKernels.java: fully unrolled predict/update kernels
+// for every (state size, measurement size) pair used in this project.
+// The gain solve is not generated; it goes through math.Cholesky so the
+// same factorization of S also serves the Mahalanobis distance.
+//
+// Run from the project root after changing the templates below:
+//     java -cp out codegen.FixedKernelGenerator src/math/FixedKernels.java
+public class FixedKernelGenerator {
+
+    // State sizes: CV1D=2, CA1D=3, CV/CT=4, CT-EKF=5, CA=6
+    static final int MIN_N = 2;
+    static final int MAX_N = 6;
+
+    // Measurement sizes: 1 (altitude) and 2 (x/y position)
+    static final int MIN_M = 1;
+    static final int MAX_M = 2;
+
+    private final StringBuilder out = new StringBuilder();
+
+    public static void main(String[] args) throws IOException {
+        Path target = Paths.get(args.length > 0 ? args[0] : "src/math/FixedKernels.java");
+        FixedKernelGenerator gen = new FixedKernelGenerator();
+        gen.generate();
+        Files.writeString(target, gen.out.toString());
+        System.out.println("Wrote " + target);
+    }
+
+    private void line(String s) {
+        out.append(s).append('\n');
+    }
+
+    private void generate() {
+        line("package math;");
+        line("");
+        line("// GENERATED by codegen.FixedKernelGenerator -- do not edit by hand.");
+        line("//");
+        line("// Fully unrolled Kalman predict/update kernels for state sizes " + MIN_N + ".." + MAX_N);
+        line("// and measurement sizes " + MIN_M + ".." + MAX_M + ", operating directly on the flat");
+        line("// row-major storage of Matrix/Vector and the packed upper triangle of");
+        line("// SymmetricMatrix. Each kernel performs the same operations in the same");
+        line("// order as the generic SymmetricMatrix path, on one triangle only.");
+        line("public final class FixedKernels {");
+        line("");
+        line("    private FixedKernels() {");
+        line("    }");
+        line("");
+        line("    public static boolean supports(int n, int m) {");
+        line("        return n >= " + MIN_N + " && n <= " + MAX_N + " && m >= " + MIN_M + " && m <= " + MAX_M + ";");
+        line("    }");
+        line("");
+        dispatchers();
+        for (int n = MIN_N; n <= MAX_N; n++) {
+            predictState(n);
+            predictCovariance(n);
+            for (int m = MIN_M; m <= MAX_M; m++) {
+                innovationCovariance(n, m);
+                residual(n, m);
+                correct(n, m);
+            }
+        }
+        line("    private static IllegalArgumentException unsupported(int n, int m) {");
+        line("        return new IllegalArgumentException(\"No fixed kernel for n=\" + n + \", m=\" + m);");
+        line("    }");
+        line("}");
+    }
+
+    // ---------------------------------
+    // Public entry points: switch on the dimensions
+    // ---------------------------------
+
+    private void dispatchers() {
+        line("    // x = F x");
+        line("    public static void predictState(Matrix F, Vector x) {");
+        switchN("predictState", "F.array(), x.array()", "x.size(), 0");
+        line("    }");
+        line("");
+        line("    // P = F P F' + Q (FP is scratch)");
+        line("    public static void predictCovariance(Matrix F, Matrix Q, SymmetricMatrix P, Matrix FP) {");
+        switchN("predictCovariance", "F.array(), Q.array(), P.array(), FP.array()", "P.size(), 0");
+        line("    }");
+        line("");
+        line("    // PHt = P H', S = H P H' + R");
+        line("    public static void innovationCovariance(SymmetricMatrix P, Matrix H, Matrix R, Matrix PHt, Matrix S) {");
+        switchNM("innovationCovariance", "P.array(), H.array(), R.array(), PHt.array(), S.array()", "P.size()", "H.rows()");
+        line("    }");
+        line("");
+        line("    // y = z - H x");
+        line("    public static void residual(Matrix H, Vector x, Vector z, Vector y) {");
+        switchNM("residual", "H.array(), x.array(), z.array(), y.array()", "x.size()", "H.rows()");
+        line("    }");
+        line("");
+        line("    // x = x + K y, P = P - K PHt' (= (I - K H) P)");
+        line("    public static void correct(Matrix K, Matrix PHt, Vector y, Vector x, SymmetricMatrix P) {");
+        switchNM("correct", "K.array(), PHt.array(), y.array(), x.array(), P.array()", "x.size()", "K.cols()");
+        line("    }");
+        line("");
+    }
+
+    private void switchN(String name, String args, String errArgs) {
+        String sizeExpr = errArgs.substring(0, errArgs.indexOf(','));
+        line("        switch (" + sizeExpr + ") {");
+        for (int n = MIN_N; n <= MAX_N; n++) {
+            line("            case " + n + ": " + name + n + "(" + args + "); return;");
+        }
+        line("            default: throw unsupported(" + errArgs + ");");
+        line("        }");
+    }
+
+    private void switchNM(String name, String args, String nExpr, String mExpr) {
+        line("        int n = " + nExpr + ";");
+        line("        int m = " + mExpr + ";");
+        line("        switch (n * 10 + m) {");
+        for (int n = MIN_N; n <= MAX_N; n++) {
+            for (int m = MIN_M; m <= MAX_M; m++) {
+                line("            case " + (n * 10 + m) + ": " + name + n + "x" + m + "(" + args + "); return;");
+            }
+        }
+        line("            default: throw unsupported(n, m);");
+        line("        }");
+    }
+
+    // ---------------------------------
+    // Kernel templates
+    // ---------------------------------
+
+    // Packed upper-triangle index of (i, j), as in SymmetricMatrix.index
+    private static int pk(int n, int i, int j) {
+        int r = Math.min(i, j);
+        int c = Math.max(i, j);
+        return r * n - r * (r - 1) / 2 + (c - r);
+    }
+
+    private void predictState(int n) {
+        line("    private static void predictState" + n + "(double[] F, double[] x) {");
+        StringBuilder load = new StringBuilder("        double");
+        for (int k = 0; k < n; k++) {
+            load.append(k == 0 ? " " : ", ").append("x").append(k).append(" = x[").append(k).append("]");
+        }
+        line(load + ";");
+        for (int i = 0; i < n; i++) {
+            StringBuilder sum = new StringBuilder();
+            for (int k = 0; k < n; k++) {
+                sum.append(k == 0 ? "" : " + ").append("F[").append(i * n + k).append("] * x").append(k);
+            }
+            line("        x[" + i + "] = " + sum + ";");
+        }
+        line("    }");
+        line("");
+    }
+
+    private void predictCovariance(int n) {
+        line("    private static void predictCovariance" + n + "(double[] F, double[] Q, double[] P, double[] FP) {");
+        line("        // FP = F P");
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                StringBuilder sum = new StringBuilder();
+                for (int k = 0; k < n; k++) {
+                    sum.append(k == 0 ? "" : " + ")
+                       .append("F[").append(i * n + k).append("] * P[").append(pk(n, k, j)).append("]");
+                }
+                line("        FP[" + (i * n + j) + "] = " + sum + ";");
+            }
+        }
+        line("        // P = FP F' + Q, upper triangle only");
+        for (int i = 0; i < n; i++) {
+            for (int j = i; j < n; j++) {
+                StringBuilder sum = new StringBuilder("(");
+                for (int k = 0; k < n; k++) {
+                    sum.append(k == 0 ? "" : " + ")
+                       .append("FP[").append(i * n + k).append("] * F[").append(j * n + k).append("]");
+                }
+                sum.append(") + Q[").append(i * n + j).append("]");
+                line("        P[" + pk(n, i, j) + "] = " + sum + ";");
+            }
+        }
+        line("    }");
+        line("");
+    }
+
+    private void innovationCovariance(int n, int m) {
+        line("    private static void innovationCovariance" + n + "x" + m
+                + "(double[] P, double[] H, double[] R, double[] PHt, double[] S) {");
+        line("        // PHt = P H'");
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < m; j++) {
+                StringBuilder sum = new StringBuilder();
+                for (int k = 0; k < n; k++) {
+                    sum.append(k == 0 ? "" : " + ")
+                       .append("P[").append(pk(n, i, k)).append("] * H[").append(j * n + k).append("]");
+                }
+                line("        PHt[" + (i * m + j) + "] = " + sum + ";");
+            }
+        }
+        line("        // S = H PHt + R");
+        for (int a = 0; a < m; a++) {
+            for (int b = 0; b < m; b++) {
+                StringBuilder sum = new StringBuilder("(");
+                for (int k = 0; k < n; k++) {
+                    sum.append(k == 0 ? "" : " + ")
+                       .append("H[").append(a * n + k).append("] * PHt[").append(k * m + b).append("]");
+                }
+                sum.append(") + R[").append(a * m + b).append("]");
+                line("        S[" + (a * m + b) + "] = " + sum + ";");
+            }
+        }
+        line("    }");
+        line("");
+    }
+
+    private void residual(int n, int m) {
+        line("    private static void residual" + n + "x" + m + "(double[] H, double[] x, double[] z, double[] y) {");
+        for (int a = 0; a < m; a++) {
+            StringBuilder sum = new StringBuilder("(");
+            for (int k = 0; k < n; k++) {
+                sum.append(k == 0 ? "" : " + ").append("H[").append(a * n + k).append("] * x[").append(k).append("]");
+            }
+            sum.append(")");
+            line("        y[" + a + "] = z[" + a + "] - " + sum + ";");
+        }
+        line("    }");
+        line("");
+    }
+
+    private void correct(int n, int m) {
+        line("    private static void correct" + n + "x" + m
+                + "(double[] K, double[] PHt, double[] y, double[] x, double[] P) {");
+        line("        // x = x + K y");
+        for (int i = 0; i < n; i++) {
+            StringBuilder sum = new StringBuilder("(");
+            for (int a = 0; a < m; a++) {
+                sum.append(a == 0 ? "" : " + ").append("K[").append(i * m + a).append("] * y[").append(a).append("]");
+            }
+            sum.append(")");
+            line("        x[" + i + "] = x[" + i + "] + " + sum + ";");
+        }
+        line("        // P = P - K PHt', upper triangle only");
+        for (int i = 0; i < n; i++) {
+            for (int j = i; j < n; j++) {
+                StringBuilder sum = new StringBuilder("(");
+                for (int a = 0; a < m; a++) {
+                    sum.append(a == 0 ? "" : " + ")
+                       .append("K[").append(i * m + a).append("] * PHt[").append(j * m + a).append("]");
+                }
+                sum.append(")");
+                line("        P[" + pk(n, i, j) + "] = P[" + pk(n, i, j) + "] - " + sum + ";");
+            }
+        }
+        line("    }");
+        line("");
+    }
+}
@@ -1,77 +1,146 @@
 package filters;
 
+import math.DualWorkspace;
 import math.Matrix;
+import math.SymmetricMatrix;
 import math.Vector;
+import models.DifferentiableMotionModel;
 import models.NonlinearMotionModel;
 
 public class EKF implements Filter {
 
-    private Vector x;
-    private Matrix P;
+    private final Vector x;
+    private final SymmetricMatrix P;  // packed upper triangle
+    private final Matrix Pfull;       // unpacked copy handed out by getCovariance()
     private final NonlinearMotionModel model;
     private final Matrix H;
     private final Matrix R;
 
+    private final FilterWorkspace ws;  // preallocated scratch for predict/update
+
+    // Forward-mode AD scratch, only for models that opt in via DifferentiableMotionModel
+    private final DualWorkspace dual;
+    private final int[] dualIn;
+    private final int[] dualOut;
+
     public EKF(Vector x0,
                Matrix P0,
                NonlinearMotionModel model,
                Matrix H,
                Matrix R) {
 
-        this.x = x0;
-        this.P = P0;
+        this(x0, SymmetricMatrix.fromUpper(P0), model, H, R);
+    }
+
+    public EKF(Vector x0,
+               SymmetricMatrix P0,
+               NonlinearMotionModel model,
+               Matrix H,
+               Matrix R) {
+
+        // Own copies: x and P are updated in place from here on
+        this.x = x0.copy();
+        this.P = P0.copy();
+        this.Pfull = new Matrix(P.size(), P.size());
         this.model = model;
         this.H = H;
         this.R = R;
+        this.ws = new FilterWorkspace(x.size(), R);
+
+        if (model instanceof DifferentiableMotionModel) {
+            this.dual = new DualWorkspace(x.size(), 64);
+            this.dualIn = new int[x.size()];
+            this.dualOut = new int[x.size()];
+        } else {
+            this.dual = null;
+            this.dualIn = null;
+            this.dualOut = null;
+        }
     }
 
     @Override
     public void predict(double dt) {
-        // Nonlinear propagation
-        Vector xPred = model.f(x, dt);
-        Matrix F = model.F(x, dt);
-        Matrix Q = model.Q(dt);
+        // Nonlinear propagation (Jacobian taken at the prior state), one model call;
+        // differentiable models get f and its exact Jacobian from one dual evaluation
+        if (dual != null) {
+            DifferentiableMotionModel.evaluate((DifferentiableMotionModel) model, dual,
+                    dualIn, dualOut, x, dt, ws.xPred, ws.F);
+        } else {
+            model.propagate(x, dt, ws.xPred, ws.F);
+        }
+        model.QInto(dt, ws.Q);
 
-        x = xPred;
+        x.copyFrom(ws.xPred);
 
-        Matrix FP = F.multiply(P);
-        Matrix Ft = F.transpose();
-        P = FP.multiply(Ft).add(Q);
+        ws.propagateCovariance(P);
     }
 
     @Override
     public void update(Vector z) {
-        // y = z - Hx
-        Vector Hx = H.multiply(x);
-        Vector y = z.subtract(Hx);
-
-        // S = H P H' + R
-        Matrix HP = H.multiply(P);
-        Matrix Ht = H.transpose();
-        Matrix S = HP.multiply(Ht).add(R);
-
-        // K = P H' S^{-1}
-        Matrix PHt = P.multiply(Ht);
-        Matrix S_inv = S.inverse();
-        Matrix K = PHt.multiply(S_inv);
-
-        // x = x + K y
-        Vector Ky = K.multiply(y);
-        x = x.add(Ky);
-
-        // P = (I - K H) P
-        Matrix KH = K.multiply(H);
-        Matrix I = Matrix.identity(P.rows());
-        Matrix IminusKH = I.add(KH.multiply(-1.0));
-        P = IminusKH.multiply(P);
+        ws.correct(x, P, H, R, z);
+    }
+
+    @Override
+    public void updateWeighted(Vector[] measurements, double[] weights, int offset, int count) {
+        ws.correctWeighted(x, P, H, R, measurements, weights, offset, count);
+    }
+
+    // Squared Mahalanobis distance y' S^{-1} y of z against the current prediction.
+    // The factorization of S is cached until the next predict/update, so gating
+    // several measurements and then updating with one of them factors S only once.
+    @Override
+    public double mahalanobisSquared(Vector z) {
+        return ws.mahalanobisSquared(x, P, H, R, z);
+    }
+
+    @Override
+    public double logLikelihood(Vector z) {
+        return ws.logLikelihood(x, P, H, R, z);
+    }
+
+    @Override
+    public void reset(Vector state, SymmetricMatrix covariance) {
+        ws.reset(x, P, state, covariance);
+    }
+
+    // Snapshots copy x and P directly (no reset, no allocation)
+    @Override
+    public void snapshotInto(double[] dest, int offset) {
+        ws.snapshot(x, P, dest, offset);
+    }
+
+    @Override
+    public void restoreSnapshot(double[] src, int offset) {
+        ws.restore(x, P, src, offset);
+    }
+
+    // Unrolled kernels are used automatically for the state/measurement sizes they cover;
+    // turning them off forces the generic Matrix path (for comparison and debugging)
+    public void setFixedKernels(boolean enabled) {
+        ws.setFixedKernels(enabled);
     }
 
+    // Note: the state is a live view, updated in place by predict/update.
+    // getCovariance() unpacks P into a full matrix owned by the filter, refreshed on each call.
     @Override
     public Vector getState() {
         return x;
     }
 
     public Matrix getCovariance() {
+        P.copyInto(Pfull);
+        return Pfull;
+    }
+
+    // F(dt) (EKF: the Jacobian at the prior state) from the last predict; live, overwritten by the next
+    @Override
+    public Matrix getLastTransition() {
+        return ws.F;
+    }
+
+    // Live packed covariance
+    @Override
+    public SymmetricMatrix getSymmetricCovariance() {
         return P;
     }
 }
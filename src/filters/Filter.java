@@ -1,6 +1,7 @@
 package filters;
 
 import math.Matrix;
+import math.SymmetricMatrix;
 import math.Vector;
 
 public interface Filter {
@@ -8,4 +9,70 @@ public interface Filter {
     void update(Vector measurement);
     Vector getState();
     Matrix getCovariance();
+    double mahalanobisSquared(Vector measurement);
+
+    // Packed covariance; filters that keep P packed return it directly
+    default SymmetricMatrix getSymmetricCovariance() {
+        return SymmetricMatrix.fromUpper(getCovariance());
+    }
+
+    // log N(z; H x, S) of a measurement against the current prediction
+    default double logLikelihood(Vector measurement) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " has no measurement likelihood");
+    }
+
+    // JPDA update: measurements[offset + k] weighted by its association probability
+    // weights[offset + k], k < count; the rest (1 - sum) is the probability that
+    // none of them came from the target
+    default void updateWeighted(Vector[] measurements, double[] weights, int offset, int count) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " has no weighted update");
+    }
+
+    // Transition matrix (or Jacobian) used by the last predict, owned by the filter
+    default Matrix getLastTransition() {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not expose its transition");
+    }
+
+    // Overwrite the estimate in place (IMM mixing, re-initialization)
+    default void reset(Vector state, SymmetricMatrix covariance) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " cannot be reset");
+    }
+
+    // Checkpoint of the whole internal estimate in snapshotSize() doubles, for
+    // replay (OosmFilter). The default is x and the upper triangle of P, restored
+    // through reset (allocating). KalmanFilter and EKF copy straight into their
+    // x and P; filters with more state (IMM) override all three
+    default int snapshotSize() {
+        int n = getState().size();
+        return n + SymmetricMatrix.packedSize(n);
+    }
+
+    default void snapshotInto(double[] dest, int offset) {
+        Vector x = getState();
+        int n = x.size();
+        for (int i = 0; i < n; i++) {
+            dest[offset++] = x.get(i);
+        }
+        SymmetricMatrix P = getSymmetricCovariance();
+        for (int i = 0; i < n; i++) {
+            for (int j = i; j < n; j++) {
+                dest[offset++] = P.get(i, j);
+            }
+        }
+    }
+
+    default void restoreSnapshot(double[] src, int offset) {
+        int n = getState().size();
+        Vector x = new Vector(n);
+        SymmetricMatrix P = new SymmetricMatrix(n);
+        for (int i = 0; i < n; i++) {
+            x.set(i, src[offset++]);
+        }
+        for (int i = 0; i < n; i++) {
+            for (int j = i; j < n; j++) {
+                P.set(i, j, src[offset++]);
+            }
+        }
+        reset(x, P);
+    }
 }
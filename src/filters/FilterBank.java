@@ -0,0 +1,496 @@
+package filters;
+
+import math.Cholesky;
+import math.Matrix;
+import math.SymmetricMatrix;
+import math.Vector;
+import math.batch.BatchKernels;
+import models.CVModel;
+import models.MotionModel;
+
+// Every track of one linear motion model, stored structure-of-arrays:
+// state component k of slot t lives at x[k * capacity + t], and the symmetric
+// covariance keeps its upper triangle row by row, entry e at P[e * capacity + t]
+// (same layout as math.batch.BatchKernels).
+//
+// predictAll/updateSubset walk those lanes linearly instead of chasing
+// Track -> Filter -> Matrix per track. CV tracks measured in position go
+// through BatchKernels (Vector API when available); other models use a
+// blocked lane-wise F P F' + Q that skips F's zero entries.
+public class FilterBank {
+
+    private static final int BLOCK = 128;  // tracks per predict block (keeps scratch in cache)
+
+    private final MotionModel model;
+    private final Matrix H;
+    private final Matrix R;
+    private final int n;    // state size
+    private final int m;    // measurement size
+    private final int nP;   // packed covariance entries
+    private final int[] lane;  // lane[i * n + j] = packed entry of (i, j), either triangle
+
+    // CV fast path (null when the model/H don't match)
+    private final BatchKernels cvKernels;
+    private final double cvIntensity;
+
+    private int capacity;   // lane stride
+    private int size;       // slots in use or freed: [0, size)
+    private double[] x;
+    private double[] P;
+    private boolean[] live;
+    private int[] freeSlots;
+    private int freeCount;
+
+    // predict scratch
+    private final Matrix F;
+    private final Matrix Q;
+    private final double[] xs;  // n * BLOCK
+    private final double[] fp;  // n * n * BLOCK
+
+    // per-track update scratch
+    private final Matrix PHt;
+    private final Matrix S;
+    private final Matrix K;
+    private final Vector y;
+    private final Cholesky chol;
+    private int innovationSlot = -1;  // slot whose PHt/S/chol are current (-1: none)
+
+    // CV gather/scatter scratch for updateSubset
+    private final double[] gx;
+    private final double[] gP;
+    private final double[] gzx;
+    private final double[] gzy;
+
+    public FilterBank(MotionModel model, int stateSize, Matrix H, Matrix R, int initialCapacity) {
+        this.model = model;
+        this.H = H;
+        this.R = R;
+        this.n = stateSize;
+        this.m = H.rows();
+        this.nP = n * (n + 1) / 2;
+
+        this.lane = new int[n * n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                lane[i * n + j] = SymmetricMatrix.index(n, i, j);
+            }
+        }
+
+        if (model instanceof CVModel && n == 4 && isPositionH(H)) {
+            this.cvKernels = BatchKernels.best();
+            this.cvIntensity = ((CVModel) model).getIntensity();
+        } else {
+            this.cvKernels = null;
+            this.cvIntensity = 0.0;
+        }
+
+        this.capacity = Math.max(1, initialCapacity);
+        this.x = new double[n * capacity];
+        this.P = new double[nP * capacity];
+        this.live = new boolean[capacity];
+        this.freeSlots = new int[capacity];
+
+        this.F = new Matrix(n, n);
+        this.Q = new Matrix(n, n);
+        this.xs = new double[n * BLOCK];
+        this.fp = new double[n * n * BLOCK];
+
+        this.PHt = new Matrix(n, m);
+        this.S = new Matrix(m, m);
+        this.K = new Matrix(n, m);
+        this.y = new Vector(m);
+        this.chol = new Cholesky(m);
+
+        this.gx = new double[BatchKernels.STATE_SIZE * BLOCK];
+        this.gP = new double[BatchKernels.COV_SIZE * BLOCK];
+        this.gzx = new double[BLOCK];
+        this.gzy = new double[BLOCK];
+    }
+
+    // H = [I 0] on a 4-state: measures x and y directly
+    private static boolean isPositionH(Matrix H) {
+        if (H.rows() != 2 || H.cols() != 4) {
+            return false;
+        }
+        for (int r = 0; r < 2; r++) {
+            for (int c = 0; c < 4; c++) {
+                if (H.get(r, c) != (r == c ? 1.0 : 0.0)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    public int stateSize() {
+        return n;
+    }
+
+    public int measurementSize() {
+        return m;
+    }
+
+    public int liveCount() {
+        return size - freeCount;
+    }
+
+    // ---------------------------------
+    // Slot management
+    // ---------------------------------
+
+    public int add(Vector x0, Matrix P0) {
+        innovationSlot = -1;
+        int t;
+        if (freeCount > 0) {
+            t = freeSlots[--freeCount];
+        } else {
+            if (size == capacity) {
+                grow(capacity * 2);
+            }
+            t = size++;
+        }
+
+        for (int k = 0; k < n; k++) {
+            x[k * capacity + t] = x0.get(k);
+        }
+        for (int i = 0; i < n; i++) {
+            for (int j = i; j < n; j++) {
+                P[lane[i * n + j] * capacity + t] = P0.get(i, j);
+            }
+        }
+        live[t] = true;
+        return t;
+    }
+
+    public void remove(int t) {
+        if (!live[t]) {
+            return;
+        }
+        live[t] = false;
+        freeSlots[freeCount++] = t;
+    }
+
+    public boolean isLive(int t) {
+        return t >= 0 && t < size && live[t];
+    }
+
+    // Re-stride every lane to the new capacity
+    private void grow(int newCapacity) {
+        double[] nx = new double[n * newCapacity];
+        double[] nPm = new double[nP * newCapacity];
+        for (int k = 0; k < n; k++) {
+            System.arraycopy(x, k * capacity, nx, k * newCapacity, size);
+        }
+        for (int e = 0; e < nP; e++) {
+            System.arraycopy(P, e * capacity, nPm, e * newCapacity, size);
+        }
+        boolean[] nLive = new boolean[newCapacity];
+        System.arraycopy(live, 0, nLive, 0, size);
+        int[] nFree = new int[newCapacity];
+        System.arraycopy(freeSlots, 0, nFree, 0, freeCount);
+
+        x = nx;
+        P = nPm;
+        live = nLive;
+        freeSlots = nFree;
+        capacity = newCapacity;
+    }
+
+    // ---------------------------------
+    // Predict
+    // ---------------------------------
+
+    // Predict every slot (freed slots are carried along; they are overwritten on reuse)
+    public void predictAll(double dt) {
+        innovationSlot = -1;
+        if (cvKernels != null) {
+            cvKernels.cvPredict(dt, cvIntensity, x, P, size, capacity);
+            return;
+        }
+        model.getFInto(dt, F);
+        model.getQInto(dt, Q);
+        for (int from = 0; from < size; from += BLOCK) {
+            predictRange(from, Math.min(size, from + BLOCK));
+        }
+    }
+
+    public void predictOne(int t, double dt) {
+        innovationSlot = -1;
+        model.getFInto(dt, F);
+        model.getQInto(dt, Q);
+        predictRange(t, t + 1);
+    }
+
+    // x = F x, P = F P F' + Q for slots [from, to), lane by lane; F and Q already filled
+    private void predictRange(int from, int to) {
+        int len = to - from;
+        int cap = capacity;
+
+        // xs = F x
+        java.util.Arrays.fill(xs, 0, n * len, 0.0);
+        for (int i = 0; i < n; i++) {
+            for (int k = 0; k < n; k++) {
+                double f = F.get(i, k);
+                if (f == 0.0) {
+                    continue;
+                }
+                int src = k * cap + from;
+                int dst = i * len;
+                for (int t = 0; t < len; t++) {
+                    xs[dst + t] += f * x[src + t];
+                }
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(xs, i * len, x, i * cap + from, len);
+        }
+
+        // fp = F P (full n x n per track)
+        java.util.Arrays.fill(fp, 0, n * n * len, 0.0);
+        for (int i = 0; i < n; i++) {
+            for (int k = 0; k < n; k++) {
+                double f = F.get(i, k);
+                if (f == 0.0) {
+                    continue;
+                }
+                for (int j = 0; j < n; j++) {
+                    int src = lane[k * n + j] * cap + from;
+                    int dst = (i * n + j) * len;
+                    for (int t = 0; t < len; t++) {
+                        fp[dst + t] += f * P[src + t];
+                    }
+                }
+            }
+        }
+
+        // P = fp F' + Q, upper triangle only
+        for (int i = 0; i < n; i++) {
+            for (int j = i; j < n; j++) {
+                int dst = lane[i * n + j] * cap + from;
+                double q = Q.get(i, j);
+                for (int t = 0; t < len; t++) {
+                    P[dst + t] = q;
+                }
+                for (int k = 0; k < n; k++) {
+                    double f = F.get(j, k);
+                    if (f == 0.0) {
+                        continue;
+                    }
+                    int src = (i * n + k) * len;
+                    for (int t = 0; t < len; t++) {
+                        P[dst + t] += fp[src + t] * f;
+                    }
+                }
+            }
+        }
+    }
+
+    // ---------------------------------
+    // Update
+    // ---------------------------------
+
+    // Update slots indices[0 .. count) with measurement k at z[k * m .. k * m + m)
+    public void updateSubset(int[] indices, int count, double[] z) {
+        innovationSlot = -1;
+        if (cvKernels != null) {
+            updateSubsetCV(indices, count, z);
+            return;
+        }
+        for (int k = 0; k < count; k++) {
+            updateOne(indices[k], z, k * m);
+        }
+    }
+
+    // Gather the subset into contiguous lanes, run the batch kernel, scatter back
+    private void updateSubsetCV(int[] indices, int count, double[] z) {
+        double r00 = R.get(0, 0), r01 = R.get(0, 1), r11 = R.get(1, 1);
+        int cap = capacity;
+
+        for (int from = 0; from < count; from += BLOCK) {
+            int len = Math.min(count, from + BLOCK) - from;
+
+            for (int k = 0; k < len; k++) {
+                int t = indices[from + k];
+                for (int c = 0; c < BatchKernels.STATE_SIZE; c++) {
+                    gx[c * BLOCK + k] = x[c * cap + t];
+                }
+                for (int e = 0; e < BatchKernels.COV_SIZE; e++) {
+                    gP[e * BLOCK + k] = P[e * cap + t];
+                }
+                gzx[k] = z[(from + k) * 2];
+                gzy[k] = z[(from + k) * 2 + 1];
+            }
+
+            cvKernels.positionUpdate(gzx, gzy, r00, r01, r11, gx, gP, len, BLOCK);
+
+            for (int k = 0; k < len; k++) {
+                int t = indices[from + k];
+                for (int c = 0; c < BatchKernels.STATE_SIZE; c++) {
+                    x[c * cap + t] = gx[c * BLOCK + k];
+                }
+                for (int e = 0; e < BatchKernels.COV_SIZE; e++) {
+                    P[e * cap + t] = gP[e * BLOCK + k];
+                }
+            }
+        }
+    }
+
+    public void updateOne(int t, Vector z) {
+        prepareInnovation(t);
+        for (int a = 0; a < m; a++) {
+            y.set(a, z.get(a) - predictedMeasurement(t, a));
+        }
+        applyGain(t);
+    }
+
+    private void updateOne(int t, double[] z, int zOff) {
+        prepareInnovation(t);
+        for (int a = 0; a < m; a++) {
+            y.set(a, z[zOff + a] - predictedMeasurement(t, a));
+        }
+        applyGain(t);
+    }
+
+    // Standard KF update on slot t from the residual in y; P = P - K (P H')'
+    // keeps the result symmetric
+    private void applyGain(int t) {
+        chol.solveRightInto(PHt, K);
+        innovationSlot = -1;
+
+        int cap = capacity;
+        for (int i = 0; i < n; i++) {
+            double dx = 0.0;
+            for (int a = 0; a < m; a++) {
+                dx += K.get(i, a) * y.get(a);
+            }
+            x[i * cap + t] += dx;
+        }
+        for (int i = 0; i < n; i++) {
+            for (int j = i; j < n; j++) {
+                double sum = 0.0;
+                for (int a = 0; a < m; a++) {
+                    sum += K.get(i, a) * PHt.get(j, a);
+                }
+                P[lane[i * n + j] * cap + t] -= sum;
+            }
+        }
+    }
+
+    public double mahalanobisSquared(int t, Vector z) {
+        prepareInnovation(t);
+        for (int a = 0; a < m; a++) {
+            y.set(a, z.get(a) - predictedMeasurement(t, a));
+        }
+        return chol.mahalanobisSquared(y);
+    }
+
+    // PHt = P H', S = H P H' + R, factored. The last slot's factorization is kept,
+    // so gating one track and then updating it factors S once (the scratch is
+    // shared by all slots, so interleaving tracks recomputes)
+    private void prepareInnovation(int t) {
+        if (innovationSlot == t) {
+            return;
+        }
+        innovationSlot = -1;
+        int cap = capacity;
+        for (int i = 0; i < n; i++) {
+            for (int a = 0; a < m; a++) {
+                double sum = 0.0;
+                for (int k = 0; k < n; k++) {
+                    sum += P[lane[i * n + k] * cap + t] * H.get(a, k);
+                }
+                PHt.set(i, a, sum);
+            }
+        }
+        for (int a = 0; a < m; a++) {
+            for (int b = 0; b < m; b++) {
+                double sum = 0.0;
+                for (int k = 0; k < n; k++) {
+                    sum += H.get(a, k) * PHt.get(k, b);
+                }
+                S.set(a, b, sum + R.get(a, b));
+            }
+        }
+        chol.factor(S);
+        innovationSlot = t;
+    }
+
+    // (H x)_a of slot t
+    private double predictedMeasurement(int t, int a) {
+        double hx = 0.0;
+        for (int k = 0; k < n; k++) {
+            hx += H.get(a, k) * x[k * capacity + t];
+        }
+        return hx;
+    }
+
+    // ---------------------------------
+    // Reading state back out
+    // ---------------------------------
+
+    public double state(int t, int k) {
+        return x[k * capacity + t];
+    }
+
+    public double covariance(int t, int i, int j) {
+        return P[lane[i * n + j] * capacity + t];
+    }
+
+    public void getStateInto(int t, Vector dest) {
+        for (int k = 0; k < n; k++) {
+            dest.set(k, x[k * capacity + t]);
+        }
+    }
+
+    public void getCovarianceInto(int t, Matrix dest) {
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                dest.set(i, j, P[lane[i * n + j] * capacity + t]);
+            }
+        }
+    }
+
+    // A Filter view of one slot, so bank tracks plug into Track like any other filter.
+    // The returned state/covariance are snapshots refreshed on each call.
+    public Filter slot(int t) {
+        return new SlotFilter(t);
+    }
+
+    private class SlotFilter implements Filter {
+
+        private final int t;
+        private final Vector state = new Vector(n);
+        private final Matrix cov = new Matrix(n, n);
+
+        SlotFilter(int t) {
+            this.t = t;
+        }
+
+        @Override
+        public void predict(double dt) {
+            predictOne(t, dt);
+        }
+
+        @Override
+        public void update(Vector z) {
+            updateOne(t, z);
+        }
+
+        @Override
+        public Vector getState() {
+            getStateInto(t, state);
+            return state;
+        }
+
+        @Override
+        public Matrix getCovariance() {
+            getCovarianceInto(t, cov);
+            return cov;
+        }
+
+        @Override
+        public double mahalanobisSquared(Vector z) {
+            return FilterBank.this.mahalanobisSquared(t, z);
+        }
+    }
+}
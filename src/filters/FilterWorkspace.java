@@ -0,0 +1,255 @@
+package filters;
+
+import math.Cholesky;
+import math.FixedKernels;
+import math.Matrix;
+import math.ScalarUpdates;
+import math.SymmetricMatrix;
+import math.Vector;
+
+// Preallocated scratch buffers for one filter (state size n, measurement size m).
+// Sized once at construction so a steady-state predict/update cycle allocates nothing.
+final class FilterWorkspace {
+
+    private static final double LOG_2PI = Math.log(2.0 * Math.PI);
+
+    final int n;
+    final int m;
+
+    // predict
+    final Matrix F;      // n x n transition (or Jacobian)
+    final Matrix Q;      // n x n process noise
+    final Matrix FP;     // n x n
+    final Vector xPred;  // n
+
+    // update
+    final Vector Hx;     // m
+    final Vector y;      // m innovation
+    final Matrix PHt;    // n x m
+    final Matrix S;      // m x m
+    final Cholesky Schol;  // factorization of S, shared by the gain and Mahalanobis distance
+    final Matrix K;      // n x m
+    final Vector Ky;     // n
+
+    // weighted (JPDA) update
+    final Vector yBar;   // m combined innovation
+    final Matrix spread; // m x m spread of the innovations
+    final Matrix B;      // n x m
+
+    // Use the generated unrolled kernels when they cover (n, m)
+    boolean fixedKernels;
+
+    // R is diagonal: correct() processes z one scalar component at a time
+    // (instead of the generic joint update)
+    final boolean sequential;
+    final double[] pht;  // n, scratch for the scalar updates
+
+    // PHt, S and Schol match the current P (cleared whenever P changes)
+    boolean innovationValid;
+
+    FilterWorkspace(int n, Matrix R) {
+        this.n = n;
+        this.m = R.rows();
+
+        this.F = new Matrix(n, n);
+        this.Q = new Matrix(n, n);
+        this.FP = new Matrix(n, n);
+        this.xPred = new Vector(n);
+
+        this.Hx = new Vector(m);
+        this.y = new Vector(m);
+        this.PHt = new Matrix(n, m);
+        this.S = new Matrix(m, m);
+        this.Schol = new Cholesky(m);
+        this.K = new Matrix(n, m);
+        this.Ky = new Vector(n);
+
+        this.yBar = new Vector(m);
+        this.spread = new Matrix(m, m);
+        this.B = new Matrix(n, m);
+
+        this.fixedKernels = FixedKernels.supports(n, m);
+        this.sequential = ScalarUpdates.isDiagonal(R);
+        this.pht = new double[n];
+    }
+
+    void setFixedKernels(boolean enabled) {
+        this.fixedKernels = enabled && FixedKernels.supports(n, m);
+    }
+
+    // x = F * x, using F already filled in
+    void propagateState(Vector x) {
+        if (fixedKernels) {
+            FixedKernels.predictState(F, x);
+            return;
+        }
+        F.multiplyInto(x, xPred);
+        x.copyFrom(xPred);
+    }
+
+    // P = F * P * F' + Q, using F and Q already filled in (upper triangle only)
+    void propagateCovariance(SymmetricMatrix P) {
+        innovationValid = false;
+        if (fixedKernels) {
+            FixedKernels.predictCovariance(F, Q, P, FP);
+            return;
+        }
+        P.propagate(F, Q, FP);
+    }
+
+    // Predicted measurement H x, PHt = P H', S = H P H' + R and its factorization,
+    // computed once per (x, P): every gating test until the next predict/update reuses them
+    void prepareInnovation(Vector x, SymmetricMatrix P, Matrix H, Matrix R) {
+        if (innovationValid) {
+            return;
+        }
+        H.multiplyInto(x, Hx);
+        if (fixedKernels) {
+            FixedKernels.innovationCovariance(P, H, R, PHt, S);
+        } else {
+            P.multiplyTransposeInto(H, PHt);
+            H.multiplyInto(PHt, S);
+            S.addInto(R, S);
+        }
+        Schol.factor(S);
+        innovationValid = true;
+    }
+
+    // y = z - H x (from the cached H x when the innovation is prepared)
+    void residual(Vector x, Matrix H, Vector z) {
+        if (innovationValid) {
+            z.subtractInto(Hx, y);
+            return;
+        }
+        if (fixedKernels) {
+            FixedKernels.residual(H, x, z, y);
+            return;
+        }
+        H.multiplyInto(x, Hx);
+        z.subtractInto(Hx, y);
+    }
+
+    // Squared Mahalanobis distance of z against the predicted measurement
+    double mahalanobisSquared(Vector x, SymmetricMatrix P, Matrix H, Matrix R, Vector z) {
+        prepareInnovation(x, P, H, R);
+        residual(x, H, z);
+        return Schol.mahalanobisSquared(y);
+    }
+
+    // log N(z; H x, S) = -(d^2 + log|S| + m log 2 pi) / 2, sharing the cached factorization
+    double logLikelihood(Vector x, SymmetricMatrix P, Matrix H, Matrix R, Vector z) {
+        double d2 = mahalanobisSquared(x, P, H, R, z);
+        return -0.5 * (d2 + Schol.logDeterminant() + m * LOG_2PI);
+    }
+
+    // Estimate replaced from outside: drop the cached innovation
+    void reset(Vector x, SymmetricMatrix P, Vector newX, SymmetricMatrix newP) {
+        if (newX.size() != n || newP.size() != n) {
+            throw new IllegalArgumentException("Reset state has wrong dimensions");
+        }
+        x.copyFrom(newX);
+        P.copyFrom(newP);
+        innovationValid = false;
+    }
+
+    // Filter.snapshotInto/restoreSnapshot layout: x, then P's packed triangle
+    void snapshot(Vector x, SymmetricMatrix P, double[] dest, int offset) {
+        x.copyTo(dest, offset);
+        P.copyTo(dest, offset + n);
+    }
+
+    void restore(Vector x, SymmetricMatrix P, double[] src, int offset) {
+        x.copyFrom(src, offset);
+        P.copyFrom(src, offset + n);
+        innovationValid = false;
+    }
+
+    // Standard KF correction, shared by KalmanFilter and EKF
+    void correct(Vector x, SymmetricMatrix P, Matrix H, Matrix R, Vector z) {
+        if (sequential && !fixedKernels && !innovationValid) {
+            // Diagonal R: m scalar updates, no S to form or factor. Where the
+            // unrolled kernels cover (n, m) they are as fast, so they keep priority;
+            // if gating already factored S, the joint update reuses it
+            innovationValid = false;
+            ScalarUpdates.sequentialCorrect(P, x, H, R, z, pht);
+            return;
+        }
+
+        // y = z - Hx (innovation); S = HPH' + R, factored (reused if gating already did it)
+        prepareInnovation(x, P, H, R);
+        residual(x, H, z);
+
+        // K = P H' S^{-1}, solved against the factorization (S^{-1} is never formed)
+        Schol.solveRightInto(PHt, K);
+        innovationValid = false;
+
+        if (fixedKernels) {
+            FixedKernels.correct(K, PHt, y, x, P);
+            return;
+        }
+
+        // x = x + K y
+        K.multiplyInto(y, Ky);
+        x.addInto(Ky, x);
+
+        // P = (I - K H) P = P - K (P H')', one triangle, symmetric by construction
+        P.subtractProductTranspose(K, PHt);
+    }
+
+    // JPDA correction with zs[offset + k] weighted by beta[offset + k] and
+    // beta0 = 1 - sum(beta) that none of them is from the target:
+    //   yBar = sum beta_k y_k,  x = x + K yBar
+    //   P    = P - (1 - beta0) K S K' + K (sum beta_k y_k y_k' - yBar yBar') K'
+    void correctWeighted(Vector x, SymmetricMatrix P, Matrix H, Matrix R,
+                         Vector[] zs, double[] beta, int offset, int count) {
+        double detected = 0.0;
+        for (int k = offset; k < offset + count; k++) {
+            if (!(beta[k] >= 0.0)) {
+                throw new IllegalArgumentException("Association weights must be non-negative");
+            }
+            detected += beta[k];
+        }
+        if (detected > 1.0 + 1e-9) {
+            throw new IllegalArgumentException("Association weights sum to more than 1: " + detected);
+        }
+        if (detected == 0.0) {
+            return;
+        }
+
+        prepareInnovation(x, P, H, R);
+        Schol.solveRightInto(PHt, K);
+
+        // yBar and sum beta_k y_k y_k' (y from the cached H x)
+        yBar.setZero();
+        spread.setZero();
+        for (int k = offset; k < offset + count; k++) {
+            zs[k].subtractInto(Hx, y);
+            for (int a = 0; a < m; a++) {
+                double ya = beta[k] * y.get(a);
+                yBar.set(a, yBar.get(a) + ya);
+                for (int b = 0; b < m; b++) {
+                    spread.set(a, b, spread.get(a, b) + ya * y.get(b));
+                }
+            }
+        }
+        for (int a = 0; a < m; a++) {
+            for (int b = 0; b < m; b++) {
+                spread.set(a, b, spread.get(a, b) - yBar.get(a) * yBar.get(b));
+            }
+        }
+        innovationValid = false;
+
+        // x = x + K yBar
+        K.multiplyInto(yBar, Ky);
+        x.addInto(Ky, x);
+
+        // P = P - K B' with B = detected P H' - K spread (K S K' = K (P H')')
+        K.multiplyInto(spread, B);
+        for (int i = 0; i < n; i++) {
+            for (int a = 0; a < m; a++) {
+                B.set(i, a, detected * PHt.get(i, a) - B.get(i, a));
+            }
+        }
+        P.subtractProductTranspose(K, B);
+    }
+}
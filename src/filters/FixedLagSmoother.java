@@ -0,0 +1,243 @@
+package filters;
+
+import math.Cholesky;
+import math.Matrix;
+import math.SymmetricMatrix;
+import math.Vector;
+
+// Streaming fixed-lag Rauch-Tung-Striebel smoother around a KalmanFilter or EKF.
+//
+// Keeps the last lag + 1 steps (predicted and filtered x, P, and the transition
+// F between steps) in storage allocated once. After each step the smoothed
+// estimate for the step lag steps back is available:
+//
+//   G_k   = P_k|k F_{k+1}' P_{k+1|k}^{-1}
+//   xs_k  = x_k|k + G_k (xs_{k+1} - x_{k+1|k})
+//   Ps_k  = P_k|k + G_k (Ps_{k+1} - P_{k+1|k}) G_k'
+//
+// run backwards from the newest step (xs = x_N|N). That is O(lag) work per step
+// and nothing is allocated per step. A step is a predict followed by at most one
+// update (a predict without update leaves the filtered value at the prediction).
+//
+// It is a Filter itself (predict/update go through to the wrapped filter), so it
+// can sit inside a Track; getState() is the live filtered estimate.
+public class FixedLagSmoother implements Filter {
+
+    private final Filter filter;
+    private final int n;
+    private final int lag;
+    private final int capacity;   // lag + 1 steps
+
+    // Ring of steps, logical step k at (start + k) % capacity
+    private final double[] times;
+    private final Vector[] xf;            // x_k|k
+    private final SymmetricMatrix[] Pf;   // P_k|k
+    private final Vector[] xp;            // x_k|k-1
+    private final SymmetricMatrix[] Pp;   // P_k|k-1
+    private final Matrix[] F;             // transition from step k-1 to k
+    private int start;
+    private int count;
+    private double time;
+
+    // Backward pass scratch
+    private final Vector xs;
+    private final Matrix Ps;
+    private final Matrix A;       // P_k|k (full), then Ps_{k+1} - P_{k+1|k}
+    private final Matrix M;       // P_k|k F'
+    private final Matrix G;
+    private final Matrix GD;
+    private final Matrix GDGt;
+    private final Vector dx;
+    private final Vector Gdx;
+    private final Cholesky chol;
+    private boolean smoothedValid;
+
+    // filter must expose getLastTransition() (KalmanFilter, EKF); its current estimate is at startTime
+    public FixedLagSmoother(Filter filter, int lag, double startTime) {
+        if (lag < 1) {
+            throw new IllegalArgumentException("Smoother lag must be at least 1 step");
+        }
+        this.filter = filter;
+        this.n = filter.getState().size();
+
+        // Probe now: the default getLastTransition throws, which would otherwise
+        // only surface at the first predict
+        Matrix transition;
+        try {
+            transition = filter.getLastTransition();
+        } catch (UnsupportedOperationException e) {
+            throw new IllegalArgumentException("Smoother needs a filter that exposes its transition (KalmanFilter, EKF), not "
+                    + filter.getClass().getSimpleName(), e);
+        }
+        if (transition.rows() != n || transition.cols() != n) {
+            throw new IllegalArgumentException("Filter transition does not match its state size");
+        }
+        this.lag = lag;
+        this.capacity = lag + 1;
+
+        this.times = new double[capacity];
+        this.xf = new Vector[capacity];
+        this.Pf = new SymmetricMatrix[capacity];
+        this.xp = new Vector[capacity];
+        this.Pp = new SymmetricMatrix[capacity];
+        this.F = new Matrix[capacity];
+        for (int i = 0; i < capacity; i++) {
+            xf[i] = new Vector(n);
+            Pf[i] = new SymmetricMatrix(n);
+            xp[i] = new Vector(n);
+            Pp[i] = new SymmetricMatrix(n);
+            F[i] = new Matrix(n, n);
+        }
+
+        this.xs = new Vector(n);
+        this.Ps = new Matrix(n, n);
+        this.A = new Matrix(n, n);
+        this.M = new Matrix(n, n);
+        this.G = new Matrix(n, n);
+        this.GD = new Matrix(n, n);
+        this.GDGt = new Matrix(n, n);
+        this.dx = new Vector(n);
+        this.Gdx = new Vector(n);
+        this.chol = new Cholesky(n);
+
+        // Step 0: the initial estimate (its predicted values and F are never read)
+        this.time = startTime;
+        this.count = 1;
+        times[0] = startTime;
+        xf[0].copyFrom(filter.getState());
+        Pf[0].copyFrom(filter.getSymmetricCovariance());
+    }
+
+    // ---------------------------------
+    // Filter interface
+    // ---------------------------------
+
+    @Override
+    public void predict(double dt) {
+        filter.predict(dt);
+        time += dt;
+
+        // New step: evict the oldest when the window is full
+        if (count == capacity) {
+            start = (start + 1) % capacity;
+        } else {
+            count++;
+        }
+        int p = physical(count - 1);
+        times[p] = time;
+        F[p].copyFrom(filter.getLastTransition());
+        xp[p].copyFrom(filter.getState());
+        Pp[p].copyFrom(filter.getSymmetricCovariance());
+        xf[p].copyFrom(xp[p]);
+        Pf[p].copyFrom(Pp[p]);
+        smoothedValid = false;
+    }
+
+    @Override
+    public void update(Vector z) {
+        filter.update(z);
+        int p = physical(count - 1);
+        xf[p].copyFrom(filter.getState());
+        Pf[p].copyFrom(filter.getSymmetricCovariance());
+        smoothedValid = false;
+    }
+
+    @Override
+    public Vector getState() {
+        return filter.getState();
+    }
+
+    @Override
+    public Matrix getCovariance() {
+        return filter.getCovariance();
+    }
+
+    @Override
+    public SymmetricMatrix getSymmetricCovariance() {
+        return filter.getSymmetricCovariance();
+    }
+
+    @Override
+    public double mahalanobisSquared(Vector z) {
+        return filter.mahalanobisSquared(z);
+    }
+
+    @Override
+    public double logLikelihood(Vector z) {
+        return filter.logLikelihood(z);
+    }
+
+    // ---------------------------------
+    // Smoothed output
+    // ---------------------------------
+
+    // True once lag steps have been seen (before that the window is still filling)
+    public boolean hasSmoothed() {
+        return count == capacity;
+    }
+
+    // Time of the smoothed estimate (lag steps behind the filter)
+    public double getSmoothedTime() {
+        return times[physical(0)];
+    }
+
+    // Smoothed x for getSmoothedTime(); owned by the smoother, refreshed on each step
+    public Vector getSmoothedState() {
+        smooth();
+        return xs;
+    }
+
+    public Matrix getSmoothedCovariance() {
+        smooth();
+        return Ps;
+    }
+
+    public int getLag() {
+        return lag;
+    }
+
+    public Filter getFilter() {
+        return filter;
+    }
+
+    // RTS backward pass over the window, newest to oldest
+    private void smooth() {
+        if (smoothedValid) {
+            return;
+        }
+
+        int newest = physical(count - 1);
+        xs.copyFrom(xf[newest]);
+        Pf[newest].copyInto(Ps);
+
+        for (int k = count - 2; k >= 0; k--) {
+            int p = physical(k);
+            int next = physical(k + 1);
+
+            // G = P_k|k F' P_{k+1|k}^{-1}, solved against the factorization
+            Pf[p].copyInto(A);
+            A.multiplyTransposeInto(F[next], M);
+            Pp[next].copyInto(GD);
+            chol.factor(GD);
+            chol.solveRightInto(M, G);
+
+            // xs = x_k|k + G (xs - x_{k+1|k})
+            xs.subtractInto(xp[next], dx);
+            G.multiplyInto(dx, Gdx);
+            xf[p].addInto(Gdx, xs);
+
+            // Ps = P_k|k + G (Ps - P_{k+1|k}) G'
+            Pp[next].copyInto(A);
+            Ps.subtractInto(A, A);
+            G.multiplyInto(A, GD);
+            GD.multiplyTransposeInto(G, GDGt);
+            Pf[p].copyInto(Ps);
+            Ps.addInto(GDGt, Ps);
+        }
+        smoothedValid = true;
+    }
+
+    private int physical(int k) {
+        return (start + k) % capacity;
+    }
+}
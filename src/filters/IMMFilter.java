@@ -0,0 +1,500 @@
+package filters;
+
+import math.Matrix;
+import math.SymmetricMatrix;
+import math.Vector;
+import models.CAModel;
+import models.CTEKFModel;
+import models.CVModel;
+
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+// Interacting Multiple Model filter: one filter per motion model, all running
+// every scan, combined by model probability. Replaces hard CV <-> CT switching:
+// a maneuver shifts probability to CT/CA instead of rebuilding a filter.
+//
+// Each cycle:
+//   mix      each mode restarts from a probability-weighted blend of all modes
+//   predict  each mode with its own model
+//   update   each mode, scoring the measurement by its likelihood
+//   combine  mode probabilities ~ prior * likelihood; output is the mixture
+//
+// Modes have different state sizes; each maps its components into a common
+// state [x, y, vx, vy, omega, ax, ay] (the selection matrices T of
+// HorizontalChannel's switch, stored as index lists). When mixing into mode j,
+// components that mode i lacks are taken from mode j itself, so e.g. the CT
+// turn rate is not dragged to zero by the CV mode.
+//
+// All mixing buffers are preallocated; the per-mode filters are reset in place.
+// With setParallel(true) the per-mode predict/update run on the common pool.
+public class IMMFilter implements Filter {
+
+    // Common state
+    public static final int COMMON_SIZE = 7;
+    public static final int X = 0, Y = 1, VX = 2, VY = 3, OMEGA = 4, AX = 5, AY = 6;
+
+    public static final int[] CV_COMPONENTS = {X, Y, VX, VY};
+    public static final int[] CT_COMPONENTS = {X, Y, VX, VY, OMEGA};
+    public static final int[] CA_COMPONENTS = {X, Y, VX, VY, AX, AY};
+
+    // Below this predicted probability a mode is mixed from itself only
+    private static final double MIN_PROBABILITY = 1e-300;
+
+    private final String[] names;
+    private final Filter[] filters;
+    private final int[][] maps;          // mode component a -> common component
+    private final int r;
+
+    private final double[][] transition; // [i][j] = P(mode j now | mode i before)
+    private final double[] mu;           // mode probabilities
+    private final double[] c;            // predicted mode probabilities
+    private final double[][] w;          // mixing weights mu_{i|j}, [i][j]
+    private final double[] logLik;       // per-mode log-likelihood of the last update
+
+    // Expanded mode estimates in the common space (only each mode's components set)
+    private final boolean[][] has;       // [i][k]
+    private final double[][] xs;         // [i][k]
+    private final double[][] Ps;         // [i][k * COMMON_SIZE + l]
+    private final double[] d;            // COMMON_SIZE scratch
+
+    // Mixed initial condition per mode
+    private final Vector[] mixedX;
+    private final SymmetricMatrix[] mixedP;
+
+    // Combined output
+    private final Vector x;
+    private final Matrix Pout;
+    private boolean combinedValid;
+
+    private boolean parallel;
+
+    public IMMFilter(String[] names, Filter[] filters, int[][] components,
+                     double[][] transition, double[] initialProbabilities) {
+        this.r = filters.length;
+        if (r < 1 || names.length != r || components.length != r
+                || transition.length != r || initialProbabilities.length != r) {
+            throw new IllegalArgumentException("IMM needs one name, component map, transition row and probability per mode");
+        }
+        for (int i = 0; i < r; i++) {
+            if (transition[i].length != r) {
+                throw new IllegalArgumentException("IMM transition matrix must be square");
+            }
+            if (components[i].length != filters[i].getState().size()) {
+                throw new IllegalArgumentException("Component map of mode " + names[i] + " does not match its state size");
+            }
+        }
+
+        this.names = names.clone();
+        this.filters = filters.clone();
+        this.maps = new int[r][];
+        this.transition = new double[r][];
+        for (int i = 0; i < r; i++) {
+            maps[i] = components[i].clone();
+            this.transition[i] = transition[i].clone();
+        }
+
+        this.mu = initialProbabilities.clone();
+        normalize(mu);
+        this.c = new double[r];
+        this.w = new double[r][r];
+        this.logLik = new double[r];
+
+        this.has = new boolean[r][COMMON_SIZE];
+        this.xs = new double[r][COMMON_SIZE];
+        this.Ps = new double[r][COMMON_SIZE * COMMON_SIZE];
+        this.d = new double[COMMON_SIZE];
+        this.mixedX = new Vector[r];
+        this.mixedP = new SymmetricMatrix[r];
+        for (int i = 0; i < r; i++) {
+            for (int k : maps[i]) {
+                has[i][k] = true;
+            }
+            mixedX[i] = new Vector(maps[i].length);
+            mixedP[i] = new SymmetricMatrix(maps[i].length);
+        }
+
+        this.x = new Vector(COMMON_SIZE);
+        this.Pout = new Matrix(COMMON_SIZE, COMMON_SIZE);
+    }
+
+    // CV (KF), CT (EKF) and CA (KF) on a position measurement, started from a
+    // common-state x0/P0. stay is the probability of keeping the same model per scan.
+    public static IMMFilter cvCtCa(Vector x0, Matrix P0,
+                                   double qCv, double qCt, double qCa,
+                                   Matrix R, double stay) {
+        return cvCtCa(x0, P0, qCv, qCt, qCa, positionH(4), positionH(5), R, stay);
+    }
+
+    // As above with the CV (m x 4) and CT (m x 5) measurement matrices given; CA
+    // measures what CV does (H_cv with zero columns for ax, ay)
+    public static IMMFilter cvCtCa(Vector x0, Matrix P0,
+                                   double qCv, double qCt, double qCa,
+                                   Matrix H_cv, Matrix H_ct, Matrix R, double stay) {
+        if (x0.size() != COMMON_SIZE || P0.rows() != COMMON_SIZE || P0.cols() != COMMON_SIZE) {
+            throw new IllegalArgumentException("IMM initial state must be the 7-element common state");
+        }
+        int m = R.rows();
+        if (H_cv.rows() != m || H_cv.cols() != CV_COMPONENTS.length
+                || H_ct.rows() != m || H_ct.cols() != CT_COMPONENTS.length) {
+            throw new IllegalArgumentException("IMM measurement matrices must be m x 4 (CV) and m x 5 (CT)");
+        }
+        Matrix H_ca = new Matrix(m, CA_COMPONENTS.length);
+        for (int a = 0; a < m; a++) {
+            for (int k = 0; k < CV_COMPONENTS.length; k++) {
+                H_ca.set(a, k, H_cv.get(a, k));
+            }
+        }
+
+        int[][] maps = {CV_COMPONENTS, CT_COMPONENTS, CA_COMPONENTS};
+        SymmetricMatrix P = SymmetricMatrix.fromUpper(P0);
+
+        Filter[] filters = new Filter[3];
+        filters[0] = new KalmanFilter(project(x0, maps[0]), project(P, maps[0]),
+                new CVModel(qCv), H_cv, R);
+        filters[1] = new EKF(project(x0, maps[1]), project(P, maps[1]),
+                new CTEKFModel(qCt), H_ct, R);
+        filters[2] = new KalmanFilter(project(x0, maps[2]), project(P, maps[2]),
+                new CAModel(qCa), H_ca, R);
+
+        double move = (1.0 - stay) / 2.0;
+        double[][] transition = {
+                {stay, move, move},
+                {move, stay, move},
+                {move, move, stay}
+        };
+        return new IMMFilter(new String[] {"CV", "CT", "CA"}, filters, maps,
+                transition, new double[] {1.0, 1.0, 1.0});
+    }
+
+    // H picking [x, y] from the first two components
+    private static Matrix positionH(int n) {
+        Matrix H = new Matrix(2, n);
+        H.set(0, 0, 1.0);
+        H.set(1, 1, 1.0);
+        return H;
+    }
+
+    private static Vector project(Vector x, int[] map) {
+        Vector out = new Vector(map.length);
+        for (int a = 0; a < map.length; a++) {
+            out.set(a, x.get(map[a]));
+        }
+        return out;
+    }
+
+    private static SymmetricMatrix project(SymmetricMatrix P, int[] map) {
+        SymmetricMatrix out = new SymmetricMatrix(map.length);
+        for (int a = 0; a < map.length; a++) {
+            for (int b = a; b < map.length; b++) {
+                out.set(a, b, P.get(map[a], map[b]));
+            }
+        }
+        return out;
+    }
+
+    // ---------------------------------
+    // Filter cycle
+    // ---------------------------------
+
+    @Override
+    public void predict(double dt) {
+        mix();
+        forEachMode(i -> filters[i].predict(dt));
+
+        // Without an update the predicted probabilities are the new ones
+        System.arraycopy(c, 0, mu, 0, r);
+        combinedValid = false;
+    }
+
+    @Override
+    public void update(Vector z) {
+        forEachMode(i -> {
+            logLik[i] = filters[i].logLikelihood(z);
+            filters[i].update(z);
+        });
+
+        // mu_j ~ mu_j L_j, in log space so far-off modes do not underflow all at once
+        double maxLog = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < r; i++) {
+            maxLog = Math.max(maxLog, logLik[i]);
+        }
+        for (int i = 0; i < r; i++) {
+            mu[i] *= Math.exp(logLik[i] - maxLog);
+        }
+        normalize(mu);
+        combinedValid = false;
+    }
+
+    // Interaction step: c_j = sum_i PI_ij mu_i, mu_{i|j} = PI_ij mu_i / c_j,
+    // then each mode is reset to its mixed estimate
+    private void mix() {
+        for (int j = 0; j < r; j++) {
+            double cj = 0.0;
+            for (int i = 0; i < r; i++) {
+                cj += transition[i][j] * mu[i];
+            }
+            c[j] = cj;
+            for (int i = 0; i < r; i++) {
+                w[i][j] = cj > MIN_PROBABILITY ? transition[i][j] * mu[i] / cj : (i == j ? 1.0 : 0.0);
+            }
+        }
+
+        expandModes();
+
+        for (int j = 0; j < r; j++) {
+            int[] map = maps[j];
+            int nj = map.length;
+            Vector xm = mixedX[j];
+            SymmetricMatrix Pm = mixedP[j];
+
+            // x0_j = sum_i mu_{i|j} x_i
+            for (int a = 0; a < nj; a++) {
+                int k = map[a];
+                double sum = 0.0;
+                for (int i = 0; i < r; i++) {
+                    sum += w[i][j] * (has[i][k] ? xs[i][k] : xs[j][k]);
+                }
+                xm.set(a, sum);
+            }
+
+            // P0_j = sum_i mu_{i|j} (P_i + (x_i - x0_j)(x_i - x0_j)')
+            Pm.setZero();
+            for (int i = 0; i < r; i++) {
+                double wij = w[i][j];
+                if (wij == 0.0) {
+                    continue;
+                }
+                for (int a = 0; a < nj; a++) {
+                    int k = map[a];
+                    d[a] = (has[i][k] ? xs[i][k] : xs[j][k]) - xm.get(a);
+                }
+                for (int a = 0; a < nj; a++) {
+                    int k = map[a];
+                    for (int b = a; b < nj; b++) {
+                        int l = map[b];
+                        double cov;
+                        if (has[i][k] && has[i][l]) {
+                            cov = Ps[i][k * COMMON_SIZE + l];
+                        } else if (!has[i][k] && !has[i][l]) {
+                            cov = Ps[j][k * COMMON_SIZE + l];  // borrowed from mode j
+                        } else {
+                            cov = 0.0;
+                        }
+                        Pm.set(a, b, Pm.get(a, b) + wij * (cov + d[a] * d[b]));
+                    }
+                }
+            }
+        }
+
+        for (int j = 0; j < r; j++) {
+            filters[j].reset(mixedX[j], mixedP[j]);
+        }
+    }
+
+    // xs/Ps = each mode's estimate placed into the common space
+    private void expandModes() {
+        for (int i = 0; i < r; i++) {
+            int[] map = maps[i];
+            Vector xi = filters[i].getState();
+            SymmetricMatrix Pi = filters[i].getSymmetricCovariance();
+            for (int a = 0; a < map.length; a++) {
+                xs[i][map[a]] = xi.get(a);
+                for (int b = 0; b < map.length; b++) {
+                    Ps[i][map[a] * COMMON_SIZE + map[b]] = Pi.get(a, b);
+                }
+            }
+        }
+    }
+
+    // Moment-matched mixture in the common space; each component is combined
+    // over the modes that carry it
+    private void combine() {
+        if (combinedValid) {
+            return;
+        }
+        expandModes();
+
+        for (int k = 0; k < COMMON_SIZE; k++) {
+            double sum = 0.0;
+            double weight = 0.0;
+            for (int i = 0; i < r; i++) {
+                if (has[i][k]) {
+                    sum += mu[i] * xs[i][k];
+                    weight += mu[i];
+                }
+            }
+            x.set(k, weight > 0.0 ? sum / weight : 0.0);
+        }
+
+        for (int k = 0; k < COMMON_SIZE; k++) {
+            for (int l = k; l < COMMON_SIZE; l++) {
+                double sum = 0.0;
+                double weight = 0.0;
+                for (int i = 0; i < r; i++) {
+                    if (has[i][k] && has[i][l]) {
+                        double dk = xs[i][k] - x.get(k);
+                        double dl = xs[i][l] - x.get(l);
+                        sum += mu[i] * (Ps[i][k * COMMON_SIZE + l] + dk * dl);
+                        weight += mu[i];
+                    }
+                }
+                double v = weight > 0.0 ? sum / weight : 0.0;
+                Pout.set(k, l, v);
+                Pout.set(l, k, v);
+            }
+        }
+        combinedValid = true;
+    }
+
+    private void forEachMode(IntConsumer step) {
+        if (parallel) {
+            IntStream.range(0, r).parallel().forEach(step);
+        } else {
+            for (int i = 0; i < r; i++) {
+                step.accept(i);
+            }
+        }
+    }
+
+    private static void normalize(double[] p) {
+        double sum = 0.0;
+        for (double v : p) {
+            sum += v;
+        }
+        if (!(sum > 0.0)) {
+            throw new IllegalStateException("IMM mode probabilities vanished");
+        }
+        for (int i = 0; i < p.length; i++) {
+            p[i] /= sum;
+        }
+    }
+
+    // ---------------------------------
+    // Gating and likelihood
+    // ---------------------------------
+
+    // Smallest distance over the modes: a measurement is inside the gate if any
+    // model could have produced it (so a maneuver does not gate itself out)
+    @Override
+    public double mahalanobisSquared(Vector z) {
+        double best = Double.POSITIVE_INFINITY;
+        for (Filter f : filters) {
+            best = Math.min(best, f.mahalanobisSquared(z));
+        }
+        return best;
+    }
+
+    // log sum_j mu_j L_j (the mixture likelihood)
+    @Override
+    public double logLikelihood(Vector z) {
+        double maxLog = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < r; i++) {
+            logLik[i] = filters[i].logLikelihood(z);
+            maxLog = Math.max(maxLog, logLik[i]);
+        }
+        double sum = 0.0;
+        for (int i = 0; i < r; i++) {
+            sum += mu[i] * Math.exp(logLik[i] - maxLog);
+        }
+        return maxLog + Math.log(sum);
+    }
+
+    // ---------------------------------
+    // Accessors
+    // ---------------------------------
+
+    // Combined estimate in the common state [x, y, vx, vy, omega, ax, ay],
+    // owned by the filter and refreshed on each call
+    @Override
+    public Vector getState() {
+        combine();
+        return x;
+    }
+
+    @Override
+    public Matrix getCovariance() {
+        combine();
+        return Pout;
+    }
+
+    // Resets every mode to the projection of a common-state estimate
+    @Override
+    public void reset(Vector state, SymmetricMatrix covariance) {
+        if (state.size() != COMMON_SIZE || covariance.size() != COMMON_SIZE) {
+            throw new IllegalArgumentException("IMM reset needs the 7-element common state");
+        }
+        for (int i = 0; i < r; i++) {
+            int[] map = maps[i];
+            for (int a = 0; a < map.length; a++) {
+                mixedX[i].set(a, state.get(map[a]));
+                for (int b = a; b < map.length; b++) {
+                    mixedP[i].set(a, b, covariance.get(map[a], map[b]));
+                }
+            }
+            filters[i].reset(mixedX[i], mixedP[i]);
+        }
+        combinedValid = false;
+    }
+
+    // Snapshot = each mode's own snapshot in turn, then the mode probabilities;
+    // unlike reset, restoring one keeps the modes distinct and mu unchanged
+    @Override
+    public int snapshotSize() {
+        int size = r;
+        for (int i = 0; i < r; i++) {
+            size += filters[i].snapshotSize();
+        }
+        return size;
+    }
+
+    @Override
+    public void snapshotInto(double[] dest, int offset) {
+        for (int i = 0; i < r; i++) {
+            filters[i].snapshotInto(dest, offset);
+            offset += filters[i].snapshotSize();
+        }
+        System.arraycopy(mu, 0, dest, offset, r);
+    }
+
+    @Override
+    public void restoreSnapshot(double[] src, int offset) {
+        for (int i = 0; i < r; i++) {
+            filters[i].restoreSnapshot(src, offset);
+            offset += filters[i].snapshotSize();
+        }
+        System.arraycopy(src, offset, mu, 0, r);
+        combinedValid = false;
+    }
+
+    public void setParallel(boolean enabled) {
+        this.parallel = enabled;
+    }
+
+    public int modeCount() {
+        return r;
+    }
+
+    public String modeName(int i) {
+        return names[i];
+    }
+
+    public double modeProbability(int i) {
+        return mu[i];
+    }
+
+    public Filter modeFilter(int i) {
+        return filters[i];
+    }
+
+    // Index of the most probable mode
+    public int mostLikelyMode() {
+        int best = 0;
+        for (int i = 1; i < r; i++) {
+            if (mu[i] > mu[best]) {
+                best = i;
+            }
+        }
+        return best;
+    }
+}
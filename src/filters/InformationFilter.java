@@ -0,0 +1,260 @@
+package filters;
+
+import math.Cholesky;
+import math.Matrix;
+import math.SymmetricMatrix;
+import math.Vector;
+import models.MotionModel;
+
+// Linear Kalman filter in information form: keeps Y = P^{-1} and y = P^{-1} x.
+//
+// A measurement z from a sensor (H, R) is a plain sum:
+//   Y += H' R^{-1} H,   y += H' R^{-1} z
+// with no gain, no innovation covariance and no factorization per sensor, so
+// four or five sensors reporting the same target in one frame cost four or five
+// additions. Sums commute: contributions can be accumulated in any order, or
+// in parallel (one Contribution per thread, merged) and applied at once.
+//
+// (x, P) are recovered with one Cholesky of Y, only when the state is read,
+// gated against, or predicted (predict runs in covariance form).
+public class InformationFilter implements Filter {
+
+    // A sensor's constant terms H' R^{-1} and H' R^{-1} H, computed once
+    public static final class Sensor {
+        final Matrix H;
+        final Matrix R;
+        final Matrix HtRinv;         // n x m
+        final SymmetricMatrix info;  // H' R^{-1} H
+
+        public Sensor(Matrix H, Matrix R) {
+            if (R.rows() != H.rows() || R.cols() != H.rows()) {
+                throw new IllegalArgumentException("Sensor H/R dimension mismatch");
+            }
+            this.H = H;
+            this.R = R;
+
+            // H' R^{-1} = (R^{-1} H)', solved against R (R^{-1} is never formed)
+            Cholesky Rchol = new Cholesky(R.rows());
+            Rchol.factor(R);
+            this.HtRinv = new Matrix(H.cols(), H.rows());
+            Rchol.solveRightInto(H.transpose(), HtRinv);
+            this.info = SymmetricMatrix.fromUpper(HtRinv.multiply(H));
+        }
+
+        public int stateSize() {
+            return H.cols();
+        }
+
+        public Matrix H() {
+            return H;
+        }
+
+        public Matrix R() {
+            return R;
+        }
+    }
+
+    // Sum of sensor contributions (information increments) for one frame
+    public static final class Contribution {
+        final SymmetricMatrix I;
+        final Vector i;
+        private final Vector tmp;
+
+        public Contribution(int n) {
+            this.I = new SymmetricMatrix(n);
+            this.i = new Vector(n);
+            this.tmp = new Vector(n);
+        }
+
+        // Add measurement z of sensor s
+        public void add(Sensor s, Vector z) {
+            if (s.stateSize() != i.size()) {
+                throw new IllegalArgumentException("Sensor/Contribution dimension mismatch");
+            }
+            I.addInto(s.info, I);
+            s.HtRinv.multiplyInto(z, tmp);
+            i.addInto(tmp, i);
+        }
+
+        // this += other (e.g. partial sums built on different threads)
+        public void merge(Contribution other) {
+            I.addInto(other.I, I);
+            i.addInto(other.i, i);
+        }
+
+        public void clear() {
+            I.setZero();
+            i.setZero();
+        }
+    }
+
+    // Information form (the filter state)
+    private final SymmetricMatrix Y;
+    private final Vector yInfo;
+
+    // Moment form, recovered on demand
+    private final Vector x;
+    private final SymmetricMatrix P;
+    private final Matrix Pfull;     // unpacked copy handed out by getCovariance()
+    private boolean momentsValid;
+
+    private MotionModel model;
+    private final Sensor sensor;    // used by update(z) and mahalanobisSquared(z)
+
+    private final FilterWorkspace ws;  // predict and gating scratch
+    private final Cholesky chol;       // of Y (or P), n x n
+    private final Matrix work;         // n x n scratch
+    private final Matrix eye;
+
+    public InformationFilter(Vector initialState,
+                             Matrix initialCovariance,
+                             MotionModel model,
+                             Matrix H,
+                             Matrix R) {
+
+        int n = initialState.size();
+        this.Y = new SymmetricMatrix(n);
+        this.yInfo = new Vector(n);
+        this.x = initialState.copy();
+        this.P = SymmetricMatrix.fromUpper(initialCovariance);
+        this.Pfull = new Matrix(n, n);
+        this.model = model;
+        this.sensor = new Sensor(H, R);
+
+        this.ws = new FilterWorkspace(n, R);
+        this.chol = new Cholesky(n);
+        this.work = new Matrix(n, n);
+        this.eye = Matrix.identity(n);
+
+        toInformation();
+    }
+
+    @Override
+    public void predict(double dt) {
+        ensureMoments();
+
+        model.getFInto(dt, ws.F);
+        model.getQInto(dt, ws.Q);
+        ws.propagateState(x);
+        ws.propagateCovariance(P);
+
+        toInformation();
+    }
+
+    // Measurement from the filter's own sensor
+    @Override
+    public void update(Vector z) {
+        update(sensor, z);
+    }
+
+    // Measurement from any sensor observing this state
+    public void update(Sensor s, Vector z) {
+        if (s.stateSize() != x.size()) {
+            throw new IllegalArgumentException("Sensor/filter dimension mismatch");
+        }
+        Y.addInto(s.info, Y);
+        s.HtRinv.multiplyInto(z, ws.xPred);
+        yInfo.addInto(ws.xPred, yInfo);
+        invalidate();
+    }
+
+    // All measurements accumulated in c, applied at once
+    public void update(Contribution c) {
+        if (c.i.size() != x.size()) {
+            throw new IllegalArgumentException("Contribution/filter dimension mismatch");
+        }
+        Y.addInto(c.I, Y);
+        yInfo.addInto(c.i, yInfo);
+        invalidate();
+    }
+
+    // Squared Mahalanobis distance of z (own sensor) against the current prediction
+    @Override
+    public double mahalanobisSquared(Vector z) {
+        ensureMoments();
+        return ws.mahalanobisSquared(x, P, sensor.H, sensor.R, z);
+    }
+
+    @Override
+    public double logLikelihood(Vector z) {
+        ensureMoments();
+        return ws.logLikelihood(x, P, sensor.H, sensor.R, z);
+    }
+
+    @Override
+    public void reset(Vector state, SymmetricMatrix covariance) {
+        ws.reset(x, P, state, covariance);
+        toInformation();
+    }
+
+    public Contribution newContribution() {
+        return new Contribution(x.size());
+    }
+
+    // Note: like KalmanFilter, the state is a live view, refreshed by each read
+    @Override
+    public Vector getState() {
+        ensureMoments();
+        return x;
+    }
+
+    @Override
+    public Matrix getCovariance() {
+        ensureMoments();
+        P.copyInto(Pfull);
+        return Pfull;
+    }
+
+    @Override
+    public SymmetricMatrix getSymmetricCovariance() {
+        ensureMoments();
+        return P;
+    }
+
+    // Live packed information matrix Y = P^{-1}
+    public SymmetricMatrix getInformationMatrix() {
+        return Y;
+    }
+
+    // Live information vector y = P^{-1} x
+    public Vector getInformationVector() {
+        return yInfo;
+    }
+
+    public void setMotionModel(MotionModel model) {
+        this.model = model;
+    }
+
+    // ---------------------------------
+    // Conversions between the two forms
+    // ---------------------------------
+
+    private void invalidate() {
+        momentsValid = false;
+        ws.innovationValid = false;
+    }
+
+    // P = Y^{-1}, x = P y
+    private void ensureMoments() {
+        if (momentsValid) {
+            return;
+        }
+        Y.copyInto(work);
+        chol.factor(work);
+        chol.solveRightInto(eye, work);
+        P.copyFrom(work);
+        chol.solveInto(yInfo, x);
+        momentsValid = true;
+    }
+
+    // Y = P^{-1}, y = Y x (the moments stay valid)
+    private void toInformation() {
+        P.copyInto(work);
+        chol.factor(work);
+        chol.solveRightInto(eye, work);
+        Y.copyFrom(work);
+        chol.solveInto(x, yInfo);
+        momentsValid = true;
+        ws.innovationValid = false;
+    }
+}
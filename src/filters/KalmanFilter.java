@@ -1,84 +1,214 @@
 package filters;
 
 import math.Matrix;
+import math.SymmetricMatrix;
 import math.Vector;
 import models.MotionModel;
 
 public class KalmanFilter implements Filter {
 
-    private Vector x;           // State vector
-    private Matrix P;           // Covariance matrix
+    private final Vector x;     // State vector
+    private final SymmetricMatrix P;  // Covariance matrix (packed upper triangle)
+    private final Matrix Pfull;       // unpacked copy handed out by getCovariance()
     private MotionModel model;  // Motion model (CV, CA, CT, etc.)
     private Matrix H;           // Measurement matrix
     private Matrix R;           // Measurement noise
 
+    private final FilterWorkspace ws;  // preallocated scratch for predict/update
+
+    // Steady-state gain mode (off by default, see setSteadyState)
+    private boolean steadyStateEnabled;
+    private SteadyStateGain steadyGain;  // converged solution for the last dt
+    private boolean steady;              // P has converged: predict/update use steadyGain
+    private boolean predicted;           // predict ran and no update followed yet
+    private double lastDt = Double.NaN;
+
+    // Relative distance from the steady-state P at which a track switches over
+    private static final double STEADY_TOLERANCE = 1e-6;
+
     public KalmanFilter(Vector initialState,
                         Matrix initialCovariance,
                         MotionModel model,
                         Matrix H,
                         Matrix R) {
 
-        this.x = initialState;
-        this.P = initialCovariance;
+        this(initialState, SymmetricMatrix.fromUpper(initialCovariance), model, H, R);
+    }
+
+    public KalmanFilter(Vector initialState,
+                        SymmetricMatrix initialCovariance,
+                        MotionModel model,
+                        Matrix H,
+                        Matrix R) {
+
+        // Own copies: x and P are updated in place from here on
+        this.x = initialState.copy();
+        this.P = initialCovariance.copy();
+        this.Pfull = new Matrix(P.size(), P.size());
         this.model = model;
         this.H = H;
         this.R = R;
+        this.ws = new FilterWorkspace(x.size(), R);
     }
 
     @Override
     public void predict(double dt) {
+        // Two predicts in a row means the previous scan had no detection
+        boolean missed = predicted;
+        predicted = true;
+        lastDt = dt;
+
+        if (steady) {
+            if (steadyGain.matches(dt) && !missed) {
+                // P is already the steady predicted covariance: only x moves
+                model.getFInto(dt, ws.F);
+                ws.propagateState(x);
+                steadyGain.copyPredictedInto(P);
+                ws.innovationValid = false;
+                return;
+            }
+            // dt change or missed detection: back to the full filter from the current P
+            steady = false;
+        }
+
         // Get F(dt) and Q(dt) from the motion model
-        Matrix F = model.getF(dt);
-        Matrix Q = model.getQ(dt);
+        model.getFInto(dt, ws.F);
+        model.getQInto(dt, ws.Q);
 
         // x = F * x
-        x = F.multiply(x);
+        ws.propagateState(x);
 
         // P = F * P * F' + Q
-        Matrix FP = F.multiply(P);
-        Matrix Ft = F.transpose();
-        P = FP.multiply(Ft).add(Q);
+        ws.propagateCovariance(P);
     }
 
     @Override
     public void update(Vector z) {
-        // y = z - Hx (innovation)
-        Vector Hx = H.multiply(x);
-        Vector y = z.subtract(Hx);
+        predicted = false;
+
+        if (steady) {
+            // x = x + K y with the cached gain; P jumps to the steady updated value
+            ws.residual(x, H, z);
+            steadyGain.gain().multiplyInto(ws.y, ws.Ky);
+            x.addInto(ws.Ky, x);
+            steadyGain.copyUpdatedInto(P);
+            ws.innovationValid = false;
+            return;
+        }
+
+        ws.correct(x, P, H, R, z);
+
+        if (steadyStateEnabled && !Double.isNaN(lastDt)) {
+            checkSteadyState();
+        }
+    }
 
-        // S = HPH' + R
-        Matrix HP = H.multiply(P);
-        Matrix Ht = H.transpose();
-        Matrix S = HP.multiply(Ht).add(R);
+    // JPDA combined update (always the full filter: the result is not the steady-state P)
+    @Override
+    public void updateWeighted(Vector[] measurements, double[] weights, int offset, int count) {
+        predicted = false;
+        steady = false;
+        ws.correctWeighted(x, P, H, R, measurements, weights, offset, count);
+    }
+
+    // Switch to the cached gain once the updated P has reached the steady-state value
+    private void checkSteadyState() {
+        if (steadyGain == null || !steadyGain.matches(lastDt)) {
+            try {
+                steadyGain = SteadyStateGain.forModel(model, lastDt, H, R);
+            } catch (IllegalArgumentException e) {
+                // No steady state for this model/H/R: stay on the full filter
+                steadyStateEnabled = false;
+                return;
+            }
+        }
+        steady = steadyGain.hasConverged(P, STEADY_TOLERANCE);
+    }
 
-        // K = P H' S^{-1}
-        Matrix PHt = P.multiply(Ht);
-        Matrix S_inv = S.inverse();
-        Matrix K = PHt.multiply(S_inv);
+    // Constant-gain mode for fixed-rate tracks with a time-invariant model, H and R.
+    // Once P converges to the Riccati solution, predict/update reduce to x = F x and
+    // x = x + K (z - H x). A dt change or a missed detection (predict without update)
+    // falls back to the full filter, which re-enters steady state when P converges again.
+    public void setSteadyState(boolean enabled) {
+        steadyStateEnabled = enabled;
+        if (!enabled) {
+            steady = false;
+        }
+    }
 
-        // x = x + K y
-        Vector Ky = K.multiply(y);
-        x = x.add(Ky);
+    public boolean isSteady() {
+        return steady;
+    }
 
-        // P = (I - K H) P
-        Matrix KH = K.multiply(H);
-        Matrix I = Matrix.identity(P.rows());
-        Matrix IminusKH = I.add(KH.multiply(-1));
+    // Squared Mahalanobis distance y' S^{-1} y of z against the current prediction.
+    // The factorization of S is cached until the next predict/update, so gating
+    // several measurements and then updating with one of them factors S only once.
+    @Override
+    public double mahalanobisSquared(Vector z) {
+        return ws.mahalanobisSquared(x, P, H, R, z);
+    }
 
-        P = IminusKH.multiply(P);
+    @Override
+    public double logLikelihood(Vector z) {
+        return ws.logLikelihood(x, P, H, R, z);
     }
 
+    // Replaces x and P; steady-state mode re-enters once P converges again
+    @Override
+    public void reset(Vector state, SymmetricMatrix covariance) {
+        ws.reset(x, P, state, covariance);
+        steady = false;
+        predicted = false;
+    }
+
+    // Snapshots copy x and P directly (no reset, no allocation); a restored
+    // estimate runs the full filter until it converges again, as after reset
+    @Override
+    public void snapshotInto(double[] dest, int offset) {
+        ws.snapshot(x, P, dest, offset);
+    }
+
+    @Override
+    public void restoreSnapshot(double[] src, int offset) {
+        ws.restore(x, P, src, offset);
+        steady = false;
+        predicted = false;
+    }
+
+    // Unrolled kernels are used automatically for the state/measurement sizes they cover;
+    // turning them off forces the generic Matrix path (for comparison and debugging)
+    public void setFixedKernels(boolean enabled) {
+        ws.setFixedKernels(enabled);
+    }
+
+    // Note: the state is a live view, updated in place by predict/update.
+    // getCovariance() unpacks P into a full matrix owned by the filter, refreshed on each call.
     @Override
     public Vector getState() {
         return x;
     }
 
     public Matrix getCovariance() {
+        P.copyInto(Pfull);
+        return Pfull;
+    }
+
+    // F(dt) (EKF: the Jacobian at the prior state) from the last predict; live, overwritten by the next
+    @Override
+    public Matrix getLastTransition() {
+        return ws.F;
+    }
+
+    // Live packed covariance
+    @Override
+    public SymmetricMatrix getSymmetricCovariance() {
         return P;
     }
 
     public void setMotionModel(models.MotionModel model) {
-    this.model = model;
-}
+        this.model = model;
+        this.steady = false;
+        this.steadyGain = null;
+    }
 
 }
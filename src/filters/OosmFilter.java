@@ -0,0 +1,268 @@
+package filters;
+
+import math.Matrix;
+import math.SymmetricMatrix;
+import math.Vector;
+
+// Out-of-sequence measurement handling for any Filter that can snapshot itself.
+//
+// Measurements carry their own timestamp. Every update leaves a checkpoint
+// (time, z, filter snapshot) in a fixed-size ring of primitive arrays, oldest
+// first. A measurement older than the current estimate is folded in by limited
+// replay: restart from the newest checkpoint at or before its time, apply it,
+// then re-apply the (at most capacity) measurements that followed, refreshing
+// their checkpoints.
+//
+// The snapshot is the filter's whole internal estimate (Filter.snapshotInto):
+// x and P for a Kalman filter or EKF, every mode's x and P plus the mode
+// probabilities for an IMM. Replay therefore follows the same arithmetic as
+// in-order arrival, up to predicting one long interval where in-order
+// processing predicted in shorter steps. A Kalman filter running on its
+// steady-state gain restarts on the full recursion after a restore.
+//
+// Work and memory are bounded by the ring capacity. A measurement older than
+// the oldest checkpoint cannot be placed and is dropped (counted in dropped()).
+public class OosmFilter implements Filter {
+
+    private final Filter filter;
+    private final int m;          // measurement size
+    private final int snapshot;   // filter.snapshotSize()
+    private final int capacity;
+
+    // Ring, in increasing time: logical entry k lives at (start + k) % capacity
+    private final double[] times;
+    private final double[] zs;    // capacity * m (NaN for the initial prior)
+    private final double[] snaps; // capacity * snapshot
+    private int start;
+    private int count;
+
+    private double time;          // time of the filter's current estimate
+
+    // Scratch for replaying a checkpoint's measurement
+    private final Vector zTmp;
+
+    private long lateApplied;
+    private long replayedSteps;
+    private long dropped;
+
+    // filter must support restoreSnapshot (by default through reset(x, P)); its
+    // current estimate is taken to be at startTime
+    public OosmFilter(Filter filter, int measurementSize, int capacity, double startTime) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("OOSM ring needs at least 2 checkpoints");
+        }
+        this.filter = filter;
+        this.m = measurementSize;
+        this.snapshot = filter.snapshotSize();
+        this.capacity = capacity;
+
+        this.times = new double[capacity];
+        this.zs = new double[capacity * m];
+        this.snaps = new double[capacity * snapshot];
+
+        this.zTmp = new Vector(m);
+
+        this.time = startTime;
+        anchorHere();
+    }
+
+    // ---------------------------------
+    // Time-stamped interface
+    // ---------------------------------
+
+    // Advance the estimate to time t (no-op if t is not ahead)
+    public void predictTo(double t) {
+        if (t > time) {
+            filter.predict(t - time);
+            time = t;
+        }
+    }
+
+    // Apply z measured at time t, in or out of order. Returns false if t is
+    // older than every checkpoint (the measurement is dropped).
+    public boolean update(double t, Vector z) {
+        if (z.size() != m) {
+            throw new IllegalArgumentException("Measurement has wrong size");
+        }
+
+        double newest = times[physical(count - 1)];
+        if (t >= newest) {
+            if (t < time) {
+                // Predicted past t without a measurement: back up to the newest checkpoint
+                restore(count - 1);
+                time = newest;
+            }
+            predictTo(t);
+            filter.update(z);
+            push(t, z);
+            return true;
+        }
+
+        // Late: newest checkpoint at or before t
+        int anchor = count - 1;
+        while (anchor >= 0 && times[physical(anchor)] > t) {
+            anchor--;
+        }
+        if (anchor < 0) {
+            dropped++;
+            return false;
+        }
+
+        double resumeTime = time;
+
+        // Restart from the anchor and apply the late measurement
+        restore(anchor);
+        time = times[physical(anchor)];
+        predictTo(t);
+        filter.update(z);
+
+        // Insert its checkpoint right after the anchor (evicting the oldest entry when full)
+        if (count == capacity) {
+            start = (start + 1) % capacity;
+            count--;
+            anchor--;
+        }
+        int slot = anchor + 1;
+        for (int k = count; k > slot; k--) {
+            copyEntry(k - 1, k);
+        }
+        count++;
+        store(slot, t, z);
+
+        // Replay everything that followed
+        for (int k = slot + 1; k < count; k++) {
+            int p = physical(k);
+            for (int i = 0; i < m; i++) {
+                zTmp.set(i, zs[p * m + i]);
+            }
+            predictTo(times[p]);
+            filter.update(zTmp);
+            store(k, times[p], zTmp);
+            replayedSteps++;
+        }
+
+        predictTo(resumeTime);
+        lateApplied++;
+        return true;
+    }
+
+    // ---------------------------------
+    // Filter interface (measurements at the current time)
+    // ---------------------------------
+
+    @Override
+    public void predict(double dt) {
+        predictTo(time + dt);
+    }
+
+    @Override
+    public void update(Vector z) {
+        update(time, z);
+    }
+
+    @Override
+    public Vector getState() {
+        return filter.getState();
+    }
+
+    @Override
+    public Matrix getCovariance() {
+        return filter.getCovariance();
+    }
+
+    @Override
+    public SymmetricMatrix getSymmetricCovariance() {
+        return filter.getSymmetricCovariance();
+    }
+
+    @Override
+    public double mahalanobisSquared(Vector z) {
+        return filter.mahalanobisSquared(z);
+    }
+
+    @Override
+    public double logLikelihood(Vector z) {
+        return filter.logLikelihood(z);
+    }
+
+    // New estimate at the current time; history before it is discarded
+    @Override
+    public void reset(Vector state, SymmetricMatrix covariance) {
+        filter.reset(state, covariance);
+        start = 0;
+        count = 0;
+        anchorHere();
+    }
+
+    public double getTime() {
+        return time;
+    }
+
+    public Filter getFilter() {
+        return filter;
+    }
+
+    // Oldest time a late measurement can still be placed at
+    public double horizon() {
+        return times[physical(0)];
+    }
+
+    public long lateApplied() {
+        return lateApplied;
+    }
+
+    public long replayedSteps() {
+        return replayedSteps;
+    }
+
+    public long dropped() {
+        return dropped;
+    }
+
+    // ---------------------------------
+    // Ring
+    // ---------------------------------
+
+    private int physical(int k) {
+        return (start + k) % capacity;
+    }
+
+    // Current estimate as a measurement-free checkpoint
+    private void anchorHere() {
+        count = 1;
+        store(0, time, null);
+    }
+
+    // Append a checkpoint for the estimate just updated at time t
+    private void push(double t, Vector z) {
+        if (count == capacity) {
+            start = (start + 1) % capacity;
+            count--;
+        }
+        count++;
+        store(count - 1, t, z);
+    }
+
+    // Entry k = (t, z, snapshot of the current filter estimate)
+    private void store(int k, double t, Vector z) {
+        int p = physical(k);
+        times[p] = t;
+        for (int i = 0; i < m; i++) {
+            zs[p * m + i] = z != null ? z.get(i) : Double.NaN;
+        }
+        filter.snapshotInto(snaps, p * snapshot);
+    }
+
+    private void copyEntry(int from, int to) {
+        int a = physical(from);
+        int b = physical(to);
+        times[b] = times[a];
+        System.arraycopy(zs, a * m, zs, b * m, m);
+        System.arraycopy(snaps, a * snapshot, snaps, b * snapshot, snapshot);
+    }
+
+    // Filter estimate = checkpoint k
+    private void restore(int k) {
+        filter.restoreSnapshot(snaps, physical(k) * snapshot);
+    }
+}
@@ -0,0 +1,225 @@
+package filters;
+
+import math.Cholesky;
+import math.Matrix;
+import math.SymmetricMatrix;
+import models.MotionModel;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Converged Kalman gain of a time-invariant linear filter (fixed F, Q, H, R):
+// the solution of the discrete algebraic Riccati equation, reached by iterating
+// the covariance recursion until P stops changing.
+//
+// Solved once per (model, dt, H, R) and shared through a small bounded cache:
+// model, H and R are matched by identity, dt to within a relative DT_TOLERANCE
+// (timestamp differences jitter in the last bits). When the cache is full, the
+// entry with the fewest hits is evicted and the others' counts are halved, as
+// in CachedMotionModel.
+public final class SteadyStateGain {
+
+    private static final int MAX_ITERATIONS = 100_000;
+    private static final double TOLERANCE = 1e-13;
+
+    public static final int CACHE_CAPACITY = 32;
+    public static final double DT_TOLERANCE = 1e-9;
+
+    private static final class Entry {
+        final MotionModel model;
+        final Matrix H;
+        final Matrix R;
+        final SteadyStateGain gain;
+        final LongAdder uses = new LongAdder();
+
+        Entry(MotionModel model, Matrix H, Matrix R, SteadyStateGain gain) {
+            this.model = model;
+            this.H = H;
+            this.R = R;
+            this.gain = gain;
+        }
+
+        boolean matches(MotionModel model, double dt, Matrix H, Matrix R) {
+            return this.model == model && this.H == H && this.R == R && gain.matches(dt);
+        }
+    }
+
+    // Immutable snapshot, replaced on insert (same scheme as CachedMotionModel)
+    private static volatile Entry[] cache = new Entry[0];
+
+    private final double dt;
+    private final Matrix K;                 // n x m, frozen
+    private final SymmetricMatrix Ppred;    // steady predicted covariance
+    private final SymmetricMatrix Pupd;     // steady updated covariance
+    private final double scale;             // max diagonal of Pupd, for the convergence test
+
+    private SteadyStateGain(double dt, Matrix K, SymmetricMatrix Ppred, SymmetricMatrix Pupd) {
+        this.dt = dt;
+        this.K = K.freeze();
+        this.Ppred = Ppred;
+        this.Pupd = Pupd;
+
+        double s = 0.0;
+        for (int i = 0; i < Pupd.size(); i++) {
+            s = Math.max(s, Math.abs(Pupd.get(i, i)));
+        }
+        this.scale = s;
+    }
+
+    // Cached solution for (model, dt, H, R); throws IllegalArgumentException
+    // when the recursion does not converge (e.g. an unobservable model)
+    public static SteadyStateGain forModel(MotionModel model, double dt, Matrix H, Matrix R) {
+        Entry[] snapshot = cache;
+        for (Entry e : snapshot) {
+            if (e.matches(model, dt, H, R)) {
+                e.uses.increment();
+                return e.gain;
+            }
+        }
+
+        Entry fresh = new Entry(model, H, R, solve(model, dt, H, R));
+        fresh.uses.increment();
+        return insert(fresh);
+    }
+
+    // Adds fresh unless a racing miss already did; returns the cached solution
+    private static synchronized SteadyStateGain insert(Entry fresh) {
+        Entry[] current = cache;
+        for (Entry e : current) {
+            if (e.matches(fresh.model, fresh.gain.dt, fresh.H, fresh.R)) {
+                return e.gain;
+            }
+        }
+
+        Entry[] next;
+        if (current.length < CACHE_CAPACITY) {
+            next = new Entry[current.length + 1];
+            System.arraycopy(current, 0, next, 0, current.length);
+            next[current.length] = fresh;
+        } else {
+            // Evict the least-used entry
+            int victim = 0;
+            long fewest = Long.MAX_VALUE;
+            for (int i = 0; i < current.length; i++) {
+                long u = current[i].uses.sum();
+                if (u < fewest) {
+                    fewest = u;
+                    victim = i;
+                }
+            }
+            // Age the survivors (approximate under concurrent hits, which is
+            // fine: the counts only rank entries)
+            for (int i = 0; i < current.length; i++) {
+                if (i != victim) {
+                    LongAdder uses = current[i].uses;
+                    long u = uses.sum();
+                    uses.add((u >> 1) - u);
+                }
+            }
+            next = current.clone();
+            next[victim] = fresh;
+        }
+        cache = next;
+        return fresh.gain;
+    }
+
+    public static int cacheSize() {
+        return cache.length;
+    }
+
+    public static SteadyStateGain solve(MotionModel model, double dt, Matrix H, Matrix R) {
+        int n = H.cols();
+        int m = H.rows();
+
+        Matrix F = new Matrix(n, n);
+        Matrix Q = new Matrix(n, n);
+        model.getFInto(dt, F);
+        model.getQInto(dt, Q);
+
+        SymmetricMatrix P = SymmetricMatrix.fromUpper(Q);   // predicted covariance
+        SymmetricMatrix Pu = new SymmetricMatrix(n);        // updated covariance
+        SymmetricMatrix prev = new SymmetricMatrix(n);
+        Matrix PHt = new Matrix(n, m);
+        Matrix S = new Matrix(m, m);
+        Matrix K = new Matrix(n, m);
+        Matrix FP = new Matrix(n, n);
+        Cholesky chol = new Cholesky(m);
+
+        for (int it = 0; it < MAX_ITERATIONS; it++) {
+            // update: K = P H' S^{-1}, Pu = P - K (P H')'
+            P.multiplyTransposeInto(H, PHt);
+            H.multiplyInto(PHt, S);
+            S.addInto(R, S);
+            chol.factor(S);
+            chol.solveRightInto(PHt, K);
+            Pu.copyFrom(P);
+            Pu.subtractProductTranspose(K, PHt);
+
+            // predict: P = F Pu F' + Q
+            prev.copyFrom(P);
+            P.copyFrom(Pu);
+            P.propagate(F, Q, FP);
+
+            if (maxRelativeChange(prev, P) < TOLERANCE) {
+                // One more update so K, Pu and P are consistent with each other
+                P.multiplyTransposeInto(H, PHt);
+                H.multiplyInto(PHt, S);
+                S.addInto(R, S);
+                chol.factor(S);
+                chol.solveRightInto(PHt, K);
+                Pu.copyFrom(P);
+                Pu.subtractProductTranspose(K, PHt);
+                return new SteadyStateGain(dt, K, P, Pu);
+            }
+        }
+        throw new IllegalArgumentException("Riccati iteration did not converge");
+    }
+
+    private static double maxRelativeChange(SymmetricMatrix a, SymmetricMatrix b) {
+        int n = a.size();
+        double diff = 0.0;
+        double scale = 0.0;
+        for (int i = 0; i < n; i++) {
+            scale = Math.max(scale, Math.abs(b.get(i, i)));
+            for (int j = i; j < n; j++) {
+                diff = Math.max(diff, Math.abs(a.get(i, j) - b.get(i, j)));
+            }
+        }
+        return scale == 0.0 ? diff : diff / scale;
+    }
+
+    public double dt() {
+        return dt;
+    }
+
+    // Whether this solution applies at dt (equal to within DT_TOLERANCE)
+    public boolean matches(double dt) {
+        return Math.abs(dt - this.dt) <= DT_TOLERANCE * Math.abs(this.dt);
+    }
+
+    // Shared, frozen
+    public Matrix gain() {
+        return K;
+    }
+
+    public void copyPredictedInto(SymmetricMatrix dest) {
+        dest.copyFrom(Ppred);
+    }
+
+    public void copyUpdatedInto(SymmetricMatrix dest) {
+        dest.copyFrom(Pupd);
+    }
+
+    // True when an updated covariance P is within tol (relative to the largest
+    // steady-state variance) of the steady-state value
+    public boolean hasConverged(SymmetricMatrix P, double tol) {
+        int n = Pupd.size();
+        for (int i = 0; i < n; i++) {
+            for (int j = i; j < n; j++) {
+                if (Math.abs(P.get(i, j) - Pupd.get(i, j)) > tol * scale) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
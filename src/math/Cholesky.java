@@ -0,0 +1,140 @@
+package math;
+
+// Cholesky factorization A = L L' of a symmetric positive-definite n x n matrix.
+// Storage is preallocated, so factor/solve can run every update without allocating.
+// Solves go through L directly; A^{-1} is never formed.
+public class Cholesky {
+
+    private final int n;
+    private final double[] L;    // lower-triangular factor, row-major n x n
+    private final double[] tmp;  // scratch for substitutions
+    private boolean factored;
+
+    public Cholesky(int n) {
+        this.n = n;
+        this.L = new double[n * n];
+        this.tmp = new double[n];
+    }
+
+    public int size() {
+        return n;
+    }
+
+    public boolean isFactored() {
+        return factored;
+    }
+
+    // Factor A (only the lower triangle of A is read)
+    public void factor(Matrix A) {
+        if (A.rows() != n || A.cols() != n) {
+            throw new IllegalArgumentException("Matrix/Cholesky dimension mismatch");
+        }
+        factored = false;
+
+        double[] a = A.array();
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j <= i; j++) {
+                double sum = a[i * n + j];
+                for (int k = 0; k < j; k++) {
+                    sum -= L[i * n + k] * L[j * n + k];
+                }
+
+                if (i == j) {
+                    if (!(sum > 0.0)) {
+                        throw new IllegalArgumentException("Matrix not positive definite");
+                    }
+                    L[i * n + i] = Math.sqrt(sum);
+                } else {
+                    L[i * n + j] = sum / L[j * n + j];
+                }
+            }
+            for (int j = i + 1; j < n; j++) {
+                L[i * n + j] = 0.0;
+            }
+        }
+        factored = true;
+    }
+
+    // Solve A x = b (x may alias b)
+    public void solveInto(Vector b, Vector x) {
+        checkFactored();
+        if (b.size() != n || x.size() != n) {
+            throw new IllegalArgumentException("Vector/Cholesky dimension mismatch");
+        }
+        double[] bb = b.array();
+        forward(bb, 0, tmp);
+        backward(tmp, x.array(), 0);
+    }
+
+    // X = B A^{-1}, row by row (A is symmetric, so each row solves A x = row').
+    // This is the gain step K = P H' S^{-1}. X may alias B.
+    public void solveRightInto(Matrix B, Matrix X) {
+        checkFactored();
+        if (B.cols() != n || X.rows() != B.rows() || X.cols() != n) {
+            throw new IllegalArgumentException("Matrix/Cholesky dimension mismatch");
+        }
+
+        double[] b = B.array();
+        double[] x = X.array();
+        for (int r = 0; r < B.rows(); r++) {
+            forward(b, r * n, tmp);
+            backward(tmp, x, r * n);
+        }
+    }
+
+    // Squared Mahalanobis distance y' A^{-1} y = |L^{-1} y|^2
+    public double mahalanobisSquared(Vector y) {
+        checkFactored();
+        if (y.size() != n) {
+            throw new IllegalArgumentException("Vector/Cholesky dimension mismatch");
+        }
+        forward(y.array(), 0, tmp);
+
+        double d2 = 0.0;
+        for (int i = 0; i < n; i++) {
+            d2 += tmp[i] * tmp[i];
+        }
+        return d2;
+    }
+
+    // log |A| = 2 * sum(log L_ii)
+    public double logDeterminant() {
+        checkFactored();
+        double sum = 0.0;
+        for (int i = 0; i < n; i++) {
+            sum += Math.log(L[i * n + i]);
+        }
+        return 2.0 * sum;
+    }
+
+    // Solve L w = b, reading b[off .. off + n)
+    private void forward(double[] b, int off, double[] w) {
+        for (int i = 0; i < n; i++) {
+            double sum = b[off + i];
+            for (int k = 0; k < i; k++) {
+                sum -= L[i * n + k] * w[k];
+            }
+            w[i] = sum / L[i * n + i];
+        }
+    }
+
+    // Solve L' x = w, writing x[off .. off + n) (w is consumed in place)
+    private void backward(double[] w, double[] x, int off) {
+        for (int i = n - 1; i >= 0; i--) {
+            double sum = w[i];
+            for (int k = i + 1; k < n; k++) {
+                sum -= L[k * n + i] * w[k];
+            }
+            w[i] = sum / L[i * n + i];
+        }
+        for (int i = 0; i < n; i++) {
+            x[off + i] = w[i];
+        }
+    }
+
+    private void checkFactored() {
+        if (!factored) {
+            throw new IllegalStateException("Cholesky: factor() has not succeeded");
+        }
+    }
+}
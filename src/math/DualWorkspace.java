@@ -0,0 +1,191 @@
+package math;
+
+// Forward-mode automatic differentiation over n seed variables.
+//
+// Every dual number is a slot (an int) in this workspace: a value plus its
+// gradient with respect to the n seeds. Operations take slots and return a new
+// slot from a bump allocator, so an evaluation allocates no objects; reset()
+// rewinds the allocator for the next one. Storage grows on demand, so after
+// the first evaluation of a given function nothing is allocated at all.
+//
+//     d.reset();
+//     int x = d.variable(0, 1.5);
+//     int y = d.mul(d.sin(x), x);     // value sin(x) * x, derivative cos(x) * x + sin(x)
+//
+// One workspace per thread (not thread-safe).
+public final class DualWorkspace {
+
+    private final int n;      // number of seed variables (gradient length)
+    private double[] val;     // val[s]
+    private double[] grad;    // grad[s * n + k] = d val[s] / d seed k
+    private int top;
+
+    public DualWorkspace(int n, int initialSlots) {
+        this.n = n;
+        this.val = new double[Math.max(1, initialSlots)];
+        this.grad = new double[val.length * n];
+    }
+
+    public int seeds() {
+        return n;
+    }
+
+    // Release every slot
+    public void reset() {
+        top = 0;
+    }
+
+    public double value(int s) {
+        return val[s];
+    }
+
+    public double derivative(int s, int k) {
+        return grad[s * n + k];
+    }
+
+    // ---------------------------------
+    // Leaves
+    // ---------------------------------
+
+    // Seed variable k with the given value (gradient e_k)
+    public int variable(int k, double value) {
+        int s = alloc();
+        val[s] = value;
+        grad[s * n + k] = 1.0;
+        return s;
+    }
+
+    public int constant(double value) {
+        int s = alloc();
+        val[s] = value;
+        return s;
+    }
+
+    // ---------------------------------
+    // Arithmetic
+    // ---------------------------------
+
+    public int add(int a, int b) {
+        int s = alloc();
+        val[s] = val[a] + val[b];
+        int ga = a * n, gb = b * n, gs = s * n;
+        for (int k = 0; k < n; k++) {
+            grad[gs + k] = grad[ga + k] + grad[gb + k];
+        }
+        return s;
+    }
+
+    public int sub(int a, int b) {
+        int s = alloc();
+        val[s] = val[a] - val[b];
+        int ga = a * n, gb = b * n, gs = s * n;
+        for (int k = 0; k < n; k++) {
+            grad[gs + k] = grad[ga + k] - grad[gb + k];
+        }
+        return s;
+    }
+
+    public int mul(int a, int b) {
+        int s = alloc();
+        double va = val[a], vb = val[b];
+        val[s] = va * vb;
+        int ga = a * n, gb = b * n, gs = s * n;
+        for (int k = 0; k < n; k++) {
+            grad[gs + k] = grad[ga + k] * vb + va * grad[gb + k];
+        }
+        return s;
+    }
+
+    public int div(int a, int b) {
+        int s = alloc();
+        double vb = val[b];
+        double q = val[a] / vb;
+        val[s] = q;
+        int ga = a * n, gb = b * n, gs = s * n;
+        for (int k = 0; k < n; k++) {
+            grad[gs + k] = (grad[ga + k] - q * grad[gb + k]) / vb;
+        }
+        return s;
+    }
+
+    public int neg(int a) {
+        return scale(a, -1.0);
+    }
+
+    // c * a
+    public int scale(int a, double c) {
+        return chain(a, c * val[a], c);
+    }
+
+    // a + c
+    public int addConstant(int a, double c) {
+        return chain(a, val[a] + c, 1.0);
+    }
+
+    // ---------------------------------
+    // Elementary functions
+    // ---------------------------------
+
+    public int sin(int a) {
+        return chain(a, Math.sin(val[a]), Math.cos(val[a]));
+    }
+
+    public int cos(int a) {
+        return chain(a, Math.cos(val[a]), -Math.sin(val[a]));
+    }
+
+    public int sqrt(int a) {
+        double r = Math.sqrt(val[a]);
+        return chain(a, r, 0.5 / r);
+    }
+
+    public int exp(int a) {
+        double e = Math.exp(val[a]);
+        return chain(a, e, e);
+    }
+
+    public int log(int a) {
+        return chain(a, Math.log(val[a]), 1.0 / val[a]);
+    }
+
+    public int atan2(int y, int x) {
+        int s = alloc();
+        double vy = val[y], vx = val[x];
+        double r2 = vx * vx + vy * vy;
+        val[s] = Math.atan2(vy, vx);
+        int gy = y * n, gx = x * n, gs = s * n;
+        for (int k = 0; k < n; k++) {
+            grad[gs + k] = (vx * grad[gy + k] - vy * grad[gx + k]) / r2;
+        }
+        return s;
+    }
+
+    // Unary op with value v and derivative dv/da
+    private int chain(int a, double v, double dvda) {
+        int s = alloc();
+        val[s] = v;
+        int ga = a * n, gs = s * n;
+        for (int k = 0; k < n; k++) {
+            grad[gs + k] = dvda * grad[ga + k];
+        }
+        return s;
+    }
+
+    // Next slot with a zeroed gradient; storage doubles when full
+    private int alloc() {
+        if (top == val.length) {
+            double[] nv = new double[val.length * 2];
+            double[] ng = new double[nv.length * n];
+            System.arraycopy(val, 0, nv, 0, val.length);
+            System.arraycopy(grad, 0, ng, 0, grad.length);
+            val = nv;
+            grad = ng;
+        }
+        int s = top++;
+        int gs = s * n;
+        for (int k = 0; k < n; k++) {
+            grad[gs + k] = 0.0;
+        }
+        return s;
+    }
+}
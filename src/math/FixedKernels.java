@@ -0,0 +1,693 @@
+package math;
+
+// GENERATED by codegen.FixedKernelGenerator -- do not edit by hand.
+//
+// Fully unrolled Kalman predict/update kernels for state sizes 2..6
+// and measurement sizes 1..2, operating directly on the flat
+// row-major storage of Matrix/Vector and the packed upper triangle of
+// SymmetricMatrix. Each kernel performs the same operations in the same
+// order as the generic SymmetricMatrix path, on one triangle only.
+public final class FixedKernels {
+
+    private FixedKernels() {
+    }
+
+    public static boolean supports(int n, int m) {
+        return n >= 2 && n <= 6 && m >= 1 && m <= 2;
+    }
+
+    // x = F x
+    public static void predictState(Matrix F, Vector x) {
+        switch (x.size()) {
+            case 2: predictState2(F.array(), x.array()); return;
+            case 3: predictState3(F.array(), x.array()); return;
+            case 4: predictState4(F.array(), x.array()); return;
+            case 5: predictState5(F.array(), x.array()); return;
+            case 6: predictState6(F.array(), x.array()); return;
+            default: throw unsupported(x.size(), 0);
+        }
+    }
+
+    // P = F P F' + Q (FP is scratch)
+    public static void predictCovariance(Matrix F, Matrix Q, SymmetricMatrix P, Matrix FP) {
+        switch (P.size()) {
+            case 2: predictCovariance2(F.array(), Q.array(), P.array(), FP.array()); return;
+            case 3: predictCovariance3(F.array(), Q.array(), P.array(), FP.array()); return;
+            case 4: predictCovariance4(F.array(), Q.array(), P.array(), FP.array()); return;
+            case 5: predictCovariance5(F.array(), Q.array(), P.array(), FP.array()); return;
+            case 6: predictCovariance6(F.array(), Q.array(), P.array(), FP.array()); return;
+            default: throw unsupported(P.size(), 0);
+        }
+    }
+
+    // PHt = P H', S = H P H' + R
+    public static void innovationCovariance(SymmetricMatrix P, Matrix H, Matrix R, Matrix PHt, Matrix S) {
+        int n = P.size();
+        int m = H.rows();
+        switch (n * 10 + m) {
+            case 21: innovationCovariance2x1(P.array(), H.array(), R.array(), PHt.array(), S.array()); return;
+            case 22: innovationCovariance2x2(P.array(), H.array(), R.array(), PHt.array(), S.array()); return;
+            case 31: innovationCovariance3x1(P.array(), H.array(), R.array(), PHt.array(), S.array()); return;
+            case 32: innovationCovariance3x2(P.array(), H.array(), R.array(), PHt.array(), S.array()); return;
+            case 41: innovationCovariance4x1(P.array(), H.array(), R.array(), PHt.array(), S.array()); return;
+            case 42: innovationCovariance4x2(P.array(), H.array(), R.array(), PHt.array(), S.array()); return;
+            case 51: innovationCovariance5x1(P.array(), H.array(), R.array(), PHt.array(), S.array()); return;
+            case 52: innovationCovariance5x2(P.array(), H.array(), R.array(), PHt.array(), S.array()); return;
+            case 61: innovationCovariance6x1(P.array(), H.array(), R.array(), PHt.array(), S.array()); return;
+            case 62: innovationCovariance6x2(P.array(), H.array(), R.array(), PHt.array(), S.array()); return;
+            default: throw unsupported(n, m);
+        }
+    }
+
+    // y = z - H x
+    public static void residual(Matrix H, Vector x, Vector z, Vector y) {
+        int n = x.size();
+        int m = H.rows();
+        switch (n * 10 + m) {
+            case 21: residual2x1(H.array(), x.array(), z.array(), y.array()); return;
+            case 22: residual2x2(H.array(), x.array(), z.array(), y.array()); return;
+            case 31: residual3x1(H.array(), x.array(), z.array(), y.array()); return;
+            case 32: residual3x2(H.array(), x.array(), z.array(), y.array()); return;
+            case 41: residual4x1(H.array(), x.array(), z.array(), y.array()); return;
+            case 42: residual4x2(H.array(), x.array(), z.array(), y.array()); return;
+            case 51: residual5x1(H.array(), x.array(), z.array(), y.array()); return;
+            case 52: residual5x2(H.array(), x.array(), z.array(), y.array()); return;
+            case 61: residual6x1(H.array(), x.array(), z.array(), y.array()); return;
+            case 62: residual6x2(H.array(), x.array(), z.array(), y.array()); return;
+            default: throw unsupported(n, m);
+        }
+    }
+
+    // x = x + K y, P = P - K PHt' (= (I - K H) P)
+    public static void correct(Matrix K, Matrix PHt, Vector y, Vector x, SymmetricMatrix P) {
+        int n = x.size();
+        int m = K.cols();
+        switch (n * 10 + m) {
+            case 21: correct2x1(K.array(), PHt.array(), y.array(), x.array(), P.array()); return;
+            case 22: correct2x2(K.array(), PHt.array(), y.array(), x.array(), P.array()); return;
+            case 31: correct3x1(K.array(), PHt.array(), y.array(), x.array(), P.array()); return;
+            case 32: correct3x2(K.array(), PHt.array(), y.array(), x.array(), P.array()); return;
+            case 41: correct4x1(K.array(), PHt.array(), y.array(), x.array(), P.array()); return;
+            case 42: correct4x2(K.array(), PHt.array(), y.array(), x.array(), P.array()); return;
+            case 51: correct5x1(K.array(), PHt.array(), y.array(), x.array(), P.array()); return;
+            case 52: correct5x2(K.array(), PHt.array(), y.array(), x.array(), P.array()); return;
+            case 61: correct6x1(K.array(), PHt.array(), y.array(), x.array(), P.array()); return;
+            case 62: correct6x2(K.array(), PHt.array(), y.array(), x.array(), P.array()); return;
+            default: throw unsupported(n, m);
+        }
+    }
+
+    private static void predictState2(double[] F, double[] x) {
+        double x0 = x[0], x1 = x[1];
+        x[0] = F[0] * x0 + F[1] * x1;
+        x[1] = F[2] * x0 + F[3] * x1;
+    }
+
+    private static void predictCovariance2(double[] F, double[] Q, double[] P, double[] FP) {
+        // FP = F P
+        FP[0] = F[0] * P[0] + F[1] * P[1];
+        FP[1] = F[0] * P[1] + F[1] * P[2];
+        FP[2] = F[2] * P[0] + F[3] * P[1];
+        FP[3] = F[2] * P[1] + F[3] * P[2];
+        // P = FP F' + Q, upper triangle only
+        P[0] = (FP[0] * F[0] + FP[1] * F[1]) + Q[0];
+        P[1] = (FP[0] * F[2] + FP[1] * F[3]) + Q[1];
+        P[2] = (FP[2] * F[2] + FP[3] * F[3]) + Q[3];
+    }
+
+    private static void innovationCovariance2x1(double[] P, double[] H, double[] R, double[] PHt, double[] S) {
+        // PHt = P H'
+        PHt[0] = P[0] * H[0] + P[1] * H[1];
+        PHt[1] = P[1] * H[0] + P[2] * H[1];
+        // S = H PHt + R
+        S[0] = (H[0] * PHt[0] + H[1] * PHt[1]) + R[0];
+    }
+
+    private static void residual2x1(double[] H, double[] x, double[] z, double[] y) {
+        y[0] = z[0] - (H[0] * x[0] + H[1] * x[1]);
+    }
+
+    private static void correct2x1(double[] K, double[] PHt, double[] y, double[] x, double[] P) {
+        // x = x + K y
+        x[0] = x[0] + (K[0] * y[0]);
+        x[1] = x[1] + (K[1] * y[0]);
+        // P = P - K PHt', upper triangle only
+        P[0] = P[0] - (K[0] * PHt[0]);
+        P[1] = P[1] - (K[0] * PHt[1]);
+        P[2] = P[2] - (K[1] * PHt[1]);
+    }
+
+    private static void innovationCovariance2x2(double[] P, double[] H, double[] R, double[] PHt, double[] S) {
+        // PHt = P H'
+        PHt[0] = P[0] * H[0] + P[1] * H[1];
+        PHt[1] = P[0] * H[2] + P[1] * H[3];
+        PHt[2] = P[1] * H[0] + P[2] * H[1];
+        PHt[3] = P[1] * H[2] + P[2] * H[3];
+        // S = H PHt + R
+        S[0] = (H[0] * PHt[0] + H[1] * PHt[2]) + R[0];
+        S[1] = (H[0] * PHt[1] + H[1] * PHt[3]) + R[1];
+        S[2] = (H[2] * PHt[0] + H[3] * PHt[2]) + R[2];
+        S[3] = (H[2] * PHt[1] + H[3] * PHt[3]) + R[3];
+    }
+
+    private static void residual2x2(double[] H, double[] x, double[] z, double[] y) {
+        y[0] = z[0] - (H[0] * x[0] + H[1] * x[1]);
+        y[1] = z[1] - (H[2] * x[0] + H[3] * x[1]);
+    }
+
+    private static void correct2x2(double[] K, double[] PHt, double[] y, double[] x, double[] P) {
+        // x = x + K y
+        x[0] = x[0] + (K[0] * y[0] + K[1] * y[1]);
+        x[1] = x[1] + (K[2] * y[0] + K[3] * y[1]);
+        // P = P - K PHt', upper triangle only
+        P[0] = P[0] - (K[0] * PHt[0] + K[1] * PHt[1]);
+        P[1] = P[1] - (K[0] * PHt[2] + K[1] * PHt[3]);
+        P[2] = P[2] - (K[2] * PHt[2] + K[3] * PHt[3]);
+    }
+
+    private static void predictState3(double[] F, double[] x) {
+        double x0 = x[0], x1 = x[1], x2 = x[2];
+        x[0] = F[0] * x0 + F[1] * x1 + F[2] * x2;
+        x[1] = F[3] * x0 + F[4] * x1 + F[5] * x2;
+        x[2] = F[6] * x0 + F[7] * x1 + F[8] * x2;
+    }
+
+    private static void predictCovariance3(double[] F, double[] Q, double[] P, double[] FP) {
+        // FP = F P
+        FP[0] = F[0] * P[0] + F[1] * P[1] + F[2] * P[2];
+        FP[1] = F[0] * P[1] + F[1] * P[3] + F[2] * P[4];
+        FP[2] = F[0] * P[2] + F[1] * P[4] + F[2] * P[5];
+        FP[3] = F[3] * P[0] + F[4] * P[1] + F[5] * P[2];
+        FP[4] = F[3] * P[1] + F[4] * P[3] + F[5] * P[4];
+        FP[5] = F[3] * P[2] + F[4] * P[4] + F[5] * P[5];
+        FP[6] = F[6] * P[0] + F[7] * P[1] + F[8] * P[2];
+        FP[7] = F[6] * P[1] + F[7] * P[3] + F[8] * P[4];
+        FP[8] = F[6] * P[2] + F[7] * P[4] + F[8] * P[5];
+        // P = FP F' + Q, upper triangle only
+        P[0] = (FP[0] * F[0] + FP[1] * F[1] + FP[2] * F[2]) + Q[0];
+        P[1] = (FP[0] * F[3] + FP[1] * F[4] + FP[2] * F[5]) + Q[1];
+        P[2] = (FP[0] * F[6] + FP[1] * F[7] + FP[2] * F[8]) + Q[2];
+        P[3] = (FP[3] * F[3] + FP[4] * F[4] + FP[5] * F[5]) + Q[4];
+        P[4] = (FP[3] * F[6] + FP[4] * F[7] + FP[5] * F[8]) + Q[5];
+        P[5] = (FP[6] * F[6] + FP[7] * F[7] + FP[8] * F[8]) + Q[8];
+    }
+
+    private static void innovationCovariance3x1(double[] P, double[] H, double[] R, double[] PHt, double[] S) {
+        // PHt = P H'
+        PHt[0] = P[0] * H[0] + P[1] * H[1] + P[2] * H[2];
+        PHt[1] = P[1] * H[0] + P[3] * H[1] + P[4] * H[2];
+        PHt[2] = P[2] * H[0] + P[4] * H[1] + P[5] * H[2];
+        // S = H PHt + R
+        S[0] = (H[0] * PHt[0] + H[1] * PHt[1] + H[2] * PHt[2]) + R[0];
+    }
+
+    private static void residual3x1(double[] H, double[] x, double[] z, double[] y) {
+        y[0] = z[0] - (H[0] * x[0] + H[1] * x[1] + H[2] * x[2]);
+    }
+
+    private static void correct3x1(double[] K, double[] PHt, double[] y, double[] x, double[] P) {
+        // x = x + K y
+        x[0] = x[0] + (K[0] * y[0]);
+        x[1] = x[1] + (K[1] * y[0]);
+        x[2] = x[2] + (K[2] * y[0]);
+        // P = P - K PHt', upper triangle only
+        P[0] = P[0] - (K[0] * PHt[0]);
+        P[1] = P[1] - (K[0] * PHt[1]);
+        P[2] = P[2] - (K[0] * PHt[2]);
+        P[3] = P[3] - (K[1] * PHt[1]);
+        P[4] = P[4] - (K[1] * PHt[2]);
+        P[5] = P[5] - (K[2] * PHt[2]);
+    }
+
+    private static void innovationCovariance3x2(double[] P, double[] H, double[] R, double[] PHt, double[] S) {
+        // PHt = P H'
+        PHt[0] = P[0] * H[0] + P[1] * H[1] + P[2] * H[2];
+        PHt[1] = P[0] * H[3] + P[1] * H[4] + P[2] * H[5];
+        PHt[2] = P[1] * H[0] + P[3] * H[1] + P[4] * H[2];
+        PHt[3] = P[1] * H[3] + P[3] * H[4] + P[4] * H[5];
+        PHt[4] = P[2] * H[0] + P[4] * H[1] + P[5] * H[2];
+        PHt[5] = P[2] * H[3] + P[4] * H[4] + P[5] * H[5];
+        // S = H PHt + R
+        S[0] = (H[0] * PHt[0] + H[1] * PHt[2] + H[2] * PHt[4]) + R[0];
+        S[1] = (H[0] * PHt[1] + H[1] * PHt[3] + H[2] * PHt[5]) + R[1];
+        S[2] = (H[3] * PHt[0] + H[4] * PHt[2] + H[5] * PHt[4]) + R[2];
+        S[3] = (H[3] * PHt[1] + H[4] * PHt[3] + H[5] * PHt[5]) + R[3];
+    }
+
+    private static void residual3x2(double[] H, double[] x, double[] z, double[] y) {
+        y[0] = z[0] - (H[0] * x[0] + H[1] * x[1] + H[2] * x[2]);
+        y[1] = z[1] - (H[3] * x[0] + H[4] * x[1] + H[5] * x[2]);
+    }
+
+    private static void correct3x2(double[] K, double[] PHt, double[] y, double[] x, double[] P) {
+        // x = x + K y
+        x[0] = x[0] + (K[0] * y[0] + K[1] * y[1]);
+        x[1] = x[1] + (K[2] * y[0] + K[3] * y[1]);
+        x[2] = x[2] + (K[4] * y[0] + K[5] * y[1]);
+        // P = P - K PHt', upper triangle only
+        P[0] = P[0] - (K[0] * PHt[0] + K[1] * PHt[1]);
+        P[1] = P[1] - (K[0] * PHt[2] + K[1] * PHt[3]);
+        P[2] = P[2] - (K[0] * PHt[4] + K[1] * PHt[5]);
+        P[3] = P[3] - (K[2] * PHt[2] + K[3] * PHt[3]);
+        P[4] = P[4] - (K[2] * PHt[4] + K[3] * PHt[5]);
+        P[5] = P[5] - (K[4] * PHt[4] + K[5] * PHt[5]);
+    }
+
+    private static void predictState4(double[] F, double[] x) {
+        double x0 = x[0], x1 = x[1], x2 = x[2], x3 = x[3];
+        x[0] = F[0] * x0 + F[1] * x1 + F[2] * x2 + F[3] * x3;
+        x[1] = F[4] * x0 + F[5] * x1 + F[6] * x2 + F[7] * x3;
+        x[2] = F[8] * x0 + F[9] * x1 + F[10] * x2 + F[11] * x3;
+        x[3] = F[12] * x0 + F[13] * x1 + F[14] * x2 + F[15] * x3;
+    }
+
+    private static void predictCovariance4(double[] F, double[] Q, double[] P, double[] FP) {
+        // FP = F P
+        FP[0] = F[0] * P[0] + F[1] * P[1] + F[2] * P[2] + F[3] * P[3];
+        FP[1] = F[0] * P[1] + F[1] * P[4] + F[2] * P[5] + F[3] * P[6];
+        FP[2] = F[0] * P[2] + F[1] * P[5] + F[2] * P[7] + F[3] * P[8];
+        FP[3] = F[0] * P[3] + F[1] * P[6] + F[2] * P[8] + F[3] * P[9];
+        FP[4] = F[4] * P[0] + F[5] * P[1] + F[6] * P[2] + F[7] * P[3];
+        FP[5] = F[4] * P[1] + F[5] * P[4] + F[6] * P[5] + F[7] * P[6];
+        FP[6] = F[4] * P[2] + F[5] * P[5] + F[6] * P[7] + F[7] * P[8];
+        FP[7] = F[4] * P[3] + F[5] * P[6] + F[6] * P[8] + F[7] * P[9];
+        FP[8] = F[8] * P[0] + F[9] * P[1] + F[10] * P[2] + F[11] * P[3];
+        FP[9] = F[8] * P[1] + F[9] * P[4] + F[10] * P[5] + F[11] * P[6];
+        FP[10] = F[8] * P[2] + F[9] * P[5] + F[10] * P[7] + F[11] * P[8];
+        FP[11] = F[8] * P[3] + F[9] * P[6] + F[10] * P[8] + F[11] * P[9];
+        FP[12] = F[12] * P[0] + F[13] * P[1] + F[14] * P[2] + F[15] * P[3];
+        FP[13] = F[12] * P[1] + F[13] * P[4] + F[14] * P[5] + F[15] * P[6];
+        FP[14] = F[12] * P[2] + F[13] * P[5] + F[14] * P[7] + F[15] * P[8];
+        FP[15] = F[12] * P[3] + F[13] * P[6] + F[14] * P[8] + F[15] * P[9];
+        // P = FP F' + Q, upper triangle only
+        P[0] = (FP[0] * F[0] + FP[1] * F[1] + FP[2] * F[2] + FP[3] * F[3]) + Q[0];
+        P[1] = (FP[0] * F[4] + FP[1] * F[5] + FP[2] * F[6] + FP[3] * F[7]) + Q[1];
+        P[2] = (FP[0] * F[8] + FP[1] * F[9] + FP[2] * F[10] + FP[3] * F[11]) + Q[2];
+        P[3] = (FP[0] * F[12] + FP[1] * F[13] + FP[2] * F[14] + FP[3] * F[15]) + Q[3];
+        P[4] = (FP[4] * F[4] + FP[5] * F[5] + FP[6] * F[6] + FP[7] * F[7]) + Q[5];
+        P[5] = (FP[4] * F[8] + FP[5] * F[9] + FP[6] * F[10] + FP[7] * F[11]) + Q[6];
+        P[6] = (FP[4] * F[12] + FP[5] * F[13] + FP[6] * F[14] + FP[7] * F[15]) + Q[7];
+        P[7] = (FP[8] * F[8] + FP[9] * F[9] + FP[10] * F[10] + FP[11] * F[11]) + Q[10];
+        P[8] = (FP[8] * F[12] + FP[9] * F[13] + FP[10] * F[14] + FP[11] * F[15]) + Q[11];
+        P[9] = (FP[12] * F[12] + FP[13] * F[13] + FP[14] * F[14] + FP[15] * F[15]) + Q[15];
+    }
+
+    private static void innovationCovariance4x1(double[] P, double[] H, double[] R, double[] PHt, double[] S) {
+        // PHt = P H'
+        PHt[0] = P[0] * H[0] + P[1] * H[1] + P[2] * H[2] + P[3] * H[3];
+        PHt[1] = P[1] * H[0] + P[4] * H[1] + P[5] * H[2] + P[6] * H[3];
+        PHt[2] = P[2] * H[0] + P[5] * H[1] + P[7] * H[2] + P[8] * H[3];
+        PHt[3] = P[3] * H[0] + P[6] * H[1] + P[8] * H[2] + P[9] * H[3];
+        // S = H PHt + R
+        S[0] = (H[0] * PHt[0] + H[1] * PHt[1] + H[2] * PHt[2] + H[3] * PHt[3]) + R[0];
+    }
+
+    private static void residual4x1(double[] H, double[] x, double[] z, double[] y) {
+        y[0] = z[0] - (H[0] * x[0] + H[1] * x[1] + H[2] * x[2] + H[3] * x[3]);
+    }
+
+    private static void correct4x1(double[] K, double[] PHt, double[] y, double[] x, double[] P) {
+        // x = x + K y
+        x[0] = x[0] + (K[0] * y[0]);
+        x[1] = x[1] + (K[1] * y[0]);
+        x[2] = x[2] + (K[2] * y[0]);
+        x[3] = x[3] + (K[3] * y[0]);
+        // P = P - K PHt', upper triangle only
+        P[0] = P[0] - (K[0] * PHt[0]);
+        P[1] = P[1] - (K[0] * PHt[1]);
+        P[2] = P[2] - (K[0] * PHt[2]);
+        P[3] = P[3] - (K[0] * PHt[3]);
+        P[4] = P[4] - (K[1] * PHt[1]);
+        P[5] = P[5] - (K[1] * PHt[2]);
+        P[6] = P[6] - (K[1] * PHt[3]);
+        P[7] = P[7] - (K[2] * PHt[2]);
+        P[8] = P[8] - (K[2] * PHt[3]);
+        P[9] = P[9] - (K[3] * PHt[3]);
+    }
+
+    private static void innovationCovariance4x2(double[] P, double[] H, double[] R, double[] PHt, double[] S) {
+        // PHt = P H'
+        PHt[0] = P[0] * H[0] + P[1] * H[1] + P[2] * H[2] + P[3] * H[3];
+        PHt[1] = P[0] * H[4] + P[1] * H[5] + P[2] * H[6] + P[3] * H[7];
+        PHt[2] = P[1] * H[0] + P[4] * H[1] + P[5] * H[2] + P[6] * H[3];
+        PHt[3] = P[1] * H[4] + P[4] * H[5] + P[5] * H[6] + P[6] * H[7];
+        PHt[4] = P[2] * H[0] + P[5] * H[1] + P[7] * H[2] + P[8] * H[3];
+        PHt[5] = P[2] * H[4] + P[5] * H[5] + P[7] * H[6] + P[8] * H[7];
+        PHt[6] = P[3] * H[0] + P[6] * H[1] + P[8] * H[2] + P[9] * H[3];
+        PHt[7] = P[3] * H[4] + P[6] * H[5] + P[8] * H[6] + P[9] * H[7];
+        // S = H PHt + R
+        S[0] = (H[0] * PHt[0] + H[1] * PHt[2] + H[2] * PHt[4] + H[3] * PHt[6]) + R[0];
+        S[1] = (H[0] * PHt[1] + H[1] * PHt[3] + H[2] * PHt[5] + H[3] * PHt[7]) + R[1];
+        S[2] = (H[4] * PHt[0] + H[5] * PHt[2] + H[6] * PHt[4] + H[7] * PHt[6]) + R[2];
+        S[3] = (H[4] * PHt[1] + H[5] * PHt[3] + H[6] * PHt[5] + H[7] * PHt[7]) + R[3];
+    }
+
+    private static void residual4x2(double[] H, double[] x, double[] z, double[] y) {
+        y[0] = z[0] - (H[0] * x[0] + H[1] * x[1] + H[2] * x[2] + H[3] * x[3]);
+        y[1] = z[1] - (H[4] * x[0] + H[5] * x[1] + H[6] * x[2] + H[7] * x[3]);
+    }
+
+    private static void correct4x2(double[] K, double[] PHt, double[] y, double[] x, double[] P) {
+        // x = x + K y
+        x[0] = x[0] + (K[0] * y[0] + K[1] * y[1]);
+        x[1] = x[1] + (K[2] * y[0] + K[3] * y[1]);
+        x[2] = x[2] + (K[4] * y[0] + K[5] * y[1]);
+        x[3] = x[3] + (K[6] * y[0] + K[7] * y[1]);
+        // P = P - K PHt', upper triangle only
+        P[0] = P[0] - (K[0] * PHt[0] + K[1] * PHt[1]);
+        P[1] = P[1] - (K[0] * PHt[2] + K[1] * PHt[3]);
+        P[2] = P[2] - (K[0] * PHt[4] + K[1] * PHt[5]);
+        P[3] = P[3] - (K[0] * PHt[6] + K[1] * PHt[7]);
+        P[4] = P[4] - (K[2] * PHt[2] + K[3] * PHt[3]);
+        P[5] = P[5] - (K[2] * PHt[4] + K[3] * PHt[5]);
+        P[6] = P[6] - (K[2] * PHt[6] + K[3] * PHt[7]);
+        P[7] = P[7] - (K[4] * PHt[4] + K[5] * PHt[5]);
+        P[8] = P[8] - (K[4] * PHt[6] + K[5] * PHt[7]);
+        P[9] = P[9] - (K[6] * PHt[6] + K[7] * PHt[7]);
+    }
+
+    private static void predictState5(double[] F, double[] x) {
+        double x0 = x[0], x1 = x[1], x2 = x[2], x3 = x[3], x4 = x[4];
+        x[0] = F[0] * x0 + F[1] * x1 + F[2] * x2 + F[3] * x3 + F[4] * x4;
+        x[1] = F[5] * x0 + F[6] * x1 + F[7] * x2 + F[8] * x3 + F[9] * x4;
+        x[2] = F[10] * x0 + F[11] * x1 + F[12] * x2 + F[13] * x3 + F[14] * x4;
+        x[3] = F[15] * x0 + F[16] * x1 + F[17] * x2 + F[18] * x3 + F[19] * x4;
+        x[4] = F[20] * x0 + F[21] * x1 + F[22] * x2 + F[23] * x3 + F[24] * x4;
+    }
+
+    private static void predictCovariance5(double[] F, double[] Q, double[] P, double[] FP) {
+        // FP = F P
+        FP[0] = F[0] * P[0] + F[1] * P[1] + F[2] * P[2] + F[3] * P[3] + F[4] * P[4];
+        FP[1] = F[0] * P[1] + F[1] * P[5] + F[2] * P[6] + F[3] * P[7] + F[4] * P[8];
+        FP[2] = F[0] * P[2] + F[1] * P[6] + F[2] * P[9] + F[3] * P[10] + F[4] * P[11];
+        FP[3] = F[0] * P[3] + F[1] * P[7] + F[2] * P[10] + F[3] * P[12] + F[4] * P[13];
+        FP[4] = F[0] * P[4] + F[1] * P[8] + F[2] * P[11] + F[3] * P[13] + F[4] * P[14];
+        FP[5] = F[5] * P[0] + F[6] * P[1] + F[7] * P[2] + F[8] * P[3] + F[9] * P[4];
+        FP[6] = F[5] * P[1] + F[6] * P[5] + F[7] * P[6] + F[8] * P[7] + F[9] * P[8];
+        FP[7] = F[5] * P[2] + F[6] * P[6] + F[7] * P[9] + F[8] * P[10] + F[9] * P[11];
+        FP[8] = F[5] * P[3] + F[6] * P[7] + F[7] * P[10] + F[8] * P[12] + F[9] * P[13];
+        FP[9] = F[5] * P[4] + F[6] * P[8] + F[7] * P[11] + F[8] * P[13] + F[9] * P[14];
+        FP[10] = F[10] * P[0] + F[11] * P[1] + F[12] * P[2] + F[13] * P[3] + F[14] * P[4];
+        FP[11] = F[10] * P[1] + F[11] * P[5] + F[12] * P[6] + F[13] * P[7] + F[14] * P[8];
+        FP[12] = F[10] * P[2] + F[11] * P[6] + F[12] * P[9] + F[13] * P[10] + F[14] * P[11];
+        FP[13] = F[10] * P[3] + F[11] * P[7] + F[12] * P[10] + F[13] * P[12] + F[14] * P[13];
+        FP[14] = F[10] * P[4] + F[11] * P[8] + F[12] * P[11] + F[13] * P[13] + F[14] * P[14];
+        FP[15] = F[15] * P[0] + F[16] * P[1] + F[17] * P[2] + F[18] * P[3] + F[19] * P[4];
+        FP[16] = F[15] * P[1] + F[16] * P[5] + F[17] * P[6] + F[18] * P[7] + F[19] * P[8];
+        FP[17] = F[15] * P[2] + F[16] * P[6] + F[17] * P[9] + F[18] * P[10] + F[19] * P[11];
+        FP[18] = F[15] * P[3] + F[16] * P[7] + F[17] * P[10] + F[18] * P[12] + F[19] * P[13];
+        FP[19] = F[15] * P[4] + F[16] * P[8] + F[17] * P[11] + F[18] * P[13] + F[19] * P[14];
+        FP[20] = F[20] * P[0] + F[21] * P[1] + F[22] * P[2] + F[23] * P[3] + F[24] * P[4];
+        FP[21] = F[20] * P[1] + F[21] * P[5] + F[22] * P[6] + F[23] * P[7] + F[24] * P[8];
+        FP[22] = F[20] * P[2] + F[21] * P[6] + F[22] * P[9] + F[23] * P[10] + F[24] * P[11];
+        FP[23] = F[20] * P[3] + F[21] * P[7] + F[22] * P[10] + F[23] * P[12] + F[24] * P[13];
+        FP[24] = F[20] * P[4] + F[21] * P[8] + F[22] * P[11] + F[23] * P[13] + F[24] * P[14];
+        // P = FP F' + Q, upper triangle only
+        P[0] = (FP[0] * F[0] + FP[1] * F[1] + FP[2] * F[2] + FP[3] * F[3] + FP[4] * F[4]) + Q[0];
+        P[1] = (FP[0] * F[5] + FP[1] * F[6] + FP[2] * F[7] + FP[3] * F[8] + FP[4] * F[9]) + Q[1];
+        P[2] = (FP[0] * F[10] + FP[1] * F[11] + FP[2] * F[12] + FP[3] * F[13] + FP[4] * F[14]) + Q[2];
+        P[3] = (FP[0] * F[15] + FP[1] * F[16] + FP[2] * F[17] + FP[3] * F[18] + FP[4] * F[19]) + Q[3];
+        P[4] = (FP[0] * F[20] + FP[1] * F[21] + FP[2] * F[22] + FP[3] * F[23] + FP[4] * F[24]) + Q[4];
+        P[5] = (FP[5] * F[5] + FP[6] * F[6] + FP[7] * F[7] + FP[8] * F[8] + FP[9] * F[9]) + Q[6];
+        P[6] = (FP[5] * F[10] + FP[6] * F[11] + FP[7] * F[12] + FP[8] * F[13] + FP[9] * F[14]) + Q[7];
+        P[7] = (FP[5] * F[15] + FP[6] * F[16] + FP[7] * F[17] + FP[8] * F[18] + FP[9] * F[19]) + Q[8];
+        P[8] = (FP[5] * F[20] + FP[6] * F[21] + FP[7] * F[22] + FP[8] * F[23] + FP[9] * F[24]) + Q[9];
+        P[9] = (FP[10] * F[10] + FP[11] * F[11] + FP[12] * F[12] + FP[13] * F[13] + FP[14] * F[14]) + Q[12];
+        P[10] = (FP[10] * F[15] + FP[11] * F[16] + FP[12] * F[17] + FP[13] * F[18] + FP[14] * F[19]) + Q[13];
+        P[11] = (FP[10] * F[20] + FP[11] * F[21] + FP[12] * F[22] + FP[13] * F[23] + FP[14] * F[24]) + Q[14];
+        P[12] = (FP[15] * F[15] + FP[16] * F[16] + FP[17] * F[17] + FP[18] * F[18] + FP[19] * F[19]) + Q[18];
+        P[13] = (FP[15] * F[20] + FP[16] * F[21] + FP[17] * F[22] + FP[18] * F[23] + FP[19] * F[24]) + Q[19];
+        P[14] = (FP[20] * F[20] + FP[21] * F[21] + FP[22] * F[22] + FP[23] * F[23] + FP[24] * F[24]) + Q[24];
+    }
+
+    private static void innovationCovariance5x1(double[] P, double[] H, double[] R, double[] PHt, double[] S) {
+        // PHt = P H'
+        PHt[0] = P[0] * H[0] + P[1] * H[1] + P[2] * H[2] + P[3] * H[3] + P[4] * H[4];
+        PHt[1] = P[1] * H[0] + P[5] * H[1] + P[6] * H[2] + P[7] * H[3] + P[8] * H[4];
+        PHt[2] = P[2] * H[0] + P[6] * H[1] + P[9] * H[2] + P[10] * H[3] + P[11] * H[4];
+        PHt[3] = P[3] * H[0] + P[7] * H[1] + P[10] * H[2] + P[12] * H[3] + P[13] * H[4];
+        PHt[4] = P[4] * H[0] + P[8] * H[1] + P[11] * H[2] + P[13] * H[3] + P[14] * H[4];
+        // S = H PHt + R
+        S[0] = (H[0] * PHt[0] + H[1] * PHt[1] + H[2] * PHt[2] + H[3] * PHt[3] + H[4] * PHt[4]) + R[0];
+    }
+
+    private static void residual5x1(double[] H, double[] x, double[] z, double[] y) {
+        y[0] = z[0] - (H[0] * x[0] + H[1] * x[1] + H[2] * x[2] + H[3] * x[3] + H[4] * x[4]);
+    }
+
+    private static void correct5x1(double[] K, double[] PHt, double[] y, double[] x, double[] P) {
+        // x = x + K y
+        x[0] = x[0] + (K[0] * y[0]);
+        x[1] = x[1] + (K[1] * y[0]);
+        x[2] = x[2] + (K[2] * y[0]);
+        x[3] = x[3] + (K[3] * y[0]);
+        x[4] = x[4] + (K[4] * y[0]);
+        // P = P - K PHt', upper triangle only
+        P[0] = P[0] - (K[0] * PHt[0]);
+        P[1] = P[1] - (K[0] * PHt[1]);
+        P[2] = P[2] - (K[0] * PHt[2]);
+        P[3] = P[3] - (K[0] * PHt[3]);
+        P[4] = P[4] - (K[0] * PHt[4]);
+        P[5] = P[5] - (K[1] * PHt[1]);
+        P[6] = P[6] - (K[1] * PHt[2]);
+        P[7] = P[7] - (K[1] * PHt[3]);
+        P[8] = P[8] - (K[1] * PHt[4]);
+        P[9] = P[9] - (K[2] * PHt[2]);
+        P[10] = P[10] - (K[2] * PHt[3]);
+        P[11] = P[11] - (K[2] * PHt[4]);
+        P[12] = P[12] - (K[3] * PHt[3]);
+        P[13] = P[13] - (K[3] * PHt[4]);
+        P[14] = P[14] - (K[4] * PHt[4]);
+    }
+
+    private static void innovationCovariance5x2(double[] P, double[] H, double[] R, double[] PHt, double[] S) {
+        // PHt = P H'
+        PHt[0] = P[0] * H[0] + P[1] * H[1] + P[2] * H[2] + P[3] * H[3] + P[4] * H[4];
+        PHt[1] = P[0] * H[5] + P[1] * H[6] + P[2] * H[7] + P[3] * H[8] + P[4] * H[9];
+        PHt[2] = P[1] * H[0] + P[5] * H[1] + P[6] * H[2] + P[7] * H[3] + P[8] * H[4];
+        PHt[3] = P[1] * H[5] + P[5] * H[6] + P[6] * H[7] + P[7] * H[8] + P[8] * H[9];
+        PHt[4] = P[2] * H[0] + P[6] * H[1] + P[9] * H[2] + P[10] * H[3] + P[11] * H[4];
+        PHt[5] = P[2] * H[5] + P[6] * H[6] + P[9] * H[7] + P[10] * H[8] + P[11] * H[9];
+        PHt[6] = P[3] * H[0] + P[7] * H[1] + P[10] * H[2] + P[12] * H[3] + P[13] * H[4];
+        PHt[7] = P[3] * H[5] + P[7] * H[6] + P[10] * H[7] + P[12] * H[8] + P[13] * H[9];
+        PHt[8] = P[4] * H[0] + P[8] * H[1] + P[11] * H[2] + P[13] * H[3] + P[14] * H[4];
+        PHt[9] = P[4] * H[5] + P[8] * H[6] + P[11] * H[7] + P[13] * H[8] + P[14] * H[9];
+        // S = H PHt + R
+        S[0] = (H[0] * PHt[0] + H[1] * PHt[2] + H[2] * PHt[4] + H[3] * PHt[6] + H[4] * PHt[8]) + R[0];
+        S[1] = (H[0] * PHt[1] + H[1] * PHt[3] + H[2] * PHt[5] + H[3] * PHt[7] + H[4] * PHt[9]) + R[1];
+        S[2] = (H[5] * PHt[0] + H[6] * PHt[2] + H[7] * PHt[4] + H[8] * PHt[6] + H[9] * PHt[8]) + R[2];
+        S[3] = (H[5] * PHt[1] + H[6] * PHt[3] + H[7] * PHt[5] + H[8] * PHt[7] + H[9] * PHt[9]) + R[3];
+    }
+
+    private static void residual5x2(double[] H, double[] x, double[] z, double[] y) {
+        y[0] = z[0] - (H[0] * x[0] + H[1] * x[1] + H[2] * x[2] + H[3] * x[3] + H[4] * x[4]);
+        y[1] = z[1] - (H[5] * x[0] + H[6] * x[1] + H[7] * x[2] + H[8] * x[3] + H[9] * x[4]);
+    }
+
+    private static void correct5x2(double[] K, double[] PHt, double[] y, double[] x, double[] P) {
+        // x = x + K y
+        x[0] = x[0] + (K[0] * y[0] + K[1] * y[1]);
+        x[1] = x[1] + (K[2] * y[0] + K[3] * y[1]);
+        x[2] = x[2] + (K[4] * y[0] + K[5] * y[1]);
+        x[3] = x[3] + (K[6] * y[0] + K[7] * y[1]);
+        x[4] = x[4] + (K[8] * y[0] + K[9] * y[1]);
+        // P = P - K PHt', upper triangle only
+        P[0] = P[0] - (K[0] * PHt[0] + K[1] * PHt[1]);
+        P[1] = P[1] - (K[0] * PHt[2] + K[1] * PHt[3]);
+        P[2] = P[2] - (K[0] * PHt[4] + K[1] * PHt[5]);
+        P[3] = P[3] - (K[0] * PHt[6] + K[1] * PHt[7]);
+        P[4] = P[4] - (K[0] * PHt[8] + K[1] * PHt[9]);
+        P[5] = P[5] - (K[2] * PHt[2] + K[3] * PHt[3]);
+        P[6] = P[6] - (K[2] * PHt[4] + K[3] * PHt[5]);
+        P[7] = P[7] - (K[2] * PHt[6] + K[3] * PHt[7]);
+        P[8] = P[8] - (K[2] * PHt[8] + K[3] * PHt[9]);
+        P[9] = P[9] - (K[4] * PHt[4] + K[5] * PHt[5]);
+        P[10] = P[10] - (K[4] * PHt[6] + K[5] * PHt[7]);
+        P[11] = P[11] - (K[4] * PHt[8] + K[5] * PHt[9]);
+        P[12] = P[12] - (K[6] * PHt[6] + K[7] * PHt[7]);
+        P[13] = P[13] - (K[6] * PHt[8] + K[7] * PHt[9]);
+        P[14] = P[14] - (K[8] * PHt[8] + K[9] * PHt[9]);
+    }
+
+    private static void predictState6(double[] F, double[] x) {
+        double x0 = x[0], x1 = x[1], x2 = x[2], x3 = x[3], x4 = x[4], x5 = x[5];
+        x[0] = F[0] * x0 + F[1] * x1 + F[2] * x2 + F[3] * x3 + F[4] * x4 + F[5] * x5;
+        x[1] = F[6] * x0 + F[7] * x1 + F[8] * x2 + F[9] * x3 + F[10] * x4 + F[11] * x5;
+        x[2] = F[12] * x0 + F[13] * x1 + F[14] * x2 + F[15] * x3 + F[16] * x4 + F[17] * x5;
+        x[3] = F[18] * x0 + F[19] * x1 + F[20] * x2 + F[21] * x3 + F[22] * x4 + F[23] * x5;
+        x[4] = F[24] * x0 + F[25] * x1 + F[26] * x2 + F[27] * x3 + F[28] * x4 + F[29] * x5;
+        x[5] = F[30] * x0 + F[31] * x1 + F[32] * x2 + F[33] * x3 + F[34] * x4 + F[35] * x5;
+    }
+
+    private static void predictCovariance6(double[] F, double[] Q, double[] P, double[] FP) {
+        // FP = F P
+        FP[0] = F[0] * P[0] + F[1] * P[1] + F[2] * P[2] + F[3] * P[3] + F[4] * P[4] + F[5] * P[5];
+        FP[1] = F[0] * P[1] + F[1] * P[6] + F[2] * P[7] + F[3] * P[8] + F[4] * P[9] + F[5] * P[10];
+        FP[2] = F[0] * P[2] + F[1] * P[7] + F[2] * P[11] + F[3] * P[12] + F[4] * P[13] + F[5] * P[14];
+        FP[3] = F[0] * P[3] + F[1] * P[8] + F[2] * P[12] + F[3] * P[15] + F[4] * P[16] + F[5] * P[17];
+        FP[4] = F[0] * P[4] + F[1] * P[9] + F[2] * P[13] + F[3] * P[16] + F[4] * P[18] + F[5] * P[19];
+        FP[5] = F[0] * P[5] + F[1] * P[10] + F[2] * P[14] + F[3] * P[17] + F[4] * P[19] + F[5] * P[20];
+        FP[6] = F[6] * P[0] + F[7] * P[1] + F[8] * P[2] + F[9] * P[3] + F[10] * P[4] + F[11] * P[5];
+        FP[7] = F[6] * P[1] + F[7] * P[6] + F[8] * P[7] + F[9] * P[8] + F[10] * P[9] + F[11] * P[10];
+        FP[8] = F[6] * P[2] + F[7] * P[7] + F[8] * P[11] + F[9] * P[12] + F[10] * P[13] + F[11] * P[14];
+        FP[9] = F[6] * P[3] + F[7] * P[8] + F[8] * P[12] + F[9] * P[15] + F[10] * P[16] + F[11] * P[17];
+        FP[10] = F[6] * P[4] + F[7] * P[9] + F[8] * P[13] + F[9] * P[16] + F[10] * P[18] + F[11] * P[19];
+        FP[11] = F[6] * P[5] + F[7] * P[10] + F[8] * P[14] + F[9] * P[17] + F[10] * P[19] + F[11] * P[20];
+        FP[12] = F[12] * P[0] + F[13] * P[1] + F[14] * P[2] + F[15] * P[3] + F[16] * P[4] + F[17] * P[5];
+        FP[13] = F[12] * P[1] + F[13] * P[6] + F[14] * P[7] + F[15] * P[8] + F[16] * P[9] + F[17] * P[10];
+        FP[14] = F[12] * P[2] + F[13] * P[7] + F[14] * P[11] + F[15] * P[12] + F[16] * P[13] + F[17] * P[14];
+        FP[15] = F[12] * P[3] + F[13] * P[8] + F[14] * P[12] + F[15] * P[15] + F[16] * P[16] + F[17] * P[17];
+        FP[16] = F[12] * P[4] + F[13] * P[9] + F[14] * P[13] + F[15] * P[16] + F[16] * P[18] + F[17] * P[19];
+        FP[17] = F[12] * P[5] + F[13] * P[10] + F[14] * P[14] + F[15] * P[17] + F[16] * P[19] + F[17] * P[20];
+        FP[18] = F[18] * P[0] + F[19] * P[1] + F[20] * P[2] + F[21] * P[3] + F[22] * P[4] + F[23] * P[5];
+        FP[19] = F[18] * P[1] + F[19] * P[6] + F[20] * P[7] + F[21] * P[8] + F[22] * P[9] + F[23] * P[10];
+        FP[20] = F[18] * P[2] + F[19] * P[7] + F[20] * P[11] + F[21] * P[12] + F[22] * P[13] + F[23] * P[14];
+        FP[21] = F[18] * P[3] + F[19] * P[8] + F[20] * P[12] + F[21] * P[15] + F[22] * P[16] + F[23] * P[17];
+        FP[22] = F[18] * P[4] + F[19] * P[9] + F[20] * P[13] + F[21] * P[16] + F[22] * P[18] + F[23] * P[19];
+        FP[23] = F[18] * P[5] + F[19] * P[10] + F[20] * P[14] + F[21] * P[17] + F[22] * P[19] + F[23] * P[20];
+        FP[24] = F[24] * P[0] + F[25] * P[1] + F[26] * P[2] + F[27] * P[3] + F[28] * P[4] + F[29] * P[5];
+        FP[25] = F[24] * P[1] + F[25] * P[6] + F[26] * P[7] + F[27] * P[8] + F[28] * P[9] + F[29] * P[10];
+        FP[26] = F[24] * P[2] + F[25] * P[7] + F[26] * P[11] + F[27] * P[12] + F[28] * P[13] + F[29] * P[14];
+        FP[27] = F[24] * P[3] + F[25] * P[8] + F[26] * P[12] + F[27] * P[15] + F[28] * P[16] + F[29] * P[17];
+        FP[28] = F[24] * P[4] + F[25] * P[9] + F[26] * P[13] + F[27] * P[16] + F[28] * P[18] + F[29] * P[19];
+        FP[29] = F[24] * P[5] + F[25] * P[10] + F[26] * P[14] + F[27] * P[17] + F[28] * P[19] + F[29] * P[20];
+        FP[30] = F[30] * P[0] + F[31] * P[1] + F[32] * P[2] + F[33] * P[3] + F[34] * P[4] + F[35] * P[5];
+        FP[31] = F[30] * P[1] + F[31] * P[6] + F[32] * P[7] + F[33] * P[8] + F[34] * P[9] + F[35] * P[10];
+        FP[32] = F[30] * P[2] + F[31] * P[7] + F[32] * P[11] + F[33] * P[12] + F[34] * P[13] + F[35] * P[14];
+        FP[33] = F[30] * P[3] + F[31] * P[8] + F[32] * P[12] + F[33] * P[15] + F[34] * P[16] + F[35] * P[17];
+        FP[34] = F[30] * P[4] + F[31] * P[9] + F[32] * P[13] + F[33] * P[16] + F[34] * P[18] + F[35] * P[19];
+        FP[35] = F[30] * P[5] + F[31] * P[10] + F[32] * P[14] + F[33] * P[17] + F[34] * P[19] + F[35] * P[20];
+        // P = FP F' + Q, upper triangle only
+        P[0] = (FP[0] * F[0] + FP[1] * F[1] + FP[2] * F[2] + FP[3] * F[3] + FP[4] * F[4] + FP[5] * F[5]) + Q[0];
+        P[1] = (FP[0] * F[6] + FP[1] * F[7] + FP[2] * F[8] + FP[3] * F[9] + FP[4] * F[10] + FP[5] * F[11]) + Q[1];
+        P[2] = (FP[0] * F[12] + FP[1] * F[13] + FP[2] * F[14] + FP[3] * F[15] + FP[4] * F[16] + FP[5] * F[17]) + Q[2];
+        P[3] = (FP[0] * F[18] + FP[1] * F[19] + FP[2] * F[20] + FP[3] * F[21] + FP[4] * F[22] + FP[5] * F[23]) + Q[3];
+        P[4] = (FP[0] * F[24] + FP[1] * F[25] + FP[2] * F[26] + FP[3] * F[27] + FP[4] * F[28] + FP[5] * F[29]) + Q[4];
+        P[5] = (FP[0] * F[30] + FP[1] * F[31] + FP[2] * F[32] + FP[3] * F[33] + FP[4] * F[34] + FP[5] * F[35]) + Q[5];
+        P[6] = (FP[6] * F[6] + FP[7] * F[7] + FP[8] * F[8] + FP[9] * F[9] + FP[10] * F[10] + FP[11] * F[11]) + Q[7];
+        P[7] = (FP[6] * F[12] + FP[7] * F[13] + FP[8] * F[14] + FP[9] * F[15] + FP[10] * F[16] + FP[11] * F[17]) + Q[8];
+        P[8] = (FP[6] * F[18] + FP[7] * F[19] + FP[8] * F[20] + FP[9] * F[21] + FP[10] * F[22] + FP[11] * F[23]) + Q[9];
+        P[9] = (FP[6] * F[24] + FP[7] * F[25] + FP[8] * F[26] + FP[9] * F[27] + FP[10] * F[28] + FP[11] * F[29]) + Q[10];
+        P[10] = (FP[6] * F[30] + FP[7] * F[31] + FP[8] * F[32] + FP[9] * F[33] + FP[10] * F[34] + FP[11] * F[35]) + Q[11];
+        P[11] = (FP[12] * F[12] + FP[13] * F[13] + FP[14] * F[14] + FP[15] * F[15] + FP[16] * F[16] + FP[17] * F[17]) + Q[14];
+        P[12] = (FP[12] * F[18] + FP[13] * F[19] + FP[14] * F[20] + FP[15] * F[21] + FP[16] * F[22] + FP[17] * F[23]) + Q[15];
+        P[13] = (FP[12] * F[24] + FP[13] * F[25] + FP[14] * F[26] + FP[15] * F[27] + FP[16] * F[28] + FP[17] * F[29]) + Q[16];
+        P[14] = (FP[12] * F[30] + FP[13] * F[31] + FP[14] * F[32] + FP[15] * F[33] + FP[16] * F[34] + FP[17] * F[35]) + Q[17];
+        P[15] = (FP[18] * F[18] + FP[19] * F[19] + FP[20] * F[20] + FP[21] * F[21] + FP[22] * F[22] + FP[23] * F[23]) + Q[21];
+        P[16] = (FP[18] * F[24] + FP[19] * F[25] + FP[20] * F[26] + FP[21] * F[27] + FP[22] * F[28] + FP[23] * F[29]) + Q[22];
+        P[17] = (FP[18] * F[30] + FP[19] * F[31] + FP[20] * F[32] + FP[21] * F[33] + FP[22] * F[34] + FP[23] * F[35]) + Q[23];
+        P[18] = (FP[24] * F[24] + FP[25] * F[25] + FP[26] * F[26] + FP[27] * F[27] + FP[28] * F[28] + FP[29] * F[29]) + Q[28];
+        P[19] = (FP[24] * F[30] + FP[25] * F[31] + FP[26] * F[32] + FP[27] * F[33] + FP[28] * F[34] + FP[29] * F[35]) + Q[29];
+        P[20] = (FP[30] * F[30] + FP[31] * F[31] + FP[32] * F[32] + FP[33] * F[33] + FP[34] * F[34] + FP[35] * F[35]) + Q[35];
+    }
+
+    private static void innovationCovariance6x1(double[] P, double[] H, double[] R, double[] PHt, double[] S) {
+        // PHt = P H'
+        PHt[0] = P[0] * H[0] + P[1] * H[1] + P[2] * H[2] + P[3] * H[3] + P[4] * H[4] + P[5] * H[5];
+        PHt[1] = P[1] * H[0] + P[6] * H[1] + P[7] * H[2] + P[8] * H[3] + P[9] * H[4] + P[10] * H[5];
+        PHt[2] = P[2] * H[0] + P[7] * H[1] + P[11] * H[2] + P[12] * H[3] + P[13] * H[4] + P[14] * H[5];
+        PHt[3] = P[3] * H[0] + P[8] * H[1] + P[12] * H[2] + P[15] * H[3] + P[16] * H[4] + P[17] * H[5];
+        PHt[4] = P[4] * H[0] + P[9] * H[1] + P[13] * H[2] + P[16] * H[3] + P[18] * H[4] + P[19] * H[5];
+        PHt[5] = P[5] * H[0] + P[10] * H[1] + P[14] * H[2] + P[17] * H[3] + P[19] * H[4] + P[20] * H[5];
+        // S = H PHt + R
+        S[0] = (H[0] * PHt[0] + H[1] * PHt[1] + H[2] * PHt[2] + H[3] * PHt[3] + H[4] * PHt[4] + H[5] * PHt[5]) + R[0];
+    }
+
+    private static void residual6x1(double[] H, double[] x, double[] z, double[] y) {
+        y[0] = z[0] - (H[0] * x[0] + H[1] * x[1] + H[2] * x[2] + H[3] * x[3] + H[4] * x[4] + H[5] * x[5]);
+    }
+
+    private static void correct6x1(double[] K, double[] PHt, double[] y, double[] x, double[] P) {
+        // x = x + K y
+        x[0] = x[0] + (K[0] * y[0]);
+        x[1] = x[1] + (K[1] * y[0]);
+        x[2] = x[2] + (K[2] * y[0]);
+        x[3] = x[3] + (K[3] * y[0]);
+        x[4] = x[4] + (K[4] * y[0]);
+        x[5] = x[5] + (K[5] * y[0]);
+        // P = P - K PHt', upper triangle only
+        P[0] = P[0] - (K[0] * PHt[0]);
+        P[1] = P[1] - (K[0] * PHt[1]);
+        P[2] = P[2] - (K[0] * PHt[2]);
+        P[3] = P[3] - (K[0] * PHt[3]);
+        P[4] = P[4] - (K[0] * PHt[4]);
+        P[5] = P[5] - (K[0] * PHt[5]);
+        P[6] = P[6] - (K[1] * PHt[1]);
+        P[7] = P[7] - (K[1] * PHt[2]);
+        P[8] = P[8] - (K[1] * PHt[3]);
+        P[9] = P[9] - (K[1] * PHt[4]);
+        P[10] = P[10] - (K[1] * PHt[5]);
+        P[11] = P[11] - (K[2] * PHt[2]);
+        P[12] = P[12] - (K[2] * PHt[3]);
+        P[13] = P[13] - (K[2] * PHt[4]);
+        P[14] = P[14] - (K[2] * PHt[5]);
+        P[15] = P[15] - (K[3] * PHt[3]);
+        P[16] = P[16] - (K[3] * PHt[4]);
+        P[17] = P[17] - (K[3] * PHt[5]);
+        P[18] = P[18] - (K[4] * PHt[4]);
+        P[19] = P[19] - (K[4] * PHt[5]);
+        P[20] = P[20] - (K[5] * PHt[5]);
+    }
+
+    private static void innovationCovariance6x2(double[] P, double[] H, double[] R, double[] PHt, double[] S) {
+        // PHt = P H'
+        PHt[0] = P[0] * H[0] + P[1] * H[1] + P[2] * H[2] + P[3] * H[3] + P[4] * H[4] + P[5] * H[5];
+        PHt[1] = P[0] * H[6] + P[1] * H[7] + P[2] * H[8] + P[3] * H[9] + P[4] * H[10] + P[5] * H[11];
+        PHt[2] = P[1] * H[0] + P[6] * H[1] + P[7] * H[2] + P[8] * H[3] + P[9] * H[4] + P[10] * H[5];
+        PHt[3] = P[1] * H[6] + P[6] * H[7] + P[7] * H[8] + P[8] * H[9] + P[9] * H[10] + P[10] * H[11];
+        PHt[4] = P[2] * H[0] + P[7] * H[1] + P[11] * H[2] + P[12] * H[3] + P[13] * H[4] + P[14] * H[5];
+        PHt[5] = P[2] * H[6] + P[7] * H[7] + P[11] * H[8] + P[12] * H[9] + P[13] * H[10] + P[14] * H[11];
+        PHt[6] = P[3] * H[0] + P[8] * H[1] + P[12] * H[2] + P[15] * H[3] + P[16] * H[4] + P[17] * H[5];
+        PHt[7] = P[3] * H[6] + P[8] * H[7] + P[12] * H[8] + P[15] * H[9] + P[16] * H[10] + P[17] * H[11];
+        PHt[8] = P[4] * H[0] + P[9] * H[1] + P[13] * H[2] + P[16] * H[3] + P[18] * H[4] + P[19] * H[5];
+        PHt[9] = P[4] * H[6] + P[9] * H[7] + P[13] * H[8] + P[16] * H[9] + P[18] * H[10] + P[19] * H[11];
+        PHt[10] = P[5] * H[0] + P[10] * H[1] + P[14] * H[2] + P[17] * H[3] + P[19] * H[4] + P[20] * H[5];
+        PHt[11] = P[5] * H[6] + P[10] * H[7] + P[14] * H[8] + P[17] * H[9] + P[19] * H[10] + P[20] * H[11];
+        // S = H PHt + R
+        S[0] = (H[0] * PHt[0] + H[1] * PHt[2] + H[2] * PHt[4] + H[3] * PHt[6] + H[4] * PHt[8] + H[5] * PHt[10]) + R[0];
+        S[1] = (H[0] * PHt[1] + H[1] * PHt[3] + H[2] * PHt[5] + H[3] * PHt[7] + H[4] * PHt[9] + H[5] * PHt[11]) + R[1];
+        S[2] = (H[6] * PHt[0] + H[7] * PHt[2] + H[8] * PHt[4] + H[9] * PHt[6] + H[10] * PHt[8] + H[11] * PHt[10]) + R[2];
+        S[3] = (H[6] * PHt[1] + H[7] * PHt[3] + H[8] * PHt[5] + H[9] * PHt[7] + H[10] * PHt[9] + H[11] * PHt[11]) + R[3];
+    }
+
+    private static void residual6x2(double[] H, double[] x, double[] z, double[] y) {
+        y[0] = z[0] - (H[0] * x[0] + H[1] * x[1] + H[2] * x[2] + H[3] * x[3] + H[4] * x[4] + H[5] * x[5]);
+        y[1] = z[1] - (H[6] * x[0] + H[7] * x[1] + H[8] * x[2] + H[9] * x[3] + H[10] * x[4] + H[11] * x[5]);
+    }
+
+    private static void correct6x2(double[] K, double[] PHt, double[] y, double[] x, double[] P) {
+        // x = x + K y
+        x[0] = x[0] + (K[0] * y[0] + K[1] * y[1]);
+        x[1] = x[1] + (K[2] * y[0] + K[3] * y[1]);
+        x[2] = x[2] + (K[4] * y[0] + K[5] * y[1]);
+        x[3] = x[3] + (K[6] * y[0] + K[7] * y[1]);
+        x[4] = x[4] + (K[8] * y[0] + K[9] * y[1]);
+        x[5] = x[5] + (K[10] * y[0] + K[11] * y[1]);
+        // P = P - K PHt', upper triangle only
+        P[0] = P[0] - (K[0] * PHt[0] + K[1] * PHt[1]);
+        P[1] = P[1] - (K[0] * PHt[2] + K[1] * PHt[3]);
+        P[2] = P[2] - (K[0] * PHt[4] + K[1] * PHt[5]);
+        P[3] = P[3] - (K[0] * PHt[6] + K[1] * PHt[7]);
+        P[4] = P[4] - (K[0] * PHt[8] + K[1] * PHt[9]);
+        P[5] = P[5] - (K[0] * PHt[10] + K[1] * PHt[11]);
+        P[6] = P[6] - (K[2] * PHt[2] + K[3] * PHt[3]);
+        P[7] = P[7] - (K[2] * PHt[4] + K[3] * PHt[5]);
+        P[8] = P[8] - (K[2] * PHt[6] + K[3] * PHt[7]);
+        P[9] = P[9] - (K[2] * PHt[8] + K[3] * PHt[9]);
+        P[10] = P[10] - (K[2] * PHt[10] + K[3] * PHt[11]);
+        P[11] = P[11] - (K[4] * PHt[4] + K[5] * PHt[5]);
+        P[12] = P[12] - (K[4] * PHt[6] + K[5] * PHt[7]);
+        P[13] = P[13] - (K[4] * PHt[8] + K[5] * PHt[9]);
+        P[14] = P[14] - (K[4] * PHt[10] + K[5] * PHt[11]);
+        P[15] = P[15] - (K[6] * PHt[6] + K[7] * PHt[7]);
+        P[16] = P[16] - (K[6] * PHt[8] + K[7] * PHt[9]);
+        P[17] = P[17] - (K[6] * PHt[10] + K[7] * PHt[11]);
+        P[18] = P[18] - (K[8] * PHt[8] + K[9] * PHt[9]);
+        P[19] = P[19] - (K[8] * PHt[10] + K[9] * PHt[11]);
+        P[20] = P[20] - (K[10] * PHt[10] + K[11] * PHt[11]);
+    }
+
+    private static IllegalArgumentException unsupported(int n, int m) {
+        return new IllegalArgumentException("No fixed kernel for n=" + n + ", m=" + m);
+    }
+}
@@ -1,27 +1,31 @@
 package math;
 
+import java.util.Arrays;
+
 public class Matrix {
 
-    private final double[][] data;
+    // Single contiguous row-major block: element (r, c) lives at data[r * cols + c]
+    private final double[] data;
     private final int rows;
     private final int cols;
+    private boolean frozen;  // read-only once shared (see freeze())
 
     // Constructor: create empty matrix (all zeros)
     public Matrix(int rows, int cols) {
         this.rows = rows;
         this.cols = cols;
-        this.data = new double[rows][cols];  // automatically filled with 0.0
+        this.data = new double[rows * cols];  // automatically filled with 0.0
     }
 
     // Constructor: create matrix from existing 2D array
     public Matrix(double[][] values) {
         this.rows = values.length;
         this.cols = values[0].length;
-        this.data = new double[rows][cols];
+        this.data = new double[rows * cols];
 
         // Safe copy (so outside code can't modify our internal data)
         for (int r = 0; r < rows; r++) {
-            System.arraycopy(values[r], 0, this.data[r], 0, cols);
+            System.arraycopy(values[r], 0, this.data, r * cols, cols);
         }
     }
 
@@ -36,128 +40,333 @@ public class Matrix {
 
     // Get and set an element in the matrix
     public double get(int r, int c) {
-        return data[r][c];
+        return data[r * cols + c];
     }
 
     public void set(int r, int c, double value) {
-        data[r][c] = value;
+        if (frozen) {
+            throw frozenError();
+        }
+        data[r * cols + c] = value;
+    }
+
+    // Make this matrix read-only (for instances shared between filters, e.g. cached F/Q).
+    // Writes through set() or as the destination of any *Into op then throw.
+    public Matrix freeze() {
+        frozen = true;
+        return this;
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    // Raw row-major storage, for the kernels in this package
+    double[] array() {
+        return data;
     }
 
     // Multiply matrix by vector
     public Vector multiply(Vector v) {
-        if (v.size() != this.cols) {
-            throw new IllegalArgumentException("Matrix/Vector dimension mismatch");
-        }
-
         Vector result = new Vector(this.rows);
+        multiplyInto(v, result);
+        return result;
+    }
 
-        for (int r = 0; r < this.rows; r++) {
-            double sum = 0.0;
-            for (int c = 0; c < this.cols; c++) {
-                sum += this.get(r, c) * v.get(c);  // important: multiply, not add
-            }
-            result.set(r, sum);
+    // OPTIONAL: multiply two matrices (useful later, but simple)
+    public Matrix multiply(Matrix other) {
+        Matrix result = new Matrix(this.rows, other.cols);
+        multiplyInto(other, result);
+        return result;
+    }
+
+    // Identity matrix builder
+    public static Matrix identity(int size) {
+        Matrix I = new Matrix(size, size);
+        I.setIdentity();
+        return I;
+    }
+
+    // Add two matrices
+    public Matrix add(Matrix other) {
+        Matrix result = new Matrix(this.rows, this.cols);
+        addInto(other, result);
+        return result;
+    }
+
+    // Transpose of the matrix
+    public Matrix transpose() {
+        Matrix result = new Matrix(this.cols, this.rows);
+        transposeInto(result);
+        return result;
+    }
+
+    // Inverse of a square matrix (closed form up to 2x2, Gauss-Jordan above)
+    public Matrix inverse() {
+        Matrix result = new Matrix(rows, cols);
+        inverseInto(result);
+        return result;
+    }
+
+    // multiply matrix by scalar
+    public Matrix multiply(double scalar) {
+        Matrix result = new Matrix(rows, cols);
+        for (int i = 0; i < data.length; i++) {
+            result.data[i] = scalar * data[i];
         }
+        return result;
+    }
 
+    // Deep copy
+    public Matrix copy() {
+        Matrix result = new Matrix(rows, cols);
+        System.arraycopy(data, 0, result.data, 0, data.length);
         return result;
     }
 
-    // OPTIONAL: multiply two matrices (useful later, but simple)
-    public Matrix multiply(Matrix other) {
+    // ---------------------------------
+    // In-place variants: write into a preallocated destination
+    // so the filter hot paths don't allocate on every call
+    // ---------------------------------
+
+    // dest = this * other (dest must not alias either operand)
+    public void multiplyInto(Matrix other, Matrix dest) {
         if (this.cols != other.rows) {
             throw new IllegalArgumentException("Matrix/Matrix dimension mismatch");
         }
+        checkDest(dest, this.rows, other.cols);
+        checkNoAlias(dest, this, other);
 
-        Matrix result = new Matrix(this.rows, other.cols);
+        final double[] a = this.data;
+        final double[] b = other.data;
+        final double[] out = dest.data;
+        final int n = this.cols;
+        final int m = other.cols;
 
+        // r-k-c order: the inner loop streams contiguous rows of b and out,
+        // and each out element still accumulates its k terms in order
+        Arrays.fill(out, 0.0);
         for (int r = 0; r < this.rows; r++) {
-            for (int c = 0; c < other.cols; c++) {
-                double sum = 0.0;
-                for (int k = 0; k < this.cols; k++) {
-                    sum += this.get(r, k) * other.get(k, c);
+            int outRow = r * m;
+            for (int k = 0; k < n; k++) {
+                double a_rk = a[r * n + k];
+                int bRow = k * m;
+                for (int c = 0; c < m; c++) {
+                    out[outRow + c] += a_rk * b[bRow + c];
                 }
-                result.set(r, c, sum);
             }
         }
-        return result;
     }
 
-    // Identity matrix builder
-    public static Matrix identity(int size) {
-        Matrix I = new Matrix(size, size);
-        for (int i = 0; i < size; i++) {
-            I.set(i, i, 1.0);
+    // dest = this * other' (fused, no transpose is materialized)
+    public void multiplyTransposeInto(Matrix other, Matrix dest) {
+        if (this.cols != other.cols) {
+            throw new IllegalArgumentException("Matrix/Matrix dimension mismatch");
+        }
+        checkDest(dest, this.rows, other.rows);
+        checkNoAlias(dest, this, other);
+
+        final double[] a = this.data;
+        final double[] b = other.data;
+        final double[] out = dest.data;
+        final int n = this.cols;
+
+        // Row of this dotted with row of other: both contiguous
+        for (int r = 0; r < this.rows; r++) {
+            int aRow = r * n;
+            for (int c = 0; c < other.rows; c++) {
+                int bRow = c * n;
+                double sum = 0.0;
+                for (int k = 0; k < n; k++) {
+                    sum += a[aRow + k] * b[bRow + k];
+                }
+                out[r * other.rows + c] = sum;
+            }
         }
-        return I;
     }
 
-    // Add two matrices
-    public Matrix add(Matrix other) {
-        if (this.rows != other.rows || this.cols != other.cols) {
-            throw new IllegalArgumentException("Matrix/Matrix dimension mismatch in add()");
+    // dest = this * v (dest must not alias v)
+    public void multiplyInto(Vector v, Vector dest) {
+        if (v.size() != this.cols || dest.size() != this.rows) {
+            throw new IllegalArgumentException("Matrix/Vector dimension mismatch");
+        }
+        if (dest == v) {
+            throw new IllegalArgumentException("Destination aliases an operand");
         }
 
-        Matrix result = new Matrix(this.rows, this.cols);
         for (int r = 0; r < this.rows; r++) {
+            int row = r * cols;
+            double sum = 0.0;
             for (int c = 0; c < this.cols; c++) {
-                result.set(r, c, this.get(r, c) + other.get(r, c));
+                sum += data[row + c] * v.get(c);  // important: multiply, not add
             }
+            dest.set(r, sum);
         }
-        return result;
     }
 
-    // Transpose of the matrix
-    public Matrix transpose() {
-        Matrix result = new Matrix(this.cols, this.rows);
-        for (int r = 0; r < this.rows; r++) {
-            for (int c = 0; c < this.cols; c++) {
-                result.set(c, r, this.get(r, c));
+    // dest = this + other (element-wise, so dest may alias either operand)
+    public void addInto(Matrix other, Matrix dest) {
+        if (this.rows != other.rows || this.cols != other.cols) {
+            throw new IllegalArgumentException("Matrix/Matrix dimension mismatch in add()");
+        }
+        checkDest(dest, rows, cols);
+
+        for (int i = 0; i < data.length; i++) {
+            dest.data[i] = data[i] + other.data[i];
+        }
+    }
+
+    // dest = this - other (element-wise, so dest may alias either operand)
+    public void subtractInto(Matrix other, Matrix dest) {
+        if (this.rows != other.rows || this.cols != other.cols) {
+            throw new IllegalArgumentException("Matrix/Matrix dimension mismatch in subtract()");
+        }
+        checkDest(dest, rows, cols);
+
+        for (int i = 0; i < data.length; i++) {
+            dest.data[i] = data[i] - other.data[i];
+        }
+    }
+
+    // dest = this'
+    public void transposeInto(Matrix dest) {
+        checkDest(dest, cols, rows);
+        checkNoAlias(dest, this, this);
+
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                dest.data[c * rows + r] = data[r * cols + c];
             }
         }
-        return result;
     }
 
-    // Inverse for 1x1 or 2x2 matrices
-    public Matrix inverse() {
+    // dest = this^{-1} (dest may alias this)
+    public void inverseInto(Matrix dest) {
+        checkDest(dest, rows, cols);
+
         if (rows == 1 && cols == 1) {
-            return new Matrix(new double[][] {
-                    {1.0 / data[0][0]}
-            });
+            dest.data[0] = 1.0 / data[0];
+            return;
         }
 
         if (rows == 2 && cols == 2) {
-            double a = data[0][0];
-            double b = data[0][1];
-            double c = data[1][0];
-            double d = data[1][1];
+            double a = data[0];
+            double b = data[1];
+            double c = data[2];
+            double d = data[3];
 
             double det = a*d - b*c;
             if (Math.abs(det) < 1e-9) {
                 throw new IllegalArgumentException("Matrix not invertible");
             }
 
-            double[][] inv = {
-                    { d / det, -b / det },
-                    { -c / det, a / det }
-            };
-
-            return new Matrix(inv);
+            dest.data[0] =  d / det;
+            dest.data[1] = -b / det;
+            dest.data[2] = -c / det;
+            dest.data[3] =  a / det;
+            return;
         }
 
-        throw new UnsupportedOperationException("Inverse only implemented for 1x1 or 2x2 matrices");
+        if (rows != cols) {
+            throw new IllegalArgumentException("Inverse needs a square matrix");
+        }
+        gaussJordanInverse(dest);
     }
 
-    // multiply matrix by scalar
-    public Matrix multiply(double scalar) {
-        Matrix result = new Matrix(rows, cols);
-        for (int r = 0; r < rows; r++) {
-            for (int c = 0; c < cols; c++) {
-                result.set(r, c, scalar * this.get(r, c));
+    // Gauss-Jordan elimination with partial pivoting on [this | I]
+    private void gaussJordanInverse(Matrix dest) {
+        final int n = rows;
+        double[] a = Arrays.copyOf(data, data.length);
+        double[] inv = new double[n * n];
+        for (int i = 0; i < n; i++) {
+            inv[i * n + i] = 1.0;
+        }
+
+        for (int col = 0; col < n; col++) {
+            int pivot = col;
+            for (int r = col + 1; r < n; r++) {
+                if (Math.abs(a[r * n + col]) > Math.abs(a[pivot * n + col])) {
+                    pivot = r;
+                }
+            }
+            if (Math.abs(a[pivot * n + col]) < 1e-12) {
+                throw new IllegalArgumentException("Matrix not invertible");
+            }
+            if (pivot != col) {
+                swapRows(a, n, pivot, col);
+                swapRows(inv, n, pivot, col);
+            }
+
+            double d = a[col * n + col];
+            for (int c = 0; c < n; c++) {
+                a[col * n + c] /= d;
+                inv[col * n + c] /= d;
+            }
+
+            for (int r = 0; r < n; r++) {
+                double f = a[r * n + col];
+                if (r == col || f == 0.0) {
+                    continue;
+                }
+                for (int c = 0; c < n; c++) {
+                    a[r * n + c] -= f * a[col * n + c];
+                    inv[r * n + c] -= f * inv[col * n + c];
+                }
             }
         }
-        return result;
+        System.arraycopy(inv, 0, dest.data, 0, inv.length);
+    }
+
+    private static void swapRows(double[] a, int n, int r1, int r2) {
+        for (int c = 0; c < n; c++) {
+            double t = a[r1 * n + c];
+            a[r1 * n + c] = a[r2 * n + c];
+            a[r2 * n + c] = t;
+        }
     }
 
+    // Overwrite this matrix with the contents of other
+    public void copyFrom(Matrix other) {
+        if (frozen) {
+            throw frozenError();
+        }
+        if (this.rows != other.rows || this.cols != other.cols) {
+            throw new IllegalArgumentException("Matrix/Matrix dimension mismatch in copyFrom()");
+        }
+        System.arraycopy(other.data, 0, data, 0, data.length);
+    }
+
+    public void setZero() {
+        if (frozen) {
+            throw frozenError();
+        }
+        Arrays.fill(data, 0.0);
+    }
+
+    public void setIdentity() {
+        setZero();
+        for (int i = 0; i < Math.min(rows, cols); i++) {
+            data[i * cols + i] = 1.0;
+        }
+    }
+
+    private static void checkDest(Matrix dest, int rows, int cols) {
+        if (dest.rows != rows || dest.cols != cols) {
+            throw new IllegalArgumentException("Destination matrix has wrong dimensions");
+        }
+        if (dest.frozen) {
+            throw frozenError();
+        }
+    }
 
+    private static UnsupportedOperationException frozenError() {
+        return new UnsupportedOperationException("Matrix is frozen (shared, read-only)");
+    }
+
+    private static void checkNoAlias(Matrix dest, Matrix a, Matrix b) {
+        if (dest == a || dest == b) {
+            throw new IllegalArgumentException("Destination aliases an operand");
+        }
+    }
 
 }
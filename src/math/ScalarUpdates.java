@@ -0,0 +1,86 @@
+package math;
+
+// Sequential measurement processing: with a diagonal R the components of z are
+// independent, so an m-dimensional update is m scalar updates. Each one needs
+// only P h' and a division; there is no H P H', no S and no inverse/solve.
+// Works for any measurement size (no 2x2 limit).
+public final class ScalarUpdates {
+
+    private ScalarUpdates() {
+    }
+
+    public static boolean isDiagonal(Matrix R) {
+        if (R.rows() != R.cols()) {
+            return false;
+        }
+        double[] r = R.array();
+        int m = R.rows();
+        for (int a = 0; a < m; a++) {
+            for (int b = 0; b < m; b++) {
+                if (a != b && r[a * m + b] != 0.0) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    // x, P updated in place by z one component at a time (R must be diagonal).
+    // pht is scratch of length n.
+    public static void sequentialCorrect(SymmetricMatrix P, Vector x, Matrix H, Matrix R, Vector z, double[] pht) {
+        final int n = P.size();
+        final int m = H.rows();
+        final double[] p = P.array();
+        final double[] h = H.array();
+        final double[] r = R.array();
+        final double[] xv = x.array();
+        final double[] zv = z.array();
+
+        for (int a = 0; a < m; a++) {
+            final int hRow = a * n;
+
+            // pht = P h' (row i of the packed triangle starts at i (2n - i - 1) / 2)
+            for (int i = 0; i < n; i++) {
+                double sum = 0.0;
+                for (int k = 0; k < i; k++) {
+                    double hk = h[hRow + k];
+                    if (hk != 0.0) {
+                        sum += p[k * (2 * n - k - 1) / 2 + i] * hk;
+                    }
+                }
+                int row = i * (2 * n - i - 1) / 2;
+                for (int k = i; k < n; k++) {
+                    double hk = h[hRow + k];
+                    if (hk != 0.0) {
+                        sum += p[row + k] * hk;
+                    }
+                }
+                pht[i] = sum;
+            }
+
+            // s = h P h' + r_aa, innovation = z_a - h x
+            double s = r[a * m + a];
+            double hx = 0.0;
+            for (int k = 0; k < n; k++) {
+                s += h[hRow + k] * pht[k];
+                hx += h[hRow + k] * xv[k];
+            }
+            if (!(s > 0.0)) {
+                throw new IllegalArgumentException("Innovation variance not positive");
+            }
+
+            // x = x + k (z_a - h x), P = P - k pht' with k = pht / s
+            double innov = (zv[a] - hx) / s;
+            for (int i = 0; i < n; i++) {
+                xv[i] += pht[i] * innov;
+            }
+            int e = 0;
+            for (int i = 0; i < n; i++) {
+                double ki = pht[i] / s;
+                for (int j = i; j < n; j++) {
+                    p[e++] -= ki * pht[j];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package math;
+
+import java.util.Arrays;
+
+// Symmetric n x n matrix stored as its packed upper triangle, row by row:
+// (0,0) (0,1) .. (0,n-1) (1,1) .. (1,n-1) .. (n-1,n-1), n(n+1)/2 entries.
+// Same order as the covariance lanes in math.batch.BatchKernels.
+//
+// Covariances are kept in this form so predict/update compute only one
+// triangle, and the result is symmetric by construction (no re-symmetrizing).
+public class SymmetricMatrix {
+
+    private final int n;
+    private final double[] data;
+
+    // Constructor: create empty matrix (all zeros)
+    public SymmetricMatrix(int n) {
+        this.n = n;
+        this.data = new double[packedSize(n)];
+    }
+
+    // Build from the upper triangle of a square Matrix
+    public static SymmetricMatrix fromUpper(Matrix A) {
+        if (A.rows() != A.cols()) {
+            throw new IllegalArgumentException("SymmetricMatrix needs a square matrix");
+        }
+        SymmetricMatrix S = new SymmetricMatrix(A.rows());
+        S.copyFrom(A);
+        return S;
+    }
+
+    public static SymmetricMatrix identity(int n) {
+        SymmetricMatrix I = new SymmetricMatrix(n);
+        for (int i = 0; i < n; i++) {
+            I.data[index(n, i, i)] = 1.0;
+        }
+        return I;
+    }
+
+    public static int packedSize(int n) {
+        return n * (n + 1) / 2;
+    }
+
+    // Position of (i, j) in the packed array (either triangle)
+    public static int index(int n, int i, int j) {
+        if (i > j) {
+            int t = i;
+            i = j;
+            j = t;
+        }
+        return i * n - i * (i - 1) / 2 + (j - i);
+    }
+
+    public int size() {
+        return n;
+    }
+
+    public double get(int i, int j) {
+        return data[index(n, i, j)];
+    }
+
+    // Sets both (i, j) and (j, i)
+    public void set(int i, int j, double value) {
+        data[index(n, i, j)] = value;
+    }
+
+    // Raw packed storage, for the kernels in this package
+    double[] array() {
+        return data;
+    }
+
+    public SymmetricMatrix copy() {
+        SymmetricMatrix result = new SymmetricMatrix(n);
+        System.arraycopy(data, 0, result.data, 0, data.length);
+        return result;
+    }
+
+    public void copyFrom(SymmetricMatrix other) {
+        checkSize(other.n);
+        System.arraycopy(other.data, 0, data, 0, data.length);
+    }
+
+    // Flat copies of the packed triangle to/from packedSize(n) doubles at offset
+    public void copyTo(double[] dest, int offset) {
+        System.arraycopy(data, 0, dest, offset, data.length);
+    }
+
+    public void copyFrom(double[] src, int offset) {
+        System.arraycopy(src, offset, data, 0, data.length);
+    }
+
+    // Take the upper triangle of A
+    public void copyFrom(Matrix A) {
+        if (A.rows() != n || A.cols() != n) {
+            throw new IllegalArgumentException("Matrix/SymmetricMatrix dimension mismatch");
+        }
+        double[] a = A.array();
+        int p = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = i; j < n; j++) {
+                data[p++] = a[i * n + j];
+            }
+        }
+    }
+
+    // Unpack into a full n x n matrix
+    public void copyInto(Matrix dest) {
+        if (dest.rows() != n || dest.cols() != n) {
+            throw new IllegalArgumentException("Destination matrix has wrong dimensions");
+        }
+        double[] out = dest.array();
+        int p = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = i; j < n; j++) {
+                out[i * n + j] = data[p];
+                out[j * n + i] = data[p];
+                p++;
+            }
+        }
+    }
+
+    public Matrix toMatrix() {
+        Matrix result = new Matrix(n, n);
+        copyInto(result);
+        return result;
+    }
+
+    public void setZero() {
+        Arrays.fill(data, 0.0);
+    }
+
+    // dest = this + other (dest may alias either)
+    public void addInto(SymmetricMatrix other, SymmetricMatrix dest) {
+        if (other.n != n || dest.n != n) {
+            throw new IllegalArgumentException("SymmetricMatrix dimension mismatch");
+        }
+        for (int k = 0; k < data.length; k++) {
+            dest.data[k] = data[k] + other.data[k];
+        }
+    }
+
+    // ---------------------------------
+    // Symmetric-aware operations: only the upper triangle is computed
+    // ---------------------------------
+
+    // this = F this F' + Q (FP is n x n scratch; only Q's upper triangle is read)
+    public void propagate(Matrix F, Matrix Q, Matrix FP) {
+        if (F.rows() != n || F.cols() != n || Q.rows() != n || Q.cols() != n) {
+            throw new IllegalArgumentException("Matrix/SymmetricMatrix dimension mismatch");
+        }
+        if (FP.rows() != n || FP.cols() != n) {
+            throw new IllegalArgumentException("Destination matrix has wrong dimensions");
+        }
+
+        final double[] f = F.array();
+        final double[] q = Q.array();
+        final double[] fp = FP.array();
+
+        // FP = F P, each packed entry of P read once
+        leftMultiplyInto(f, n, fp);
+
+        // P = FP F' + Q, upper triangle only
+        int p = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = i; j < n; j++) {
+                double sum = 0.0;
+                for (int k = 0; k < n; k++) {
+                    sum += fp[i * n + k] * f[j * n + k];
+                }
+                data[p++] = sum + q[i * n + j];
+            }
+        }
+    }
+
+    // dest = this * H' (n x m), e.g. P H'
+    public void multiplyTransposeInto(Matrix H, Matrix dest) {
+        if (H.cols() != n) {
+            throw new IllegalArgumentException("Matrix/SymmetricMatrix dimension mismatch");
+        }
+        int m = H.rows();
+        if (dest.rows() != n || dest.cols() != m) {
+            throw new IllegalArgumentException("Destination matrix has wrong dimensions");
+        }
+
+        final double[] h = H.array();
+        final double[] out = dest.array();
+        Arrays.fill(out, 0, n * m, 0.0);
+
+        // Packed entry (k, l), k < l, is both P[k][l] and P[l][k]: it feeds rows
+        // k and l of the result. Each sum still runs over its terms in order.
+        int p = 0;
+        for (int k = 0; k < n; k++) {
+            double d = data[p++];
+            for (int a = 0; a < m; a++) {
+                out[k * m + a] += d * h[a * n + k];
+            }
+            for (int l = k + 1; l < n; l++) {
+                double v = data[p++];
+                for (int a = 0; a < m; a++) {
+                    out[k * m + a] += v * h[a * n + l];
+                    out[l * m + a] += v * h[a * n + k];
+                }
+            }
+        }
+    }
+
+    // this = this - K B' for n x m K and B, upper triangle only.
+    // With B = P H' this is the covariance update (I - K H) P = P - K (P H')'.
+    public void subtractProductTranspose(Matrix K, Matrix B) {
+        if (K.rows() != n || B.rows() != n || K.cols() != B.cols()) {
+            throw new IllegalArgumentException("Matrix/SymmetricMatrix dimension mismatch");
+        }
+        int m = K.cols();
+
+        final double[] k = K.array();
+        final double[] b = B.array();
+        int p = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = i; j < n; j++) {
+                double sum = 0.0;
+                for (int a = 0; a < m; a++) {
+                    sum += k[i * m + a] * b[j * m + a];
+                }
+                data[p++] -= sum;
+            }
+        }
+    }
+
+    // T this T' for an r x n T, as a new r x r symmetric matrix
+    // (state expansion/projection when a filter switches models)
+    public SymmetricMatrix congruence(Matrix T) {
+        if (T.cols() != n) {
+            throw new IllegalArgumentException("Matrix/SymmetricMatrix dimension mismatch");
+        }
+        int r = T.rows();
+        final double[] t = T.array();
+
+        double[] tp = new double[r * n];
+        leftMultiplyInto(t, r, tp);
+
+        SymmetricMatrix result = new SymmetricMatrix(r);
+        int p = 0;
+        for (int i = 0; i < r; i++) {
+            for (int j = i; j < r; j++) {
+                double sum = 0.0;
+                for (int k = 0; k < n; k++) {
+                    sum += tp[i * n + k] * t[j * n + k];
+                }
+                result.data[p++] = sum;
+            }
+        }
+        return result;
+    }
+
+    // out = A this for a rows x n A, both row-major. Each packed entry is read
+    // once: (k, l) with k < l is both P[k][l] and P[l][k], so it feeds columns k
+    // and l of the result. Every sum still runs over k in order, so the result is
+    // bit-identical to a plain row-by-column product.
+    private void leftMultiplyInto(double[] a, int rows, double[] out) {
+        Arrays.fill(out, 0, rows * n, 0.0);
+        int p = 0;
+        for (int k = 0; k < n; k++) {
+            double d = data[p++];
+            for (int i = 0; i < rows; i++) {
+                out[i * n + k] += a[i * n + k] * d;
+            }
+            for (int l = k + 1; l < n; l++) {
+                double v = data[p++];
+                for (int i = 0; i < rows; i++) {
+                    out[i * n + l] += a[i * n + k] * v;
+                    out[i * n + k] += a[i * n + l] * v;
+                }
+            }
+        }
+    }
+
+    private void checkSize(int other) {
+        if (other != n) {
+            throw new IllegalArgumentException("SymmetricMatrix dimension mismatch");
+        }
+    }
+}
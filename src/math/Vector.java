@@ -24,6 +24,11 @@ public class Vector {
         data[i] = value;
     }
 
+    // Raw storage, for the kernels in this package
+    double[] array() {
+        return data;
+    }
+
     public Vector add(Vector other) {
         Vector result = new Vector(size());
         for (int i = 0; i < size(); i++) {
@@ -39,4 +44,38 @@ public class Vector {
         }
         return result;
     }
+
+    public Vector copy() {
+        return new Vector(data);
+    }
+
+    // In-place variants (dest may alias either operand)
+    public void addInto(Vector other, Vector dest) {
+        for (int i = 0; i < data.length; i++) {
+            dest.data[i] = data[i] + other.data[i];
+        }
+    }
+
+    public void subtractInto(Vector other, Vector dest) {
+        for (int i = 0; i < data.length; i++) {
+            dest.data[i] = data[i] - other.data[i];
+        }
+    }
+
+    public void copyFrom(Vector other) {
+        System.arraycopy(other.data, 0, data, 0, data.length);
+    }
+
+    // Flat copies to/from size() doubles of an array at offset
+    public void copyTo(double[] dest, int offset) {
+        System.arraycopy(data, 0, dest, offset, data.length);
+    }
+
+    public void copyFrom(double[] src, int offset) {
+        System.arraycopy(src, offset, data, 0, data.length);
+    }
+
+    public void setZero() {
+        java.util.Arrays.fill(data, 0.0);
+    }
 }
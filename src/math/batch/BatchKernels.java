@@ -0,0 +1,48 @@
+package math.batch;
+
+// Batched CV filter math over many tracks in structure-of-arrays layout.
+//
+// Each state component and each covariance entry is its own lane of `stride`
+// doubles, so track i's value of component k lives at array[k * stride + i].
+// That lets one vector instruction process the same entry for several tracks.
+//
+// State [x, y, vx, vy]; the covariance is symmetric, so only its upper
+// triangle is stored, row by row (10 entries for 4x4).
+public interface BatchKernels {
+
+    // State lanes
+    int X  = 0;
+    int Y  = 1;
+    int VX = 2;
+    int VY = 3;
+    int STATE_SIZE = 4;
+
+    // Packed upper-triangular covariance lanes
+    int P00 = 0, P01 = 1, P02 = 2, P03 = 3;
+    int          P11 = 4, P12 = 5, P13 = 6;
+    int                   P22 = 7, P23 = 8;
+    int                            P33 = 9;
+    int COV_SIZE = 10;
+
+    // x = F x, P = F P F' + Q for the CVModel discretization with intensity q
+    void cvPredict(double dt, double q, double[] x, double[] P, int count, int stride);
+
+    // Position update with H = [I 0] and R = [[r00, r01], [r01, r11]],
+    // one measurement (zx[i], zy[i]) per track
+    void positionUpdate(double[] zx, double[] zy,
+                        double r00, double r01, double r11,
+                        double[] x, double[] P, int count, int stride);
+
+    String name();
+
+    // The Vector API backend when jdk.incubator.vector is available
+    // (run with --add-modules jdk.incubator.vector), otherwise scalar loops
+    static BatchKernels best() {
+        try {
+            Class<?> c = Class.forName("math.batch.simd.VectorApiBatchKernels");
+            return (BatchKernels) c.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return new ScalarBatchKernels();
+        }
+    }
+}
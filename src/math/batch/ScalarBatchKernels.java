@@ -0,0 +1,105 @@
+package math.batch;
+
+// Plain loops over the structure-of-arrays layout; also the tail handler
+// for the vectorized backend.
+public class ScalarBatchKernels implements BatchKernels {
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+
+    @Override
+    public void cvPredict(double dt, double q, double[] x, double[] P, int count, int stride) {
+        cvPredictRange(dt, q, x, P, 0, count, stride);
+    }
+
+    @Override
+    public void positionUpdate(double[] zx, double[] zy,
+                               double r00, double r01, double r11,
+                               double[] x, double[] P, int count, int stride) {
+        positionUpdateRange(zx, zy, r00, r01, r11, x, P, 0, count, stride);
+    }
+
+    // Tracks [from, to)
+    public static void cvPredictRange(double dt, double q, double[] x, double[] P,
+                                      int from, int to, int stride) {
+        double dt2 = dt * dt;
+        double dt3 = dt2 * dt;
+        double dt4 = dt3 * dt;
+
+        // CVModel Q: same block for each axis
+        double qpp = dt4 / 4 * q;
+        double qpv = dt3 / 2 * q;
+        double qvv = dt2 * q;
+
+        final int s = stride;
+        for (int i = from; i < to; i++) {
+            x[X * s + i] += dt * x[VX * s + i];
+            x[Y * s + i] += dt * x[VY * s + i];
+
+            double p00 = P[P00 * s + i], p01 = P[P01 * s + i], p02 = P[P02 * s + i], p03 = P[P03 * s + i];
+            double p11 = P[P11 * s + i], p12 = P[P12 * s + i], p13 = P[P13 * s + i];
+            double p22 = P[P22 * s + i], p23 = P[P23 * s + i];
+            double p33 = P[P33 * s + i];
+
+            // F = I + dt * (pos <- vel), so F P F' only adds dt-weighted velocity terms
+            P[P00 * s + i] = p00 + 2 * dt * p02 + dt2 * p22 + qpp;
+            P[P01 * s + i] = p01 + dt * (p03 + p12) + dt2 * p23;
+            P[P02 * s + i] = p02 + dt * p22 + qpv;
+            P[P03 * s + i] = p03 + dt * p23;
+            P[P11 * s + i] = p11 + 2 * dt * p13 + dt2 * p33 + qpp;
+            P[P12 * s + i] = p12 + dt * p23;
+            P[P13 * s + i] = p13 + dt * p33 + qpv;
+            P[P22 * s + i] = p22 + qvv;
+            P[P33 * s + i] = p33 + qvv;
+            // P23 unchanged
+        }
+    }
+
+    // Tracks [from, to)
+    public static void positionUpdateRange(double[] zx, double[] zy,
+                                           double r00, double r01, double r11,
+                                           double[] x, double[] P, int from, int to, int stride) {
+        final int s = stride;
+        for (int i = from; i < to; i++) {
+            double p00 = P[P00 * s + i], p01 = P[P01 * s + i], p02 = P[P02 * s + i], p03 = P[P03 * s + i];
+            double p11 = P[P11 * s + i], p12 = P[P12 * s + i], p13 = P[P13 * s + i];
+            double p22 = P[P22 * s + i], p23 = P[P23 * s + i];
+            double p33 = P[P33 * s + i];
+
+            // S = P[0:2, 0:2] + R, inverted in closed form
+            double s00 = p00 + r00, s01 = p01 + r01, s11 = p11 + r11;
+            double invDet = 1.0 / (s00 * s11 - s01 * s01);
+            double i00 =  s11 * invDet;
+            double i01 = -s01 * invDet;
+            double i11 =  s00 * invDet;
+
+            // K = P H' S^{-1}; row k of P H' is (P_k0, P_k1)
+            double k00 = p00 * i00 + p01 * i01, k01 = p00 * i01 + p01 * i11;
+            double k10 = p01 * i00 + p11 * i01, k11 = p01 * i01 + p11 * i11;
+            double k20 = p02 * i00 + p12 * i01, k21 = p02 * i01 + p12 * i11;
+            double k30 = p03 * i00 + p13 * i01, k31 = p03 * i01 + p13 * i11;
+
+            double y0 = zx[i] - x[X * s + i];
+            double y1 = zy[i] - x[Y * s + i];
+
+            x[X  * s + i] += k00 * y0 + k01 * y1;
+            x[Y  * s + i] += k10 * y0 + k11 * y1;
+            x[VX * s + i] += k20 * y0 + k21 * y1;
+            x[VY * s + i] += k30 * y0 + k31 * y1;
+
+            // P = P - K (P H')'
+            P[P00 * s + i] = p00 - (k00 * p00 + k01 * p01);
+            P[P01 * s + i] = p01 - (k00 * p01 + k01 * p11);
+            P[P02 * s + i] = p02 - (k00 * p02 + k01 * p12);
+            P[P03 * s + i] = p03 - (k00 * p03 + k01 * p13);
+            P[P11 * s + i] = p11 - (k10 * p01 + k11 * p11);
+            P[P12 * s + i] = p12 - (k10 * p02 + k11 * p12);
+            P[P13 * s + i] = p13 - (k10 * p03 + k11 * p13);
+            P[P22 * s + i] = p22 - (k20 * p02 + k21 * p12);
+            P[P23 * s + i] = p23 - (k20 * p03 + k21 * p13);
+            P[P33 * s + i] = p33 - (k30 * p03 + k31 * p13);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package math.batch.simd;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+import math.batch.BatchKernels;
+import math.batch.ScalarBatchKernels;
+
+// BatchKernels on jdk.incubator.vector: each lane is one track, so a single
+// vector op applies the same covariance entry update to SPECIES.length() tracks.
+// Needs --add-modules jdk.incubator.vector; BatchKernels.best() falls back to
+// ScalarBatchKernels when the module isn't there.
+//
+// The loop bodies are kept lean on purpose (no helper calls, fma where possible):
+// if C2 hits its inlining node budget here, the vector ops fall back to boxed
+// objects and run several times slower than the scalar loops.
+public class VectorApiBatchKernels implements BatchKernels {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final DoubleVector ONE = DoubleVector.broadcast(SPECIES, 1.0);
+
+    @Override
+    public String name() {
+        return "vector-api x" + SPECIES.length();
+    }
+
+    public int lanes() {
+        return SPECIES.length();
+    }
+
+    @Override
+    public void cvPredict(double dt, double q, double[] x, double[] P, int count, int stride) {
+        double dt2 = dt * dt;
+        double dt3 = dt2 * dt;
+        double dt4 = dt3 * dt;
+
+        double qpp = dt4 / 4 * q;
+        double qpv = dt3 / 2 * q;
+        double qvv = dt2 * q;
+        double twoDt = 2 * dt;
+
+        final int s = stride;
+        int bound = SPECIES.loopBound(count);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector px = DoubleVector.fromArray(SPECIES, x, X * s + i);
+            DoubleVector py = DoubleVector.fromArray(SPECIES, x, Y * s + i);
+            DoubleVector vx = DoubleVector.fromArray(SPECIES, x, VX * s + i);
+            DoubleVector vy = DoubleVector.fromArray(SPECIES, x, VY * s + i);
+            vx.mul(dt).add(px).intoArray(x, X * s + i);
+            vy.mul(dt).add(py).intoArray(x, Y * s + i);
+
+            DoubleVector p00 = DoubleVector.fromArray(SPECIES, P, P00 * s + i);
+            DoubleVector p01 = DoubleVector.fromArray(SPECIES, P, P01 * s + i);
+            DoubleVector p02 = DoubleVector.fromArray(SPECIES, P, P02 * s + i);
+            DoubleVector p03 = DoubleVector.fromArray(SPECIES, P, P03 * s + i);
+            DoubleVector p11 = DoubleVector.fromArray(SPECIES, P, P11 * s + i);
+            DoubleVector p12 = DoubleVector.fromArray(SPECIES, P, P12 * s + i);
+            DoubleVector p13 = DoubleVector.fromArray(SPECIES, P, P13 * s + i);
+            DoubleVector p22 = DoubleVector.fromArray(SPECIES, P, P22 * s + i);
+            DoubleVector p23 = DoubleVector.fromArray(SPECIES, P, P23 * s + i);
+            DoubleVector p33 = DoubleVector.fromArray(SPECIES, P, P33 * s + i);
+
+            p02.mul(twoDt).add(p00).add(p22.mul(dt2)).add(qpp).intoArray(P, P00 * s + i);
+            p03.add(p12).mul(dt).add(p01).add(p23.mul(dt2)).intoArray(P, P01 * s + i);
+            p22.mul(dt).add(p02).add(qpv).intoArray(P, P02 * s + i);
+            p23.mul(dt).add(p03).intoArray(P, P03 * s + i);
+            p13.mul(twoDt).add(p11).add(p33.mul(dt2)).add(qpp).intoArray(P, P11 * s + i);
+            p23.mul(dt).add(p12).intoArray(P, P12 * s + i);
+            p33.mul(dt).add(p13).add(qpv).intoArray(P, P13 * s + i);
+            p22.add(qvv).intoArray(P, P22 * s + i);
+            p33.add(qvv).intoArray(P, P33 * s + i);
+        }
+
+        ScalarBatchKernels.cvPredictRange(dt, q, x, P, i, count, stride);
+    }
+
+    @Override
+    public void positionUpdate(double[] zx, double[] zy,
+                               double r00, double r01, double r11,
+                               double[] x, double[] P, int count, int stride) {
+        DoubleVector vr00 = DoubleVector.broadcast(SPECIES, r00);
+        DoubleVector vr01 = DoubleVector.broadcast(SPECIES, r01);
+        DoubleVector vr11 = DoubleVector.broadcast(SPECIES, r11);
+
+        final int s = stride;
+        int bound = SPECIES.loopBound(count);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector p00 = DoubleVector.fromArray(SPECIES, P, P00 * s + i);
+            DoubleVector p01 = DoubleVector.fromArray(SPECIES, P, P01 * s + i);
+            DoubleVector p02 = DoubleVector.fromArray(SPECIES, P, P02 * s + i);
+            DoubleVector p03 = DoubleVector.fromArray(SPECIES, P, P03 * s + i);
+            DoubleVector p11 = DoubleVector.fromArray(SPECIES, P, P11 * s + i);
+            DoubleVector p12 = DoubleVector.fromArray(SPECIES, P, P12 * s + i);
+            DoubleVector p13 = DoubleVector.fromArray(SPECIES, P, P13 * s + i);
+            DoubleVector p22 = DoubleVector.fromArray(SPECIES, P, P22 * s + i);
+            DoubleVector p23 = DoubleVector.fromArray(SPECIES, P, P23 * s + i);
+            DoubleVector p33 = DoubleVector.fromArray(SPECIES, P, P33 * s + i);
+
+            // S = P[0:2, 0:2] + R, inverted in closed form per lane
+            DoubleVector s00 = p00.add(vr00), s01 = p01.add(vr01), s11 = p11.add(vr11);
+            DoubleVector invDet = ONE.div(s00.fma(s11, s01.mul(s01).neg()));
+            DoubleVector i00 = s11.mul(invDet);
+            DoubleVector i01 = s01.neg().mul(invDet);
+            DoubleVector i11 = s00.mul(invDet);
+
+            // K = P H' S^{-1} (fma keeps the loop body small enough for C2 to inline every op)
+            DoubleVector k00 = p00.fma(i00, p01.mul(i01)), k01 = p00.fma(i01, p01.mul(i11));
+            DoubleVector k10 = p01.fma(i00, p11.mul(i01)), k11 = p01.fma(i01, p11.mul(i11));
+            DoubleVector k20 = p02.fma(i00, p12.mul(i01)), k21 = p02.fma(i01, p12.mul(i11));
+            DoubleVector k30 = p03.fma(i00, p13.mul(i01)), k31 = p03.fma(i01, p13.mul(i11));
+
+            DoubleVector px = DoubleVector.fromArray(SPECIES, x, X * s + i);
+            DoubleVector py = DoubleVector.fromArray(SPECIES, x, Y * s + i);
+            DoubleVector y0 = DoubleVector.fromArray(SPECIES, zx, i).sub(px);
+            DoubleVector y1 = DoubleVector.fromArray(SPECIES, zy, i).sub(py);
+
+            k00.fma(y0, k01.fma(y1, px)).intoArray(x, X  * s + i);
+            k10.fma(y0, k11.fma(y1, py)).intoArray(x, Y  * s + i);
+            k20.fma(y0, k21.fma(y1, DoubleVector.fromArray(SPECIES, x, VX * s + i))).intoArray(x, VX * s + i);
+            k30.fma(y0, k31.fma(y1, DoubleVector.fromArray(SPECIES, x, VY * s + i))).intoArray(x, VY * s + i);
+
+            // P = P - K (P H')'
+            p00.sub(k00.fma(p00, k01.mul(p01))).intoArray(P, P00 * s + i);
+            p01.sub(k00.fma(p01, k01.mul(p11))).intoArray(P, P01 * s + i);
+            p02.sub(k00.fma(p02, k01.mul(p12))).intoArray(P, P02 * s + i);
+            p03.sub(k00.fma(p03, k01.mul(p13))).intoArray(P, P03 * s + i);
+            p11.sub(k10.fma(p01, k11.mul(p11))).intoArray(P, P11 * s + i);
+            p12.sub(k10.fma(p02, k11.mul(p12))).intoArray(P, P12 * s + i);
+            p13.sub(k10.fma(p03, k11.mul(p13))).intoArray(P, P13 * s + i);
+            p22.sub(k20.fma(p02, k21.mul(p12))).intoArray(P, P22 * s + i);
+            p23.sub(k20.fma(p03, k21.mul(p13))).intoArray(P, P23 * s + i);
+            p33.sub(k30.fma(p03, k31.mul(p13))).intoArray(P, P33 * s + i);
+        }
+
+        ScalarBatchKernels.positionUpdateRange(zx, zy, r00, r01, r11, x, P, i, count, stride);
+    }
+}
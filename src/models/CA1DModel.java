@@ -12,25 +12,40 @@ public class CA1DModel implements MotionModel {
 
     @Override
     public Matrix getF(double dt) {
-        double dt2 = dt * dt;
-        return new Matrix(new double[][] {
-                {1.0, dt, 0.5 * dt2},
-                {0.0, 1.0, dt},
-                {0.0, 0.0, 1.0}
-        });
+        Matrix F = new Matrix(3, 3);
+        getFInto(dt, F);
+        return F;
     }
 
     @Override
     public Matrix getQ(double dt) {
+        Matrix Q = new Matrix(3, 3);
+        getQInto(dt, Q);
+        return Q;
+    }
+
+    @Override
+    public void getFInto(double dt, Matrix F) {
+        double dt2 = dt * dt;
+
+        // {1.0, dt, 0.5 * dt2},
+        // {0.0, 1.0, dt},
+        // {0.0, 0.0, 1.0}
+        F.setIdentity();
+        F.set(0, 1, dt);
+        F.set(0, 2, 0.5 * dt2);
+        F.set(1, 2, dt);
+    }
+
+    @Override
+    public void getQInto(double dt, Matrix Q) {
         double dt2 = dt * dt;
         double dt3 = dt2 * dt;
         double dt4 = dt3 * dt;
         double dt5 = dt4 * dt;
 
-        return new Matrix(new double[][] {
-                {dt5/20.0 * q, dt4/8.0 * q, dt3/6.0 * q},
-                {dt4/8.0 * q,  dt3/3.0 * q, dt2/2.0 * q},
-                {dt3/6.0 * q,  dt2/2.0 * q, dt * q}
-        });
+        Q.set(0, 0, dt5/20.0 * q);  Q.set(0, 1, dt4/8.0 * q);  Q.set(0, 2, dt3/6.0 * q);
+        Q.set(1, 0, dt4/8.0 * q);   Q.set(1, 1, dt3/3.0 * q);  Q.set(1, 2, dt2/2.0 * q);
+        Q.set(2, 0, dt3/6.0 * q);   Q.set(2, 1, dt2/2.0 * q);  Q.set(2, 2, dt * q);
     }
 }
@@ -12,35 +12,55 @@ public class CAModel implements MotionModel {
 
     @Override
     public Matrix getF(double dt) {
+        Matrix F = new Matrix(6, 6);
+        getFInto(dt, F);
+        return F;
+    }
+
+    @Override
+    public Matrix getQ(double dt) {
+        Matrix Q = new Matrix(6, 6);
+        getQInto(dt, Q);
+        return Q;
+    }
+
+    @Override
+    public void getFInto(double dt, Matrix F) {
 
         double dt2 = dt * dt;
         double half_dt2 = 0.5 * dt2;
 
-        return new Matrix(new double[][] {
-                {1, 0, dt, 0,  half_dt2,   0},
-                {0, 1,  0, dt, 0,       half_dt2},
-                {0, 0,  1, 0,    dt,       0},
-                {0, 0,  0, 1,    0,        dt},
-                {0, 0,  0, 0,    1,        0},
-                {0, 0,  0, 0,    0,        1}
-        });
+        // {1, 0, dt, 0,  half_dt2,   0},
+        // {0, 1,  0, dt, 0,       half_dt2},
+        // {0, 0,  1, 0,    dt,       0},
+        // {0, 0,  0, 1,    0,        dt},
+        // {0, 0,  0, 0,    1,        0},
+        // {0, 0,  0, 0,    0,        1}
+        F.setIdentity();
+        F.set(0, 2, dt);  F.set(0, 4, half_dt2);
+        F.set(1, 3, dt);  F.set(1, 5, half_dt2);
+        F.set(2, 4, dt);
+        F.set(3, 5, dt);
     }
 
     @Override
-    public Matrix getQ(double dt) {
+    public void getQInto(double dt, Matrix Q) {
 
         double dt2 = dt * dt;
         double dt3 = dt2 * dt;
         double dt4 = dt3 * dt;
         double dt5 = dt4 * dt;
 
-        return new Matrix(new double[][] {
-                {dt5/20*q,   0,          dt4/8*q,    0,         dt3/6*q,   0},
-                {0,       dt5/20*q,      0,       dt4/8*q,       0,      dt3/6*q},
-                {dt4/8*q,   0,          dt3/3*q,    0,         dt2/2*q,   0},
-                {0,       dt4/8*q,       0,       dt3/3*q,       0,      dt2/2*q},
-                {dt3/6*q,   0,          dt2/2*q,    0,          dt*q,     0},
-                {0,       dt3/6*q,       0,       dt2/2*q,       0,        dt*q}
-        });
+        // Position/velocity/acceleration blocks per axis; x and y are decoupled
+        Q.setZero();
+        for (int axis = 0; axis < 2; axis++) {
+            int p = axis;      // x or y
+            int v = axis + 2;  // vx or vy
+            int a = axis + 4;  // ax or ay
+
+            Q.set(p, p, dt5/20*q);  Q.set(p, v, dt4/8*q);  Q.set(p, a, dt3/6*q);
+            Q.set(v, p, dt4/8*q);   Q.set(v, v, dt3/3*q);  Q.set(v, a, dt2/2*q);
+            Q.set(a, p, dt3/6*q);   Q.set(a, v, dt2/2*q);  Q.set(a, a, dt*q);
+        }
     }
 }
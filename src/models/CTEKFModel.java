@@ -7,86 +7,114 @@ public class CTEKFModel implements NonlinearMotionModel {
 
     private final double q;   // process noise intensity
 
+    // Below this |omega| the turn is treated as straight-line motion
+    private static final double OMEGA_EPS = 1e-6;
+
+    // Below this |omega dt| the Jacobian's dA/dw, dB/dw use their series
+    private static final double SERIES_EPS = 1e-3;
+
     public CTEKFModel(double q) {
         this.q = q;
     }
 
-    // Build a 5x5 transition matrix for given omega, dt
-    private Matrix F_from_omega(double omega, double dt) {
-        double w  = omega;
-        double wd = w * dt;
-
-        // If turn rate is very small, fall back to CV
-        if (Math.abs(w) < 1e-6) {
-            return new Matrix(new double[][] {
-                    {1.0, 0.0, dt,  0.0, 0.0},
-                    {0.0, 1.0, 0.0, dt,  0.0},
-                    {0.0, 0.0, 1.0, 0.0, 0.0},
-                    {0.0, 0.0, 0.0, 1.0, 0.0},
-                    {0.0, 0.0, 0.0, 0.0, 1.0}
-            });
-        }
-
-        double sin_wd = Math.sin(wd);
-        double cos_wd = Math.cos(wd);
+    @Override
+    public Vector f(Vector x, double dt) {
+        Vector out = new Vector(5);
+        fInto(x, dt, out);
+        return out;
+    }
 
-        double s_over_w           = sin_wd / w;
-        double one_minus_c_over_w = (1.0 - cos_wd) / w;
+    @Override
+    public void fInto(Vector x, double dt, Vector dest) {
+        propagate(x, dt, dest, null);
+    }
 
-        return new Matrix(new double[][] {
-                {1.0, 0.0,  s_over_w,            -one_minus_c_over_w, 0.0},
-                {0.0, 1.0,  one_minus_c_over_w,   s_over_w,           0.0},
-                {0.0, 0.0,  cos_wd,              -sin_wd,             0.0},
-                {0.0, 0.0,  sin_wd,               cos_wd,             0.0},
-                {0.0, 0.0,  0.0,                  0.0,                1.0}
-        });
+    @Override
+    public Matrix F(Vector x, double dt) {
+        Matrix J = new Matrix(5, 5);
+        FInto(x, dt, J);
+        return J;
     }
 
     @Override
-    public Vector f(Vector x, double dt) {
-        double omega = x.get(4);
-        Matrix F = F_from_omega(omega, dt);
-        return F.multiply(x);
+    public void FInto(Vector x, double dt, Matrix J) {
+        propagate(x, dt, null, J);
     }
 
+    // Coordinated turn applied directly, with its analytic Jacobian.
+    // One sin/cos pair serves both; either destination may be null.
+    //
+    //   A = sin(w dt) / w,  B = (1 - cos(w dt)) / w
+    //   dA/dw = (dt cos(w dt) - A) / w,  dB/dw = (dt sin(w dt) - B) / w
+    //
+    // As w -> 0: A -> dt, B -> 0, dA/dw -> 0, dB/dw -> dt^2 / 2 (straight-line
+    // motion, but the Jacobian keeps the first-order sensitivity to w).
+    // For small w dt the derivatives come from their Taylor series, since the
+    // closed forms cancel catastrophically there.
     @Override
-    public Matrix F(Vector x, double dt) {
-        // Numerical Jacobian via finite differences
-        int n = x.size();
-        Matrix J = new Matrix(n, n);
-
-        Vector fx = f(x, dt);
-        double eps = 1e-5;
-
-        for (int j = 0; j < n; j++) {
-            Vector xPert = new Vector(n);
-            for (int i = 0; i < n; i++) {
-                xPert.set(i, x.get(i));
-            }
-            xPert.set(j, x.get(j) + eps);
-
-            Vector fPert = f(xPert, dt);
-
-            for (int i = 0; i < n; i++) {
-                double deriv = (fPert.get(i) - fx.get(i)) / eps;
-                J.set(i, j, deriv);
-            }
+    public void propagate(Vector x, double dt, Vector fDest, Matrix J) {
+        double px = x.get(0), py = x.get(1);
+        double vx = x.get(2), vy = x.get(3);
+        double w  = x.get(4);
+
+        double s, c, A, B;
+        if (Math.abs(w) < OMEGA_EPS) {
+            s = 0.0;
+            c = 1.0;
+            A = dt;
+            B = 0.0;
+        } else {
+            s = Math.sin(w * dt);
+            c = Math.cos(w * dt);
+            A = s / w;
+            B = (1.0 - c) / w;
         }
 
-        return J;
+        double dA, dB;
+        double wdt = w * dt;
+        if (Math.abs(wdt) < SERIES_EPS) {
+            double dt2 = dt * dt;
+            dA = -w * dt2 * dt / 3.0 * (1.0 - wdt * wdt / 10.0);
+            dB = dt2 / 2.0 * (1.0 - wdt * wdt / 4.0);
+        } else {
+            dA = (dt * c - A) / w;
+            dB = (dt * s - B) / w;
+        }
+
+        if (fDest != null) {
+            fDest.set(0, px + A * vx - B * vy);
+            fDest.set(1, py + B * vx + A * vy);
+            fDest.set(2, c * vx - s * vy);
+            fDest.set(3, s * vx + c * vy);
+            fDest.set(4, w);
+        }
+
+        if (J != null) {
+            J.setIdentity();
+            J.set(0, 2, A);   J.set(0, 3, -B);  J.set(0, 4, dA * vx - dB * vy);
+            J.set(1, 2, B);   J.set(1, 3, A);   J.set(1, 4, dB * vx + dA * vy);
+            J.set(2, 2, c);   J.set(2, 3, -s);  J.set(2, 4, -dt * (s * vx + c * vy));
+            J.set(3, 2, s);   J.set(3, 3, c);   J.set(3, 4, dt * (c * vx - s * vy));
+        }
     }
 
     @Override
     public Matrix Q(double dt) {
+        Matrix Q = new Matrix(5, 5);
+        QInto(dt, Q);
+        return Q;
+    }
+
+    @Override
+    public void QInto(double dt, Matrix Q) {
         double dt2 = dt * dt;
 
         // Very simple diagonal Q: tune later
-        return new Matrix(new double[][] {
-                {q * dt2, 0.0,      0.0,     0.0,     0.0},
-                {0.0,     q * dt2,  0.0,     0.0,     0.0},
-                {0.0,     0.0,      q * dt,  0.0,     0.0},
-                {0.0,     0.0,      0.0,     q * dt,  0.0},
-                {0.0,     0.0,      0.0,     0.0,     q * dt}
-        });
+        Q.setZero();
+        Q.set(0, 0, q * dt2);
+        Q.set(1, 1, q * dt2);
+        Q.set(2, 2, q * dt);
+        Q.set(3, 3, q * dt);
+        Q.set(4, 4, q * dt);
     }
 }
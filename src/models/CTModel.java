@@ -14,17 +14,30 @@ public class CTModel implements MotionModel {
 
     @Override
     public Matrix getF(double dt) {
+        Matrix F = new Matrix(4, 4);
+        getFInto(dt, F);
+        return F;
+    }
+
+    @Override
+    public Matrix getQ(double dt) {
+        Matrix Q = new Matrix(4, 4);
+        getQInto(dt, Q);
+        return Q;
+    }
+
+    @Override
+    public void getFInto(double dt, Matrix F) {
         double w = omega;
         double wd = w * dt;
 
+        F.setIdentity();
+
         // If turn rate is very small, fall back to CV
         if (Math.abs(w) < 1e-6) {
-            return new Matrix(new double[][] {
-                    {1.0, 0.0, dt,  0.0},
-                    {0.0, 1.0, 0.0, dt },
-                    {0.0, 0.0, 1.0, 0.0},
-                    {0.0, 0.0, 0.0, 1.0}
-            });
+            F.set(0, 2, dt);
+            F.set(1, 3, dt);
+            return;
         }
 
         double sin_wd = Math.sin(wd);
@@ -33,24 +46,25 @@ public class CTModel implements MotionModel {
         double s_over_w  = sin_wd / w;
         double one_minus_c_over_w = (1.0 - cos_wd) / w;
 
-        return new Matrix(new double[][] {
-                {1.0, 0.0,  s_over_w,        -one_minus_c_over_w},
-                {0.0, 1.0,  one_minus_c_over_w,  s_over_w      },
-                {0.0, 0.0,  cos_wd,          -sin_wd          },
-                {0.0, 0.0,  sin_wd,           cos_wd          }
-        });
+        // {1.0, 0.0,  s_over_w,        -one_minus_c_over_w},
+        // {0.0, 1.0,  one_minus_c_over_w,  s_over_w      },
+        // {0.0, 0.0,  cos_wd,          -sin_wd          },
+        // {0.0, 0.0,  sin_wd,           cos_wd          }
+        F.set(0, 2, s_over_w);            F.set(0, 3, -one_minus_c_over_w);
+        F.set(1, 2, one_minus_c_over_w);  F.set(1, 3, s_over_w);
+        F.set(2, 2, cos_wd);              F.set(2, 3, -sin_wd);
+        F.set(3, 2, sin_wd);              F.set(3, 3, cos_wd);
     }
 
     @Override
-    public Matrix getQ(double dt) {
+    public void getQInto(double dt, Matrix Q) {
         double dt2 = dt * dt;
 
         // Simple diagonal process noise as a placeholder
-        return new Matrix(new double[][] {
-                {q * dt2, 0.0,      0.0,     0.0},
-                {0.0,     q * dt2,  0.0,     0.0},
-                {0.0,     0.0,      q * dt,  0.0},
-                {0.0,     0.0,      0.0,     q * dt}
-        });
+        Q.setZero();
+        Q.set(0, 0, q * dt2);
+        Q.set(1, 1, q * dt2);
+        Q.set(2, 2, q * dt);
+        Q.set(3, 3, q * dt);
     }
 }
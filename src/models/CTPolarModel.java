@@ -0,0 +1,73 @@
+package models;
+
+import math.DualWorkspace;
+import math.Matrix;
+
+// Coordinated turn in polar form (CTRV): state [x, y, v, heading, omega].
+// f is written once against dual numbers; its Jacobian comes from the same
+// evaluation (see DifferentiableMotionModel), so there is no hand-coded F.
+public class CTPolarModel implements DifferentiableMotionModel {
+
+    private final double q;   // process noise intensity
+
+    // Below this |omega dt| the turn is expanded to second order in omega: the
+    // closed form divides by omega, and its derivative by omega^2, so it loses
+    // digits long before omega reaches zero
+    private static final double SERIES_EPS = 1e-4;
+
+    public CTPolarModel(double q) {
+        this.q = q;
+    }
+
+    @Override
+    public int stateSize() {
+        return 5;
+    }
+
+    @Override
+    public void f(DualWorkspace d, int[] s, double dt, int[] out) {
+        int px = s[0], py = s[1], v = s[2], h = s[3], w = s[4];
+
+        int hNew = d.add(h, d.scale(w, dt));
+
+        if (Math.abs(d.value(w) * dt) < SERIES_EPS) {
+            // x += a cos h - b sin h,  y += a sin h + b cos h, with
+            // a = v dt (1 - (omega dt)^2 / 6),  b = v omega dt^2 / 2
+            int wdt = d.scale(w, dt);
+            int a = d.mul(d.scale(v, dt), d.addConstant(d.scale(d.mul(wdt, wdt), -1.0 / 6.0), 1.0));
+            int b = d.mul(d.scale(v, 0.5 * dt), wdt);
+            int sinH = d.sin(h), cosH = d.cos(h);
+            out[0] = d.add(px, d.sub(d.mul(a, cosH), d.mul(b, sinH)));
+            out[1] = d.add(py, d.add(d.mul(a, sinH), d.mul(b, cosH)));
+        } else {
+            // x += v / omega (sin(h + omega dt) - sin h), y += v / omega (cos h - cos(h + omega dt))
+            int r = d.div(v, w);
+            out[0] = d.add(px, d.mul(r, d.sub(d.sin(hNew), d.sin(h))));
+            out[1] = d.add(py, d.mul(r, d.sub(d.cos(h), d.cos(hNew))));
+        }
+
+        out[2] = v;
+        out[3] = hNew;
+        out[4] = w;
+    }
+
+    @Override
+    public Matrix Q(double dt) {
+        Matrix Q = new Matrix(5, 5);
+        QInto(dt, Q);
+        return Q;
+    }
+
+    @Override
+    public void QInto(double dt, Matrix Q) {
+        double dt2 = dt * dt;
+
+        // Diagonal Q, same shape as CTEKFModel
+        Q.setZero();
+        Q.set(0, 0, q * dt2);
+        Q.set(1, 1, q * dt2);
+        Q.set(2, 2, q * dt);
+        Q.set(3, 3, q * dt);
+        Q.set(4, 4, q * dt);
+    }
+}
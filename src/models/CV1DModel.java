@@ -12,19 +12,32 @@ public class CV1DModel implements MotionModel {
 
     @Override
     public Matrix getF(double dt) {
-        return new Matrix(new double[][] {
-                {1.0, dt},
-                {0.0, 1.0}
-        });
+        Matrix F = new Matrix(2, 2);
+        getFInto(dt, F);
+        return F;
     }
 
     @Override
     public Matrix getQ(double dt) {
+        Matrix Q = new Matrix(2, 2);
+        getQInto(dt, Q);
+        return Q;
+    }
+
+    @Override
+    public void getFInto(double dt, Matrix F) {
+        // {1.0, dt},
+        // {0.0, 1.0}
+        F.setIdentity();
+        F.set(0, 1, dt);
+    }
+
+    @Override
+    public void getQInto(double dt, Matrix Q) {
         double dt2 = dt * dt;
         double dt3 = dt2 * dt;
-        return new Matrix(new double[][] {
-                {dt3/3.0 * q, dt2/2.0 * q},
-                {dt2/2.0 * q, dt * q}
-        });
+
+        Q.set(0, 0, dt3/3.0 * q);  Q.set(0, 1, dt2/2.0 * q);
+        Q.set(1, 0, dt2/2.0 * q);  Q.set(1, 1, dt * q);
     }
 }
@@ -10,27 +10,49 @@ public class CVModel implements MotionModel {
         this.q = q;
     }
 
+    public double getIntensity() {
+        return q;
+    }
+
     @Override
     public Matrix getF(double dt) {
-        return new Matrix(new double[][] {
-                {1, 0, dt, 0},
-                {0, 1, 0, dt},
-                {0, 0, 1,  0},
-                {0, 0, 0,  1}
-        });
+        Matrix F = new Matrix(4, 4);
+        getFInto(dt, F);
+        return F;
     }
 
     @Override
     public Matrix getQ(double dt) {
+        Matrix Q = new Matrix(4, 4);
+        getQInto(dt, Q);
+        return Q;
+    }
+
+    @Override
+    public void getFInto(double dt, Matrix F) {
+        // {1, 0, dt, 0}
+        // {0, 1, 0, dt}
+        // {0, 0, 1,  0}
+        // {0, 0, 0,  1}
+        F.setIdentity();
+        F.set(0, 2, dt);
+        F.set(1, 3, dt);
+    }
+
+    @Override
+    public void getQInto(double dt, Matrix Q) {
         double dt2 = dt * dt;
         double dt3 = dt2 * dt;
         double dt4 = dt3 * dt;
 
-        return new Matrix(new double[][] {
-                {dt4/4 * q,     0,        dt3/2 * q,    0},
-                {0,        dt4/4 * q,      0,       dt3/2 * q},
-                {dt3/2 * q,     0,         dt2 * q,     0},
-                {0,        dt3/2 * q,      0,       dt2 * q}
-        });
+        // {dt4/4 * q,     0,        dt3/2 * q,    0}
+        // {0,        dt4/4 * q,      0,       dt3/2 * q}
+        // {dt3/2 * q,     0,         dt2 * q,     0}
+        // {0,        dt3/2 * q,      0,       dt2 * q}
+        Q.setZero();
+        Q.set(0, 0, dt4/4 * q);  Q.set(0, 2, dt3/2 * q);
+        Q.set(1, 1, dt4/4 * q);  Q.set(1, 3, dt3/2 * q);
+        Q.set(2, 0, dt3/2 * q);  Q.set(2, 2, dt2 * q);
+        Q.set(3, 1, dt3/2 * q);  Q.set(3, 3, dt2 * q);
     }
 }
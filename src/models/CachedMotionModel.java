@@ -0,0 +1,165 @@
+package models;
+
+import math.Matrix;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Bounded dt-keyed cache in front of any linear MotionModel.
+//
+// getF/getQ return one shared, frozen F(dt)/Q(dt) per distinct dt, so every
+// track predicting with the same sensor period shares a single discretization;
+// getFInto/getQInto copy it out. When the cache is full, the entry with the
+// fewest hits is evicted and the other entries' counts are halved, so entries
+// from a rate that is no longer used age out instead of pinning the cache.
+//
+// Safe to share across threads: lookups read an immutable entry array, misses
+// publish a new array (a racing miss at worst computes the same entry twice).
+public class CachedMotionModel implements MotionModel {
+
+    private static final class Entry {
+        final long dtBits;
+        final Matrix F;
+        final Matrix Q;
+        final LongAdder uses = new LongAdder();
+
+        Entry(long dtBits, Matrix F, Matrix Q) {
+            this.dtBits = dtBits;
+            this.F = F;
+            this.Q = Q;
+        }
+    }
+
+    private final MotionModel delegate;
+    private final int capacity;
+    private volatile Entry[] entries = new Entry[0];
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public CachedMotionModel(MotionModel delegate, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Cache capacity must be at least 1");
+        }
+        this.delegate = delegate;
+        this.capacity = capacity;
+    }
+
+    public CachedMotionModel(MotionModel delegate) {
+        this(delegate, 8);
+    }
+
+    public MotionModel delegate() {
+        return delegate;
+    }
+
+    // Shared read-only F(dt): do not modify (it is frozen)
+    @Override
+    public Matrix getF(double dt) {
+        return lookup(dt).F;
+    }
+
+    // Shared read-only Q(dt): do not modify (it is frozen)
+    @Override
+    public Matrix getQ(double dt) {
+        return lookup(dt).Q;
+    }
+
+    @Override
+    public void getFInto(double dt, Matrix dest) {
+        dest.copyFrom(lookup(dt).F);
+    }
+
+    @Override
+    public void getQInto(double dt, Matrix dest) {
+        dest.copyFrom(lookup(dt).Q);
+    }
+
+    // ---------------------------------
+    // Statistics
+    // ---------------------------------
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    public int size() {
+        return entries.length;
+    }
+
+    public void clear() {
+        entries = new Entry[0];
+    }
+
+    // ---------------------------------
+    // Lookup
+    // ---------------------------------
+
+    private Entry lookup(double dt) {
+        long bits = Double.doubleToLongBits(dt);
+
+        // A handful of entries: a linear scan beats hashing
+        Entry[] snapshot = entries;
+        for (Entry e : snapshot) {
+            if (e.dtBits == bits) {
+                e.uses.increment();
+                hits.increment();
+                return e;
+            }
+        }
+
+        misses.increment();
+        Entry fresh = new Entry(bits, delegate.getF(dt).copy().freeze(), delegate.getQ(dt).copy().freeze());
+        fresh.uses.increment();
+        insert(fresh);
+        return fresh;
+    }
+
+    private synchronized void insert(Entry fresh) {
+        Entry[] current = entries;
+        for (Entry e : current) {
+            if (e.dtBits == fresh.dtBits) {
+                return;  // another thread got there first
+            }
+        }
+
+        Entry[] next;
+        if (current.length < capacity) {
+            next = new Entry[current.length + 1];
+            System.arraycopy(current, 0, next, 0, current.length);
+            next[current.length] = fresh;
+        } else {
+            // Evict the least-used entry
+            int victim = 0;
+            long fewest = Long.MAX_VALUE;
+            for (int i = 0; i < current.length; i++) {
+                long u = current[i].uses.sum();
+                if (u < fewest) {
+                    fewest = u;
+                    victim = i;
+                }
+            }
+            // Age the survivors (approximate under concurrent hits, which is
+            // fine: the counts only rank entries)
+            for (int i = 0; i < current.length; i++) {
+                if (i != victim) {
+                    LongAdder uses = current[i].uses;
+                    long u = uses.sum();
+                    uses.add((u >> 1) - u);
+                }
+            }
+            next = current.clone();
+            next[victim] = fresh;
+            evictions.increment();
+        }
+        entries = next;
+    }
+}
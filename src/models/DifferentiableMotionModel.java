@@ -0,0 +1,74 @@
+package models;
+
+import math.DualWorkspace;
+import math.Matrix;
+import math.Vector;
+
+// A nonlinear model that writes f once, against dual numbers, and gets its
+// exact Jacobian from the same evaluation (forward-mode AD). No hand-derived
+// or finite-difference F is needed.
+//
+// The EKF evaluates these through its own preallocated DualWorkspace, so the
+// predict hot path allocates nothing. The plain f/F/fInto/FInto defaults below
+// allocate a workspace per call and are meant for occasional use.
+public interface DifferentiableMotionModel extends NonlinearMotionModel {
+
+    int stateSize();
+
+    // out[i] = slot of f_i(x), where x[k] are the slots of the state components
+    void f(DualWorkspace d, int[] x, double dt, int[] out);
+
+    // f(x) into fDest and its Jacobian into FDest (either may be null), using d
+    static void evaluate(DifferentiableMotionModel model, DualWorkspace d,
+                         int[] in, int[] out, Vector x, double dt, Vector fDest, Matrix FDest) {
+        int n = model.stateSize();
+        d.reset();
+        for (int k = 0; k < n; k++) {
+            in[k] = d.variable(k, x.get(k));
+        }
+
+        model.f(d, in, dt, out);
+
+        for (int i = 0; i < n; i++) {
+            int s = out[i];
+            if (fDest != null) {
+                fDest.set(i, d.value(s));
+            }
+            if (FDest != null) {
+                for (int k = 0; k < n; k++) {
+                    FDest.set(i, k, d.derivative(s, k));
+                }
+            }
+        }
+    }
+
+    @Override
+    default Vector f(Vector x, double dt) {
+        Vector out = new Vector(stateSize());
+        fInto(x, dt, out);
+        return out;
+    }
+
+    @Override
+    default Matrix F(Vector x, double dt) {
+        Matrix J = new Matrix(stateSize(), stateSize());
+        FInto(x, dt, J);
+        return J;
+    }
+
+    @Override
+    default void fInto(Vector x, double dt, Vector dest) {
+        propagate(x, dt, dest, null);
+    }
+
+    @Override
+    default void FInto(Vector x, double dt, Matrix dest) {
+        propagate(x, dt, null, dest);
+    }
+
+    @Override
+    default void propagate(Vector x, double dt, Vector fDest, Matrix FDest) {
+        int n = stateSize();
+        evaluate(this, new DualWorkspace(n, 64), new int[n], new int[n], x, dt, fDest, FDest);
+    }
+}
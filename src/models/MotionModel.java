@@ -5,4 +5,14 @@ import math.Matrix;
 public interface MotionModel {
     Matrix getF(double dt);
     Matrix getQ(double dt);
+
+    // In-place variants used by the filter hot path.
+    // Models override these so a predict doesn't allocate F and Q.
+    default void getFInto(double dt, Matrix dest) {
+        dest.copyFrom(getF(dt));
+    }
+
+    default void getQInto(double dt, Matrix dest) {
+        dest.copyFrom(getQ(dt));
+    }
 }
@@ -7,4 +7,24 @@ public interface NonlinearMotionModel {
     Vector f(Vector x, double dt);      // nonlinear state propagation
     Matrix F(Vector x, double dt);      // Jacobian of f wrt x
     Matrix Q(double dt);                // process noise
+
+    // In-place variants used by the EKF hot path (dest must not alias x)
+    default void fInto(Vector x, double dt, Vector dest) {
+        dest.copyFrom(f(x, dt));
+    }
+
+    default void FInto(Vector x, double dt, Matrix dest) {
+        dest.copyFrom(F(x, dt));
+    }
+
+    default void QInto(double dt, Matrix dest) {
+        dest.copyFrom(Q(dt));
+    }
+
+    // f and its Jacobian at x in one call (fDest must not alias x). Models whose
+    // f and F share work (trig, square roots) override this to compute it once.
+    default void propagate(Vector x, double dt, Vector fDest, Matrix FDest) {
+        fInto(x, dt, fDest);
+        FInto(x, dt, FDest);
+    }
 }
@@ -55,7 +55,7 @@ public class AdaptiveTrack {
     // ------------------------------------
 
     public Vector getHorizontalState() {
-        return horizontal.getState(); // returns 4D CV or 5D CT depending on mode
+        return horizontal.getState(); // 4D CV or 5D CT depending on mode, 7D common state for IMM
     }
 
     public Vector getVerticalState() {
@@ -0,0 +1,336 @@
+package tracking;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+// Global nearest neighbour association for one frame: the assignment of
+// measurements to tracks with the lowest total cost, each track and measurement
+// used at most once, solved over the sparse set of gated pairs only.
+//
+// A track may also stay unassigned at missCost (the gate), so a pair is only
+// taken while that lowers the total; unmatched measurements start new tracks.
+//
+// Gated pairs are split into independent clusters (PairClusters). Isolated
+// pairs, the bulk of a sparse scene, are assigned directly; larger clusters are
+// solved exactly by sparse shortest augmenting paths (the Jonker-Volgenant
+// augmentation: Dijkstra on reduced costs, column potentials), one path per
+// track, touching only the columns each search reaches. Clusters share no
+// tracks or measurements, so they can be solved in parallel.
+public final class GnnAssociator {
+
+    // Below this many clusters the parallel split is not worth it
+    private static final int PARALLEL_MIN_CLUSTERS = 64;
+
+    private boolean parallel = true;
+
+    private final PairClusters clusters = new PairClusters();
+    private final ThreadLocal<AugmentingPaths> solvers = ThreadLocal.withInitial(AugmentingPaths::new);
+
+    public void setParallel(boolean enabled) {
+        this.parallel = enabled;
+    }
+
+    // Clusters in the last frame (isolated pairs included)
+    public int clusterCount() {
+        return clusters.count();
+    }
+
+    // Pairs in the largest cluster of the last frame
+    public int largestCluster() {
+        return clusters.largest();
+    }
+
+    // pairs[k] = track << 32 | measurement with cost[k]; pairs costing missCost or
+    // more are never taken. Writes trackOf[j] (track of measurement j, or -1) and
+    // trackUsed[i].
+    public void solve(int nt, int nm, long[] pairs, double[] cost, int count, double missCost,
+                      int[] trackOf, boolean[] trackUsed) {
+        Arrays.fill(trackOf, 0, nm, -1);
+        Arrays.fill(trackUsed, 0, nt, false);
+        clusters.build(nt, nm, pairs, count);
+
+        int n = clusters.count();
+        if (parallel && n >= PARALLEL_MIN_CLUSTERS) {
+            IntStream.range(0, n).parallel().forEach(c ->
+                    solveCluster(c, pairs, cost, missCost, trackOf, trackUsed));
+        } else {
+            for (int c = 0; c < n; c++) {
+                solveCluster(c, pairs, cost, missCost, trackOf, trackUsed);
+            }
+        }
+    }
+
+    private void solveCluster(int c, long[] pairs, double[] cost, double missCost,
+                              int[] trackOf, boolean[] trackUsed) {
+        int from = clusters.start(c);
+        int to = clusters.end(c);
+        int[] ordered = clusters.ordered();
+        if (to - from == 1) {
+            int k = ordered[from];
+            if (cost[k] < missCost) {
+                int i = (int) (pairs[k] >>> 32);
+                trackOf[(int) pairs[k]] = i;
+                trackUsed[i] = true;
+            }
+            return;
+        }
+        solvers.get().solve(ordered, from, to, pairs, cost, missCost,
+                clusters.trackSlot(), clusters.measSlot(), trackOf, trackUsed);
+    }
+
+    // ---------------------------------
+    // Shortest augmenting paths for one cluster (per-thread scratch, grown on demand)
+    // ---------------------------------
+
+    private static final class AugmentingPaths {
+
+        // Local numbering: rows = tracks; columns = measurements, then one private
+        // "stay unassigned" column per track (cost missCost)
+        private int[] trackIds = new int[0];
+        private int[] measIds = new int[0];
+        private int[] arcStart = new int[0];
+        private int[] arcCol = new int[0];
+        private double[] arcCost = new double[0];
+        private int[] localTrack = new int[0];   // pair -> local row
+        private int[] localMeas = new int[0];    // pair -> local column
+
+        // Matching and column potentials (reduced cost c(q, o) - v[o] - u[q] >= 0,
+        // with u[q] implied by q's matched arc)
+        private int[] assigned = new int[0];     // row -> column
+        private double[] assignedCost = new double[0];
+        private int[] owner = new int[0];        // column -> row, or -1
+        private double[] v = new double[0];
+
+        // Dijkstra state; only touched columns are reset after each search
+        private double[] dist = new double[0];
+        private int[] pred = new int[0];
+        private double[] predCost = new double[0];   // cost of the arc pred -> column
+        private byte[] state = new byte[0];      // 0 unseen, 1 in heap, 2 scanned
+        private int[] heap = new int[0];
+        private int[] heapPos = new int[0];
+        private int heapSize;
+        private int[] touched = new int[0];
+        private int touchedCount;
+        private int[] scanned = new int[0];
+        private int scannedCount;
+
+        void solve(int[] ordered, int from, int to, long[] pairs, double[] cost, double missCost,
+                   int[] trackSlot, int[] measSlot, int[] trackOf, boolean[] trackUsed) {
+            int arcs = to - from;
+            ensure(arcs);
+
+            // Local ids
+            int rows = 0;
+            int objects = 0;
+            for (int a = 0; a < arcs; a++) {
+                long pair = pairs[ordered[from + a]];
+                int i = (int) (pair >>> 32);
+                int j = (int) pair;
+                int p = trackSlot[i];
+                if (p >= rows || trackIds[p] != i) {
+                    p = rows++;
+                    trackIds[p] = i;
+                    trackSlot[i] = p;
+                }
+                int o = measSlot[j];
+                if (o >= objects || measIds[o] != j) {
+                    o = objects++;
+                    measIds[o] = j;
+                    measSlot[j] = o;
+                }
+                localTrack[a] = p;
+                localMeas[a] = o;
+            }
+
+            // Arcs grouped by row (CSR)
+            Arrays.fill(arcStart, 0, rows + 1, 0);
+            for (int a = 0; a < arcs; a++) {
+                arcStart[localTrack[a] + 1]++;
+            }
+            for (int p = 0; p < rows; p++) {
+                arcStart[p + 1] += arcStart[p];
+            }
+            for (int a = 0; a < arcs; a++) {
+                int slot = arcStart[localTrack[a]]++;
+                arcCol[slot] = localMeas[a];
+                arcCost[slot] = cost[ordered[from + a]];
+            }
+            for (int p = rows; p > 0; p--) {
+                arcStart[p] = arcStart[p - 1];
+            }
+            arcStart[0] = 0;
+
+            int columns = objects + rows;
+            Arrays.fill(owner, 0, columns, -1);
+            Arrays.fill(v, 0, columns, 0.0);
+            Arrays.fill(dist, 0, columns, Double.POSITIVE_INFINITY);
+            Arrays.fill(state, 0, columns, (byte) 0);
+            for (int r = 0; r < rows; r++) {
+                augment(r, objects, missCost);
+            }
+
+            for (int p = 0; p < rows; p++) {
+                int o = assigned[p];
+                if (o < objects) {
+                    trackOf[measIds[o]] = trackIds[p];
+                    trackUsed[trackIds[p]] = true;
+                }
+            }
+        }
+
+        // Dijkstra from free row r over reduced costs until a free column is
+        // reached, then shift the potentials of the scanned columns and flip
+        // the path. r's own unassigned column is always free, so a path exists.
+        private void augment(int r, int objects, double missCost) {
+            heapSize = 0;
+            touchedCount = 0;
+            scannedCount = 0;
+
+            relaxRow(r, 0.0, objects, missCost);
+            int sink;
+            while (true) {
+                int o = pop();
+                state[o] = 2;
+                scanned[scannedCount++] = o;
+                int q = owner[o];
+                if (q < 0) {
+                    sink = o;
+                    break;
+                }
+                // Distance to q: reaching o along its (tight) matched arc
+                relaxRow(q, dist[o] - assignedCost[q] + v[o], objects, missCost);
+            }
+
+            double shortest = dist[sink];
+            for (int k = 0; k < scannedCount; k++) {
+                int o = scanned[k];
+                v[o] += dist[o] - shortest;
+            }
+
+            int o = sink;
+            while (true) {
+                int q = pred[o];
+                int previous = assigned[q];
+                assigned[q] = o;
+                assignedCost[q] = predCost[o];
+                owner[o] = q;
+                if (q == r) {
+                    break;
+                }
+                o = previous;
+            }
+
+            for (int k = 0; k < touchedCount; k++) {
+                int c = touched[k];
+                dist[c] = Double.POSITIVE_INFINITY;
+                state[c] = 0;
+            }
+        }
+
+        private void relaxRow(int q, double base, int objects, double missCost) {
+            for (int a = arcStart[q], end = arcStart[q + 1]; a < end; a++) {
+                relax(arcCol[a], q, base, arcCost[a]);
+            }
+            relax(objects + q, q, base, missCost);
+        }
+
+        private void relax(int o, int q, double base, double c) {
+            double d = base + c - v[o];
+            if (state[o] == 2 || d >= dist[o]) {
+                return;
+            }
+            dist[o] = d;
+            pred[o] = q;
+            predCost[o] = c;
+            if (state[o] == 0) {
+                state[o] = 1;
+                touched[touchedCount++] = o;
+                heap[heapSize] = o;
+                heapPos[o] = heapSize++;
+            }
+            siftUp(heapPos[o]);
+        }
+
+        // ---- Binary min-heap of columns keyed by dist ----
+
+        private int pop() {
+            int top = heap[0];
+            heapSize--;
+            if (heapSize > 0) {
+                heap[0] = heap[heapSize];
+                heapPos[heap[0]] = 0;
+                siftDown(0);
+            }
+            return top;
+        }
+
+        private void siftUp(int k) {
+            int c = heap[k];
+            double d = dist[c];
+            while (k > 0) {
+                int parent = (k - 1) >>> 1;
+                int pc = heap[parent];
+                if (dist[pc] <= d) {
+                    break;
+                }
+                heap[k] = pc;
+                heapPos[pc] = k;
+                k = parent;
+            }
+            heap[k] = c;
+            heapPos[c] = k;
+        }
+
+        private void siftDown(int k) {
+            int c = heap[k];
+            double d = dist[c];
+            while (true) {
+                int child = 2 * k + 1;
+                if (child >= heapSize) {
+                    break;
+                }
+                if (child + 1 < heapSize && dist[heap[child + 1]] < dist[heap[child]]) {
+                    child++;
+                }
+                int cc = heap[child];
+                if (dist[cc] >= d) {
+                    break;
+                }
+                heap[k] = cc;
+                heapPos[cc] = k;
+                k = child;
+            }
+            heap[k] = c;
+            heapPos[c] = k;
+        }
+
+        private void ensure(int arcs) {
+            if (arcCol.length >= arcs) {
+                return;
+            }
+            int cap = Math.max(arcs, 2 * arcCol.length);
+            trackIds = new int[cap];
+            measIds = new int[cap];
+            arcStart = new int[cap + 1];
+            arcCol = new int[cap];
+            arcCost = new double[cap];
+            localTrack = new int[cap];
+            localMeas = new int[cap];
+            assigned = new int[cap];
+            assignedCost = new double[cap];
+
+            // Columns: at most one per arc plus one per row
+            int columns = 2 * cap;
+            owner = new int[columns];
+            v = new double[columns];
+            dist = new double[columns];
+            pred = new int[columns];
+            predCost = new double[columns];
+            state = new byte[columns];
+            heap = new int[columns];
+            heapPos = new int[columns];
+            touched = new int[columns];
+            scanned = new int[columns];
+        }
+    }
+}
@@ -3,21 +3,30 @@ package tracking;
 import filters.Filter;
 import filters.KalmanFilter;
 import filters.EKF;
+import filters.IMMFilter;
 import math.Matrix;
+import math.SymmetricMatrix;
 import math.Vector;
 import models.CVModel;
 import models.CTEKFModel;
 
 public class HorizontalChannel {
 
-    public enum Mode { CV, CT }
+    public enum Mode { CV, CT, CA }
+
+    // Initial variances of the components a CV start does not estimate
+    private static final double OMEGA0_VAR = 0.01;
+    private static final double ACCEL0_VAR = 1.0;
 
     private Mode mode;
 
     private KalmanFilter cvFilter;
     private EKF ctFilter;
 
-    // Active filter reference (KF or EKF)
+    // IMM mode: CV, CT and CA run together and there is no switching (null otherwise)
+    private final IMMFilter imm;
+
+    // Active filter reference (KF, EKF or IMM)
     private Filter activeFilter;
 
     // Motion models
@@ -46,10 +55,55 @@ public class HorizontalChannel {
 
         this.cvFilter = new KalmanFilter(x0_cv, P0_cv, cvModel, H_cv, R);
 
+        this.imm = null;
         this.activeFilter = cvFilter;
         this.mode = Mode.CV;
     }
 
+    // IMM channel: no CV/CT filters or models of its own
+    private HorizontalChannel(IMMFilter imm, Matrix H_cv, Matrix H_ct, Matrix R) {
+        this.cvModel = null;
+        this.ctModel = null;
+        this.H_cv = H_cv;
+        this.H_ct = H_ct;
+        this.R = R;
+
+        this.imm = imm;
+        this.activeFilter = imm;
+    }
+
+    // IMM channel: CV/CT/CA started from a CV estimate, with stay the per-scan
+    // probability of keeping the same model. H_cv and H_ct are the CV and CT
+    // modes' measurement matrices (CA measures what CV does). getState() is then
+    // the 7-element IMM common state [x, y, vx, vy, omega, ax, ay] and getMode()
+    // the most probable model; the switching methods do nothing.
+    public static HorizontalChannel imm(Vector x0_cv,
+                                        Matrix P0_cv,
+                                        double q_cv,
+                                        double q_ct,
+                                        double q_ca,
+                                        Matrix H_cv,
+                                        Matrix H_ct,
+                                        Matrix R,
+                                        double stay) {
+
+        // Expand [x, y, vx, vy] into the common state (omega, ax, ay start at zero)
+        Vector x0 = new Vector(IMMFilter.COMMON_SIZE);
+        Matrix P0 = new Matrix(IMMFilter.COMMON_SIZE, IMMFilter.COMMON_SIZE);
+        for (int a = 0; a < 4; a++) {
+            x0.set(a, x0_cv.get(a));
+            for (int b = 0; b < 4; b++) {
+                P0.set(a, b, P0_cv.get(a, b));
+            }
+        }
+        P0.set(IMMFilter.OMEGA, IMMFilter.OMEGA, OMEGA0_VAR);
+        P0.set(IMMFilter.AX, IMMFilter.AX, ACCEL0_VAR);
+        P0.set(IMMFilter.AY, IMMFilter.AY, ACCEL0_VAR);
+
+        IMMFilter imm = IMMFilter.cvCtCa(x0, P0, q_cv, q_ct, q_ca, H_cv, H_ct, R, stay);
+        return new HorizontalChannel(imm, H_cv, H_ct, R);
+    }
+
     public void predict(double dt) {
         activeFilter.predict(dt);
     }
@@ -67,9 +121,17 @@ public class HorizontalChannel {
     }
 
     public Mode getMode() {
+        if (imm != null) {
+            return Mode.valueOf(imm.modeName(imm.mostLikelyMode()));
+        }
         return mode;
     }
 
+    // Null unless built with imm(...)
+    public IMMFilter getIMM() {
+        return imm;
+    }
+
     // -------------------------
     // TURN RATE ESTIMATION
     // -------------------------
@@ -85,7 +147,7 @@ public class HorizontalChannel {
     // ADAPTIVE SWITCHING
     // -------------------------
     public void maybeSwitchToCT(double threshold) {
-        if (mode == Mode.CV) {
+        if (imm == null && mode == Mode.CV) {
             // TODO: compute from curvature or residuals later
             double fauxTurnRate = 0.0;
 
@@ -96,7 +158,7 @@ public class HorizontalChannel {
     }
 
     public void maybeSwitchToCV(double threshold) {
-        if (mode == Mode.CT) {
+        if (imm == null && mode == Mode.CT) {
             double w = estimateTurnRate();
             if (Math.abs(w) < threshold) {
                 switchCTtoCV();
@@ -112,7 +174,7 @@ public class HorizontalChannel {
     private void switchCVtoCT() {
 
         Vector x_cv = cvFilter.getState();      // [x, y, vx, vy]
-        Matrix P_cv = cvFilter.getCovariance(); // 4x4
+        SymmetricMatrix P_cv = cvFilter.getSymmetricCovariance(); // 4x4
 
         // Expansion matrix T (5x4)
         Matrix T = new Matrix(new double[][] {
@@ -133,7 +195,7 @@ public class HorizontalChannel {
         });
 
         Vector x_ct = T.multiply(x_cv);
-        Matrix P_ct = T.multiply(P_cv).multiply(T.transpose());
+        SymmetricMatrix P_ct = P_cv.congruence(T);  // T P T', one triangle
 
         // Add initial uncertainty for ω
         P_ct.set(4, 4, 0.01);
@@ -147,7 +209,7 @@ public class HorizontalChannel {
     private void switchCTtoCV() {
 
         Vector x_ct = ctFilter.getState();      // [x, y, vx, vy, ω]
-        Matrix P_ct = ctFilter.getCovariance(); // 5x5
+        SymmetricMatrix P_ct = ctFilter.getSymmetricCovariance(); // 5x5
 
         // Projection matrix S (4x5)
         Matrix S = new Matrix(new double[][] {
@@ -158,7 +220,7 @@ public class HorizontalChannel {
         });
 
         Vector x_cv = S.multiply(x_ct);
-        Matrix P_cv = S.multiply(P_ct).multiply(S.transpose());
+        SymmetricMatrix P_cv = P_ct.congruence(S);  // S P S'
 
         this.cvFilter = new KalmanFilter(x_cv, P_cv, cvModel, H_cv, R);
         this.activeFilter = cvFilter;
@@ -169,13 +231,13 @@ public class HorizontalChannel {
     // Manual mode control for demo
     // ---------------------------------
     public void forceCT() {
-        if (mode == Mode.CV) {
+        if (imm == null && mode == Mode.CV) {
             switchCVtoCT();
         }
     }
 
     public void forceCV() {
-        if (mode == Mode.CT) {
+        if (imm == null && mode == Mode.CT) {
             switchCTtoCV();
         }
     }
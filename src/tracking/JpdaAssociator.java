@@ -0,0 +1,365 @@
+package tracking;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+// Joint probabilistic data association for one frame: for every gated
+// (track, measurement) pair, the probability beta that the measurement came
+// from the track, given all the other gated pairs. Tracks are then updated with
+// every gated measurement weighted by beta (Filter.updateWeighted).
+//
+// A joint event assigns each track at most one measurement and each measurement
+// at most one track; the rest are clutter. With detection probability PD, gate
+// probability PG and clutter density lambda its weight is
+//
+//   prod over assigned pairs  PD N(z_j; z_i, S_i) / lambda
+//   prod over missed tracks   1 - PD PG
+//
+// and beta_ij is the normalized weight of the events that contain (i, j).
+// The number of events grows combinatorially with cluster size, so the frame is
+// first split into independent clusters (PairClusters) and each cluster is
+// enumerated exactly when it has at most maxHypotheses events (bounded up front
+// by the product of (gated pairs + 1) over its tracks, or over its
+// measurements, whichever is smaller). Larger clusters
+// get approximate marginals by loopy belief propagation over the gated pairs
+// (Williams and Lau), with a = PD N / (lambda (1 - PD PG)) the pair factors:
+//
+//   mu_ij = a_ij / (1 + sum_{j' != j} a_ij' nu_j'i)      track i -> measurement j
+//   nu_ji = 1 / (1 + sum_{i' != i} mu_i'j)               measurement j -> track i
+//   beta_ij = a_ij nu_ji / (1 + sum_j' a_ij' nu_j'i)
+//
+// iterated to convergence, O(pairs) per sweep. Clusters are solved on the
+// common ForkJoin pool when there are enough of them.
+public final class JpdaAssociator {
+
+    // Below this many clusters the parallel split is not worth it
+    private static final int PARALLEL_MIN_CLUSTERS = 64;
+
+    // Belief propagation stops once no message moves by more than this
+    private static final double BP_TOLERANCE = 1e-10;
+    private static final int BP_MAX_SWEEPS = 1000;
+
+    private final double logDetection;     // log PD
+    private final double detection;
+    private final double logClutter;       // log lambda
+    private final int maxHypotheses;
+
+    private boolean parallel = true;
+
+    private final PairClusters clusters = new PairClusters();
+    private final ThreadLocal<Enumeration> solvers = ThreadLocal.withInitial(Enumeration::new);
+
+    // Clusters over the cap in the last frame (solved approximately)
+    private int approximated;
+
+    // detectionProbability in (0, 1); clutterDensity: false measurements per unit
+    // area of the measurement space; maxHypotheses: cap on joint events enumerated per cluster
+    public JpdaAssociator(double detectionProbability, double clutterDensity, int maxHypotheses) {
+        if (!(detectionProbability > 0.0 && detectionProbability < 1.0)) {
+            throw new IllegalArgumentException("Detection probability must be in (0, 1)");
+        }
+        if (!(clutterDensity > 0.0)) {
+            throw new IllegalArgumentException("Clutter density must be positive");
+        }
+        if (maxHypotheses < 1) {
+            throw new IllegalArgumentException("Hypothesis cap must be at least 1");
+        }
+        this.detection = detectionProbability;
+        this.logDetection = Math.log(detectionProbability);
+        this.logClutter = Math.log(clutterDensity);
+        this.maxHypotheses = maxHypotheses;
+    }
+
+    public void setParallel(boolean enabled) {
+        this.parallel = enabled;
+    }
+
+    public int clusterCount() {
+        return clusters.count();
+    }
+
+    public int largestCluster() {
+        return clusters.largest();
+    }
+
+    public int approximatedClusters() {
+        return approximated;
+    }
+
+    // pairs[k] = track << 32 | measurement with logLikelihood[k] = log N(z_j; z_i, S_i).
+    // gateProbability is PG, the chance that a target's own measurement falls
+    // in its gate. Writes beta[k] for every pair.
+    public void solve(int nt, int nm, long[] pairs, double[] logLikelihood, int count,
+                      double gateProbability, double[] beta) {
+        if (!(gateProbability > 0.0 && gateProbability <= 1.0)) {
+            throw new IllegalArgumentException("Gate probability must be in (0, 1]");
+        }
+        double logMiss = Math.log(1.0 - detection * gateProbability);
+        clusters.build(nt, nm, pairs, count);
+
+        int n = clusters.count();
+        if (parallel && n >= PARALLEL_MIN_CLUSTERS) {
+            approximated = IntStream.range(0, n).parallel()
+                    .map(c -> solveCluster(c, pairs, logLikelihood, logMiss, beta) ? 0 : 1)
+                    .sum();
+        } else {
+            approximated = 0;
+            for (int c = 0; c < n; c++) {
+                if (!solveCluster(c, pairs, logLikelihood, logMiss, beta)) {
+                    approximated++;
+                }
+            }
+        }
+    }
+
+    // False if the cluster was over the cap and got the approximation
+    private boolean solveCluster(int c, long[] pairs, double[] logLikelihood, double logMiss, double[] beta) {
+        int from = clusters.start(c);
+        int to = clusters.end(c);
+        int[] ordered = clusters.ordered();
+        if (to - from == 1) {
+            // Two events, detected or missed: beta = a / (a + miss)
+            int k = ordered[from];
+            double la = logDetection + logLikelihood[k] - logClutter;
+            beta[k] = 1.0 / (1.0 + Math.exp(logMiss - la));
+            return true;
+        }
+        return solvers.get().solve(ordered, from, to, pairs, logLikelihood,
+                logDetection - logClutter, logMiss, maxHypotheses,
+                clusters.trackSlot(), clusters.measSlot(), beta);
+    }
+
+    // ---------------------------------
+    // One cluster (per-thread scratch, grown on demand)
+    // ---------------------------------
+
+    private static final class Enumeration {
+
+        // Local numbering: rows = tracks, columns = measurements
+        private int[] trackIds = new int[0];
+        private int[] measIds = new int[0];
+        private int[] arcStart = new int[0];
+        private int[] arcCol = new int[0];
+        private int[] arcPair = new int[0];      // arc -> pair index
+        private double[] arcFactor = new double[0];
+        private int[] localTrack = new int[0];   // cluster pair -> local row
+        private int[] localMeas = new int[0];    // cluster pair -> local column
+
+        // Depth-first enumeration state: row r picked choice[r] (-1 missed, else an arc)
+        private int[] choice = new int[0];
+        private double[] prefix = new double[0]; // weight of the choices above row r
+        private boolean[] used = new boolean[0];
+        private double[] marginal = new double[0];   // per arc
+
+        // Belief propagation messages (per arc) and per-column sums
+        private double[] mu = new double[0];
+        private double[] nu = new double[0];
+        private double[] colSum = new double[0];
+
+        boolean solve(int[] ordered, int from, int to, long[] pairs, double[] logLikelihood,
+                      double logScale, double logMiss, int maxHypotheses,
+                      int[] trackSlot, int[] measSlot, double[] beta) {
+            int arcs = to - from;
+            ensure(arcs);
+
+            // Local ids
+            int rows = 0;
+            int cols = 0;
+            double maxLog = logMiss;
+            for (int a = 0; a < arcs; a++) {
+                int k = ordered[from + a];
+                int i = (int) (pairs[k] >>> 32);
+                int j = (int) pairs[k];
+                int r = trackSlot[i];
+                if (r >= rows || trackIds[r] != i) {
+                    r = rows++;
+                    trackIds[r] = i;
+                    trackSlot[i] = r;
+                }
+                int o = measSlot[j];
+                if (o >= cols || measIds[o] != j) {
+                    o = cols++;
+                    measIds[o] = j;
+                    measSlot[j] = o;
+                }
+                localTrack[a] = r;
+                localMeas[a] = o;
+                maxLog = Math.max(maxLog, logScale + logLikelihood[k]);
+            }
+
+            // Arcs grouped by row (CSR). Every event has one factor per track, so
+            // scaling all factors by exp(-maxLog) leaves beta unchanged and keeps
+            // the products in range
+            Arrays.fill(arcStart, 0, rows + 1, 0);
+            for (int a = 0; a < arcs; a++) {
+                arcStart[localTrack[a] + 1]++;
+            }
+            for (int r = 0; r < rows; r++) {
+                arcStart[r + 1] += arcStart[r];
+            }
+            for (int a = 0; a < arcs; a++) {
+                int slot = arcStart[localTrack[a]]++;
+                int k = ordered[from + a];
+                arcCol[slot] = localMeas[a];
+                arcPair[slot] = k;
+                arcFactor[slot] = Math.exp(logScale + logLikelihood[k] - maxLog);
+            }
+            for (int r = rows; r > 0; r--) {
+                arcStart[r] = arcStart[r - 1];
+            }
+            arcStart[0] = 0;
+            double miss = Math.exp(logMiss - maxLog);
+
+            if (eventBound(rows, cols) > maxHypotheses) {
+                approximate(rows, cols, miss, beta);
+                return false;
+            }
+            enumerate(rows, cols, miss);
+            for (int a = 0; a < arcs; a++) {
+                beta[arcPair[a]] = marginal[a];
+            }
+            return true;
+        }
+
+        // Upper bound on the joint events: each track picks one of its pairs or
+        // none, and so does each measurement
+        private double eventBound(int rows, int cols) {
+            double byRows = 1.0;
+            for (int r = 0; r < rows; r++) {
+                byRows *= arcStart[r + 1] - arcStart[r] + 1;
+            }
+            Arrays.fill(colSum, 0, cols, 1.0);
+            for (int a = 0; a < arcStart[rows]; a++) {
+                colSum[arcCol[a]]++;
+            }
+            double byCols = 1.0;
+            for (int o = 0; o < cols; o++) {
+                byCols *= colSum[o];
+            }
+            return Math.min(byRows, byCols);
+        }
+
+        // Exact marginals over all joint events
+        private void enumerate(int rows, int cols, double miss) {
+            Arrays.fill(used, 0, cols, false);
+            Arrays.fill(marginal, 0, arcStart[rows], 0.0);
+            double total = 0.0;
+
+            int r = 0;
+            prefix[0] = 1.0;
+            choice[0] = -2;   // not started
+            while (r >= 0) {
+                if (r == rows) {
+                    double w = prefix[rows];
+                    total += w;
+                    for (int q = 0; q < rows; q++) {
+                        if (choice[q] >= 0) {
+                            marginal[choice[q]] += w;
+                        }
+                    }
+                    r--;
+                    continue;
+                }
+
+                // Next choice for row r: missed, then each arc to a free measurement
+                int c = choice[r];
+                if (c >= 0) {
+                    used[arcCol[c]] = false;
+                }
+                int next;
+                if (c == -2) {
+                    next = -1;
+                } else {
+                    next = c < 0 ? arcStart[r] : c + 1;
+                    while (next < arcStart[r + 1] && used[arcCol[next]]) {
+                        next++;
+                    }
+                    if (next == arcStart[r + 1]) {
+                        choice[r] = -2;
+                        r--;
+                        continue;
+                    }
+                }
+                choice[r] = next;
+                if (next >= 0) {
+                    used[arcCol[next]] = true;
+                    prefix[r + 1] = prefix[r] * arcFactor[next];
+                } else {
+                    prefix[r + 1] = prefix[r] * miss;
+                }
+                r++;
+                if (r < rows) {
+                    choice[r] = -2;
+                }
+            }
+
+            for (int a = 0; a < arcStart[rows]; a++) {
+                marginal[a] /= total;
+            }
+        }
+
+        // Loopy belief propagation; factors are arcFactor / miss (each row may be
+        // scaled freely, so the common scaling of arcFactor and miss cancels)
+        private void approximate(int rows, int cols, double miss, double[] beta) {
+            int arcs = arcStart[rows];
+            Arrays.fill(nu, 0, arcs, 1.0);
+            for (int sweep = 0; sweep < BP_MAX_SWEEPS; sweep++) {
+                // Tracks -> measurements
+                Arrays.fill(colSum, 0, cols, 0.0);
+                for (int r = 0; r < rows; r++) {
+                    double denominator = miss;
+                    for (int a = arcStart[r]; a < arcStart[r + 1]; a++) {
+                        denominator += arcFactor[a] * nu[a];
+                    }
+                    for (int a = arcStart[r]; a < arcStart[r + 1]; a++) {
+                        mu[a] = arcFactor[a] / (denominator - arcFactor[a] * nu[a]);
+                        colSum[arcCol[a]] += mu[a];
+                    }
+                }
+
+                // Measurements -> tracks
+                double change = 0.0;
+                for (int a = 0; a < arcs; a++) {
+                    double next = 1.0 / (1.0 + colSum[arcCol[a]] - mu[a]);
+                    change = Math.max(change, Math.abs(next - nu[a]));
+                    nu[a] = next;
+                }
+                if (change < BP_TOLERANCE) {
+                    break;
+                }
+            }
+
+            for (int r = 0; r < rows; r++) {
+                double denominator = miss;
+                for (int a = arcStart[r]; a < arcStart[r + 1]; a++) {
+                    denominator += arcFactor[a] * nu[a];
+                }
+                for (int a = arcStart[r]; a < arcStart[r + 1]; a++) {
+                    beta[arcPair[a]] = arcFactor[a] * nu[a] / denominator;
+                }
+            }
+        }
+
+        private void ensure(int arcs) {
+            if (arcCol.length >= arcs) {
+                return;
+            }
+            int cap = Math.max(arcs, 2 * arcCol.length);
+            trackIds = new int[cap];
+            measIds = new int[cap];
+            arcStart = new int[cap + 1];
+            arcCol = new int[cap];
+            arcPair = new int[cap];
+            arcFactor = new double[cap];
+            localTrack = new int[cap];
+            localMeas = new int[cap];
+            choice = new int[cap];
+            prefix = new double[cap + 1];
+            used = new boolean[cap];
+            marginal = new double[cap];
+            mu = new double[cap];
+            nu = new double[cap];
+            colSum = new double[cap];
+        }
+    }
+}
@@ -0,0 +1,844 @@
+package tracking;
+
+import filters.Filter;
+import filters.KalmanFilter;
+import math.Matrix;
+import math.SymmetricMatrix;
+import math.Vector;
+import models.CVModel;
+import models.CachedMotionModel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+// Track-oriented multiple hypothesis tracker, an alternative to TrackManager
+// for dense and crossing scenes: association decisions are deferred for a few
+// scans instead of being made frame by frame.
+//
+// Every potential target is a tree of track hypotheses. Each frame, every leaf
+// branches into a missed-detection child and one child per gated measurement,
+// and every measurement also starts a new tree. Scores are log-likelihood
+// ratios against "everything is clutter":
+//
+//   birth   log(newTargetDensity / clutterDensity)
+//   update  + log(PD N(z; z_pred, S) / clutterDensity)
+//   miss    + log(1 - PD PG)
+//
+// Global hypotheses pick at most one leaf per tree with no measurement used
+// twice. Trees that share a measurement within the window form a cluster
+// (PairClusters); each cluster's k best global hypotheses are found by a
+// depth-first branch and bound capped at searchBudget nodes, and give each
+// leaf a probability. Then, per frame:
+//
+//   - leaves below minLeafProbability (including every leaf outside the k
+//     best) and leaves more than deleteDrop below their path's peak score are
+//     pruned; trees without leaves are deleted. A tree younger than scanDepth
+//     frames keeps its best leaf regardless, so a new target has the scan
+//     window to build up a score that beats "all clutter"
+//   - at most maxLeavesPerTree children survive per tree, the best of them by
+//     score plus the best missed-detection child, so a tree can always stay
+//     in a hypothesis without claiming a contested measurement
+//   - N-scan: assignments scanDepth frames back are final. Leaves that used a
+//     measurement the best global hypothesis gave to another tree back then
+//     are pruned, and each tree keeps only the branch that leads to its best
+//     leaf; the nodes above it are freed
+//
+// so memory and work per frame are bounded by the hypothesis and scan-depth
+// budgets. Children share their parent's predicted estimate copy-on-write: a
+// child's measurement update, and the copy of the state it needs, only happen
+// if it survives pruning (the last survivor takes the parent's state as is).
+//
+// One worker Filter (any filter supporting reset) does all the predict, gate
+// and update work. The tracker is single-threaded; getStats() reports time and
+// counts per stage for the last frame.
+public class MhtTracker {
+
+    public static final int DEFAULT_SCAN_DEPTH = 3;
+    public static final int DEFAULT_MAX_LEAVES = 16;
+    public static final int DEFAULT_GLOBAL_HYPOTHESES = 16;
+    public static final int DEFAULT_SEARCH_BUDGET = 20_000;
+    public static final double DEFAULT_MIN_PROBABILITY = 1e-3;
+
+    private final Filter worker;
+    private final int n;
+    private final SymmetricMatrix initialCovariance;
+    private final double gateRadius;      // Euclidean bound (measurement grid cell)
+    private final double gamma;           // chi-square gate
+    private final SpatialGrid grid;
+
+    // Scoring
+    private double detection;
+    private double logDetectionRatio;     // log(PD / clutterDensity)
+    private double logMiss;               // log(1 - PD PG)
+    private double birthScore;
+    private double confirmScore = Math.log(100.0);
+    private double deleteDrop = Math.log(1000.0);
+
+    // Budgets
+    private int scanDepth = DEFAULT_SCAN_DEPTH;
+    private int maxLeaves = DEFAULT_MAX_LEAVES;
+    private int globalHypotheses = DEFAULT_GLOBAL_HYPOTHESES;
+    private int searchBudget = DEFAULT_SEARCH_BUDGET;
+    private double minProbability = DEFAULT_MIN_PROBABILITY;
+
+    private final List<Tree> trees = new ArrayList<>();
+    private int nextTreeId = 1;
+    private int frame = -1;
+    private double frameTime = Double.NaN;
+
+    // Measurement ids run across frames; frameStart[f % ring] is frame f's first id
+    private int nextMeasId;
+    private int[] frameStart;
+
+    private final Stats stats = new Stats();
+    private final List<TrackEstimate> confirmed = new ArrayList<>();
+
+    // Per-frame scratch
+    private double[] measX = new double[0];
+    private double[] measY = new double[0];
+    private int[] gated = new int[0];
+    private int gatedCount;
+    private final PairClusters clusters = new PairClusters();
+    private long[] pairs = new long[0];
+    private int[] used = new int[0];      // window measurement -> times used on the search path
+    private int[] committed = new int[0]; // window measurement -> tree id it finally went to, or 0
+    private int windowStart;              // first measurement id a leaf path can hold
+    private int finalBefore;              // measurement ids below this are N-scan decided
+
+    // ---------------------------------
+    // Hypothesis trees
+    // ---------------------------------
+
+    // Estimate shared by a leaf's children until they are materialized
+    private static final class State {
+        final Vector x;
+        final SymmetricMatrix P;
+        int refs;
+
+        State(Vector x, SymmetricMatrix P) {
+            this.x = x;
+            this.P = P;
+        }
+
+        State copy() {
+            return new State(x.copy(), P.copy());
+        }
+    }
+
+    private static final class Node {
+        Node parent;           // null at the tree root
+        final int depth;
+        final int measId;      // measurement used at this node, -1 for a miss
+        final double score;
+        final double peak;     // highest score on the path from the root
+        State state;           // leaves only; shared with siblings until materialized
+        Vector pendingZ;       // measurement update not yet applied to state
+
+        // Per-frame
+        int[] window;          // window-relative measurement ids on the path
+        double probability;
+        boolean inBest;
+
+        Node(Node parent, int depth, int measId, double score, double peak, State state, Vector pendingZ) {
+            this.parent = parent;
+            this.depth = depth;
+            this.measId = measId;
+            this.score = score;
+            this.peak = peak;
+            this.state = state;
+            this.pendingZ = pendingZ;
+        }
+
+        Node ancestor(int atDepth) {
+            Node a = this;
+            while (a.depth > atDepth) {
+                a = a.parent;
+            }
+            return a;
+        }
+    }
+
+    private static final class Tree {
+        final int id;
+        Node root;
+        List<Node> leaves = new ArrayList<>();
+
+        Tree(int id, Node root) {
+            this.id = id;
+            this.root = root;
+        }
+    }
+
+    // A confirmed track: a leaf of the best global hypothesis scoring at least confirmScore
+    public static final class TrackEstimate {
+        public final int id;
+        public final double score;
+        public final Vector state;
+
+        TrackEstimate(int id, double score, Vector state) {
+            this.id = id;
+            this.score = score;
+            this.state = state;
+        }
+    }
+
+    // Per-stage timing and counts for the last frame
+    public static final class Stats {
+        public long extendNanos;       // predict, gate and branch every leaf
+        public long birthNanos;
+        public long clusterNanos;
+        public long selectNanos;       // k-best global hypotheses
+        public long pruneNanos;        // probability, deletion and N-scan pruning
+        public long materializeNanos;  // copy-on-write states and pending updates
+        public long totalNanos;
+
+        public int trees;
+        public int leaves;             // after pruning
+        public int children;           // created by branching (births excluded)
+        public int cappedChildren;     // dropped by maxLeavesPerTree
+        public int deletedChildren;    // dropped by the score-drop test
+        public int births;
+        public int clusters;
+        public int largestCluster;     // trees
+        public long searchNodes;
+        public int budgetHits;         // clusters whose search stopped at searchBudget
+        public int globalHypotheses;   // found over all clusters
+        public int prunedLeaves;
+        public int deletedTrees;
+        public int stateCopies;
+        public int stateReuses;
+
+        void clear() {
+            extendNanos = birthNanos = clusterNanos = selectNanos = pruneNanos = materializeNanos = totalNanos = 0;
+            trees = leaves = children = cappedChildren = deletedChildren = births = 0;
+            clusters = largestCluster = budgetHits = globalHypotheses = prunedLeaves = deletedTrees = 0;
+            stateCopies = stateReuses = 0;
+            searchNodes = 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "trees %d leaves %d | children %d (capped %d, deleted %d) births %d | clusters %d (largest %d) "
+                            + "hyp %d nodes %d budget hits %d | pruned %d trees deleted %d | copies %d reused %d | "
+                            + "ms extend %.2f birth %.2f cluster %.2f select %.2f prune %.2f materialize %.2f total %.2f",
+                    trees, leaves, children, cappedChildren, deletedChildren, births, clusters, largestCluster,
+                    globalHypotheses, searchNodes, budgetHits, prunedLeaves, deletedTrees, stateCopies, stateReuses,
+                    extendNanos / 1e6, birthNanos / 1e6, clusterNanos / 1e6, selectNanos / 1e6,
+                    pruneNanos / 1e6, materializeNanos / 1e6, totalNanos / 1e6);
+        }
+    }
+
+    // ---------------------------------
+    // Construction and tuning
+    // ---------------------------------
+
+    // Constant-velocity tracks [x, y, vx, vy] measured in position with the same
+    // H and R as TrackManager, starting with 2 m position and 10 m/s velocity sigma
+    public MhtTracker(double gateRadius) {
+        this(new KalmanFilter(new Vector(4), SymmetricMatrix.identity(4),
+                        new CachedMotionModel(new CVModel(1.0)),
+                        new Matrix(new double[][] {{1, 0, 0, 0}, {0, 1, 0, 0}}).freeze(),
+                        new Matrix(new double[][] {{4, 0}, {0, 4}}).freeze()),
+                SymmetricMatrix.fromUpper(new Matrix(new double[][] {
+                        {4, 0, 0, 0},
+                        {0, 4, 0, 0},
+                        {0, 0, 100, 0},
+                        {0, 0, 0, 100}
+                })),
+                gateRadius, TrackManager.CHI2_2DOF_99);
+    }
+
+    // worker: any filter supporting reset, with (x, y) position measurements in
+    // state components 0 and 1; new trees start there with initialCovariance.
+    // Gating is chi-square at gamma (2 degrees of freedom) within gateRadius.
+    public MhtTracker(Filter worker, SymmetricMatrix initialCovariance, double gateRadius, double gamma) {
+        if (!(gateRadius > 0.0) || !(gamma > 0.0)) {
+            throw new IllegalArgumentException("Gate radius and chi-square gate must be positive");
+        }
+        this.worker = worker;
+        this.n = worker.getState().size();
+        if (initialCovariance.size() != n) {
+            throw new IllegalArgumentException("Initial covariance has wrong dimensions");
+        }
+        this.initialCovariance = initialCovariance.copy();
+        this.gateRadius = gateRadius;
+        this.gamma = gamma;
+        this.grid = new SpatialGrid(gateRadius);
+        this.frameStart = new int[scanDepth + 2];
+        applyScoring(0.9, 1e-5, 1e-5);
+    }
+
+    // Detection probability in (0, 1); clutter and new-target densities per unit area
+    public void setScoring(double detectionProbability, double clutterDensity, double newTargetDensity) {
+        applyScoring(detectionProbability, clutterDensity, newTargetDensity);
+    }
+
+    // Shared with the constructor, which must not call the overridable setter
+    private void applyScoring(double detectionProbability, double clutterDensity, double newTargetDensity) {
+        if (!(detectionProbability > 0.0 && detectionProbability < 1.0)) {
+            throw new IllegalArgumentException("Detection probability must be in (0, 1)");
+        }
+        if (!(clutterDensity > 0.0) || !(newTargetDensity > 0.0)) {
+            throw new IllegalArgumentException("Clutter and new-target densities must be positive");
+        }
+        double gateProbability = 1.0 - Math.exp(-0.5 * gamma);  // chi-square CDF, 2 degrees of freedom
+        this.detection = detectionProbability;
+        this.logDetectionRatio = Math.log(detectionProbability / clutterDensity);
+        this.logMiss = Math.log(1.0 - detectionProbability * gateProbability);
+        this.birthScore = Math.log(newTargetDensity / clutterDensity);
+    }
+
+    // A track is reported once its score reaches confirmScore; a hypothesis is
+    // deleted once it falls deleteDrop below the best score on its path
+    public void setThresholds(double confirmScore, double deleteDrop) {
+        if (!(deleteDrop > 0.0)) {
+            throw new IllegalArgumentException("Deletion drop must be positive");
+        }
+        this.confirmScore = confirmScore;
+        this.deleteDrop = deleteDrop;
+    }
+
+    // Frames of deferred decisions (N in N-scan pruning); fixed once tracking has started
+    public void setScanDepth(int scanDepth) {
+        if (scanDepth < 1) {
+            throw new IllegalArgumentException("Scan depth must be at least 1");
+        }
+        if (frame >= 0) {
+            throw new IllegalStateException("Scan depth cannot change after the first frame");
+        }
+        this.scanDepth = scanDepth;
+        this.frameStart = new int[scanDepth + 2];
+    }
+
+    public void setMaxLeavesPerTree(int maxLeaves) {
+        if (maxLeaves < 1) {
+            throw new IllegalArgumentException("Leaf budget must be at least 1");
+        }
+        this.maxLeaves = maxLeaves;
+    }
+
+    // k: global hypotheses kept per cluster
+    public void setGlobalHypotheses(int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("Need at least one global hypothesis");
+        }
+        this.globalHypotheses = k;
+    }
+
+    // Search nodes per cluster before the best hypotheses found so far are used
+    public void setSearchBudget(int nodes) {
+        if (nodes < 1) {
+            throw new IllegalArgumentException("Search budget must be positive");
+        }
+        this.searchBudget = nodes;
+    }
+
+    public void setMinLeafProbability(double minProbability) {
+        if (!(minProbability >= 0.0 && minProbability < 1.0)) {
+            throw new IllegalArgumentException("Minimum leaf probability must be in [0, 1)");
+        }
+        this.minProbability = minProbability;
+    }
+
+    public Stats getStats() {
+        return stats;
+    }
+
+    // Confirmed tracks of the best global hypothesis after the last frame
+    public List<TrackEstimate> getTracks() {
+        return confirmed;
+    }
+
+    public int treeCount() {
+        return trees.size();
+    }
+
+    // ---------------------------------
+    // Frame processing
+    // ---------------------------------
+
+    public void processFrame(double timestamp, List<Vector> measurements) {
+        if (timestamp < frameTime) {
+            throw new IllegalArgumentException("Frame at " + timestamp + " is older than the last one (" + frameTime + ")");
+        }
+        long start = System.nanoTime();
+        stats.clear();
+
+        double dt = Double.isNaN(frameTime) ? 0.0 : timestamp - frameTime;
+        frameTime = timestamp;
+        frame++;
+        int nm = measurements.size();
+        int base = nextMeasId;
+        nextMeasId += nm;
+        frameStart[frame % frameStart.length] = base;
+
+        // 1. Predict, gate and branch every leaf
+        long t = System.nanoTime();
+        indexMeasurements(measurements, nm);
+        for (Tree tree : trees) {
+            List<Node> children = new ArrayList<>();
+            for (Node leaf : tree.leaves) {
+                extend(leaf, dt, measurements, base, children);
+            }
+            if (children.size() > maxLeaves) {
+                children.sort(Comparator.comparingDouble((Node c) -> c.score).reversed());
+                keepMiss(children);
+                for (int i = maxLeaves; i < children.size(); i++) {
+                    children.get(i).state.refs--;
+                }
+                stats.cappedChildren += children.size() - maxLeaves;
+                children = new ArrayList<>(children.subList(0, maxLeaves));
+            }
+            tree.leaves = children;
+        }
+        stats.extendNanos = System.nanoTime() - t;
+
+        // 2. Every measurement may start a target
+        t = System.nanoTime();
+        for (int j = 0; j < nm; j++) {
+            Vector x0 = new Vector(n);
+            x0.set(0, measurements.get(j).get(0));
+            x0.set(1, measurements.get(j).get(1));
+            State s = new State(x0, initialCovariance.copy());
+            s.refs = 1;
+            Tree tree = new Tree(nextTreeId++, null);
+            tree.root = new Node(null, 0, base + j, birthScore, birthScore, s, null);
+            tree.leaves.add(tree.root);
+            trees.add(tree);
+        }
+        stats.births = nm;
+        stats.birthNanos = System.nanoTime() - t;
+
+        // 3 and 4. Clusters, then k-best global hypotheses per cluster
+        selectHypotheses();
+
+        // 5. Pruning
+        t = System.nanoTime();
+        prune();
+        stats.pruneNanos = System.nanoTime() - t;
+
+        // 6. Survivors get their own state and pending update
+        t = System.nanoTime();
+        materialize();
+        stats.materializeNanos = System.nanoTime() - t;
+
+        report();
+        stats.trees = trees.size();
+        stats.totalNanos = System.nanoTime() - start;
+    }
+
+    private void indexMeasurements(List<Vector> measurements, int nm) {
+        if (measX.length < nm) {
+            measX = new double[Math.max(nm, 2 * measX.length)];
+            measY = new double[measX.length];
+            gated = new int[measX.length];
+        }
+        for (int j = 0; j < nm; j++) {
+            measX[j] = measurements.get(j).get(0);
+            measY[j] = measurements.get(j).get(1);
+        }
+        grid.rebuild(measX, measY, nm);
+    }
+
+    // Predict the leaf's own state in place, then branch it: a miss child and one
+    // child per gated measurement, all sharing that predicted state
+    private void extend(Node leaf, double dt, List<Vector> measurements, int base, List<Node> children) {
+        State s = leaf.state;
+        worker.reset(s.x, s.P);
+        if (dt > 0.0) {
+            worker.predict(dt);
+            s.x.copyFrom(worker.getState());
+            s.P.copyFrom(worker.getSymmetricCovariance());
+        }
+        s.refs = 0;
+        leaf.state = null;
+
+        addChild(leaf, -1, leaf.score + logMiss, s, null, children);
+
+        gatedCount = 0;
+        grid.forEachWithin(s.x.get(0), s.x.get(1), gateRadius, j -> gated[gatedCount++] = j);
+        for (int g = 0; g < gatedCount; g++) {
+            int j = gated[g];
+            Vector z = measurements.get(j);
+            if (worker.mahalanobisSquared(z) < gamma) {
+                double score = leaf.score + logDetectionRatio + worker.logLikelihood(z);
+                addChild(leaf, base + j, score, s, z, children);
+            }
+        }
+    }
+
+    // Children sorted by score: move the best miss child, if beyond the cap, into the last kept place
+    private void keepMiss(List<Node> children) {
+        for (int i = 0; i < children.size(); i++) {
+            if (children.get(i).measId < 0) {
+                if (i >= maxLeaves) {
+                    children.add(maxLeaves - 1, children.remove(i));
+                }
+                return;
+            }
+        }
+    }
+
+    private void addChild(Node leaf, int measId, double score, State s, Vector z, List<Node> children) {
+        double peak = Math.max(leaf.peak, score);
+        if (score < peak - deleteDrop) {
+            stats.deletedChildren++;
+            return;
+        }
+        s.refs++;
+        children.add(new Node(leaf, leaf.depth + 1, measId, score, peak, s, z));
+        stats.children++;
+    }
+
+    // ---------------------------------
+    // Global hypotheses
+    // ---------------------------------
+
+    private void selectHypotheses() {
+        long t = System.nanoTime();
+
+        // Window: the oldest frame a root can be at (scanDepth + 1 back)
+        int oldest = Math.max(0, frame - scanDepth - 1);
+        windowStart = frameStart[oldest % frameStart.length];
+        finalBefore = frame >= scanDepth ? frameStart[(frame - scanDepth + 1) % frameStart.length] : 0;
+        int windowSize = nextMeasId - windowStart;
+        if (used.length < windowSize) {
+            used = new int[Math.max(windowSize, 2 * used.length)];
+            committed = new int[used.length];
+        }
+        Arrays.fill(used, 0, windowSize, 0);
+
+        // (tree, measurement) pairs from every leaf's path
+        int nt = trees.size();
+        int count = 0;
+        int[] ids = new int[scanDepth + 2];
+        for (int ti = 0; ti < nt; ti++) {
+            for (Node leaf : trees.get(ti).leaves) {
+                int k = 0;
+                for (Node a = leaf; a != null; a = a.parent) {
+                    if (a.measId >= 0) {
+                        if (k == ids.length) {
+                            ids = Arrays.copyOf(ids, 2 * k);
+                        }
+                        ids[k++] = a.measId - windowStart;
+                    }
+                }
+                leaf.window = Arrays.copyOf(ids, k);
+                leaf.probability = 0.0;
+                leaf.inBest = false;
+                for (int m = 0; m < k; m++) {
+                    if (count == pairs.length) {
+                        pairs = Arrays.copyOf(pairs, Math.max(64, 2 * count));
+                    }
+                    pairs[count++] = (long) ti << 32 | leaf.window[m];
+                }
+            }
+        }
+        clusters.build(nt, windowSize, pairs, count);
+
+        // Trees per cluster; a tree without window measurements is a cluster of its own
+        int[] clusterOfTree = new int[nt];
+        Arrays.fill(clusterOfTree, -1);
+        List<int[]> members = new ArrayList<>();
+        int[] ordered = clusters.ordered();
+        int[] buffer = new int[Math.max(1, nt)];
+        for (int c = 0; c < clusters.count(); c++) {
+            int size = 0;
+            for (int p = clusters.start(c); p < clusters.end(c); p++) {
+                int ti = (int) (pairs[ordered[p]] >>> 32);
+                if (clusterOfTree[ti] < 0) {
+                    clusterOfTree[ti] = c;
+                    buffer[size++] = ti;
+                }
+            }
+            members.add(Arrays.copyOf(buffer, size));
+        }
+        for (int ti = 0; ti < nt; ti++) {
+            if (clusterOfTree[ti] < 0) {
+                members.add(new int[] {ti});
+            }
+        }
+        stats.clusters = members.size();
+        stats.clusterNanos = System.nanoTime() - t;
+
+        t = System.nanoTime();
+        for (int[] cluster : members) {
+            stats.largestCluster = Math.max(stats.largestCluster, cluster.length);
+            search(cluster);
+        }
+        stats.selectNanos = System.nanoTime() - t;
+    }
+
+    private static final class Hypothesis {
+        final double score;
+        final int[] choice;    // leaf index per cluster tree, or the tree's leaf count for none
+
+        Hypothesis(double score, int[] choice) {
+            this.score = score;
+            this.choice = choice;
+        }
+    }
+
+    // k best assignments of at most one leaf per tree, no window measurement used
+    // twice: depth-first over the trees (best leaves first, then "no leaf"), bounded
+    // by the sum of the remaining trees' best positive scores
+    private void search(int[] cluster) {
+        int size = cluster.length;
+        Node[][] leaves = new Node[size][];
+        for (int i = 0; i < size; i++) {
+            List<Node> list = trees.get(cluster[i]).leaves;
+            list.sort(Comparator.comparingDouble((Node c) -> c.score).reversed());
+            leaves[i] = list.toArray(new Node[0]);
+        }
+        double[] suffix = new double[size + 1];
+        for (int i = size - 1; i >= 0; i--) {
+            double best = leaves[i].length > 0 ? Math.max(0.0, leaves[i][0].score) : 0.0;
+            suffix[i] = suffix[i + 1] + best;
+        }
+
+        PriorityQueue<Hypothesis> best = new PriorityQueue<>(Comparator.comparingDouble((Hypothesis h) -> h.score));
+        int[] choice = new int[size];
+        double[] score = new double[size + 1];
+        long nodes = 0;
+        boolean stopped = false;
+
+        int d = 0;
+        choice[0] = -1;
+        while (d >= 0) {
+            if (d == size) {
+                if (best.size() < globalHypotheses) {
+                    best.add(new Hypothesis(score[size], choice.clone()));
+                } else if (score[size] > best.peek().score) {
+                    best.poll();
+                    best.add(new Hypothesis(score[size], choice.clone()));
+                }
+                d--;
+                continue;
+            }
+            if (nodes >= searchBudget && !best.isEmpty()) {
+                stopped = true;
+                break;
+            }
+
+            Node[] options = leaves[d];
+            int c = choice[d];
+            if (c >= 0 && c < options.length) {
+                mark(options[c], -1);
+            }
+            boolean full = best.size() == globalHypotheses;
+            double floor = full ? best.peek().score : Double.NEGATIVE_INFINITY;
+
+            // Next compatible leaf (sorted, so once one cannot beat the floor none can)
+            int next = c + 1;
+            while (next < options.length) {
+                if (score[d] + options[next].score + suffix[d + 1] <= floor) {
+                    next = options.length;
+                    break;
+                }
+                if (compatible(options[next])) {
+                    break;
+                }
+                next++;
+            }
+            if (next == options.length && score[d] + suffix[d + 1] <= floor) {
+                next++;   // "no leaf" cannot beat the floor either
+            }
+            if (next > options.length) {
+                choice[d] = -1;
+                d--;
+                continue;
+            }
+
+            nodes++;
+            choice[d] = next;
+            if (next < options.length) {
+                mark(options[next], 1);
+                score[d + 1] = score[d] + options[next].score;
+            } else {
+                score[d + 1] = score[d];
+            }
+            d++;
+            if (d < size) {
+                choice[d] = -1;
+            }
+        }
+        if (stopped) {
+            // Every depth up to and including d may hold a marked leaf (d's own
+            // choice stays marked after backtracking into it)
+            for (int i = 0; i <= d; i++) {
+                if (choice[i] >= 0 && choice[i] < leaves[i].length) {
+                    mark(leaves[i][choice[i]], -1);
+                }
+            }
+            stats.budgetHits++;
+        }
+        stats.searchNodes += nodes;
+        stats.globalHypotheses += best.size();
+
+        // Leaf probability = normalized weight of the hypotheses containing it
+        double top = Double.NEGATIVE_INFINITY;
+        for (Hypothesis h : best) {
+            top = Math.max(top, h.score);
+        }
+        double total = 0.0;
+        for (Hypothesis h : best) {
+            total += Math.exp(h.score - top);
+        }
+        for (Hypothesis h : best) {
+            double w = Math.exp(h.score - top) / total;
+            boolean isBest = h.score == top;
+            for (int i = 0; i < size; i++) {
+                if (h.choice[i] < leaves[i].length) {
+                    Node leaf = leaves[i][h.choice[i]];
+                    leaf.probability += w;
+                    leaf.inBest |= isBest;
+                }
+            }
+        }
+    }
+
+    private boolean compatible(Node leaf) {
+        for (int id : leaf.window) {
+            if (used[id] > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void mark(Node leaf, int delta) {
+        for (int id : leaf.window) {
+            used[id] += delta;
+        }
+    }
+
+    // ---------------------------------
+    // Pruning and materialization
+    // ---------------------------------
+
+    private void prune() {
+        // Measurements of the decided frames, as the best global hypothesis assigned them
+        int decided = finalBefore - windowStart;
+        if (decided > 0) {
+            Arrays.fill(committed, 0, decided, 0);
+            for (Tree tree : trees) {
+                for (Node leaf : tree.leaves) {
+                    if (leaf.inBest) {
+                        for (int id : leaf.window) {
+                            if (id < decided) {
+                                committed[id] = tree.id;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        List<Tree> alive = new ArrayList<>(trees.size());
+        for (Tree tree : trees) {
+            Node anchorLeaf = null;
+            List<Node> kept = new ArrayList<>();
+            for (int i = 0; i < tree.leaves.size(); i++) {
+                Node leaf = tree.leaves.get(i);
+                // A young tree keeps its best leaf (leaves are sorted by score in
+                // search) while it is too new to outscore "all clutter"
+                boolean tentative = i == 0 && leaf.depth < scanDepth;
+                if ((leaf.probability >= minProbability && leaf.probability > 0.0 || tentative)
+                        && !takenByOther(leaf, tree.id, decided)) {
+                    kept.add(leaf);
+                    if (anchorLeaf == null || leaf.inBest && !anchorLeaf.inBest
+                            || leaf.inBest == anchorLeaf.inBest && leaf.probability > anchorLeaf.probability) {
+                        anchorLeaf = leaf;
+                    }
+                } else {
+                    release(leaf);
+                }
+            }
+            if (kept.isEmpty()) {
+                stats.deletedTrees++;
+                continue;
+            }
+
+            // N-scan: keep only the branch scanDepth back that leads to the best leaf
+            int anchorDepth = anchorLeaf.depth - scanDepth;
+            if (anchorDepth > tree.root.depth) {
+                Node anchor = anchorLeaf.ancestor(anchorDepth);
+                List<Node> branch = new ArrayList<>(kept.size());
+                for (Node leaf : kept) {
+                    if (leaf.ancestor(anchorDepth) == anchor) {
+                        branch.add(leaf);
+                    } else {
+                        release(leaf);
+                    }
+                }
+                kept = branch;
+                anchor.parent = null;
+                tree.root = anchor;
+            }
+            tree.leaves = kept;
+            alive.add(tree);
+        }
+        trees.clear();
+        trees.addAll(alive);
+    }
+
+    private boolean takenByOther(Node leaf, int treeId, int decided) {
+        for (int id : leaf.window) {
+            if (id < decided && committed[id] != 0 && committed[id] != treeId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void release(Node leaf) {
+        stats.prunedLeaves++;
+        leaf.state.refs--;
+        leaf.state = null;
+    }
+
+    // Each surviving leaf gets a state of its own (the last sharer takes the
+    // parent's) and applies its pending measurement
+    private void materialize() {
+        for (Tree tree : trees) {
+            for (Node leaf : tree.leaves) {
+                State s = leaf.state;
+                State own;
+                if (s.refs == 1) {
+                    own = s;
+                    stats.stateReuses++;
+                } else {
+                    own = s.copy();
+                    s.refs--;
+                    own.refs = 1;
+                    stats.stateCopies++;
+                }
+                if (leaf.pendingZ != null) {
+                    worker.reset(own.x, own.P);
+                    worker.update(leaf.pendingZ);
+                    own.x.copyFrom(worker.getState());
+                    own.P.copyFrom(worker.getSymmetricCovariance());
+                    leaf.pendingZ = null;
+                }
+                leaf.state = own;
+                leaf.window = null;
+                stats.leaves++;
+            }
+        }
+    }
+
+    private void report() {
+        confirmed.clear();
+        for (Tree tree : trees) {
+            for (Node leaf : tree.leaves) {
+                if (leaf.inBest && leaf.score >= confirmScore) {
+                    confirmed.add(new TrackEstimate(tree.id, leaf.score, leaf.state.x.copy()));
+                }
+            }
+        }
+    }
+}
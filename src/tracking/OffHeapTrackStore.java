@@ -0,0 +1,420 @@
+package tracking;
+
+import math.Matrix;
+import math.SymmetricMatrix;
+import math.Vector;
+import models.MotionModel;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static java.lang.foreign.ValueLayout.JAVA_DOUBLE;
+import static java.lang.foreign.ValueLayout.JAVA_INT;
+import static java.lang.foreign.ValueLayout.JAVA_LONG;
+
+// Track records held outside the Java heap in one MemorySegment, so heap usage
+// (and GC work) stays flat no matter how many tracks are stored. The segment can
+// be a file mapping: reopening the same file picks every track back up.
+//
+// Segment layout (all offsets in bytes, every field 8-byte aligned):
+//
+//   header   MAGIC(long) STATE_SIZE(int) pad(int) CAPACITY(long) HIGH_WATER(long) FREE_HEAD(long)
+//   record   ID(long) MODEL_TAG(int) COAST(int) LAST_UPDATE(double) x[n](double) P[n(n+1)/2](double)
+//
+// P is the packed upper triangle, row by row. A free record has ID 0 and keeps
+// the index of the next free record in its first state word.
+// Slots (record indices) are the handles; nothing per track lives on the heap.
+public class OffHeapTrackStore implements AutoCloseable {
+
+    private static final long MAGIC = 0x544b53544f524531L;  // "TKSTORE1"
+
+    private static final long H_MAGIC = 0;
+    private static final long H_STATE_SIZE = 8;
+    private static final long H_CAPACITY = 16;
+    private static final long H_HIGH_WATER = 24;
+    private static final long H_FREE_HEAD = 32;
+    private static final long HEADER_SIZE = 40;
+
+    private static final long ID = 0;
+    private static final long MODEL_TAG = 8;
+    private static final long COAST = 12;
+    private static final long LAST_UPDATE = 16;
+    private static final long X = 24;
+
+    private static final long NO_SLOT = -1;
+
+    private final Arena arena;
+    private final MemorySegment segment;
+    private final int n;
+    private final long capacity;
+    private final long recordSize;
+    private final long covOffset;   // P within a record
+    private final int[] lane;       // lane[i * n + j] = packed entry of (i, j)
+
+    // kernel scratch (fixed size, independent of track count)
+    private final Matrix F;
+    private final Matrix Q;
+    private final double[] xs;
+    private final double[] fp;
+    private final double[] pht;
+
+    private OffHeapTrackStore(Arena arena, MemorySegment segment, int n, long capacity) {
+        this.arena = arena;
+        this.segment = segment;
+        this.n = n;
+        this.capacity = capacity;
+        this.recordSize = recordSize(n);
+        this.covOffset = X + 8L * n;
+
+        this.lane = new int[n * n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                lane[i * n + j] = SymmetricMatrix.index(n, i, j);
+            }
+        }
+
+        this.F = new Matrix(n, n);
+        this.Q = new Matrix(n, n);
+        this.xs = new double[n];
+        this.fp = new double[n * n];
+        this.pht = new double[n];
+    }
+
+    private static long recordSize(int n) {
+        return X + 8L * (n + n * (n + 1) / 2);
+    }
+
+    private static long segmentSize(int n, long capacity) {
+        return HEADER_SIZE + capacity * recordSize(n);
+    }
+
+    // ---------------------------------
+    // Creating / opening
+    // ---------------------------------
+
+    // Store in native memory, freed on close()
+    public static OffHeapTrackStore allocate(int stateSize, long capacity) {
+        Arena arena = Arena.ofShared();
+        MemorySegment seg = arena.allocate(segmentSize(stateSize, capacity), 8);
+        OffHeapTrackStore store = new OffHeapTrackStore(arena, seg, stateSize, capacity);
+        store.initHeader();
+        return store;
+    }
+
+    // Store backed by a file mapping. An existing file with the same layout is
+    // reopened as-is (warm restart); otherwise the file is created and initialized.
+    public static OffHeapTrackStore map(Path file, int stateSize, long capacity) throws IOException {
+        long size = segmentSize(stateSize, capacity);
+        Arena arena = Arena.ofShared();
+        try (FileChannel ch = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            boolean fresh = ch.size() == 0;
+            if (!fresh && ch.size() != size) {
+                throw new IllegalArgumentException("Store file has a different size/layout: " + file);
+            }
+            MemorySegment seg = ch.map(FileChannel.MapMode.READ_WRITE, 0, size, arena);
+            OffHeapTrackStore store = new OffHeapTrackStore(arena, seg, stateSize, capacity);
+            if (fresh) {
+                store.initHeader();
+            } else {
+                store.checkHeader();
+            }
+            return store;
+        } catch (IOException | RuntimeException e) {
+            arena.close();
+            throw e;
+        }
+    }
+
+    private void initHeader() {
+        segment.set(JAVA_LONG, H_MAGIC, MAGIC);
+        segment.set(JAVA_INT, H_STATE_SIZE, n);
+        segment.set(JAVA_LONG, H_CAPACITY, capacity);
+        segment.set(JAVA_LONG, H_HIGH_WATER, 0);
+        segment.set(JAVA_LONG, H_FREE_HEAD, NO_SLOT);
+    }
+
+    private void checkHeader() {
+        if (segment.get(JAVA_LONG, H_MAGIC) != MAGIC
+                || segment.get(JAVA_INT, H_STATE_SIZE) != n
+                || segment.get(JAVA_LONG, H_CAPACITY) != capacity) {
+            throw new IllegalArgumentException("Store header does not match the requested layout");
+        }
+    }
+
+    // Flush a file-backed store to disk (no-op for native memory)
+    public void force() {
+        if (segment.isMapped()) {
+            segment.force();
+        }
+    }
+
+    @Override
+    public void close() {
+        arena.close();
+    }
+
+    // ---------------------------------
+    // Slots
+    // ---------------------------------
+
+    public int stateSize() {
+        return n;
+    }
+
+    public long capacity() {
+        return capacity;
+    }
+
+    // Slots ever handed out: live slots are in [0, highWater())
+    public long highWater() {
+        return segment.get(JAVA_LONG, H_HIGH_WATER);
+    }
+
+    public long add(long id, int modelTag, Vector x0, Matrix P0, double time) {
+        if (id == 0) {
+            throw new IllegalArgumentException("Track id 0 is reserved for free records");
+        }
+
+        long slot = segment.get(JAVA_LONG, H_FREE_HEAD);
+        if (slot != NO_SLOT) {
+            segment.set(JAVA_LONG, H_FREE_HEAD, segment.get(JAVA_LONG, base(slot) + X));
+        } else {
+            slot = highWater();
+            if (slot == capacity) {
+                throw new IllegalStateException("Track store full (capacity " + capacity + ")");
+            }
+            segment.set(JAVA_LONG, H_HIGH_WATER, slot + 1);
+        }
+
+        long b = base(slot);
+        segment.set(JAVA_LONG, b + ID, id);
+        segment.set(JAVA_INT, b + MODEL_TAG, modelTag);
+        segment.set(JAVA_INT, b + COAST, 0);
+        segment.set(JAVA_DOUBLE, b + LAST_UPDATE, time);
+        writeState(slot, x0);
+        writeCovariance(slot, P0);
+        return slot;
+    }
+
+    public void remove(long slot) {
+        long b = base(slot);
+        if (segment.get(JAVA_LONG, b + ID) == 0) {
+            return;
+        }
+        segment.set(JAVA_LONG, b + ID, 0);
+        segment.set(JAVA_LONG, b + X, segment.get(JAVA_LONG, H_FREE_HEAD));
+        segment.set(JAVA_LONG, H_FREE_HEAD, slot);
+    }
+
+    public boolean isLive(long slot) {
+        return slot >= 0 && slot < highWater() && segment.get(JAVA_LONG, base(slot) + ID) != 0;
+    }
+
+    private long base(long slot) {
+        return HEADER_SIZE + slot * recordSize;
+    }
+
+    // ---------------------------------
+    // Field accessors
+    // ---------------------------------
+
+    public long id(long slot) {
+        return segment.get(JAVA_LONG, base(slot) + ID);
+    }
+
+    public int modelTag(long slot) {
+        return segment.get(JAVA_INT, base(slot) + MODEL_TAG);
+    }
+
+    public int coastCount(long slot) {
+        return segment.get(JAVA_INT, base(slot) + COAST);
+    }
+
+    public void setCoastCount(long slot, int coast) {
+        segment.set(JAVA_INT, base(slot) + COAST, coast);
+    }
+
+    public double lastUpdate(long slot) {
+        return segment.get(JAVA_DOUBLE, base(slot) + LAST_UPDATE);
+    }
+
+    public void setLastUpdate(long slot, double time) {
+        segment.set(JAVA_DOUBLE, base(slot) + LAST_UPDATE, time);
+    }
+
+    public double state(long slot, int k) {
+        return segment.get(JAVA_DOUBLE, base(slot) + X + 8L * k);
+    }
+
+    public void setState(long slot, int k, double value) {
+        segment.set(JAVA_DOUBLE, base(slot) + X + 8L * k, value);
+    }
+
+    public double covariance(long slot, int i, int j) {
+        return segment.get(JAVA_DOUBLE, base(slot) + covOffset + 8L * lane[i * n + j]);
+    }
+
+    public void setCovariance(long slot, int i, int j, double value) {
+        segment.set(JAVA_DOUBLE, base(slot) + covOffset + 8L * lane[i * n + j], value);
+    }
+
+    public void readState(long slot, Vector dest) {
+        for (int k = 0; k < n; k++) {
+            dest.set(k, state(slot, k));
+        }
+    }
+
+    public void writeState(long slot, Vector x) {
+        for (int k = 0; k < n; k++) {
+            setState(slot, k, x.get(k));
+        }
+    }
+
+    public void readCovariance(long slot, Matrix dest) {
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                dest.set(i, j, covariance(slot, i, j));
+            }
+        }
+    }
+
+    // Only the upper triangle of P is read
+    public void writeCovariance(long slot, Matrix P) {
+        for (int i = 0; i < n; i++) {
+            for (int j = i; j < n; j++) {
+                setCovariance(slot, i, j, P.get(i, j));
+            }
+        }
+    }
+
+    // ---------------------------------
+    // Kernels operating on the records in place
+    // ---------------------------------
+
+    // x = F x, P = F P F' + Q for every live record carrying modelTag
+    public void predictAll(int modelTag, MotionModel model, double dt) {
+        model.getFInto(dt, F);
+        model.getQInto(dt, Q);
+
+        long hw = highWater();
+        for (long slot = 0; slot < hw; slot++) {
+            long b = base(slot);
+            if (segment.get(JAVA_LONG, b + ID) == 0 || segment.get(JAVA_INT, b + MODEL_TAG) != modelTag) {
+                continue;
+            }
+            predictRecord(b);
+        }
+    }
+
+    private void predictRecord(long b) {
+        long px = b + X;
+        long pp = b + covOffset;
+
+        for (int i = 0; i < n; i++) {
+            double sum = 0.0;
+            for (int k = 0; k < n; k++) {
+                double f = F.get(i, k);
+                if (f != 0.0) {
+                    sum += f * segment.get(JAVA_DOUBLE, px + 8L * k);
+                }
+            }
+            xs[i] = sum;
+        }
+        for (int i = 0; i < n; i++) {
+            segment.set(JAVA_DOUBLE, px + 8L * i, xs[i]);
+        }
+
+        // fp = F P
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                double sum = 0.0;
+                for (int k = 0; k < n; k++) {
+                    double f = F.get(i, k);
+                    if (f != 0.0) {
+                        sum += f * segment.get(JAVA_DOUBLE, pp + 8L * lane[k * n + j]);
+                    }
+                }
+                fp[i * n + j] = sum;
+            }
+        }
+
+        // P = fp F' + Q, upper triangle only
+        for (int i = 0; i < n; i++) {
+            for (int j = i; j < n; j++) {
+                double sum = Q.get(i, j);
+                for (int k = 0; k < n; k++) {
+                    double f = F.get(j, k);
+                    if (f != 0.0) {
+                        sum += fp[i * n + k] * f;
+                    }
+                }
+                segment.set(JAVA_DOUBLE, pp + 8L * lane[i * n + j], sum);
+            }
+        }
+    }
+
+    // Scalar measurement z = h x + v, v ~ N(0, r). Vector measurements with
+    // diagonal noise are applied one component at a time.
+    public void updateScalar(long slot, double[] h, double r, double z, double time) {
+        long b = base(slot);
+        long px = b + X;
+        long pp = b + covOffset;
+
+        // pht = P h', s = h P h' + r
+        double s = r;
+        double hx = 0.0;
+        for (int i = 0; i < n; i++) {
+            double sum = 0.0;
+            for (int k = 0; k < n; k++) {
+                if (h[k] != 0.0) {
+                    sum += segment.get(JAVA_DOUBLE, pp + 8L * lane[i * n + k]) * h[k];
+                }
+            }
+            pht[i] = sum;
+            s += h[i] * sum;
+            hx += h[i] * segment.get(JAVA_DOUBLE, px + 8L * i);
+        }
+        if (!(s > 0.0)) {
+            throw new IllegalArgumentException("Innovation variance not positive");
+        }
+
+        // K = pht / s; x += K (z - h x); P -= K pht'
+        double innov = (z - hx) / s;
+        for (int i = 0; i < n; i++) {
+            long off = px + 8L * i;
+            segment.set(JAVA_DOUBLE, off, segment.get(JAVA_DOUBLE, off) + pht[i] * innov);
+        }
+        for (int i = 0; i < n; i++) {
+            double ki = pht[i] / s;
+            for (int j = i; j < n; j++) {
+                long off = pp + 8L * lane[i * n + j];
+                segment.set(JAVA_DOUBLE, off, segment.get(JAVA_DOUBLE, off) - ki * pht[j]);
+            }
+        }
+
+        segment.set(JAVA_INT, b + COAST, 0);
+        segment.set(JAVA_DOUBLE, b + LAST_UPDATE, time);
+    }
+
+    // Squared Mahalanobis distance of a scalar measurement
+    public double mahalanobisSquared(long slot, double[] h, double r, double z) {
+        long b = base(slot);
+        double s = r;
+        double hx = 0.0;
+        for (int i = 0; i < n; i++) {
+            double sum = 0.0;
+            for (int k = 0; k < n; k++) {
+                sum += segment.get(JAVA_DOUBLE, b + covOffset + 8L * lane[i * n + k]) * h[k];
+            }
+            s += h[i] * sum;
+            hx += h[i] * segment.get(JAVA_DOUBLE, b + X + 8L * i);
+        }
+        double innov = z - hx;
+        return innov * innov / s;
+    }
+}
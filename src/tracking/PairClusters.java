@@ -0,0 +1,128 @@
+package tracking;
+
+import java.util.Arrays;
+
+// Independent clusters of one frame's gated (track, measurement) pairs: the
+// connected components of the bipartite gating graph, found by union-find.
+// Clusters share no tracks or measurements, so associators can solve them
+// separately (and in parallel).
+//
+// Pairs are grouped cluster by cluster into one flat index array; arrays are
+// grown on demand and reused across frames.
+final class PairClusters {
+
+    // Union-find over nodes: tracks 0..nt-1, measurements nt..nt+nm-1
+    private int[] parent = new int[0];
+
+    private int[] clusterOf = new int[0];    // root node -> cluster index, or -1
+    private int[] clusterStart = new int[1]; // cluster c owns ordered[clusterStart[c] .. clusterStart[c + 1])
+    private int[] ordered = new int[0];      // pair indices, cluster by cluster
+    private int clusters;
+    private int largest;
+
+    // Global -> local index within a cluster, for the solvers (sparse sets: an
+    // entry is valid only when the cluster's own id list points back, so they are
+    // never cleared; clusters are disjoint, so parallel solves write disjoint entries)
+    private int[] trackSlot = new int[0];
+    private int[] measSlot = new int[0];
+
+    int count() {
+        return clusters;
+    }
+
+    int start(int c) {
+        return clusterStart[c];
+    }
+
+    int end(int c) {
+        return clusterStart[c + 1];
+    }
+
+    int[] ordered() {
+        return ordered;
+    }
+
+    // Pairs in the largest cluster
+    int largest() {
+        return largest;
+    }
+
+    int[] trackSlot() {
+        return trackSlot;
+    }
+
+    int[] measSlot() {
+        return measSlot;
+    }
+
+    // pairs[k] = track << 32 | measurement, k < count
+    void build(int nt, int nm, long[] pairs, int count) {
+        int nodes = nt + nm;
+        if (parent.length < nodes) {
+            parent = new int[Math.max(nodes, 2 * parent.length)];
+            clusterOf = new int[parent.length];
+        }
+        if (trackSlot.length < nt) {
+            trackSlot = new int[Math.max(nt, 2 * trackSlot.length)];
+        }
+        if (measSlot.length < nm) {
+            measSlot = new int[Math.max(nm, 2 * measSlot.length)];
+        }
+        for (int v = 0; v < nodes; v++) {
+            parent[v] = v;
+        }
+        for (int k = 0; k < count; k++) {
+            union((int) (pairs[k] >>> 32), nt + (int) pairs[k]);
+        }
+
+        // Number the clusters (by the root of their tracks) and count pairs per cluster
+        Arrays.fill(clusterOf, 0, nodes, -1);
+        clusters = 0;
+        if (clusterStart.length < count + 2) {
+            clusterStart = new int[Math.max(count + 2, 2 * clusterStart.length)];
+        }
+        if (ordered.length < count) {
+            ordered = new int[Math.max(count, 2 * ordered.length)];
+        }
+        for (int k = 0; k < count; k++) {
+            int root = find((int) (pairs[k] >>> 32));
+            if (clusterOf[root] < 0) {
+                clusterOf[root] = clusters;
+                clusterStart[++clusters] = 0;
+            }
+            clusterStart[clusterOf[root] + 1]++;
+        }
+        clusterStart[0] = 0;
+        largest = 0;
+        for (int c = 0; c < clusters; c++) {
+            largest = Math.max(largest, clusterStart[c + 1]);
+            clusterStart[c + 1] += clusterStart[c];
+        }
+
+        // Scatter pair indices (clusterStart[c] is the cursor, then restored)
+        for (int k = 0; k < count; k++) {
+            int c = clusterOf[find((int) (pairs[k] >>> 32))];
+            ordered[clusterStart[c]++] = k;
+        }
+        for (int c = clusters; c > 0; c--) {
+            clusterStart[c] = clusterStart[c - 1];
+        }
+        clusterStart[0] = 0;
+    }
+
+    private int find(int v) {
+        while (parent[v] != v) {
+            parent[v] = parent[parent[v]];  // path halving
+            v = parent[v];
+        }
+        return v;
+    }
+
+    private void union(int a, int b) {
+        int ra = find(a);
+        int rb = find(b);
+        if (ra != rb) {
+            parent[ra] = rb;
+        }
+    }
+}
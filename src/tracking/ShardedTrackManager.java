@@ -0,0 +1,390 @@
+package tracking;
+
+import math.Vector;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// The surveillance area split into shardsX x shardsY rectangles, each owned by
+// its own TrackManager running on its own thread, so association (a serial
+// step inside one manager) scales with the shard count.
+//
+// Per frame:
+//   1. route: every measurement goes to the shard containing it, and is
+//      mirrored to each neighbour whose rectangle widened by margin contains
+//      it, so tracks near a boundary still see the measurements across it
+//   2. associate (all shards in parallel): predict, gate, associate, update
+//   3. only the owner shard may start a track from a measurement, and only if
+//      no shard used it (no duplicate tracks along the boundaries)
+//   4. handoff: a track whose estimate has left its shard moves, with its id,
+//      filter and coast count, to the shard it is now in
+//
+// Each shard associates on its own, so near a boundary one measurement can
+// update a track on each side where a single GNN would pick one; getStats()
+// counts these. margin must cover the gate plus how far a track can move past
+// the boundary in one frame before its handoff, and at most half a shard.
+// Measurements outside the area belong to the nearest border shard.
+public class ShardedTrackManager implements AutoCloseable {
+
+    private final double minX;
+    private final double minY;
+    private final double shardWidth;
+    private final double shardHeight;
+    private final int shardsX;
+    private final int shardsY;
+    private final double margin;
+
+    private final TrackManager[] shards;
+    private final ExecutorService pool;   // null: shards run on the calling thread
+
+    // Per-frame routing, grown on demand
+    private final List<List<Vector>> shardZ = new ArrayList<>();
+    private int[][] shardIndex;            // shard-local measurement -> frame measurement
+    private final int[] ownCount;          // own measurements come first, then mirrors
+    private int[] useCount = new int[0];   // frame measurement -> shards that used it
+    private final List<List<Handoff>> outbox = new ArrayList<>();
+
+    private final Stats stats;
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final boolean CPU_TIME = THREADS.isCurrentThreadCpuTimeSupported();
+
+    private static final class Handoff {
+        final TrackManager.SimpleTrack track;
+        final int to;
+
+        Handoff(TrackManager.SimpleTrack track, int to) {
+            this.track = track;
+            this.to = to;
+        }
+    }
+
+    // Last frame's timing (routing, merge and handoff run on the calling thread;
+    // associate and create are wall times of the parallel phases) and counts
+    public static final class Stats {
+        public long routeNanos;
+        public long associateNanos;
+        public long mergeNanos;
+        public long createNanos;
+        public long handoffNanos;
+        public long totalNanos;
+        public final long[] shardNanos;  // CPU time per shard (associate + create)
+
+        public int mirrored;             // measurement copies sent to neighbours
+        public int shared;               // measurements used by more than one shard
+        public int handoffs;
+
+        Stats(int shards) {
+            shardNanos = new long[shards];
+        }
+
+        // Largest shard busy time plus the serial steps: the frame time with one core per shard
+        public long criticalPathNanos() {
+            long max = 0;
+            for (long n : shardNanos) {
+                max = Math.max(max, n);
+            }
+            return routeNanos + mergeNanos + handoffNanos + max;
+        }
+
+        // Total work: the frame time on one core
+        public long workNanos() {
+            long sum = 0;
+            for (long n : shardNanos) {
+                sum += n;
+            }
+            return routeNanos + mergeNanos + handoffNanos + sum;
+        }
+    }
+
+    // threaded: one thread per shard (close() stops them); otherwise the shards
+    // run one after the other on the calling thread
+    public ShardedTrackManager(double minX, double minY, double maxX, double maxY,
+                               int shardsX, int shardsY, double gateThreshold, int maxCoast,
+                               double margin, boolean threaded) {
+        if (shardsX < 1 || shardsY < 1) {
+            throw new IllegalArgumentException("Need at least one shard in each direction");
+        }
+        if (!(maxX > minX) || !(maxY > minY)) {
+            throw new IllegalArgumentException("Empty surveillance area");
+        }
+        this.minX = minX;
+        this.minY = minY;
+        this.shardsX = shardsX;
+        this.shardsY = shardsY;
+        this.shardWidth = (maxX - minX) / shardsX;
+        this.shardHeight = (maxY - minY) / shardsY;
+        if (!(margin >= gateThreshold)) {
+            throw new IllegalArgumentException("Shard margin must cover the gate");
+        }
+        if ((shardsX > 1 && margin > 0.5 * shardWidth) || (shardsY > 1 && margin > 0.5 * shardHeight)) {
+            throw new IllegalArgumentException("Shard margin must be at most half a shard");
+        }
+        this.margin = margin;
+
+        int n = shardsX * shardsY;
+        this.shards = new TrackManager[n];
+        this.shardIndex = new int[n][16];
+        this.ownCount = new int[n];
+        for (int s = 0; s < n; s++) {
+            shards[s] = new TrackManager(gateThreshold, maxCoast);
+            shards[s].setVerbose(false);
+            shards[s].setParallelAssociation(false);   // the shards are the unit of parallelism
+            shardZ.add(new ArrayList<>());
+            outbox.add(new ArrayList<>());
+        }
+        this.stats = new Stats(n);
+        this.pool = threaded && n > 1
+                ? Executors.newFixedThreadPool(n, r -> {
+                    Thread t = new Thread(r, "track-shard");
+                    t.setDaemon(true);
+                    return t;
+                })
+                : null;
+    }
+
+    public ShardedTrackManager(double minX, double minY, double maxX, double maxY,
+                               int shardsX, int shardsY, double gateThreshold, int maxCoast) {
+        this(minX, minY, maxX, maxY, shardsX, shardsY, gateThreshold, maxCoast, 2.0 * gateThreshold, true);
+    }
+
+    public int shardCount() {
+        return shards.length;
+    }
+
+    // For per-shard settings (gates, association); shard s covers column s % shardsX, row s / shardsX
+    public TrackManager getShard(int s) {
+        return shards[s];
+    }
+
+    public void setChiSquareGate(double gamma) {
+        for (TrackManager m : shards) {
+            m.setChiSquareGate(gamma);
+        }
+    }
+
+    public void setAssociation(TrackManager.Association association) {
+        for (TrackManager m : shards) {
+            m.setAssociation(association);
+        }
+    }
+
+    public void setSteadyState(boolean enabled) {
+        for (TrackManager m : shards) {
+            m.setSteadyState(enabled);
+        }
+    }
+
+    public Stats getStats() {
+        return stats;
+    }
+
+    // All shards' tracks (a new list)
+    public List<TrackManager.SimpleTrack> getTracks() {
+        List<TrackManager.SimpleTrack> all = new ArrayList<>();
+        for (TrackManager m : shards) {
+            all.addAll(m.getTracks());
+        }
+        return all;
+    }
+
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    // ---------------------------------
+    // Frame processing
+    // ---------------------------------
+
+    public void processFrame(double timestamp, List<Vector> measurements) {
+        long start = System.nanoTime();
+        int nm = measurements.size();
+        Arrays.fill(stats.shardNanos, 0L);
+        stats.shared = 0;
+        stats.handoffs = 0;
+
+        // 1. Route
+        long t = System.nanoTime();
+        route(measurements);
+        stats.routeNanos = System.nanoTime() - t;
+
+        // 2. Associate
+        t = System.nanoTime();
+        runShards(s -> shards[s].associateFrame(timestamp, shardZ.get(s)));
+        stats.associateNanos = System.nanoTime() - t;
+
+        // 3. Which measurements updated a track anywhere
+        t = System.nanoTime();
+        if (useCount.length < nm) {
+            useCount = new int[Math.max(nm, 2 * useCount.length)];
+        }
+        Arrays.fill(useCount, 0, nm, 0);
+        for (int s = 0; s < shards.length; s++) {
+            int[] index = shardIndex[s];
+            for (int j = 0, n = shardZ.get(s).size(); j < n; j++) {
+                if (shards[s].measurementUsed(j) && ++useCount[index[j]] == 2) {
+                    stats.shared++;
+                }
+            }
+        }
+        stats.mergeNanos = System.nanoTime() - t;
+
+        // Owners start tracks from unused measurements, drop coasted tracks and
+        // list the tracks that have left them
+        t = System.nanoTime();
+        runShards(s -> {
+            TrackManager m = shards[s];
+            List<Vector> zs = shardZ.get(s);
+            int[] index = shardIndex[s];
+            for (int j = 0; j < ownCount[s]; j++) {
+                if (useCount[index[j]] == 0) {
+                    m.createTrack(zs.get(j));
+                }
+            }
+            m.deleteCoasted();
+
+            List<TrackManager.SimpleTrack> leaving = new ArrayList<>();
+            m.removeTracks(track -> owner(track.track.getState()) != s, leaving);
+            List<Handoff> moves = outbox.get(s);
+            moves.clear();
+            for (TrackManager.SimpleTrack track : leaving) {
+                moves.add(new Handoff(track, owner(track.track.getState())));
+            }
+        });
+        stats.createNanos = System.nanoTime() - t;
+
+        // 4. Handoff
+        t = System.nanoTime();
+        for (List<Handoff> moves : outbox) {
+            for (Handoff move : moves) {
+                shards[move.to].adoptTrack(move.track);
+                stats.handoffs++;
+            }
+        }
+        stats.handoffNanos = System.nanoTime() - t;
+        stats.totalNanos = System.nanoTime() - start;
+    }
+
+    private void route(List<Vector> measurements) {
+        int n = shards.length;
+        for (int s = 0; s < n; s++) {
+            shardZ.get(s).clear();
+            ownCount[s] = 0;
+        }
+        for (int j = 0; j < measurements.size(); j++) {
+            Vector z = measurements.get(j);
+            int s = owner(z);
+            add(s, z, j);
+            ownCount[s]++;
+        }
+
+        // Mirrors after every shard's own measurements
+        stats.mirrored = 0;
+        for (int j = 0; j < measurements.size(); j++) {
+            Vector z = measurements.get(j);
+            double x = z.get(0);
+            double y = z.get(1);
+            int ix = column(x);
+            int iy = row(y);
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dx = -1; dx <= 1; dx++) {
+                    int cx = ix + dx;
+                    int cy = iy + dy;
+                    if ((dx == 0 && dy == 0) || cx < 0 || cx >= shardsX || cy < 0 || cy >= shardsY) {
+                        continue;
+                    }
+                    if (withinMargin(x, minX + cx * shardWidth, shardWidth)
+                            && withinMargin(y, minY + cy * shardHeight, shardHeight)) {
+                        add(cy * shardsX + cx, z, j);
+                        stats.mirrored++;
+                    }
+                }
+            }
+        }
+    }
+
+    private boolean withinMargin(double v, double low, double size) {
+        return v >= low - margin && v < low + size + margin;
+    }
+
+    private void add(int s, Vector z, int j) {
+        List<Vector> zs = shardZ.get(s);
+        if (zs.size() == shardIndex[s].length) {
+            shardIndex[s] = Arrays.copyOf(shardIndex[s], 2 * zs.size());
+        }
+        shardIndex[s][zs.size()] = j;
+        zs.add(z);
+    }
+
+    private int owner(Vector position) {
+        return row(position.get(1)) * shardsX + column(position.get(0));
+    }
+
+    private int column(double x) {
+        return Math.min(shardsX - 1, Math.max(0, (int) Math.floor((x - minX) / shardWidth)));
+    }
+
+    private int row(double y) {
+        return Math.min(shardsY - 1, Math.max(0, (int) Math.floor((y - minY) / shardHeight)));
+    }
+
+    // ---------------------------------
+    // Shard execution
+    // ---------------------------------
+
+    private interface ShardTask {
+        void run(int shard);
+    }
+
+    // Runs task for every shard, timing each into stats.shardNanos
+    private void runShards(ShardTask task) {
+        int n = shards.length;
+        if (pool == null) {
+            for (int s = 0; s < n; s++) {
+                runTimed(task, s);
+            }
+            return;
+        }
+        List<Future<?>> futures = new ArrayList<>(n);
+        for (int s = 0; s < n; s++) {
+            final int shard = s;
+            futures.add(pool.submit(() -> runTimed(task, shard)));
+        }
+        for (Future<?> f : futures) {
+            try {
+                f.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the shards", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException re) {
+                    throw re;
+                }
+                throw new IllegalStateException("Shard failed", e.getCause());
+            }
+        }
+    }
+
+    // CPU time where available: with fewer cores than shards, wall time would
+    // also count the time a shard thread waits for a core
+    private void runTimed(ShardTask task, int s) {
+        long t = cpuTime();
+        task.run(s);
+        stats.shardNanos[s] += cpuTime() - t;
+    }
+
+    private static long cpuTime() {
+        return CPU_TIME ? THREADS.getCurrentThreadCpuTime() : System.nanoTime();
+    }
+}
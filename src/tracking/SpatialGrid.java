@@ -0,0 +1,136 @@
+package tracking;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+// Uniform-grid spatial hash over 2D points, for gating: a query touches only the
+// cells around the measurement instead of every track.
+//
+// Cells are cellSize x cellSize (the gate size, so a gate query reads a 3x3
+// block). Occupied cells are hashed into a table of about twice as many buckets
+// as points, and the points are counting-sorted by bucket into flat primitive
+// arrays, so a rebuild is O(n), allocation-free once the arrays have grown, and
+// each bucket's points are contiguous in memory.
+public class SpatialGrid {
+
+    private final double cellSize;
+    private final double inverseCell;
+
+    private int size;
+    private int mask;               // table size - 1 (power of two)
+    private int[] bucketStart = new int[1];   // bucket b owns [bucketStart[b], bucketStart[b + 1])
+
+    // Points sorted by bucket
+    private double[] px = new double[0];
+    private double[] py = new double[0];
+    private long[] pcx = new long[0];
+    private long[] pcy = new long[0];
+    private int[] pid = new int[0];
+
+    // Rebuild scratch
+    private int[] bucketOf = new int[0];
+
+    public SpatialGrid(double cellSize) {
+        if (!(cellSize > 0.0)) {
+            throw new IllegalArgumentException("Grid cell size must be positive");
+        }
+        this.cellSize = cellSize;
+        this.inverseCell = 1.0 / cellSize;
+    }
+
+    public double cellSize() {
+        return cellSize;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Index points 0..count-1 at (xs[i], ys[i]); queries report those indices
+    public void rebuild(double[] xs, double[] ys, int count) {
+        ensureCapacity(count);
+        size = count;
+
+        int buckets = Integer.highestOneBit(Math.max(1, 2 * count - 1)) << 1;
+        if (bucketStart.length < buckets + 1) {
+            bucketStart = new int[buckets + 1];
+        }
+        mask = buckets - 1;
+        Arrays.fill(bucketStart, 0, buckets + 1, 0);
+
+        // Count per bucket, then prefix sums give each bucket's range
+        for (int i = 0; i < count; i++) {
+            int b = bucket(cell(xs[i]), cell(ys[i]));
+            bucketOf[i] = b;
+            bucketStart[b + 1]++;
+        }
+        for (int b = 0; b < buckets; b++) {
+            bucketStart[b + 1] += bucketStart[b];
+        }
+
+        // Scatter (bucketStart[b] is used as the fill cursor, then restored)
+        for (int i = 0; i < count; i++) {
+            int k = bucketStart[bucketOf[i]]++;
+            px[k] = xs[i];
+            py[k] = ys[i];
+            pcx[k] = cell(xs[i]);
+            pcy[k] = cell(ys[i]);
+            pid[k] = i;
+        }
+        for (int b = buckets; b > 0; b--) {
+            bucketStart[b] = bucketStart[b - 1];
+        }
+        bucketStart[0] = 0;
+    }
+
+    // Calls action with the index of every point within radius of (x, y)
+    public void forEachWithin(double x, double y, double radius, IntConsumer action) {
+        if (size == 0) {
+            return;
+        }
+        long cx = cell(x);
+        long cy = cell(y);
+        long reach = (long) Math.ceil(radius * inverseCell);
+        double r2 = radius * radius;
+
+        for (long gx = cx - reach; gx <= cx + reach; gx++) {
+            for (long gy = cy - reach; gy <= cy + reach; gy++) {
+                int b = bucket(gx, gy);
+                for (int k = bucketStart[b], end = bucketStart[b + 1]; k < end; k++) {
+                    // Other cells can share the bucket: skip them (and avoid reporting twice)
+                    if (pcx[k] != gx || pcy[k] != gy) {
+                        continue;
+                    }
+                    double dx = px[k] - x;
+                    double dy = py[k] - y;
+                    if (dx * dx + dy * dy < r2) {
+                        action.accept(pid[k]);
+                    }
+                }
+            }
+        }
+    }
+
+    private long cell(double v) {
+        return (long) Math.floor(v * inverseCell);
+    }
+
+    private int bucket(long cx, long cy) {
+        long h = cx * 0x9E3779B97F4A7C15L ^ cy * 0xC2B2AE3D27D4EB4FL;
+        h ^= h >>> 29;
+        return (int) h & mask;
+    }
+
+    private void ensureCapacity(int count) {
+        if (px.length >= count) {
+            return;
+        }
+        int cap = Math.max(count, 2 * px.length);
+        px = new double[cap];
+        py = new double[cap];
+        pcx = new long[cap];
+        pcy = new long[cap];
+        pid = new int[cap];
+        bucketOf = new int[cap];
+    }
+}
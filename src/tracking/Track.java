@@ -21,4 +21,18 @@ public class Track {
     public math.Vector getState() {
         return filter.getState();
     }
+
+    // JPDA update with association probabilities, see Filter.updateWeighted
+    public void updateWeighted(math.Vector[] zs, double[] weights, int offset, int count) {
+        filter.updateWeighted(zs, weights, offset, count);
+    }
+
+    public double logLikelihood(math.Vector z) {
+        return filter.logLikelihood(z);
+    }
+
+    // Gating distance; the filter caches S until its next predict/update
+    public double mahalanobisSquared(math.Vector z) {
+        return filter.mahalanobisSquared(z);
+    }
 }
@@ -1,26 +1,117 @@
 package tracking;
 
+import filters.FilterBank;
 import filters.KalmanFilter;
 import math.Matrix;
 import math.Vector;
 import models.CVModel;
+import models.CachedMotionModel;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
 
 public class TrackManager {
 
-    private static int nextTrackId = 1;
+    // Shared by every manager (shards create tracks concurrently)
+    private static final AtomicInteger nextTrackId = new AtomicInteger(1);
     private final List<SimpleTrack> tracks = new ArrayList<>();
 
     // Gating threshold (distance)
     private final double gateThreshold;
     private final int maxCoast;
 
+    // Chi-square gate on the squared Mahalanobis distance (NaN: Euclidean gating only)
+    private double chiSquareGate = Double.NaN;
+
+    // Chi-square quantiles for a 2-D position measurement
+    public static final double CHI2_2DOF_95 = 5.991;
+    public static final double CHI2_2DOF_99 = 9.210;
+
+    // Optional storage engine: all tracks live in one structure-of-arrays bank
+    private final FilterBank bank;
+
+    // One CV discretization per distinct dt, shared by every track
+    private final CachedMotionModel cvModel = new CachedMotionModel(new CVModel(1.0));
+
+    // Time of the last processed frame (NaN before the first)
+    private double frameTime = Double.NaN;
+
+    // Predicted track positions indexed for gating (rebuilt lazily after any change)
+    private final SpatialGrid grid;
+    private boolean gridValid;
+    private double[] gridX = new double[0];
+    private double[] gridY = new double[0];
+
+    // processFrame association (see setAssociation)
+    public enum Association { GREEDY, GNN, JPDA }
+
+    private Association association = Association.GNN;
+    private boolean parallelAssociation = true;
+    private final GnnAssociator gnn = new GnnAssociator();
+
+    // JPDA defaults: detection probability, clutter per m^2, events enumerated per cluster
+    public static final double JPDA_DETECTION = 0.9;
+    public static final double JPDA_CLUTTER = 1e-5;
+    public static final int JPDA_MAX_HYPOTHESES = 10_000;
+
+    private JpdaAssociator jpda = new JpdaAssociator(JPDA_DETECTION, JPDA_CLUTTER, JPDA_MAX_HYPOTHESES);
+
+    // Below this many tracks the JPDA updates run on the calling thread
+    private static final int PARALLEL_MIN_TRACKS = 256;
+
+    // Chunked per-track work (see setParallelTracks): 0 = off, else the smallest chunk
+    public static final int DEFAULT_MIN_BATCH = 512;
+    private int minBatch;
+
+    // Per-track/per-measurement console output
+    private boolean verbose = true;
+
+    // New tracks run their KalmanFilter in steady-state gain mode (see setSteadyState)
+    private boolean steadyState;
+
+    // processFrame scratch, grown on demand
+    private long[] pairs = new long[0];        // gated candidates, track << 32 | measurement
+    private double[] pairDist = new double[0]; // cost: distance, or d^2 with a chi-square gate
+                                               // (JPDA: log-likelihood)
+    private double[] pairBeta = new double[0]; // JPDA association probabilities
+    private long[] sortKeys = new long[0];     // float distance bits << 32 | pair index
+    private int pairCount;
+    private int[] trackOf = new int[0];        // measurement -> track index, or -1
+    private boolean[] trackUsed = new boolean[0];
+
+    // Parallel gating: grid candidates in measurement order, grouped by track
+    private long[] candidates = new long[0];   // track << 32 | measurement
+    private double[] candidateValue = new double[0];
+    private int candidateCount;
+    private int[] candidateStart = new int[1];
+    private int[] candidateByTrack = new int[0];
+
+    // JPDA: gated measurements and their weights grouped by track
+    private int[] trackPairStart = new int[1];
+    private Vector[] weightedZ = new Vector[0];
+    private double[] weightedBeta = new double[0];
+
+    // FilterBank mode: the frame's assigned (slot, measurement) pairs, one batch update
+    private int[] updateSlots = new int[0];
+    private double[] updateZ = new double[0];
+
     public TrackManager(double gateThreshold, int maxCoast) {
+        this(gateThreshold, maxCoast, false);
+    }
+
+    public TrackManager(double gateThreshold, int maxCoast, boolean useFilterBank) {
         this.gateThreshold = gateThreshold;
         this.maxCoast = maxCoast;
+        this.grid = new SpatialGrid(gateThreshold);
+        this.bank = useFilterBank
+                ? new FilterBank(new CVModel(1.0), 4, measurementMatrix(), measurementNoise(), 64)
+                : null;
     }
 
     // Inner class representing ONE active track
@@ -28,6 +119,7 @@ public class TrackManager {
         public int id;
         public Track track;
         public int coastCount = 0;
+        public int slot = -1;  // FilterBank slot, or -1 when the track owns its filter
 
         public SimpleTrack(int id, Track track) {
             this.id = id;
@@ -35,26 +127,176 @@ public class TrackManager {
         }
     }
 
+    public CachedMotionModel getModelCache() {
+        return cvModel;
+    }
+
+    // Statistical gating: a track accepts z when y' S^{-1} y < gamma, and the
+    // closest track in that sense wins. gateThreshold stays as the coarse
+    // Euclidean bound (it sizes the spatial grid). Each track factors S once per
+    // frame; every test against it, and its update, reuse that factorization.
+    public void setChiSquareGate(double gamma) {
+        if (!(gamma > 0.0)) {
+            throw new IllegalArgumentException("Chi-square gate must be positive");
+        }
+        this.chiSquareGate = gamma;
+    }
+
+    // processFrame association:
+    //   GREEDY  closest pairs first; can steal a measurement from a track that
+    //           has no other candidate when targets cross
+    //   GNN     (default) the assignment with the lowest total cost, a track left
+    //           unmatched costing the gate
+    //   JPDA    no hard decision: each track is updated with all of its gated
+    //           measurements weighted by their association probabilities, which
+    //           holds tracks through clutter (needs per-track filters)
+    public void setAssociation(Association association) {
+        if (association == Association.JPDA && bank != null) {
+            throw new UnsupportedOperationException("JPDA needs per-track filters, not a FilterBank");
+        }
+        this.association = association;
+    }
+
+    // Detection probability in (0, 1), clutter density per m^2 and the cap on
+    // joint events enumerated per cluster (larger clusters get approximate
+    // marginals from loopy belief propagation)
+    public void setJpdaParameters(double detectionProbability, double clutterDensity, int maxHypotheses) {
+        JpdaAssociator next = new JpdaAssociator(detectionProbability, clutterDensity, maxHypotheses);
+        next.setParallel(parallelAssociation);
+        this.jpda = next;
+    }
+
+    // Solve independent clusters (and JPDA track updates) on the common
+    // ForkJoin pool; on by default, only used when a frame is large enough
+    public void setParallelAssociation(boolean enabled) {
+        this.parallelAssociation = enabled;
+        gnn.setParallel(enabled);
+        jpda.setParallel(enabled);
+    }
+
+    // Constant-gain filtering (KalmanFilter.setSteadyState) for every track. All
+    // tracks share the CV model, H and R, so each frame period's Riccati solution
+    // is solved once and shared through SteadyStateGain's cache. Per-track
+    // filters only; set before the first frame.
+    public void setSteadyState(boolean enabled) {
+        if (enabled && bank != null) {
+            throw new UnsupportedOperationException("Steady-state gains need per-track filters, not a FilterBank");
+        }
+        if (!tracks.isEmpty()) {
+            throw new IllegalStateException("Steady-state mode must be set before tracks exist");
+        }
+        this.steadyState = enabled;
+    }
+
+    public GnnAssociator getAssociator() {
+        return gnn;
+    }
+
+    public JpdaAssociator getJpdaAssociator() {
+        return jpda;
+    }
+
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
+    }
+
+    // Run the per-track filter work (predict, gating distances and likelihoods,
+    // hard-assignment updates) in chunks of at least minBatch tracks on the common
+    // ForkJoin pool; smaller scenes stay on the calling thread. Each track is only
+    // touched by one thread and association still sees the pairs in the same
+    // order, so results are bit-identical to the sequential loops. Per-track
+    // filters only: a FilterBank shares its scratch between slots (and batches
+    // its own predict).
+    public void setParallelTracks(boolean enabled, int minBatch) {
+        if (minBatch < 1) {
+            throw new IllegalArgumentException("Minimum batch size must be at least 1");
+        }
+        if (enabled && bank != null) {
+            throw new UnsupportedOperationException("Parallel track updates need per-track filters, not a FilterBank");
+        }
+        this.minBatch = enabled ? minBatch : 0;
+    }
+
+    public void setParallelTracks(boolean enabled) {
+        setParallelTracks(enabled, DEFAULT_MIN_BATCH);
+    }
+
+    // Body of a chunked loop over [from, to)
+    private interface RangeTask {
+        void run(int from, int to);
+    }
+
+    // Chunk length for n items: at least minBatch, about four chunks per worker
+    private int chunkSize(int n) {
+        if (minBatch == 0) {
+            return n;
+        }
+        int workers = ForkJoinPool.getCommonPoolParallelism();
+        return Math.max(minBatch, (n + 4 * workers - 1) / (4 * workers));
+    }
+
+    private void runChunked(int n, RangeTask task) {
+        int chunk = chunkSize(n);
+        if (chunk >= n) {
+            task.run(0, n);
+            return;
+        }
+        int chunks = (n + chunk - 1) / chunk;
+        IntStream.range(0, chunks).parallel().forEach(c -> task.run(c * chunk, Math.min(n, (c + 1) * chunk)));
+    }
+
     // Predict all tracks
     public void predictAll(double dt) {
-        for (SimpleTrack t : tracks) {
-            t.track.predict(dt);
+        gridValid = false;
+        if (bank != null) {
+            bank.predictAll(dt);
+            return;
         }
+        runChunked(tracks.size(), (from, to) -> {
+            for (int i = from; i < to; i++) {
+                tracks.get(i).track.predict(dt);
+            }
+        });
     }
 
-    // Try to update an existing track
-    private SimpleTrack findMatchingTrack(Vector z) {
-        for (SimpleTrack t : tracks) {
-            Vector est = t.track.getState();
-            double dx = est.get(0) - z.get(0);
-            double dy = est.get(1) - z.get(1);
-            double dist = Math.sqrt(dx*dx + dy*dy);
+    // Index the current track positions (cell size = gate, so a gate query reads 3x3 cells)
+    private void ensureGrid() {
+        if (gridValid) {
+            return;
+        }
+        int n = tracks.size();
+        if (gridX.length < n) {
+            gridX = new double[Math.max(n, 2 * gridX.length)];
+            gridY = new double[gridX.length];
+        }
+        for (int i = 0; i < n; i++) {
+            Vector est = tracks.get(i).track.getState();
+            gridX[i] = est.get(0);
+            gridY[i] = est.get(1);
+        }
+        grid.rebuild(gridX, gridY, n);
+        gridValid = true;
+    }
 
-            if (dist < gateThreshold) {
-                return t;
-            }
+    // Try to update an existing track: the first track (in list order) inside the
+    // Euclidean gate, or with a chi-square gate the one with the smallest distance
+    private SimpleTrack findMatchingTrack(Vector z) {
+        ensureGrid();
+        if (!Double.isNaN(chiSquareGate)) {
+            int[] best = {-1};
+            double[] bestD2 = {chiSquareGate};
+            grid.forEachWithin(z.get(0), z.get(1), gateThreshold, i -> {
+                double d2 = tracks.get(i).track.mahalanobisSquared(z);
+                if (d2 < bestD2[0]) {
+                    bestD2[0] = d2;
+                    best[0] = i;
+                }
+            });
+            return best[0] < 0 ? null : tracks.get(best[0]);
         }
-        return null;
+        int[] first = {Integer.MAX_VALUE};
+        grid.forEachWithin(z.get(0), z.get(1), gateThreshold, i -> first[0] = Math.min(first[0], i));
+        return first[0] == Integer.MAX_VALUE ? null : tracks.get(first[0]);
     }
 
     // Process one measurement at time t
@@ -70,14 +312,12 @@ public class TrackManager {
             // update
             match.track.update(z);
             match.coastCount = 0;
-            System.out.println("    Updated Track " + match.id);
+            gridValid = false;
+            if (verbose) {
+                System.out.println("    Updated Track " + match.id);
+            }
         } else {
-            // create a new track
-            int id = nextTrackId++;
-            Track newTrack = makeNewTrack(z);
-            SimpleTrack st = new SimpleTrack(id, newTrack);
-            tracks.add(st);
-            System.out.println("    Created Track " + id);
+            createTrack(z);
         }
 
         // 3. Coast tracks with no update
@@ -89,39 +329,445 @@ public class TrackManager {
         }
 
         // 4. Delete tracks that have coasted too long
+        deleteCoasted();
+    }
+
+    // Process every measurement of one scan taken at timestamp:
+    //   1. predict each track once, to the frame time
+    //   2. gate and associate the whole measurement set at once (see setAssociation)
+    //   3. update, coast, create and delete once per frame
+    public void processFrame(double timestamp, List<Vector> measurements) {
+        associateFrame(timestamp, measurements);
+
+        // New tracks for unmatched measurements
+        for (int j = 0; j < measurements.size(); j++) {
+            if (trackOf[j] < 0) {
+                createTrack(measurements.get(j));
+            }
+        }
+
+        deleteCoasted();
+    }
+
+    // processFrame up to track creation: predict, associate, update and coast.
+    // ShardedTrackManager then decides which measurements start tracks.
+    void associateFrame(double timestamp, List<Vector> measurements) {
+        if (timestamp < frameTime) {
+            throw new IllegalArgumentException("Frame at " + timestamp + " is older than the last one (" + frameTime + ")");
+        }
+
+        // 1. Predict
+        double dt = Double.isNaN(frameTime) ? 0.0 : timestamp - frameTime;
+        frameTime = timestamp;
+        if (dt > 0.0) {
+            predictAll(dt);
+        }
+
+        // 2. Associate
+        int nt = tracks.size();
+        int nm = measurements.size();
+        if (association == Association.JPDA) {
+            updateJpda(measurements, nt, nm);
+        } else {
+            associate(measurements, nt, nm);
+            updateAssigned(measurements, nm);
+        }
+
+        // 3. Coast the tracks that were not detected
+        for (int i = 0; i < nt; i++) {
+            if (!trackUsed[i]) {
+                tracks.get(i).coastCount++;
+            }
+        }
+    }
+
+    // After associateFrame: whether measurement j updated a track (JPDA: fell in a gate)
+    boolean measurementUsed(int j) {
+        return trackOf[j] >= 0;
+    }
+
+    // Moves every track matching leaving into out (shard handoff)
+    void removeTracks(Predicate<SimpleTrack> leaving, List<SimpleTrack> out) {
+        Iterator<SimpleTrack> it = tracks.iterator();
+        while (it.hasNext()) {
+            SimpleTrack t = it.next();
+            if (leaving.test(t)) {
+                out.add(t);
+                it.remove();
+                gridValid = false;
+            }
+        }
+    }
+
+    // Takes over a track from another manager, keeping its id, filter and coast count
+    void adoptTrack(SimpleTrack t) {
+        if (t.slot >= 0 || bank != null) {
+            throw new UnsupportedOperationException("Only tracks with their own filters can move between managers");
+        }
+        tracks.add(t);
+        gridValid = false;
+    }
+
+    private void updateAssigned(List<Vector> measurements, int nm) {
+        if (bank != null) {
+            updateBank(measurements, nm);
+        } else {
+            // A track takes at most one measurement, so chunks of measurements
+            // update disjoint tracks
+            runChunked(nm, (from, to) -> {
+                for (int j = from; j < to; j++) {
+                    int i = trackOf[j];
+                    if (i >= 0) {
+                        tracks.get(i).track.update(measurements.get(j));
+                    }
+                }
+            });
+        }
+        for (int j = 0; j < nm; j++) {
+            int i = trackOf[j];
+            if (i >= 0) {
+                SimpleTrack t = tracks.get(i);
+                t.coastCount = 0;
+                gridValid = false;
+                if (verbose) {
+                    System.out.println("    Updated Track " + t.id);
+                }
+            }
+        }
+    }
+
+    // Every assigned slot in one FilterBank.updateSubset call (the batch kernel
+    // for CV position measurements) instead of one SlotFilter update per track
+    private void updateBank(List<Vector> measurements, int nm) {
+        int m = bank.measurementSize();
+        if (updateSlots.length < nm) {
+            updateSlots = new int[nm];
+            updateZ = new double[nm * m];
+        }
+        int count = 0;
+        for (int j = 0; j < nm; j++) {
+            int i = trackOf[j];
+            if (i >= 0) {
+                Vector z = measurements.get(j);
+                updateSlots[count] = tracks.get(i).slot;
+                for (int a = 0; a < m; a++) {
+                    updateZ[count * m + a] = z.get(a);
+                }
+                count++;
+            }
+        }
+        bank.updateSubset(updateSlots, count, updateZ);
+    }
+
+    // JPDA: every track takes all of its gated measurements, weighted by beta.
+    // As with hard association, a track with a measurement in its gate is kept
+    // alive (not its total beta: a young track's wide gate keeps that low until
+    // P has shrunk), and a measurement outside every gate starts a new track
+    // (trackOf is only used as "inside some gate" here).
+    private void updateJpda(List<Vector> measurements, int nt, int nm) {
+        gatePairs(measurements, nt, nm, true);
+        int count = pairCount;
+        if (pairBeta.length < count) {
+            pairBeta = new double[pairs.length];
+        }
+        double gateProbability = Double.isNaN(chiSquareGate)
+                ? 1.0
+                : 1.0 - Math.exp(-0.5 * chiSquareGate);  // chi-square CDF, 2 degrees of freedom
+        jpda.solve(nt, nm, pairs, pairDist, count, gateProbability, pairBeta);
+
+        // Group (z, beta) by track
+        if (trackPairStart.length < nt + 1) {
+            trackPairStart = new int[Math.max(nt + 1, 2 * trackPairStart.length)];
+        }
+        if (weightedZ.length < count) {
+            weightedZ = new Vector[pairs.length];
+            weightedBeta = new double[pairs.length];
+        }
+        Arrays.fill(trackPairStart, 0, nt + 1, 0);
+        Arrays.fill(trackOf, 0, nm, -1);
+        for (int k = 0; k < count; k++) {
+            trackPairStart[(int) (pairs[k] >>> 32) + 1]++;
+        }
+        for (int i = 0; i < nt; i++) {
+            trackPairStart[i + 1] += trackPairStart[i];
+        }
+        for (int k = 0; k < count; k++) {
+            int i = (int) (pairs[k] >>> 32);
+            int j = (int) pairs[k];
+            int slot = trackPairStart[i]++;
+            weightedZ[slot] = measurements.get(j);
+            weightedBeta[slot] = pairBeta[k];
+            trackOf[j] = i;
+        }
+        for (int i = nt; i > 0; i--) {
+            trackPairStart[i] = trackPairStart[i - 1];
+        }
+        trackPairStart[0] = 0;
+
+        // Each track's update touches only its own filter
+        if (parallelAssociation && nt >= PARALLEL_MIN_TRACKS) {
+            IntStream.range(0, nt).parallel().forEach(this::updateWeighted);
+        } else {
+            for (int i = 0; i < nt; i++) {
+                updateWeighted(i);
+            }
+        }
+        gridValid = false;
+
+        for (int i = 0; i < nt; i++) {
+            double detected = 0.0;
+            for (int s = trackPairStart[i]; s < trackPairStart[i + 1]; s++) {
+                detected += weightedBeta[s];
+            }
+            trackUsed[i] = trackPairStart[i + 1] > trackPairStart[i];
+            if (trackUsed[i]) {
+                SimpleTrack t = tracks.get(i);
+                t.coastCount = 0;
+                if (verbose) {
+                    System.out.printf("    Updated Track %d (JPDA, p = %.2f)%n", t.id, detected);
+                }
+            }
+        }
+    }
+
+    private void updateWeighted(int i) {
+        int from = trackPairStart[i];
+        int count = trackPairStart[i + 1] - from;
+        if (count > 0) {
+            tracks.get(i).track.updateWeighted(weightedZ, weightedBeta, from, count);
+        }
+    }
+
+    // Fills trackOf/trackUsed from all gated (track, measurement) pairs; the cost
+    // is the distance (squared Mahalanobis distance with a chi-square gate)
+    private void associate(List<Vector> measurements, int nt, int nm) {
+        gatePairs(measurements, nt, nm, false);
+        int count = pairCount;
+
+        if (association == Association.GNN) {
+            double missCost = Double.isNaN(chiSquareGate) ? gateThreshold : chiSquareGate;
+            gnn.solve(nt, nm, pairs, pairDist, count, missCost, trackOf, trackUsed);
+            return;
+        }
+
+        // Greedy, closest first: sort (distance, pair) keys. Distances are non-negative, so
+        // their float bits order like the values; near-ties fall back to pair order
+        if (sortKeys.length < count) {
+            sortKeys = new long[pairs.length];
+        }
+        for (int a = 0; a < count; a++) {
+            sortKeys[a] = (long) Float.floatToIntBits((float) pairDist[a]) << 32 | a;
+        }
+        Arrays.sort(sortKeys, 0, count);
+
+        Arrays.fill(trackOf, 0, nm, -1);
+        Arrays.fill(trackUsed, 0, nt, false);
+        for (int s = 0; s < count; s++) {
+            long pair = pairs[(int) sortKeys[s]];
+            int i = (int) (pair >>> 32);
+            int j = (int) pair;
+            if (!trackUsed[i] && trackOf[j] < 0) {
+                trackUsed[i] = true;
+                trackOf[j] = i;
+            }
+        }
+    }
+
+    // All gated (track, measurement) pairs into pairs/pairDist: the distance, the
+    // squared Mahalanobis distance with a chi-square gate, or with likelihoods
+    // the log-likelihood of z against the track
+    private void gatePairs(List<Vector> measurements, int nt, int nm, boolean likelihoods) {
+        if (trackOf.length < nm) {
+            trackOf = new int[nm];
+        }
+        if (trackUsed.length < nt) {
+            trackUsed = new boolean[nt];
+        }
+
+        // Each measurement only looks at the tracks in its neighbouring cells
+        ensureGrid();
+        boolean filterWork = likelihoods || !Double.isNaN(chiSquareGate);
+        if (filterWork && chunkSize(nt) < nt) {
+            gatePairsParallel(measurements, nt, nm, likelihoods);
+            return;
+        }
+        pairCount = 0;
+        for (int j = 0; j < nm; j++) {
+            Vector z = measurements.get(j);
+            final int meas = j;
+            final double zx = z.get(0);
+            final double zy = z.get(1);
+            grid.forEachWithin(zx, zy, gateThreshold, i -> {
+                Track track = tracks.get(i).track;
+                if (Double.isNaN(chiSquareGate)) {
+                    double dx = gridX[i] - zx;
+                    double dy = gridY[i] - zy;
+                    addPair(i, meas, likelihoods ? track.logLikelihood(z) : Math.sqrt(dx*dx + dy*dy));
+                } else {
+                    double d2 = track.mahalanobisSquared(z);
+                    if (d2 < chiSquareGate) {
+                        addPair(i, meas, likelihoods ? track.logLikelihood(z) : d2);
+                    }
+                }
+            });
+        }
+    }
+
+    // gatePairs with the filter work split by track: a track's gating scratch
+    // (cached S, residual) must not be shared between threads. The grid lists
+    // candidates in the sequential order, each track evaluates its own, and the
+    // gate then keeps them in that order, so pairs come out exactly as before.
+    private void gatePairsParallel(List<Vector> measurements, int nt, int nm, boolean likelihoods) {
+        candidateCount = 0;
+        for (int j = 0; j < nm; j++) {
+            final int meas = j;
+            Vector z = measurements.get(j);
+            grid.forEachWithin(z.get(0), z.get(1), gateThreshold, i -> addCandidate(i, meas));
+        }
+        int count = candidateCount;
+
+        // Candidate indices grouped by track
+        if (candidateStart.length < nt + 1) {
+            candidateStart = new int[Math.max(nt + 1, 2 * candidateStart.length)];
+        }
+        if (candidateByTrack.length < count) {
+            candidateByTrack = new int[candidates.length];
+        }
+        Arrays.fill(candidateStart, 0, nt + 1, 0);
+        for (int k = 0; k < count; k++) {
+            candidateStart[(int) (candidates[k] >>> 32) + 1]++;
+        }
+        for (int i = 0; i < nt; i++) {
+            candidateStart[i + 1] += candidateStart[i];
+        }
+        for (int k = 0; k < count; k++) {
+            candidateByTrack[candidateStart[(int) (candidates[k] >>> 32)]++] = k;
+        }
+        for (int i = nt; i > 0; i--) {
+            candidateStart[i] = candidateStart[i - 1];
+        }
+        candidateStart[0] = 0;
+
+        // NaN marks a candidate outside the chi-square gate
+        runChunked(nt, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                Track track = tracks.get(i).track;
+                for (int s = candidateStart[i]; s < candidateStart[i + 1]; s++) {
+                    int k = candidateByTrack[s];
+                    Vector z = measurements.get((int) candidates[k]);
+                    if (Double.isNaN(chiSquareGate)) {
+                        candidateValue[k] = track.logLikelihood(z);
+                    } else {
+                        double d2 = track.mahalanobisSquared(z);
+                        candidateValue[k] = d2 < chiSquareGate
+                                ? (likelihoods ? track.logLikelihood(z) : d2)
+                                : Double.NaN;
+                    }
+                }
+            }
+        });
+
+        pairCount = 0;
+        for (int k = 0; k < count; k++) {
+            if (!Double.isNaN(candidateValue[k])) {
+                addPair((int) (candidates[k] >>> 32), (int) candidates[k], candidateValue[k]);
+            }
+        }
+    }
+
+    private void addCandidate(int track, int meas) {
+        if (candidateCount == candidates.length) {
+            candidates = Arrays.copyOf(candidates, Math.max(16, 2 * candidateCount));
+            candidateValue = Arrays.copyOf(candidateValue, candidates.length);
+        }
+        candidates[candidateCount++] = (long) track << 32 | meas;
+    }
+
+    private void addPair(int track, int meas, double dist) {
+        if (pairCount == pairs.length) {
+            pairs = Arrays.copyOf(pairs, Math.max(16, 2 * pairCount));
+            pairDist = Arrays.copyOf(pairDist, pairs.length);
+        }
+        pairs[pairCount] = (long) track << 32 | meas;
+        pairDist[pairCount] = dist;
+        pairCount++;
+    }
+
+    void createTrack(Vector z) {
+        gridValid = false;
+        int id = nextTrackId.getAndIncrement();
+        SimpleTrack st;
+        if (bank != null) {
+            int slot = bank.add(initialState(z), initialCovariance());
+            st = new SimpleTrack(id, new Track(bank.slot(slot)));
+            st.slot = slot;
+        } else {
+            st = new SimpleTrack(id, makeNewTrack(z));
+        }
+        tracks.add(st);
+        if (verbose) {
+            System.out.println("    Created Track " + id);
+        }
+    }
+
+    void deleteCoasted() {
+        gridValid = false;
         Iterator<SimpleTrack> it = tracks.iterator();
         while (it.hasNext()) {
             SimpleTrack t = it.next();
             if (t.coastCount > maxCoast) {
-                System.out.println("    Track " + t.id + " deleted (coasted too long)");
+                if (verbose) {
+                    System.out.println("    Track " + t.id + " deleted (coasted too long)");
+                }
+                if (t.slot >= 0) {
+                    bank.remove(t.slot);
+                }
                 it.remove();
             }
         }
     }
 
+    public List<SimpleTrack> getTracks() {
+        return tracks;
+    }
+
     private Track makeNewTrack(Vector z) {
-        Vector x0 = new Vector(new double[] {
+        KalmanFilter kf = new KalmanFilter(initialState(z), initialCovariance(), cvModel,
+                measurementMatrix(), measurementNoise());
+        kf.setSteadyState(steadyState);
+        return new Track(kf);
+    }
+
+    private static Vector initialState(Vector z) {
+        return new Vector(new double[] {
                 z.get(0),  // x
                 z.get(1),  // y
                 0.0,       // vx (unknown)
                 0.0        // vy (unknown)
         });
+    }
 
-        Matrix P0 = Matrix.identity(4).multiply(1000.0);
+    private static Matrix initialCovariance() {
+        return Matrix.identity(4).multiply(1000.0);
+    }
 
-        CVModel model = new CVModel(1.0);
+    // H and R are shared by every track (read-only), so per-(model, H, R)
+    // results such as the steady-state gain are shared too
+    private static final Matrix H = new Matrix(new double[][] {
+            {1, 0, 0, 0},
+            {0, 1, 0, 0}
+    }).freeze();
 
-        Matrix H = new Matrix(new double[][] {
-                {1, 0, 0, 0},
-                {0, 1, 0, 0}
-        });
+    private static final Matrix R = new Matrix(new double[][] {
+            {4, 0},
+            {0, 4}
+    }).freeze();
 
-        Matrix R = new Matrix(new double[][] {
-                {4, 0},
-                {0, 4}
-        });
+    private static Matrix measurementMatrix() {
+        return H;
+    }
 
-        KalmanFilter kf = new KalmanFilter(x0, P0, model, H, R);
-        return new Track(kf);
+    private static Matrix measurementNoise() {
+        return R;
     }
 }
@@ -2,6 +2,7 @@ package tracking;
 
 import filters.KalmanFilter;
 import math.Matrix;
+import math.SymmetricMatrix;
 import math.Vector;
 import models.CA1DModel;
 import models.CV1DModel;
@@ -94,7 +95,7 @@ public class VerticalChannel {
 
     private void switchCAtoCV() {
         Vector x_ca = filter.getState();       // [z, vz, az]
-        Matrix P_ca = filter.getCovariance();  // 3x3
+        SymmetricMatrix P_ca = filter.getSymmetricCovariance();  // 3x3
 
         // Projection S: pick z and vz only
         Matrix S = new Matrix(new double[][] {
@@ -103,7 +104,7 @@ public class VerticalChannel {
         });
 
         Vector x_cv = S.multiply(x_ca);                         // 2x1
-        Matrix P_cv = S.multiply(P_ca).multiply(S.transpose()); // 2x2
+        SymmetricMatrix P_cv = P_ca.congruence(S);              // 2x2
 
         this.filter = new KalmanFilter(x_cv, P_cv, cvModel, H_cv, R);
         this.mode = Mode.CV;
@@ -111,7 +112,7 @@ public class VerticalChannel {
 
     private void switchCVtoCA() {
         Vector x_cv = filter.getState();      // [z, vz]
-        Matrix P_cv = filter.getCovariance(); // 2x2
+        SymmetricMatrix P_cv = filter.getSymmetricCovariance(); // 2x2
 
         // Expansion T: embed into 3D
         Matrix T = new Matrix(new double[][] {
@@ -122,7 +123,7 @@ public class VerticalChannel {
 
         Vector x_ca = T.multiply(x_cv); // [z, vz, 0]
 
-        Matrix P_ca = T.multiply(P_cv).multiply(T.transpose());
+        SymmetricMatrix P_ca = P_cv.congruence(T);
         // Add uncertainty for az
         P_ca.set(2, 2, P_ca.get(2, 2) + 10.0);
 